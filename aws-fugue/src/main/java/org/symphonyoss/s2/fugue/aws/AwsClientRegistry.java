@@ -0,0 +1,534 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.aws;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.fugue.FugueComponentState;
+import org.symphonyoss.s2.fugue.IFugueComponent;
+import org.symphonyoss.s2.fugue.metrics.IMetricsCollector;
+import org.symphonyoss.s2.fugue.metrics.IMetricsSource;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.secretsmanager.AWSSecretsManager;
+import com.amazonaws.services.secretsmanager.AWSSecretsManagerClientBuilder;
+import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
+import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClientBuilder;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.AmazonSNSClientBuilder;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+
+/**
+ * A registry of shared AWS clients.
+ * 
+ * Each AWS client has its own connection pool, so building a new client for every call, or for
+ * every component, costs a TLS handshake per connection and adds latency at startup. The registry
+ * holds a single client per service and region, all built from one tuned ClientConfiguration.
+ * 
+ * The configuration can only be changed before the first client is built. Clients obtained from the
+ * registry are shared and must not be shut down by the caller, they are shut down when the registry
+ * is stopped. Register the registry as a component of the server to have it stopped with the server
+ * and to expose connection pool metrics, which are sampled on each request made by a client:
+ * 
+ * <pre>
+ * server.register(AwsClientRegistry.getDefault());
+ * </pre>
+ * 
+ * Components are stopped in the reverse order of registration, so register the registry before the
+ * components which use its clients. Components hold on to the clients they are given, so stopping the
+ * default registry does nothing unless it was started as a component of a server.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class AwsClientRegistry implements IFugueComponent, IMetricsSource
+{
+  /** The default maximum number of connections per client. */
+  public static final int     DEFAULT_MAX_CONNECTIONS             = 100;
+  /** The default timeout for establishing a connection. */
+  public static final int     DEFAULT_CONNECTION_TIMEOUT_MILLIS   = 5000;
+  /** The default timeout for data on an established connection. */
+  public static final int     DEFAULT_SOCKET_TIMEOUT_MILLIS       = ClientConfiguration.DEFAULT_SOCKET_TIMEOUT;
+  /** The default maximum time a pooled connection may be idle before it is closed. */
+  public static final long    DEFAULT_CONNECTION_MAX_IDLE_MILLIS  = ClientConfiguration.DEFAULT_CONNECTION_MAX_IDLE_MILLIS;
+  /** The default maximum number of retries of a failed request. */
+  public static final int     DEFAULT_MAX_ERROR_RETRY             = 3;
+
+  private static final Logger log_                                = LoggerFactory.getLogger(AwsClientRegistry.class);
+
+  private static AwsClientRegistry        default_;
+
+  private final Map<String, ClientEntry>  clients_                = new ConcurrentHashMap<>();
+
+  private int                             maxConnections_         = DEFAULT_MAX_CONNECTIONS;
+  private int                             connectionTimeoutMillis_  = DEFAULT_CONNECTION_TIMEOUT_MILLIS;
+  private int                             socketTimeoutMillis_    = DEFAULT_SOCKET_TIMEOUT_MILLIS;
+  private long                            connectionMaxIdleMillis_  = DEFAULT_CONNECTION_MAX_IDLE_MILLIS;
+  private boolean                         tcpKeepAlive_           = true;
+  private int                             maxErrorRetry_          = DEFAULT_MAX_ERROR_RETRY;
+  private boolean                         throttledRetries_       = true;
+  private final boolean                   shared_;
+  private boolean                         started_;
+
+  /**
+   * Constructor.
+   */
+  public AwsClientRegistry()
+  {
+    this(false);
+  }
+  
+  private AwsClientRegistry(boolean shared)
+  {
+    shared_ = shared;
+  }
+
+  /**
+   * Return the process wide default registry.
+   * 
+   * Components which are not given a registry explicitly use this one.
+   * 
+   * @return The default registry.
+   */
+  public static synchronized AwsClientRegistry getDefault()
+  {
+    if(default_ == null)
+      default_ = new AwsClientRegistry(true);
+    
+    return default_;
+  }
+  
+  /**
+   * Set the maximum number of concurrent connections in the pool of each client.
+   * 
+   * @param maxConnections The maximum number of concurrent connections.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized AwsClientRegistry withMaxConnections(int maxConnections)
+  {
+    assertConfigurable();
+    
+    if(maxConnections < 1)
+      throw new IllegalArgumentException("maxConnections must be >= 1");
+    
+    maxConnections_ = maxConnections;
+    
+    return this;
+  }
+  
+  /**
+   * Set the timeout for establishing a connection.
+   * 
+   * @param connectionTimeoutMillis The timeout in milliseconds, 0 means no timeout.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized AwsClientRegistry withConnectionTimeoutMillis(int connectionTimeoutMillis)
+  {
+    assertConfigurable();
+    
+    if(connectionTimeoutMillis < 0)
+      throw new IllegalArgumentException("connectionTimeoutMillis must be >= 0");
+    
+    connectionTimeoutMillis_ = connectionTimeoutMillis;
+    
+    return this;
+  }
+  
+  /**
+   * Set the timeout for data on an established connection.
+   * 
+   * @param socketTimeoutMillis The timeout in milliseconds, 0 means no timeout.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized AwsClientRegistry withSocketTimeoutMillis(int socketTimeoutMillis)
+  {
+    assertConfigurable();
+    
+    if(socketTimeoutMillis < 0)
+      throw new IllegalArgumentException("socketTimeoutMillis must be >= 0");
+    
+    socketTimeoutMillis_ = socketTimeoutMillis;
+    
+    return this;
+  }
+  
+  /**
+   * Set the maximum time a pooled connection may be idle before it is closed.
+   * 
+   * @param connectionMaxIdleMillis The maximum idle time in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized AwsClientRegistry withConnectionMaxIdleMillis(long connectionMaxIdleMillis)
+  {
+    assertConfigurable();
+    
+    if(connectionMaxIdleMillis < 1)
+      throw new IllegalArgumentException("connectionMaxIdleMillis must be >= 1");
+    
+    connectionMaxIdleMillis_ = connectionMaxIdleMillis;
+    
+    return this;
+  }
+  
+  /**
+   * Set whether TCP keep-alive is enabled on pooled connections, the default is true.
+   * 
+   * @param tcpKeepAlive true to enable TCP keep-alive.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized AwsClientRegistry withTcpKeepAlive(boolean tcpKeepAlive)
+  {
+    assertConfigurable();
+    
+    tcpKeepAlive_ = tcpKeepAlive;
+    
+    return this;
+  }
+  
+  /**
+   * Set the maximum number of retries of a failed request.
+   * 
+   * Retries use the SDK default backoff strategy, which backs off further for throttling errors.
+   * 
+   * @param maxErrorRetry The maximum number of retries.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized AwsClientRegistry withMaxErrorRetry(int maxErrorRetry)
+  {
+    assertConfigurable();
+    
+    if(maxErrorRetry < 0)
+      throw new IllegalArgumentException("maxErrorRetry must be >= 0");
+    
+    maxErrorRetry_ = maxErrorRetry;
+    
+    return this;
+  }
+  
+  /**
+   * Set whether client side throttling of retries is enabled, the default is true.
+   * 
+   * When enabled, a client which sees a run of failures stops retrying until requests succeed again,
+   * rather than adding retry load to a service which is already failing.
+   * 
+   * @param throttledRetries true to enable throttling of retries.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized AwsClientRegistry withThrottledRetries(boolean throttledRetries)
+  {
+    assertConfigurable();
+    
+    throttledRetries_ = throttledRetries;
+    
+    return this;
+  }
+  
+  private void assertConfigurable()
+  {
+    if(!clients_.isEmpty())
+      throw new IllegalStateException("Clients have already been created, the registry cannot be reconfigured.");
+  }
+  
+  /**
+   * Create a new ClientConfiguration with the settings of this registry.
+   * 
+   * This is intended for components which need a dedicated client, for example one with a larger
+   * connection pool, but which should otherwise be configured in the same way as shared clients.
+   * 
+   * @return A new ClientConfiguration.
+   */
+  public synchronized ClientConfiguration newClientConfiguration()
+  {
+    return new ClientConfiguration()
+        .withMaxConnections(maxConnections_)
+        .withConnectionTimeout(connectionTimeoutMillis_)
+        .withSocketTimeout(socketTimeoutMillis_)
+        .withConnectionMaxIdleMillis(connectionMaxIdleMillis_)
+        .withTcpKeepAlive(tcpKeepAlive_)
+        .withRetryPolicy(PredefinedRetryPolicies.getDefaultRetryPolicyWithCustomMaxRetries(maxErrorRetry_))
+        .withThrottledRetries(throttledRetries_);
+  }
+  
+  /**
+   * Return the shared client of the given type for the given region, building it if necessary.
+   * 
+   * @param <B>     The type of the client builder.
+   * @param <C>     The type of the client.
+   * @param type    The client interface type, which identifies the service.
+   * @param region  The AWS region.
+   * @param builder A supplier of a new builder for the client, typically the standard() method of the builder class.
+   * 
+   * @return The shared client.
+   */
+  public <B extends AwsClientBuilder<B, C>, C> C getClient(Class<C> type, String region, Supplier<B> builder)
+  {
+    String key = type.getName() + "/" + region;
+    ClientEntry entry = clients_.get(key);
+    
+    if(entry == null)
+    {
+      synchronized(this)
+      {
+        entry = clients_.get(key);
+        
+        if(entry == null)
+        {
+          log_.info("Creating " + type.getSimpleName() + " client for " + region);
+          
+          ClientMetrics metrics = new ClientMetrics();
+          C client = builder.get()
+              .withRegion(region)
+              .withClientConfiguration(newClientConfiguration())
+              .withMetricsCollector(metrics)
+              .build();
+          
+          entry = new ClientEntry(type.getSimpleName(), region, client, metrics);
+          clients_.put(key, entry);
+        }
+      }
+    }
+    
+    return type.cast(entry.client_);
+  }
+  
+  /**
+   * @param region The AWS region.
+   * 
+   * @return The shared S3 client for the given region.
+   */
+  public AmazonS3 getS3(String region)
+  {
+    return getClient(AmazonS3.class, region, AmazonS3ClientBuilder::standard);
+  }
+  
+  /**
+   * @param region The AWS region.
+   * 
+   * @return The shared SNS client for the given region.
+   */
+  public AmazonSNS getSns(String region)
+  {
+    return getClient(AmazonSNS.class, region, AmazonSNSClientBuilder::standard);
+  }
+  
+  /**
+   * @param region The AWS region.
+   * 
+   * @return The shared SQS client for the given region.
+   */
+  public AmazonSQS getSqs(String region)
+  {
+    return getClient(AmazonSQS.class, region, AmazonSQSClientBuilder::standard);
+  }
+  
+  /**
+   * @param region The AWS region.
+   * 
+   * @return The shared STS client for the given region.
+   */
+  public AWSSecurityTokenService getSts(String region)
+  {
+    return getClient(AWSSecurityTokenService.class, region, AWSSecurityTokenServiceClientBuilder::standard);
+  }
+  
+  /**
+   * @param region The AWS region.
+   * 
+   * @return The shared Secrets Manager client for the given region.
+   */
+  public AWSSecretsManager getSecretsManager(String region)
+  {
+    return getClient(AWSSecretsManager.class, region, AWSSecretsManagerClientBuilder::standard);
+  }
+  
+  /**
+   * @return The number of clients currently held by the registry.
+   */
+  public int getClientCount()
+  {
+    return clients_.size();
+  }
+
+  @Override
+  public synchronized void start()
+  {
+    started_ = true;
+  }
+
+  /**
+   * Shut down all clients.
+   * 
+   * Clients requested after the registry has been stopped are built afresh. The default registry is
+   * only shut down if it has been started, so that stopping it from elsewhere cannot shut down clients
+   * which are still held by running components.
+   */
+  @Override
+  public synchronized void stop()
+  {
+    if(shared_ && !started_)
+    {
+      log_.debug("The default AWS client registry has not been started, clients are not shut down.");
+      return;
+    }
+    
+    started_ = false;
+    
+    for(ClientEntry entry : clients_.values())
+    {
+      if(entry.client_ instanceof AmazonWebServiceClient)
+        ((AmazonWebServiceClient)entry.client_).shutdown();
+    }
+    
+    clients_.clear();
+  }
+
+  @Override
+  public FugueComponentState getComponentState()
+  {
+    return FugueComponentState.OK;
+  }
+
+  @Override
+  public String getComponentStatusMessage()
+  {
+    return clients_.size() + " shared AWS clients";
+  }
+
+  @Override
+  public void collectMetrics(IMetricsCollector collector)
+  {
+    List<ClientEntry> entries = new ArrayList<>(clients_.values());
+    
+    for(ClientEntry entry : entries)
+      collector.gauge("fugue_aws_client_pool_max", "Maximum connections in the pool of a shared AWS client", maxConnections_, entry.labels_);
+    
+    for(ClientEntry entry : entries)
+      collector.gauge("fugue_aws_client_pool_leased", "Connections in use at the most recent request", entry.metrics_.leased_, entry.labels_);
+    
+    for(ClientEntry entry : entries)
+      collector.gauge("fugue_aws_client_pool_available", "Idle pooled connections at the most recent request", entry.metrics_.available_, entry.labels_);
+    
+    for(ClientEntry entry : entries)
+      collector.gauge("fugue_aws_client_pool_pending", "Requests waiting for a connection at the most recent request", entry.metrics_.pending_, entry.labels_);
+    
+    for(ClientEntry entry : entries)
+      collector.counter("fugue_aws_client_requests_total", "Requests made by a shared AWS client", entry.metrics_.requestCount_.get(), entry.labels_);
+    
+    for(ClientEntry entry : entries)
+      collector.counter("fugue_aws_client_failures_total", "Requests which failed after all retries", entry.metrics_.failureCount_.get(), entry.labels_);
+    
+    for(ClientEntry entry : entries)
+      collector.counter("fugue_aws_client_retries_total", "Retried attempts made by a shared AWS client", entry.metrics_.retryCount_.get(), entry.labels_);
+    
+    for(ClientEntry entry : entries)
+      collector.counter("fugue_aws_client_throttled_total", "Attempts rejected by the service with a throttling error", entry.metrics_.throttleCount_.get(), entry.labels_);
+  }
+  
+  private static class ClientEntry
+  {
+    private final String[]      labels_;
+    private final Object        client_;
+    private final ClientMetrics metrics_;
+    
+    private ClientEntry(String service, String region, Object client, ClientMetrics metrics)
+    {
+      labels_ = new String[] {"service", service, "region", region};
+      client_ = client;
+      metrics_ = metrics;
+    }
+  }
+  
+  private static class ClientMetrics extends RequestMetricCollector
+  {
+    private final AtomicLong requestCount_  = new AtomicLong();
+    private final AtomicLong failureCount_  = new AtomicLong();
+    private final AtomicLong retryCount_    = new AtomicLong();
+    private final AtomicLong throttleCount_ = new AtomicLong();
+    private volatile long    leased_;
+    private volatile long    available_;
+    private volatile long    pending_;
+    
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response)
+    {
+      AWSRequestMetrics requestMetrics = request.getAWSRequestMetrics();
+      
+      requestCount_.incrementAndGet();
+      
+      if(response == null)
+        failureCount_.incrementAndGet();
+      
+      if(requestMetrics == null)
+        return;
+      
+      TimingInfo timingInfo = requestMetrics.getTimingInfo();
+      
+      leased_     = getCounter(timingInfo, Field.HttpClientPoolLeasedCount, leased_);
+      available_  = getCounter(timingInfo, Field.HttpClientPoolAvailableCount, available_);
+      pending_    = getCounter(timingInfo, Field.HttpClientPoolPendingCount, pending_);
+      
+      long attempts = getCounter(timingInfo, Field.RequestCount, 1);
+      
+      if(attempts > 1)
+        retryCount_.addAndGet(attempts - 1);
+      
+      List<Object> throttles = requestMetrics.getProperty(Field.ThrottleException);
+      
+      if(throttles != null)
+        throttleCount_.addAndGet(throttles.size());
+    }
+    
+    private long getCounter(TimingInfo timingInfo, Field field, long defaultValue)
+    {
+      Number value = timingInfo.getCounter(field.name());
+      
+      return value == null ? defaultValue : value.longValue();
+    }
+  }
+}
@@ -31,9 +31,9 @@ import java.net.URL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.common.fault.ProgramFault;
+import org.symphonyoss.s2.fugue.aws.AwsClientRegistry;
 
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
@@ -84,9 +84,7 @@ public class S3ConfigFileMapper
   private void loadConfig(FileOutputStream out, String region, String bucket, String key)
   {
     log_.info("Loading config from region: " + region + " bucket: " + bucket + " key: " + key);
-    AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-        .withRegion(region)
-        .build();
+    AmazonS3 s3Client = AwsClientRegistry.getDefault().getS3(region);
   
     S3Object s3object = s3Client.getObject(new GetObjectRequest(bucket, key));
     
@@ -33,9 +33,9 @@ import java.net.URL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.common.dom.json.ImmutableJsonDom;
+import org.symphonyoss.s2.fugue.aws.AwsClientRegistry;
 
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
@@ -113,10 +113,7 @@ public class S3ConfigWriter
   public void saveConfig(String region, String bucket, String key, ImmutableJsonDom json)
   {
     log_.info("Saving config to region: " + region + " bucket: " + bucket + " key: " + key);
-    AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-        .withRegion(region)
-//        .withCredentials(new EnvironmentVariableCredentialsProvider())
-        .build();
+    AmazonS3 s3Client = AwsClientRegistry.getDefault().getS3(region);
   
     ObjectMetadata metadata = new ObjectMetadata();
     metadata.setContentType("application/json");
@@ -24,29 +24,24 @@
 package org.symphonyoss.s2.fugue.aws.config;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.common.fault.ProgramFault;
+import org.symphonyoss.s2.fugue.aws.AwsClientRegistry;
 import org.symphonyoss.s2.fugue.config.Configuration;
+import org.symphonyoss.s2.fugue.config.ConfigurationSnapshotCache;
 import org.symphonyoss.s2.fugue.config.FileConfiguration;
+import org.symphonyoss.s2.fugue.config.FileConfigurationSource;
 import org.symphonyoss.s2.fugue.config.IConfiguration;
 import org.symphonyoss.s2.fugue.config.IConfigurationFactory;
+import org.symphonyoss.s2.fugue.config.IConfigurationSource;
 import org.symphonyoss.s2.fugue.Fugue;
 
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
-import com.amazonaws.services.s3.model.S3ObjectInputStream;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * An implementation of IConfiguration which reads a JSON document from an S3 bucket.
@@ -54,6 +49,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * If the value of the given variable is not a valid URL this class attempts to read
  * that value as a file name.
  * 
+ * The configuration can be reloaded when the object or file changes with a ConfigurationReloader.
+ * Configuration read from S3 is cached in the default ConfigurationSnapshotCache.
+ * 
  * @author Bruce Skingle
  *
  */
@@ -111,21 +109,10 @@ public class S3Configuration extends Configuration
       
       if(file.exists())
       {
-        try(InputStream in = new FileInputStream(file))
-        {
-          log_.info("Loading config from file " + file.getAbsolutePath());
-          
-          loadConfig(in);
-          setName(file.getAbsolutePath() + " ");
-        }
-        catch (FileNotFoundException e1)
-        {
-          throw new ProgramFault(variableName + " is " + fugueConfig + " but this file does not exist.", e1);
-        }
-        catch (IOException e1)
-        {
-          log_.warn("Failed to close config input", e1);
-        }
+        log_.info("Loading config from file " + file.getAbsolutePath());
+        
+        loadConfig(new FileConfigurationSource(file), null);
+        setName(file.getAbsolutePath() + " ");
       }
       else
       {
@@ -138,32 +125,17 @@ public class S3Configuration extends Configuration
   private void loadConfig(String region, String bucket, String key)
   {
     log_.info("Loading config from region: " + region + " bucket: " + bucket + " key: " + key);
-    AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-        .withRegion(region)
-        .build();
+    AmazonS3 s3Client = AwsClientRegistry.getDefault().getS3(region);
   
-    S3Object s3object = s3Client.getObject(new GetObjectRequest(bucket, key));
-    
-    try(S3ObjectInputStream in = s3object.getObjectContent())
-    {
-      loadConfig(in);
-    }
-    catch (IOException e)
-    {
-      log_.warn("Failed to close config input", e);
-    }
+    loadConfig(new S3ConfigurationSource(s3Client, bucket, key), ConfigurationSnapshotCache.getDefault());
   }
 
 
-  private void loadConfig(InputStream in)
+  private void loadConfig(IConfigurationSource source, ConfigurationSnapshotCache cache)
   {
-    ObjectMapper mapper = new ObjectMapper();
-    
     try
     {
-      JsonNode configSpec = mapper.readTree(in);
-      
-      setTree(configSpec);
+      load(source, cache);
     }
     catch (IOException e1)
     {
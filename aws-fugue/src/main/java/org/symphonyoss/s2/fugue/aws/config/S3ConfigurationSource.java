@@ -0,0 +1,109 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.aws.config;
+
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.s2.fugue.config.IConfigurationSource;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * An IConfigurationSource which reads a JSON document from an S3 object.
+ * 
+ * Requests are conditional on the ETag of the previous response, so an unchanged object is not
+ * transferred again.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class S3ConfigurationSource implements IConfigurationSource
+{
+  private final AmazonS3 s3Client_;
+  private final String   bucket_;
+  private final String   key_;
+  private String         etag_;
+
+  /**
+   * Constructor.
+   * 
+   * @param s3Client  An S3 client for the region containing the bucket.
+   * @param bucket    The bucket name.
+   * @param key       The object key.
+   */
+  public S3ConfigurationSource(AmazonS3 s3Client, String bucket, String key)
+  {
+    s3Client_ = s3Client;
+    bucket_ = bucket;
+    key_ = key;
+  }
+
+  @Override
+  public synchronized @Nullable JsonNode fetchIfChanged() throws IOException
+  {
+    GetObjectRequest request = new GetObjectRequest(bucket_, key_);
+    
+    if(etag_ != null)
+      request.withNonmatchingETagConstraint(etag_);
+    
+    S3Object s3object = s3Client_.getObject(request);
+    
+    // getObject returns null when the ETag constraint is not met.
+    if(s3object == null)
+      return null;
+    
+    try(S3ObjectInputStream in = s3object.getObjectContent())
+    {
+      JsonNode tree = new ObjectMapper().readTree(in);
+      
+      etag_ = s3object.getObjectMetadata().getETag();
+      
+      return tree;
+    }
+  }
+
+  @Override
+  public synchronized @Nullable String getETag()
+  {
+    return etag_;
+  }
+
+  @Override
+  public synchronized void setETag(@Nullable String etag)
+  {
+    etag_ = etag;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "s3://" + bucket_ + "/" + key_;
+  }
+}
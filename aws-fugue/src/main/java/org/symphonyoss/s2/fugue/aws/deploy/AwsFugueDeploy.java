@@ -49,6 +49,7 @@ import org.symphonyoss.s2.common.dom.json.ImmutableJsonObject;
 import org.symphonyoss.s2.common.dom.json.jackson.JacksonAdaptor;
 import org.symphonyoss.s2.common.fault.CodingFault;
 import org.symphonyoss.s2.common.immutable.ImmutableByteArray;
+import org.symphonyoss.s2.fugue.aws.AwsClientRegistry;
 import org.symphonyoss.s2.fugue.aws.config.S3Helper;
 import org.symphonyoss.s2.fugue.aws.secret.AwsSecretManager;
 import org.symphonyoss.s2.fugue.deploy.ConfigHelper;
@@ -1269,9 +1270,7 @@ public abstract class AwsFugueDeploy extends FugueDeploy
       
       log_.info("Saving config to region: " + getAwsRegion() + " bucket: " + bucketName + " key: " + key);
       
-      AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-          .withRegion(getAwsRegion())
-          .build();
+      AmazonS3 s3Client = AwsClientRegistry.getDefault().getS3(getAwsRegion());
     
       try
       {
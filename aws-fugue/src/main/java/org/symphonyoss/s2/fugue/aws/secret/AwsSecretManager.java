@@ -31,11 +31,11 @@ import org.symphonyoss.s2.common.dom.json.IImmutableJsonDomNode;
 import org.symphonyoss.s2.common.dom.json.jackson.JacksonAdaptor;
 import org.symphonyoss.s2.common.exception.NoSuchObjectException;
 import org.symphonyoss.s2.common.fault.CodingFault;
+import org.symphonyoss.s2.fugue.aws.AwsClientRegistry;
 import org.symphonyoss.s2.fugue.naming.CredentialName;
 import org.symphonyoss.s2.fugue.secret.ISecretManager;
 
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
-import com.amazonaws.services.secretsmanager.AWSSecretsManagerClientBuilder;
 import com.amazonaws.services.secretsmanager.model.CreateSecretRequest;
 import com.amazonaws.services.secretsmanager.model.CreateSecretResult;
 import com.amazonaws.services.secretsmanager.model.GetSecretValueRequest;
@@ -70,12 +70,21 @@ public class AwsSecretManager implements ISecretManager
    * @param region The AWS region in which to operate.
    */
   public AwsSecretManager(String region)
+  {
+    this(region, AwsClientRegistry.getDefault());
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param region          The AWS region in which to operate.
+   * @param clientRegistry  The registry from which to obtain the Secrets Manager client.
+   */
+  public AwsSecretManager(String region, AwsClientRegistry clientRegistry)
   {
     region_ = region;
 
-    secretClient_ = AWSSecretsManagerClientBuilder.standard()
-        .withRegion(region_)
-        .build();
+    secretClient_ = clientRegistry.getSecretsManager(region_);
   }
   
   @Override
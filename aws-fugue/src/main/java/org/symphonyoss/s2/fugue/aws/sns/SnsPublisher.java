@@ -48,7 +48,7 @@ class SnsPublisher implements IPublisher<String>
     if(topicName_ == null)
       throw new IllegalStateException("Publisher is not started");
     
-    manager_.send(topicName_, item);
+    manager_.send(topicName_, item, trace);
   }
 
   
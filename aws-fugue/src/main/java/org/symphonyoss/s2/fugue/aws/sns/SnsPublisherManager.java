@@ -23,22 +23,29 @@
 
 package org.symphonyoss.s2.fugue.aws.sns;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.common.fault.TransactionFault;
+import org.symphonyoss.s2.fugue.aws.AwsClientRegistry;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
 import org.symphonyoss.s2.fugue.naming.INameFactory;
 import org.symphonyoss.s2.fugue.naming.TopicName;
 import org.symphonyoss.s2.fugue.pubsub.AbstractPublisherManager;
 import org.symphonyoss.s2.fugue.pubsub.IPublisher;
+import org.symphonyoss.s2.fugue.pubsub.TraceAttributes;
 
 import com.amazonaws.services.sns.AmazonSNS;
 import com.amazonaws.services.sns.AmazonSNSClientBuilder;
+import com.amazonaws.services.sns.model.MessageAttributeValue;
 import com.amazonaws.services.sns.model.PublishRequest;
 
 /**
@@ -51,7 +58,16 @@ public class SnsPublisherManager extends AbstractPublisherManager<String, SnsPub
 {
   private static final Logger          log_                = LoggerFactory.getLogger(SnsPublisherManager.class);
 
-  static final int MAX_MESSAGE_SIZE = 256 * 1024; // 256K
+  /** The maximum size of an SNS message, including the names, types and values of its attributes. */
+  static final int SNS_MAX_SIZE       = 256 * 1024; // 256K
+
+  /** The longest trace ID which is sent as a message attribute, in bytes. */
+  static final int MAX_TRACE_ID_BYTES = 256;
+
+  /** The space reserved for the traceTime and traceId attributes added by createPublishRequest. */
+  static final int ATTRIBUTE_RESERVE  = 512;
+
+  static final int MAX_MESSAGE_SIZE   = SNS_MAX_SIZE - ATTRIBUTE_RESERVE;
 
   private final INameFactory              nameFactory_;
   private final String                    region_;
@@ -63,6 +79,7 @@ public class SnsPublisherManager extends AbstractPublisherManager<String, SnsPub
   /* package */ List<TopicName>           topicNames_         = new ArrayList<>();
 
   /* package */ AmazonSNS                 snsClient_;
+  private boolean                         dedicatedClient_;
 
   /**
    * Constructor.
@@ -86,11 +103,62 @@ public class SnsPublisherManager extends AbstractPublisherManager<String, SnsPub
     
     log_.info("Starting SNSPublisherManager in " + region_ + "...");
     
-    snsClient_ = AmazonSNSClientBuilder.standard()
-      .withRegion(region_)
-      .build();
+    snsClient_ = AwsClientRegistry.getDefault().getSns(region_);
+  }
+
+  /**
+   * Use the shared SNS client from the given registry rather than that of the default registry.
+   * 
+   * @param clientRegistry An AWS client registry.
+   * 
+   * @return this (fluent method)
+   */
+  public SnsPublisherManager withClientRegistry(AwsClientRegistry clientRegistry)
+  {
+    assertConfigurable();
+    
+    if(dedicatedClient_)
+      snsClient_.shutdown();
+    
+    dedicatedClient_ = false;
+    snsClient_ = clientRegistry.getSns(region_);
     
+    return this;
+  }
 
+  /**
+   * Set the maximum number of concurrent connections to SNS.
+   * 
+   * Messages are published synchronously on the thread which calls the publisher, the default
+   * connection pool of the AWS client allows 50 concurrent publishes. When publishing from virtual
+   * threads, or any large number of threads, this should be increased to the expected number of
+   * concurrent publishers otherwise they will queue for connections.
+   * 
+   * This creates a dedicated client for this manager, configured in the same way as the shared clients
+   * of the default AwsClientRegistry apart from the size of its connection pool.
+   * 
+   * @param maxConnections The maximum number of concurrent connections.
+   * 
+   * @return this (fluent method)
+   */
+  public SnsPublisherManager withMaxConnections(int maxConnections)
+  {
+    assertConfigurable();
+    
+    if(maxConnections < 1)
+      throw new IllegalArgumentException("maxConnections must be >= 1");
+    
+    if(dedicatedClient_)
+      snsClient_.shutdown();
+    
+    snsClient_ = AmazonSNSClientBuilder.standard()
+        .withRegion(region_)
+        .withClientConfiguration(AwsClientRegistry.getDefault().newClientConfiguration()
+            .withMaxConnections(maxConnections))
+        .build();
+    dedicatedClient_ = true;
+    
+    return this;
   }
 
   @Override
@@ -128,7 +196,8 @@ public class SnsPublisherManager extends AbstractPublisherManager<String, SnsPub
   @Override
   public void stop()
   {
-    snsClient_.shutdown();
+    if(dedicatedClient_)
+      snsClient_.shutdown();
     
     for(SnsPublisher publisher : publishers_)
     {
@@ -153,17 +222,58 @@ public class SnsPublisherManager extends AbstractPublisherManager<String, SnsPub
   }
   
   protected void send(String topicArn, String msg)
+  {
+    send(topicArn, msg, null);
+  }
+  
+  protected void send(String topicArn, String msg, @Nullable ITraceContext trace)
   {
     try
     {
-      PublishRequest publishRequest = new PublishRequest(topicArn, msg);
-      snsClient_.publish(publishRequest);
+      snsClient_.publish(createPublishRequest(topicArn, msg, trace));
     }
     catch (RuntimeException e)
     {
       throw new TransactionFault(e);
     }
   }
+  
+  /**
+   * Create a request to publish the given message, with the message attributes which carry the trace
+   * context to subscribers.
+   * 
+   * SNS counts message attributes towards the maximum message size, so the space they take is deducted
+   * from getMaximumMessageSize(). A trace ID longer than MAX_TRACE_ID_BYTES does not fit in that space
+   * and is not sent.
+   * 
+   * @param topicArn  The topic to publish to.
+   * @param msg       The message.
+   * @param trace     The trace context of the publisher, or null.
+   * 
+   * @return A publish request.
+   */
+  protected static PublishRequest createPublishRequest(String topicArn, String msg, @Nullable ITraceContext trace)
+  {
+    PublishRequest publishRequest = new PublishRequest(topicArn, msg)
+        .addMessageAttributesEntry(TraceAttributes.TRACE_TIME, new MessageAttributeValue()
+            .withDataType("Number")
+            .withStringValue(String.valueOf(System.currentTimeMillis())));
+    
+    String traceId = trace == null ? null : trace.getTraceId();
+    
+    if(traceId != null && traceId.getBytes(StandardCharsets.UTF_8).length > MAX_TRACE_ID_BYTES)
+    {
+      log_.debug("Trace ID of " + traceId.length() + " characters is too long to send as a message attribute");
+      traceId = null;
+    }
+    
+    if(traceId != null)
+      publishRequest.addMessageAttributesEntry(TraceAttributes.TRACE_ID, new MessageAttributeValue()
+          .withDataType("String")
+          .withStringValue(traceId));
+    
+    return publishRequest;
+  }
 
   @Override
   public int getMaximumMessageSize()
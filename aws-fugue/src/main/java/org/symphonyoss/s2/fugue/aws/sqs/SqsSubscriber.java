@@ -23,6 +23,7 @@
 
 package org.symphonyoss.s2.fugue.aws.sqs;
 
+import java.time.Instant;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -30,9 +31,11 @@ import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
 import org.symphonyoss.s2.fugue.core.trace.ITraceContextFactory;
 import org.symphonyoss.s2.fugue.pipeline.IThreadSafeRetryableConsumer;
+import org.symphonyoss.s2.fugue.pubsub.TraceAttributes;
 
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 
 /**
@@ -44,6 +47,7 @@ import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 /* package */ class SqsSubscriber implements Runnable
 {
   private static final Logger log_ = LoggerFactory.getLogger(SqsSubscriber.class);
+  private static final String SENT_TIMESTAMP = "SentTimestamp";
   
   private final SqsSubscriberManager                 manager_;
   private final AmazonSQS                            sqsClient_;
@@ -80,13 +84,38 @@ import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
     run(true);
   }
 
+  /*
+   * The transaction starts at the time the message was published, if known, or else the time it was
+   * sent to the queue, so that time spent waiting in the queue is included.
+   */
+  /* package */ ITraceContext createTransaction(Message m)
+  {
+    Instant startTime = Instant.now();
+    String  sentTimestamp = m.getAttributes().get(SENT_TIMESTAMP);
+    
+    if(sentTimestamp != null)
+      startTime = TraceAttributes.parseTraceTime(sentTimestamp, startTime);
+    
+    MessageAttributeValue traceTime = m.getMessageAttributes().get(TraceAttributes.TRACE_TIME);
+    
+    if(traceTime != null)
+      startTime = TraceAttributes.parseTraceTime(traceTime.getStringValue(), startTime);
+    
+    MessageAttributeValue traceId = m.getMessageAttributes().get(TraceAttributes.TRACE_ID);
+    
+    return traceFactory_.createTransaction("SQS_Message", m.getMessageId(), startTime,
+        traceId == null ? null : traceId.getStringValue());
+  }
+
   public void run(boolean runIfIdle)
   {
     // receive messages from the queue
     
     ReceiveMessageRequest request = new ReceiveMessageRequest(queueUrl_)
         .withMaxNumberOfMessages(messageBatchSize_ )
-        .withWaitTimeSeconds(20);
+        .withWaitTimeSeconds(20)
+        .withMessageAttributeNames(TraceAttributes.TRACE_ID, TraceAttributes.TRACE_TIME)
+        .withAttributeNames(SENT_TIMESTAMP);
     try
     {    
       List<Message> messages = sqsClient_.receiveMessage(request).getMessages();
@@ -126,26 +155,48 @@ import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
           log_.debug("Extra schedule " + queueUrl_);
         }
         
-        for (Message m : messages)
+        // Until a message is claimed it can be released by the manager if we are stopping.
+        manager_.received(queueUrl_, messages);
+        
+        try
         {
-          ITraceContext trace = traceFactory_.createTransaction("SQS_Message", m.getMessageId());
-  
-          long retryTime = manager_.handleMessage(consumer_, m.getBody(), trace, m.getMessageId());
-          
-          if(retryTime < 0)
-          {
-            trace.trace("ABOUT_TO_ACK");
-            sqsClient_.deleteMessage(queueUrl_, m.getReceiptHandle());
-          }
-          else
+          for (Message m : messages)
           {
-            trace.trace("ABOUT_TO_NACK");
+            if(!manager_.claim(queueUrl_, m.getReceiptHandle()))
+              continue; // released because we are stopping
+          
+            try
+            {
+              ITraceContext trace = createTransaction(m);
             
-            int visibilityTimout = (int) (retryTime / 1000);
+              trace.trace("RECEIVED");
+    
+              long retryTime = manager_.handleMessage(consumer_, m.getBody(), trace, m.getMessageId());
             
-            sqsClient_.changeMessageVisibility(queueUrl_, m.getReceiptHandle(), visibilityTimout);
+              if(retryTime < 0)
+              {
+                trace.trace("ABOUT_TO_ACK");
+                sqsClient_.deleteMessage(queueUrl_, m.getReceiptHandle());
+              }
+              else
+              {
+                trace.trace("ABOUT_TO_NACK");
+              
+                int visibilityTimout = (int) (retryTime / 1000);
+              
+                sqsClient_.changeMessageVisibility(queueUrl_, m.getReceiptHandle(), visibilityTimout);
+              }
+              trace.finished();
+            }
+            finally
+            {
+              manager_.finished();
+            }
           }
-          trace.finished();
+        }
+        finally
+        {
+          manager_.forget(messages);
         }
         
 
@@ -27,6 +27,7 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.fugue.aws.AwsClientRegistry;
 import org.symphonyoss.s2.fugue.core.trace.ITraceContextFactory;
 import org.symphonyoss.s2.fugue.naming.INameFactory;
 import org.symphonyoss.s2.fugue.naming.SubscriptionName;
@@ -35,12 +36,10 @@ import org.symphonyoss.s2.fugue.pubsub.AbstractSubscriberAdmin;
 import org.symphonyoss.s2.fugue.pubsub.Subscription;
 
 import com.amazonaws.services.sns.AmazonSNS;
-import com.amazonaws.services.sns.AmazonSNSClientBuilder;
 import com.amazonaws.services.sns.model.ListSubscriptionsByTopicResult;
 import com.amazonaws.services.sns.model.SetSubscriptionAttributesRequest;
 import com.amazonaws.services.sns.util.Topics;
 import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
 import com.amazonaws.services.sqs.model.CreateQueueRequest;
 import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
 import com.amazonaws.services.sqs.model.TagQueueRequest;
@@ -60,6 +59,7 @@ public class SqsSubscriberAdmin extends AbstractSubscriberAdmin<String, SqsSubsc
 
   private AmazonSQS           sqsClient_;
   private Map<String, String> tags_;
+  private AwsClientRegistry   clientRegistry_ = AwsClientRegistry.getDefault();
   
   /**
    * Constructor.
@@ -81,12 +81,26 @@ public class SqsSubscriberAdmin extends AbstractSubscriberAdmin<String, SqsSubsc
     tags_ = tags;
   }
   
+  /**
+   * Use the shared clients from the given registry rather than those of the default registry.
+   * 
+   * @param clientRegistry An AWS client registry.
+   * 
+   * @return this (fluent method)
+   */
+  public SqsSubscriberAdmin withClientRegistry(AwsClientRegistry clientRegistry)
+  {
+    assertConfigurable();
+    
+    clientRegistry_ = clientRegistry;
+    
+    return this;
+  }
+  
   @Override
   public void start()
   {
-    sqsClient_ = AmazonSQSClientBuilder.standard()
-        .withRegion(region_)
-        .build();
+    sqsClient_ = clientRegistry_.getSqs(region_);
     
     log_.info("Starting SQSSubscriberManager in " + region_ + "...");
     
@@ -96,9 +110,7 @@ public class SqsSubscriberAdmin extends AbstractSubscriberAdmin<String, SqsSubsc
   @Override
   public void createSubscriptions(boolean dryRun)
   {
-    AmazonSNS snsClient = AmazonSNSClientBuilder.standard()
-        .withRegion(region_)
-        .build();
+    AmazonSNS snsClient = clientRegistry_.getSns(region_);
     
     for(Subscription<?> subscription : getSubscribers())
     {
@@ -170,9 +182,7 @@ public class SqsSubscriberAdmin extends AbstractSubscriberAdmin<String, SqsSubsc
   @Override
   public void deleteSubscriptions(boolean dryRun)
   {
-    AmazonSNS snsClient = AmazonSNSClientBuilder.standard()
-        .withRegion(region_)
-        .build();
+    AmazonSNS snsClient = clientRegistry_.getSns(region_);
     
     for(Subscription<?> subscription : getSubscribers())
     {
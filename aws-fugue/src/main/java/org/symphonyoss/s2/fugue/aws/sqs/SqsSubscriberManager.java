@@ -23,12 +23,23 @@
 
 package org.symphonyoss.s2.fugue.aws.sqs;
 
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.fugue.IDrainableComponent;
+import org.symphonyoss.s2.fugue.ShutdownCoordinator;
+import org.symphonyoss.s2.fugue.aws.AwsClientRegistry;
+import org.symphonyoss.s2.fugue.concurrent.ExecutorMetrics;
+import org.symphonyoss.s2.fugue.concurrent.TaskWatchdog;
+import org.symphonyoss.s2.fugue.concurrent.VirtualThreads;
 import org.symphonyoss.s2.fugue.core.trace.ITraceContextFactory;
 import org.symphonyoss.s2.fugue.naming.INameFactory;
 import org.symphonyoss.s2.fugue.naming.SubscriptionName;
@@ -37,16 +48,30 @@ import org.symphonyoss.s2.fugue.pipeline.IThreadSafeErrorConsumer;
 import org.symphonyoss.s2.fugue.pubsub.AbstractSubscriberManager;
 import org.symphonyoss.s2.fugue.pubsub.Subscription;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.amazonaws.services.sqs.model.Message;
 
 /**
  * AWS SQS implementation of SubscriberManager.
  * 
+ * By default subscribers run on a pool of 50 platform threads. Calling withVirtualThreads() runs each
+ * poll-and-handle task on its own virtual thread instead, which allows many more concurrent long polls
+ * and handlers blocked on I/O.
+ * 
+ * Subscriber tasks are recorded in an ExecutorMetrics so that a TaskWatchdog can report tasks which are stuck,
+ * see withTaskWatchdog().
+ * 
+ * On shutdown subscribers stop polling, messages which are being handled are allowed to complete and
+ * messages which have been received but not started are made visible on their queue again immediately,
+ * rather than after the visibility timeout, so that they can be processed by another instance.
+ * 
  * @author Bruce Skingle
  *
  */
 public class SqsSubscriberManager extends AbstractSubscriberManager<String, SqsSubscriberManager>
+    implements IDrainableComponent
 {
   private static final Logger log_ = LoggerFactory.getLogger(SqsSubscriberManager.class);
 
@@ -55,9 +80,18 @@ public class SqsSubscriberManager extends AbstractSubscriberManager<String, SqsS
   private final String                        region_;
   private final boolean                       startSubscriptions_;
   private final LinkedBlockingQueue<Runnable> executorQueue_  = new LinkedBlockingQueue<Runnable>();
+  private final AtomicInteger                 inFlight_       = new AtomicInteger();
+  private final ExecutorMetrics               metrics_        = new ExecutorMetrics();
+  private final ConcurrentHashMap<String, String> unstarted_  = new ConcurrentHashMap<>(); // receipt handle to queue URL
+  private final AtomicInteger                 handling_       = new AtomicInteger();
+  private final Object                        drainLock_      = new Object();
 
   private AmazonSQS                           sqsClient_;
-  private ThreadPoolExecutor                  executor_;
+  private ExecutorService                     executor_;
+  private boolean                             virtualThreads_;
+  private int                                 maxConcurrency_ = threadPoolSize_;
+  private volatile boolean                    stopping_;
+  private volatile boolean                    drainAwaited_;
   
   /**
    * Constructor.
@@ -79,17 +113,76 @@ public class SqsSubscriberManager extends AbstractSubscriberManager<String, SqsS
     nameFactory_ = nameFactory;
     region_ = region;
     startSubscriptions_ = true;
+  }
+
+  /**
+   * Run subscribers on virtual threads rather than a fixed pool of platform threads.
+   * 
+   * The SQS client connection pool is sized to match the given concurrency so that virtual threads
+   * do not queue for connections.
+   * 
+   * @param maxConcurrency  The maximum number of concurrent poll-and-handle tasks.
+   * 
+   * @return this (fluent method)
+   */
+  public SqsSubscriberManager withVirtualThreads(int maxConcurrency)
+  {
+    assertConfigurable();
+    
+    if(maxConcurrency < 1)
+      throw new IllegalArgumentException("maxConcurrency must be >= 1");
+    
+    virtualThreads_ = true;
+    maxConcurrency_ = maxConcurrency;
+    
+    return this;
+  }
+
+  /**
+   * Report subscriber tasks which have been running for longer than the given threshold to the given watchdog.
+   * 
+   * Each task includes a long poll, so the threshold should be well above the SQS receive wait time.
+   * 
+   * @param watchdog        A task watchdog, usually that of the FugueServer.
+   * @param thresholdMillis The time after which a running task is considered to be stuck.
+   * 
+   * @return this (fluent method)
+   */
+  public SqsSubscriberManager withTaskWatchdog(TaskWatchdog watchdog, long thresholdMillis)
+  {
+    assertConfigurable();
+    
+    watchdog.watch("SqsSubscriber", metrics_, thresholdMillis);
     
-    executor_ = new ThreadPoolExecutor(threadPoolSize_, threadPoolSize_,
-        0L, TimeUnit.MILLISECONDS,
-        executorQueue_);
+    return this;
+  }
+
+  /**
+   * @return The metrics for subscriber tasks.
+   */
+  public ExecutorMetrics getMetrics()
+  {
+    return metrics_;
   }
 
   @Override
   public void start()
   {
+    if(virtualThreads_)
+    {
+      executor_ = VirtualThreads.newExecutor("SqsSubscriber");
+    }
+    else
+    {
+      executor_ = new ThreadPoolExecutor(threadPoolSize_, threadPoolSize_,
+          0L, TimeUnit.MILLISECONDS,
+          executorQueue_);
+    }
+    
     sqsClient_ = AmazonSQSClientBuilder.standard()
         .withRegion(region_)
+        .withClientConfiguration(AwsClientRegistry.getDefault().newClientConfiguration()
+            .withMaxConnections(Math.max(maxConcurrency_, ClientConfiguration.DEFAULT_MAX_CONNECTIONS)))
         .build();
     
     log_.info("Starting SQSSubscriberManager in " + region_ + "...");
@@ -127,33 +220,247 @@ public class SqsSubscriberManager extends AbstractSubscriberManager<String, SqsS
   {
     if(startSubscriptions_)
     {
-      executor_.shutdown();
+      stopIntake();
       
-      try {
-        // Wait a while for existing tasks to terminate
-        if (!executor_.awaitTermination(60, TimeUnit.SECONDS)) {
-          executor_.shutdownNow(); // Cancel currently executing tasks
-          // Wait a while for tasks to respond to being cancelled
-          if (!executor_.awaitTermination(60, TimeUnit.SECONDS))
-              System.err.println("Pool did not terminate");
-        }
-      } catch (InterruptedException ie) {
-        // (Re-)Cancel if current thread also interrupted
-        executor_.shutdownNow();
-        // Preserve interrupt status
+      // If a ShutdownCoordinator has already drained this manager its deadline has been spent, don't wait again.
+      long timeoutMillis = drainAwaited_ ? 0L : ShutdownCoordinator.DEFAULT_DEADLINE_MILLIS;
+      
+      try
+      {
+        if(!awaitDrained(timeoutMillis, TimeUnit.MILLISECONDS))
+          log_.warn("Subscribers did not drain, " + handling_.get() + " messages still being handled");
+      }
+      catch (InterruptedException e)
+      {
         Thread.currentThread().interrupt();
       }
+      
+      releaseUnstarted();
+    }
+  }
+
+  @Override
+  public void stopIntake()
+  {
+    stopping_ = true;
+    
+    if(executor_ != null)
+      executor_.shutdown();
+  }
+
+  @Override
+  public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException
+  {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    
+    drainAwaited_ = true;
+    
+    synchronized(drainLock_)
+    {
+      while(handling_.get() > 0)
+      {
+        long remaining = deadline - System.nanoTime();
+        
+        if(remaining <= 0)
+          return false;
+        
+        TimeUnit.NANOSECONDS.timedWait(drainLock_, remaining);
+      }
+    }
+    
+    return true;
+  }
+
+  @Override
+  public int releaseUnstarted()
+  {
+    int released = 0;
+    
+    for(String receiptHandle : unstarted_.keySet())
+    {
+      String queueUrl = unstarted_.remove(receiptHandle);
+      
+      if(queueUrl != null && release(queueUrl, receiptHandle))
+        released++;
+    }
+    
+    if(released > 0)
+      log_.info("Released " + released + " unstarted messages");
+    
+    // Interrupt any subscribers still in a long poll, messages they receive will be released by claim().
+    if(executor_ != null && !executor_.isTerminated())
+      executor_.shutdownNow();
+    
+    return released;
+  }
+  
+  private boolean release(String queueUrl, String receiptHandle)
+  {
+    try
+    {
+      sqsClient_.changeMessageVisibility(queueUrl, receiptHandle, 0);
+      return true;
+    }
+    catch(RuntimeException e)
+    {
+      log_.warn("Failed to release message on " + queueUrl, e);
+      return false;
+    }
+  }
+  
+  /* package */ boolean isStopping()
+  {
+    return stopping_;
+  }
+  
+  /**
+   * Record a batch of received messages as unstarted.
+   * 
+   * @param queueUrl  The queue from which the messages were received.
+   * @param messages  The messages.
+   */
+  /* package */ void received(String queueUrl, List<Message> messages)
+  {
+    for(Message m : messages)
+      unstarted_.put(m.getReceiptHandle(), queueUrl);
+  }
+  
+  /**
+   * Remove any messages in the given batch which were not claimed from the set of unstarted messages.
+   * 
+   * This is called when the subscriber has finished with a batch, any messages which it did not claim because
+   * of an error will become visible again after the visibility timeout.
+   * 
+   * @param messages  The messages.
+   */
+  /* package */ void forget(List<Message> messages)
+  {
+    for(Message m : messages)
+      unstarted_.remove(m.getReceiptHandle());
+  }
+  
+  /**
+   * Claim a received message for handling.
+   * 
+   * If the manager is stopping the message is released immediately rather than being handled.
+   * If the claim succeeds the caller must call finished() when the message has been acked or nacked.
+   * 
+   * @param queueUrl      The queue from which the message was received.
+   * @param receiptHandle The receipt handle of the message.
+   * 
+   * @return true if the message should be handled, false if it has been released.
+   */
+  /* package */ boolean claim(String queueUrl, String receiptHandle)
+  {
+    // Increment before checking stopping_ so that awaitDrained() cannot miss a message which is being claimed.
+    handling_.incrementAndGet();
+    
+    if(unstarted_.remove(receiptHandle) == null)
+    {
+      finished();
+      return false;
+    }
+    
+    if(stopping_)
+    {
+      release(queueUrl, receiptHandle);
+      finished();
+      return false;
+    }
+    
+    return true;
+  }
+  
+  /**
+   * Record the completion of a message claimed by claim().
+   */
+  /* package */ void finished()
+  {
+    if(handling_.decrementAndGet() == 0 && stopping_)
+    {
+      synchronized(drainLock_)
+      {
+        drainLock_.notifyAll();
+      }
     }
   }
 
   /* package */ void submit(Runnable subscriber, boolean force)
   {
-    if(force || executorQueue_.size() < threadPoolSize_)
-      executor_.submit(subscriber);
+    if(stopping_)
+      return;
+    
+    Runnable task = () ->
+    {
+      long    start   = metrics_.started(0L, subscriber);
+      boolean faulted = true;
+      
+      try
+      {
+        subscriber.run();
+        faulted = false;
+      }
+      finally
+      {
+        metrics_.finished(start, faulted);
+      }
+    };
+    
+    try
+    {
+      doSubmit(task, force);
+    }
+    catch(RejectedExecutionException e)
+    {
+      // We raced with stopIntake()
+      metrics_.rejected();
+      log_.debug("Subscriber not resubmitted, stopping");
+    }
+  }
+  
+  private void doSubmit(Runnable task, boolean force)
+  {
+    if(virtualThreads_)
+    {
+      // There is no queue, each task gets its own thread so we limit the number in flight.
+      if(force || inFlight_.get() < maxConcurrency_)
+      {
+        inFlight_.incrementAndGet();
+        metrics_.submitted();
+        
+        try
+        {
+          executor_.submit(() ->
+          {
+            try
+            {
+              task.run();
+            }
+            finally
+            {
+              inFlight_.decrementAndGet();
+            }
+          });
+        }
+        catch(RejectedExecutionException e)
+        {
+          inFlight_.decrementAndGet();
+          throw e;
+        }
+      }
+    }
+    else if(force || executorQueue_.size() < threadPoolSize_)
+    {
+      metrics_.submitted();
+      executor_.submit(task);
+    }
   }
 
   void printQueueSize()
   {
-    log_.debug("Queue size " + executorQueue_.size());
+    if(virtualThreads_)
+      log_.debug("In flight " + inFlight_.get());
+    else
+      log_.debug("Queue size " + executorQueue_.size());
   }
 }
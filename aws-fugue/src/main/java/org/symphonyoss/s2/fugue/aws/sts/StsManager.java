@@ -23,8 +23,11 @@
 
 package org.symphonyoss.s2.fugue.aws.sts;
 
+import org.symphonyoss.s2.fugue.aws.AwsClientRegistry;
+import org.symphonyoss.s2.fugue.startup.StartupStep;
+import org.symphonyoss.s2.fugue.startup.StartupTimeline;
+
 import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
-import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClientBuilder;
 import com.amazonaws.services.securitytoken.model.GetCallerIdentityRequest;
 import com.amazonaws.services.securitytoken.model.GetCallerIdentityResult;
 
@@ -47,14 +50,26 @@ public class StsManager
    * @param region  The AWS region to use.
    */
   public StsManager(String region)
+  {
+    this(region, AwsClientRegistry.getDefault());
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param region          The AWS region to use.
+   * @param clientRegistry  The registry from which to obtain the STS client.
+   */
+  public StsManager(String region, AwsClientRegistry clientRegistry)
   {
     region_ = region;
     
-    stsClient_ = AWSSecurityTokenServiceClientBuilder.standard()
-        .withRegion(region_)
-        .build();
+    stsClient_ = clientRegistry.getSts(region_);
     
-    identityResult_ = stsClient_.getCallerIdentity(new GetCallerIdentityRequest());
+    try(StartupStep step = StartupTimeline.getDefault().begin("StsManager.getCallerIdentity"))
+    {
+      identityResult_ = stsClient_.getCallerIdentity(new GetCallerIdentityRequest());
+    }
     
     accountId_ = identityResult_.getAccount();
   }
@@ -0,0 +1,94 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.aws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.amazonaws.services.s3.AmazonS3;
+
+@SuppressWarnings("javadoc")
+public class TestAwsClientRegistry
+{
+  @Test
+  public void testSharedPerServiceAndRegion()
+  {
+    AwsClientRegistry registry = new AwsClientRegistry();
+    
+    try
+    {
+      AmazonS3 s3 = registry.getS3("us-east-1");
+      
+      assertSame(s3, registry.getS3("us-east-1"));
+      assertNotSame(s3, registry.getS3("eu-west-1"));
+      assertNotSame(s3, registry.getSts("us-east-1"));
+      assertSame(registry.getSts("us-east-1"), registry.getSts("us-east-1"));
+      assertEquals(3, registry.getClientCount());
+    }
+    finally
+    {
+      registry.stop();
+    }
+  }
+  
+  @Test
+  public void testStop()
+  {
+    AwsClientRegistry registry = new AwsClientRegistry();
+    AmazonS3          s3       = registry.getS3("us-east-1");
+    
+    registry.stop();
+    
+    assertEquals(0, registry.getClientCount());
+    assertNotSame(s3, registry.getS3("us-east-1"));
+    
+    registry.stop();
+  }
+  
+  @Test
+  public void testDefaultStoppedOnlyWhenStarted()
+  {
+    AwsClientRegistry registry = AwsClientRegistry.getDefault();
+    AmazonS3          s3       = registry.getS3("us-east-1");
+    
+    registry.stop();
+    
+    assertSame(s3, registry.getS3("us-east-1"));
+    
+    registry.start();
+    registry.stop();
+    
+    assertEquals(0, registry.getClientCount());
+    
+    registry.getS3("us-east-1");
+    registry.stop();
+    
+    assertEquals(1, registry.getClientCount());
+    
+    registry.start();
+    registry.stop();
+  }
+}
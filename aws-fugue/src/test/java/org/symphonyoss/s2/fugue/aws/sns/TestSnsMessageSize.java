@@ -0,0 +1,150 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.aws.sns;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+import org.symphonyoss.s2.common.hash.Hash;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+import org.symphonyoss.s2.fugue.pubsub.TraceAttributes;
+
+import com.amazonaws.services.sns.model.MessageAttributeValue;
+import com.amazonaws.services.sns.model.PublishRequest;
+
+@SuppressWarnings("javadoc")
+public class TestSnsMessageSize
+{
+  private static final String TOPIC_ARN = "arn:aws:sns:us-east-1:123456789012:topic";
+  
+  private static String message(int size)
+  {
+    char[] chars = new char[size];
+    
+    Arrays.fill(chars, 'x');
+    
+    return new String(chars);
+  }
+  
+  private static class TestTraceContext implements ITraceContext
+  {
+    private final String traceId_;
+    
+    private TestTraceContext(String traceId)
+    {
+      traceId_ = traceId;
+    }
+
+    @Override
+    public String getTraceId()
+    {
+      return traceId_;
+    }
+
+    @Override
+    public Hash getHash()
+    {
+      return null;
+    }
+
+    @Override
+    public Instant getTimestamp()
+    {
+      return Instant.now();
+    }
+
+    @Override
+    public void trace(String operationId)
+    {
+    }
+
+    @Override
+    public void trace(String operationId, Instant time)
+    {
+    }
+
+    @Override
+    public void trace(String operationId, String subjectType, String subjectId)
+    {
+    }
+
+    @Override
+    public ITraceContext createSubContext(String subjectType, String subjectId)
+    {
+      return this;
+    }
+
+    @Override
+    public ITraceContext createSubContext(String subjectType, String subjectId, Instant time)
+    {
+      return this;
+    }
+  }
+  
+  /*
+   * The size of a request as SNS counts it, the message plus the name, type and value of each attribute.
+   */
+  private static int size(PublishRequest request)
+  {
+    int size = request.getMessage().getBytes(StandardCharsets.UTF_8).length;
+    
+    for(Entry<String, MessageAttributeValue> entry : request.getMessageAttributes().entrySet())
+    {
+      size += entry.getKey().getBytes(StandardCharsets.UTF_8).length;
+      size += entry.getValue().getDataType().getBytes(StandardCharsets.UTF_8).length;
+      size += entry.getValue().getStringValue().getBytes(StandardCharsets.UTF_8).length;
+    }
+    
+    return size;
+  }
+  
+  @Test
+  public void testMaximumSize()
+  {
+    String         traceId = message(SnsPublisherManager.MAX_TRACE_ID_BYTES);
+    PublishRequest request = SnsPublisherManager.createPublishRequest(TOPIC_ARN,
+        message(SnsPublisherManager.MAX_MESSAGE_SIZE), new TestTraceContext(traceId));
+    
+    assertEquals(traceId, request.getMessageAttributes().get(TraceAttributes.TRACE_ID).getStringValue());
+    assertNotNull(request.getMessageAttributes().get(TraceAttributes.TRACE_TIME));
+    assertTrue("Request of " + size(request) + " bytes", size(request) <= SnsPublisherManager.SNS_MAX_SIZE);
+  }
+  
+  @Test
+  public void testLongTraceId()
+  {
+    PublishRequest request = SnsPublisherManager.createPublishRequest(TOPIC_ARN,
+        message(SnsPublisherManager.MAX_MESSAGE_SIZE), new TestTraceContext(message(SnsPublisherManager.MAX_TRACE_ID_BYTES + 1)));
+    
+    assertNull(request.getMessageAttributes().get(TraceAttributes.TRACE_ID));
+    assertTrue("Request of " + size(request) + " bytes", size(request) <= SnsPublisherManager.SNS_MAX_SIZE);
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.aws.sqs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+import org.symphonyoss.s2.fugue.aws.sns.SnsPublisherManager;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContextFactory;
+import org.symphonyoss.s2.fugue.core.trace.NoOpTraceContext;
+import org.symphonyoss.s2.fugue.core.trace.log.LoggerTraceContextFactory;
+import org.symphonyoss.s2.fugue.pubsub.TraceAttributes;
+
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+
+@SuppressWarnings("javadoc")
+public class TestSqsTraceAttributes
+{
+  // gives the test access to the protected request builder, never instantiated
+  private static abstract class Publisher extends SnsPublisherManager
+  {
+    private Publisher()
+    {
+      super(null, null, null, false);
+    }
+    
+    private static PublishRequest publish(String msg, ITraceContext trace)
+    {
+      return createPublishRequest("arn:aws:sns:us-east-1:123456789012:topic", msg, trace);
+    }
+  }
+  
+  private static class RecordingFactory implements ITraceContextFactory
+  {
+    private String  subjectId_;
+    private Instant startTime_;
+    private String  parentTraceId_;
+    
+    @Override
+    public ITraceContext createTransaction(String subjectType, String subjectId)
+    {
+      return createTransaction(subjectType, subjectId, Instant.now(), null);
+    }
+
+    @Override
+    public ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime)
+    {
+      return createTransaction(subjectType, subjectId, startTime, null);
+    }
+
+    @Override
+    public ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime, String parentTraceId)
+    {
+      subjectId_ = subjectId;
+      startTime_ = startTime;
+      parentTraceId_ = parentTraceId;
+      
+      return NoOpTraceContext.INSTANCE;
+    }
+  }
+  
+  /*
+   * Deliver a published message to SQS as SNS does with raw message delivery, which copies the SNS
+   * message attributes to the SQS message.
+   */
+  private static Message deliver(PublishRequest request, String messageId, long sentTimestamp)
+  {
+    Message message = new Message()
+        .withMessageId(messageId)
+        .withBody(request.getMessage())
+        .addAttributesEntry("SentTimestamp", String.valueOf(sentTimestamp));
+    
+    for(Entry<String, com.amazonaws.services.sns.model.MessageAttributeValue> entry : request.getMessageAttributes().entrySet())
+    {
+      message.addMessageAttributesEntry(entry.getKey(), new MessageAttributeValue()
+          .withDataType(entry.getValue().getDataType())
+          .withStringValue(entry.getValue().getStringValue()));
+    }
+    
+    return message;
+  }
+  
+  @Test
+  public void testRoundTrip()
+  {
+    ITraceContext    publisherTrace = new LoggerTraceContextFactory().createTransaction("Test", "1");
+    long             before         = System.currentTimeMillis();
+    PublishRequest   request        = Publisher.publish("Hello", publisherTrace);
+    long             after          = System.currentTimeMillis();
+    RecordingFactory factory        = new RecordingFactory();
+    SqsSubscriber    subscriber     = new SqsSubscriber(null, null, "queueUrl", factory, null);
+    
+    assertNotNull(publisherTrace.getTraceId());
+    
+    subscriber.createTransaction(deliver(request, "msg-1", after + 1000));
+    
+    assertEquals("msg-1", factory.subjectId_);
+    assertEquals(publisherTrace.getTraceId(), factory.parentTraceId_);
+    assertTrue(factory.startTime_.toEpochMilli() >= before);
+    assertTrue(factory.startTime_.toEpochMilli() <= after);
+  }
+  
+  @Test
+  public void testNoTraceContext()
+  {
+    PublishRequest   request    = Publisher.publish("Hello", null);
+    RecordingFactory factory    = new RecordingFactory();
+    SqsSubscriber    subscriber = new SqsSubscriber(null, null, "queueUrl", factory, null);
+    
+    assertNull(request.getMessageAttributes().get(TraceAttributes.TRACE_ID));
+    
+    Message message = deliver(request, "msg-2", 1000L);
+    
+    message.getMessageAttributes().remove(TraceAttributes.TRACE_TIME);
+    
+    subscriber.createTransaction(message);
+    
+    // without a publish time the transaction starts when the message was sent to the queue
+    assertNull(factory.parentTraceId_);
+    assertEquals(1000L, factory.startTime_.toEpochMilli());
+  }
+}
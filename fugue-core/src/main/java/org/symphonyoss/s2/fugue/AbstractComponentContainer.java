@@ -24,8 +24,13 @@
 package org.symphonyoss.s2.fugue;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,16 +38,31 @@ import org.symphonyoss.s2.fugue.http.IResourceProvider;
 import org.symphonyoss.s2.fugue.http.IServletProvider;
 import org.symphonyoss.s2.fugue.http.IUrlPathServlet;
 import org.symphonyoss.s2.fugue.http.ui.servlet.ICommand;
+import org.symphonyoss.s2.fugue.metrics.IMetricsSource;
+import org.symphonyoss.s2.fugue.startup.StartupStep;
+import org.symphonyoss.s2.fugue.startup.StartupTimeline;
 
 /**
  * An abstract fluent container of Fugue components.
  * 
+ * Components are started in the order in which they were added and stopped in the reverse order.
+ * Components added together by withIndependentComponents() are stopped in parallel. Each component
+ * may be given a limited time to stop, so that one component which does not stop does not prevent the
+ * others from stopping, and the stop as a whole may be given an overall deadline. By default there is
+ * no limit, because components such as subscriber managers drain in-flight work within their own
+ * budget when they are stopped.
+ * 
  * @author Bruce Skingle
  *
  * @param <T> The concrete type to be returned by fluent methods.
  */
 public class AbstractComponentContainer<T extends AbstractComponentContainer<T>> extends FugueLifecycleBase<T> implements IFugeComponentContainer<T>
 {
+  /** The default time allowed for each component to stop, zero means no limit. */
+  public static final long                     DEFAULT_STOP_TIMEOUT_MILLIS  = 0L;
+  /** The default time allowed for all components to stop, zero means no limit. */
+  public static final long                     DEFAULT_STOP_DEADLINE_MILLIS = 0L;
+  
   private static final Logger                  log_                 = LoggerFactory.getLogger(AbstractComponentContainer.class);
 
   private final List<IFugueComponent>          components_          = new ArrayList<>();
@@ -51,8 +71,15 @@ public class AbstractComponentContainer<T extends AbstractComponentContainer<T>>
   private final List<IServletProvider>         servletProviders_    = new ArrayList<>();
   private final List<IUrlPathServlet>          servlets_            = new ArrayList<>();
   private final List<ICommand>                 commands_            = new ArrayList<>();
+  private final List<IMetricsSource>           metricsSources_      = new CopyOnWriteArrayList<>();
+
+  private final Map<IFugueComponent, Integer>  stopGroups_          = new IdentityHashMap<>();
 
   private Stack<IFugueComponent>               stopStack_           = new Stack<>();
+  private int                                  stopGroupCount_;
+  private long                                 stopTimeoutMillis_   = DEFAULT_STOP_TIMEOUT_MILLIS;
+  private long                                 stopDeadlineMillis_  = DEFAULT_STOP_DEADLINE_MILLIS;
+  private volatile Map<IFugueComponent, Long>  stopMillis_          = Collections.emptyMap();
   
   /**
    * Constructor.
@@ -74,6 +101,7 @@ public class AbstractComponentContainer<T extends AbstractComponentContainer<T>>
       if(o instanceof IFugueComponent)
       {
         components_.add((IFugueComponent)o);
+        stopGroups_.put((IFugueComponent)o, stopGroupCount_++);
       }
       if(o instanceof IFugueLifecycleComponent)
       {
@@ -95,11 +123,90 @@ public class AbstractComponentContainer<T extends AbstractComponentContainer<T>>
       {
         commands_.add((ICommand)o);
       }
+      if(o instanceof IMetricsSource)
+      {
+        metricsSources_.add((IMetricsSource)o);
+      }
     }
     
     return self();
   }
   
+  /**
+   * Add each of the given objects as components which do not depend on each other.
+   * 
+   * The components are started in the given order but are stopped in parallel.
+   * 
+   * @param components A varargs list of components.
+   * 
+   * @return This (fluent method).
+   */
+  public T withIndependentComponents(Object ...components)
+  {
+    assertConfigurable();
+    
+    int stopGroup = stopGroupCount_;
+    
+    withComponents(components);
+    
+    for(Object o : components)
+    {
+      if(o instanceof IFugueComponent)
+        stopGroups_.put((IFugueComponent)o, stopGroup);
+    }
+    
+    return self();
+  }
+  
+  /**
+   * Set the time allowed for each component to stop.
+   * 
+   * A component which has not stopped in this time is abandoned and the container fails to stop cleanly,
+   * so this should be larger than the time which any component allows itself to drain.
+   * 
+   * @param stopTimeoutMillis The time allowed for each component to stop in milliseconds, zero for no limit.
+   * 
+   * @return This (fluent method).
+   */
+  public T withStopTimeoutMillis(long stopTimeoutMillis)
+  {
+    if(stopTimeoutMillis < 0)
+      throw new IllegalArgumentException("stopTimeoutMillis must be >= 0");
+    
+    stopTimeoutMillis_ = stopTimeoutMillis;
+    
+    return self();
+  }
+  
+  /**
+   * Set the time allowed for all components to stop.
+   * 
+   * Components which have not been stopped when this time has passed are not stopped and the container
+   * fails to stop cleanly.
+   * 
+   * @param stopDeadlineMillis The time allowed for all components to stop in milliseconds, zero for no limit.
+   * 
+   * @return This (fluent method).
+   */
+  public T withStopDeadlineMillis(long stopDeadlineMillis)
+  {
+    if(stopDeadlineMillis < 0)
+      throw new IllegalArgumentException("stopDeadlineMillis must be >= 0");
+    
+    stopDeadlineMillis_ = stopDeadlineMillis;
+    
+    return self();
+  }
+  
+  /**
+   * @return The time taken to stop each component in milliseconds, in the order in which they were stopped,
+   * or an empty map if the container has not been stopped.
+   */
+  public Map<IFugueComponent, Long> getStopMillis()
+  {
+    return Collections.unmodifiableMap(stopMillis_);
+  }
+  
   @Override
   public List<IFugueComponent> getComponents()
   {
@@ -136,6 +243,12 @@ public class AbstractComponentContainer<T extends AbstractComponentContainer<T>>
     return commands_;
   }
 
+  @Override
+  public List<IMetricsSource> getMetricsSources()
+  {
+    return metricsSources_;
+  }
+
   @Override
   public <C> C register(C component)
   {
@@ -151,13 +264,13 @@ public class AbstractComponentContainer<T extends AbstractComponentContainer<T>>
     
     for(IFugueComponent component : components_)
     {
+      // pushed before it is started so that a component which fails to start is given the chance to clean up
       stopStack_.push(component);
-      try
+      try(StartupStep step = StartupTimeline.getDefault().begin("start " + component.getComponentId()))
       {
         
         log_.debug("Start " + component);
         component.start(); 
-        stopStack_.push(component);
       }
       catch(RuntimeException ex)
       {
@@ -193,29 +306,35 @@ public class AbstractComponentContainer<T extends AbstractComponentContainer<T>>
   
   private boolean doStop()
   {
-    boolean terminate = false;
-    
     log_.info("Stopping...");
     
+    List<List<IFugueComponent>> levels    = new ArrayList<>();
+    List<IFugueComponent>       level     = null;
+    Integer                     stopGroup = null;
+    
     while(!stopStack_.isEmpty())
     {
       IFugueComponent component = stopStack_.pop();
-      try
-      {
-        log_.debug("Stop " + component);
-        component.stop();
-      }
-      catch(RuntimeException ex)
+      Integer         group     = stopGroups_.get(component);
+      
+      if(level == null || group == null || !group.equals(stopGroup))
       {
-        log_.error("Unable to stop component " + 
-            component, ex);
-        // Don't re-throw because we want other components to have a chance to stop
-        
-        terminate = true;
-        setLifeCycleState(FugueLifecycleState.Failed);
+        level = new ArrayList<>();
+        levels.add(level);
+        stopGroup = group;
       }
+      
+      level.add(component);
     }
     
+    ComponentStopper stopper   = new ComponentStopper(stopTimeoutMillis_, stopDeadlineMillis_);
+    boolean          terminate = stopper.stop(levels);
+    
+    stopMillis_ = new LinkedHashMap<>(stopper.getStopMillis());
+    
+    if(terminate)
+      setLifeCycleState(FugueLifecycleState.Failed);
+    
     return terminate;
   }
 }
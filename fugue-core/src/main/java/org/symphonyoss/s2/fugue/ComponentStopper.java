@@ -0,0 +1,195 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.common.concurrent.NamedThreadFactory;
+
+/**
+ * Stops components level by level, stopping the components within a level in parallel.
+ * 
+ * Each component is stopped on a worker thread so that a component which does not stop within the
+ * per-component timeout does not block the components behind it, and no further components are
+ * stopped once the overall deadline has passed. A timeout or deadline of zero means no limit.
+ * The time taken to stop each component is recorded.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+/* package */ class ComponentStopper
+{
+  private static final Logger              log_       = LoggerFactory.getLogger(ComponentStopper.class);
+
+  private final long                       componentTimeoutMillis_;
+  private final long                       deadlineMillis_;
+  private final Map<IFugueComponent, Long> stopMillis_ = new LinkedHashMap<>();
+  
+  /* package */ ComponentStopper(long componentTimeoutMillis, long deadlineMillis)
+  {
+    componentTimeoutMillis_ = componentTimeoutMillis;
+    deadlineMillis_ = deadlineMillis;
+  }
+
+  /**
+   * Stop the given components.
+   * 
+   * @param levels  Lists of components which can be stopped in parallel, in the order in which they are to be stopped.
+   * 
+   * @return true if any component failed to stop, did not stop within the timeout, or was not stopped because
+   * the deadline had passed.
+   */
+  /* package */ boolean stop(List<List<IFugueComponent>> levels)
+  {
+    boolean         failed   = false;
+    long            deadline = deadlineMillis_ == 0 ? 0L : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis_);
+    ExecutorService executor = Executors.newCachedThreadPool(new NamedThreadFactory("Stop", true));
+    
+    try
+    {
+      for(int level=0 ; level<levels.size() ; level++)
+      {
+        if(deadlineMillis_ != 0 && System.nanoTime() - deadline >= 0)
+        {
+          List<IFugueComponent> remaining = new ArrayList<>();
+          
+          for(int i=level ; i<levels.size() ; i++)
+            remaining.addAll(levels.get(i));
+          
+          log_.error("Stop deadline of " + deadlineMillis_ + "ms passed, not stopping " + remaining);
+          
+          return true;
+        }
+        
+        failed |= stopLevel(executor, levels.get(level), deadline);
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+    
+    return failed;
+  }
+
+  private boolean stopLevel(ExecutorService executor, List<IFugueComponent> components, long deadline)
+  {
+    boolean               failed  = false;
+    long                  start   = System.nanoTime();
+    long                  timeout = getTimeout(start, deadline);
+    List<Future<Long>>    futures = new ArrayList<>(components.size());
+    
+    for(IFugueComponent component : components)
+    {
+      futures.add(executor.submit(() ->
+      {
+        long componentStart = System.nanoTime();
+        
+        log_.debug("Stop " + component);
+        component.stop();
+        
+        return System.nanoTime() - componentStart;
+      }));
+    }
+    
+    for(int i=0 ; i<futures.size() ; i++)
+    {
+      IFugueComponent component = components.get(i);
+      
+      try
+      {
+        long nanos = timeout == 0L
+            ? futures.get(i).get()
+            : futures.get(i).get(Math.max(0L, timeout - System.nanoTime()), TimeUnit.NANOSECONDS);
+        
+        stopped(component, nanos);
+      }
+      catch(TimeoutException e)
+      {
+        log_.error("Component " + component + " did not stop within " + componentTimeoutMillis_ + "ms");
+        futures.get(i).cancel(true);
+        stopped(component, System.nanoTime() - start);
+        failed = true;
+      }
+      catch(ExecutionException e)
+      {
+        log_.error("Unable to stop component " + component, e.getCause());
+        // Don't re-throw because we want other components to have a chance to stop
+        stopped(component, System.nanoTime() - start);
+        failed = true;
+      }
+      catch(InterruptedException e)
+      {
+        log_.error("Interrupted while stopping component " + component);
+        Thread.currentThread().interrupt();
+        failed = true;
+      }
+    }
+    
+    return failed;
+  }
+  
+  /**
+   * @return The System.nanoTime() by which a level started at the given time must stop, or zero for no limit.
+   */
+  private long getTimeout(long start, long deadline)
+  {
+    if(componentTimeoutMillis_ == 0)
+      return deadline;
+    
+    long timeout = start + TimeUnit.MILLISECONDS.toNanos(componentTimeoutMillis_);
+    
+    if(deadlineMillis_ == 0 || timeout - deadline < 0)
+      return timeout;
+    
+    return deadline;
+  }
+  
+  private void stopped(IFugueComponent component, long nanos)
+  {
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    
+    stopMillis_.put(component, millis);
+    log_.debug("Stopped " + component + " in " + millis + "ms");
+  }
+
+  /**
+   * @return The time taken to stop each component in milliseconds, in the order in which they were stopped.
+   * For a component which failed or timed out this is the time until the failure was detected.
+   */
+  /* package */ Map<IFugueComponent, Long> getStopMillis()
+  {
+    return stopMillis_;
+  }
+}
@@ -44,6 +44,15 @@ public class Fugue
   /** Environment variable containing the process instance ID */
   public static final String FUGUE_INSTANCE = "FUGUE_INSTANCE";
   
+  /**
+   * Environment variable containing the directory, relative to the working directory, in which snapshots
+   * of remote configuration are cached, or "none" to disable the cache.
+   */
+  public static final String FUGUE_CONFIG_CACHE = "FUGUE_CONFIG_CACHE";
+  
+  /** Environment variable containing the maximum age in milliseconds of a cached configuration snapshot which may be used. */
+  public static final String FUGUE_CONFIG_CACHE_MAX_AGE_MILLIS = "FUGUE_CONFIG_CACHE_MAX_AGE_MILLIS";
+  
   /**
    * Get the requested value as a System Property or environment variable.
    * 
@@ -33,10 +33,24 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.fugue.concurrent.ExecutorPanel;
+import org.symphonyoss.s2.fugue.concurrent.ExecutorProfile;
 import org.symphonyoss.s2.fugue.concurrent.FugueExecutorService;
 import org.symphonyoss.s2.fugue.concurrent.FugueScheduledExecutorService;
+import org.symphonyoss.s2.fugue.concurrent.HashedWheelScheduledExecutorService;
+import org.symphonyoss.s2.fugue.concurrent.PriorityLaneExecutor;
+import org.symphonyoss.s2.fugue.concurrent.StuckTaskPanel;
+import org.symphonyoss.s2.fugue.concurrent.TaskPriority;
+import org.symphonyoss.s2.fugue.concurrent.TaskWatchdog;
+import org.symphonyoss.s2.fugue.concurrent.VirtualThreads;
+import org.symphonyoss.s2.fugue.concurrent.WorkStealingExecutorService;
+import org.symphonyoss.s2.fugue.config.Configuration;
+import org.symphonyoss.s2.fugue.config.ConfigurationSnapshotCache;
+import org.symphonyoss.s2.fugue.config.IConfiguration;
 import org.symphonyoss.s2.fugue.http.HttpServer;
 import org.symphonyoss.s2.fugue.http.HttpServerBuilder;
 import org.symphonyoss.s2.fugue.http.IResourceProvider;
@@ -49,6 +63,12 @@ import org.symphonyoss.s2.fugue.http.ui.servlet.ICommand;
 import org.symphonyoss.s2.fugue.http.ui.servlet.ICommandHandler;
 import org.symphonyoss.s2.fugue.http.ui.servlet.IUIPanel;
 import org.symphonyoss.s2.fugue.http.ui.servlet.StatusServlet;
+import org.symphonyoss.s2.fugue.metrics.MetricsPanel;
+import org.symphonyoss.s2.fugue.metrics.MetricsServlet;
+import org.symphonyoss.s2.fugue.startup.StartupPanel;
+import org.symphonyoss.s2.fugue.startup.StartupServlet;
+import org.symphonyoss.s2.fugue.startup.StartupStep;
+import org.symphonyoss.s2.fugue.startup.StartupTimeline;
 
 /**
  * The main component for a Fugue process.
@@ -68,7 +88,9 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
   // private StatusServlet statusServlet_;
 
   private CopyOnWriteArrayList<FugueExecutorService> executors_        = new CopyOnWriteArrayList<>();
+  private CopyOnWriteArrayList<PriorityLaneExecutor> laneExecutors_   = new CopyOnWriteArrayList<>();
   private CopyOnWriteArrayList<Thread>               threads_          = new CopyOnWriteArrayList<>();
+  private final TaskWatchdog                         taskWatchdog_     = new TaskWatchdog();
 
   // private IApplication application_;
   private boolean                                    started_;
@@ -81,6 +103,12 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
 
   private boolean localWebLogin_;
 
+  private IConfiguration executorConfig_;
+
+  private final Object   shutdownLock_           = new Object();
+  private long           shutdownDeadlineMillis_ = ShutdownCoordinator.DEFAULT_DEADLINE_MILLIS;
+  private ShutdownReport shutdownReport_;
+
   /**
    * Constructor.
    * 
@@ -160,17 +188,93 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
         });
     
     register(new HealthCheckServlet());
+    
+    getMetricsSources().add(taskWatchdog_);
+    
+    ConfigurationSnapshotCache configCache = ConfigurationSnapshotCache.getDefault();
+    
+    if(configCache != null)
+      getMetricsSources().add(configCache);
   }
 
   @Override
   public FugueServer start()
   {
-    super.start();
+    try(StartupStep step = StartupTimeline.getDefault().begin("FugueServer.start"))
+    {
+      super.start();
+      
+      startFugueServer();
+    }
+    
+    return this;
+  }
+
+  /**
+   * Stop the server.
+   * 
+   * In-flight work in all executors and drainable components is drained in parallel under the shutdown
+   * deadline before components are stopped, so that components do not each wait for their own timeout in turn.
+   * Drainable components are drained before the executors stop accepting work, so that their handlers can
+   * still submit follow-up work to the executors of this server.
+   */
+  @Override
+  public FugueServer stop()
+  {
+    drain();
     
-    startFugueServer();
+    return super.stop();
+  }
+  
+  @Override
+  public IFugueServer withShutdownDeadlineMillis(long shutdownDeadlineMillis)
+  {
+    if(shutdownDeadlineMillis < 0)
+      throw new IllegalArgumentException("shutdownDeadlineMillis must be >= 0");
+    
+    shutdownDeadlineMillis_ = shutdownDeadlineMillis;
     
     return this;
   }
+  
+  /**
+   * @return The report of the coordinated shutdown, or null if the server has not been stopped since it was last started.
+   */
+  public @Nullable ShutdownReport getShutdownReport()
+  {
+    synchronized(shutdownLock_)
+    {
+      return shutdownReport_;
+    }
+  }
+  
+  private ShutdownReport drain()
+  {
+    synchronized(shutdownLock_)
+    {
+      if(shutdownReport_ == null)
+      {
+        ShutdownCoordinator coordinator = new ShutdownCoordinator()
+            .withDeadlineMillis(shutdownDeadlineMillis_);
+        
+        for(IFugueComponent component : getComponents())
+        {
+          if(component instanceof IDrainableComponent)
+            coordinator.withIntakeComponent(component.getComponentId(), (IDrainableComponent)component);
+        }
+        
+        for(FugueExecutorService exec : executors_)
+          coordinator.withComponent(exec.getName(), exec);
+        
+        for(PriorityLaneExecutor exec : laneExecutors_)
+          coordinator.withComponent(exec.getName(), exec);
+        
+        shutdownReport_ = coordinator.shutdown();
+      }
+      
+      return shutdownReport_;
+    }
+  }
 
   @Override
   public synchronized FugueServer join() throws InterruptedException
@@ -274,8 +378,16 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
     started_ = true;
     setRunning(true);
     
+    // a restarted server must drain again when it is next stopped
+    synchronized(shutdownLock_)
+    {
+      shutdownReport_ = null;
+    }
+    
     log_.info("FugueServer Started");
     
+    taskWatchdog_.start();
+    
     try
     {
       HttpServerBuilder httpServerBuilder = new HttpServerBuilder();
@@ -304,6 +416,13 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
           httpServerBuilder.withServlet(command.getPath(),  new CommandServlet(command.getHandler()));
           statusServlet_.addCommand(command);
         }
+        
+        if(!getMetricsSources().isEmpty())
+          statusServlet_.addPanel(new MetricsPanel(getMetricsSources()));
+        
+        statusServlet_.addPanel(new ExecutorPanel(executors_));
+        statusServlet_.addPanel(new StuckTaskPanel(taskWatchdog_));
+        statusServlet_.addPanel(new StartupPanel(StartupTimeline.getDefault()));
       }
       
       synchronized(this)
@@ -317,10 +436,16 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
         {
           httpServerBuilder.withServlet(servlet);
         }
+        
+        httpServerBuilder.withServlet(new MetricsServlet(getMetricsSources()));
+        httpServerBuilder.withServlet(new StartupServlet(StartupTimeline.getDefault()));
 
-        server_ = httpServerBuilder.build();
-      
-        server_.start();
+        try(StartupStep step = StartupTimeline.getDefault().begin("HttpServer.start"))
+        {
+          server_ = httpServerBuilder.build();
+        
+          server_.start();
+        }
       }
       
       int port = server_.getLocalPort();
@@ -340,6 +465,7 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
       
       setLifeCycleState(FugueLifecycleState.Running);
       statusMessage_ = "";
+      StartupTimeline.getDefault().finish();
     }
     catch(IOException e)
     {
@@ -361,34 +487,22 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
     setLifeCycleState(FugueLifecycleState.Stopping);
     statusMessage_ = "Shutting down...";
     
-    for(FugueExecutorService exec : executors_)
-      exec.shutdown();
+    taskWatchdog_.stop();
     
     for(Thread thread : threads_)
       thread.interrupt();
     
+    drain();
+    
     server_.stop();
     log_.info("FugueServer Stopped");
     
-    waitForAllExecutors(5000);
-    
-    for(FugueExecutorService exec : executors_)
-    {
-      if(!exec.isTerminated())
-      {
-        log_.warn("Executor " + exec + " did not terminate cleanly, calling shutdownNow...");
-        exec.shutdownNow();
-      }
-    }
-    
     for(Thread thread : threads_)
     {
       if(thread.isAlive())
         log_.error("Thread " + thread + " did not terminate cleanly");
     }
     
-    waitForAllExecutors(5000);
-    
     for(FugueExecutorService exec : executors_)
     {
       if(!exec.isTerminated())
@@ -403,28 +517,6 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
     statusMessage_ = "Stopped cleanly.";
   }
   
-  private void waitForAllExecutors(int delayMillis)
-  {
-    long timeout = System.currentTimeMillis() + delayMillis;
-    
-    for(FugueExecutorService exec : executors_)
-    {
-      long wait = timeout - System.currentTimeMillis();
-      
-      if(wait > 0)
-      {
-        try
-        {
-          exec.awaitTermination(wait, TimeUnit.MILLISECONDS);
-        }
-        catch (InterruptedException e)
-        {
-          log_.info("Interrupted waiting for executor termination");
-        }
-      }
-    }
-  }
-  
   /**
    * Open the browser on the URL for this server.
    * 
@@ -464,22 +556,111 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
 
 
   
+  private void addExecutor(FugueExecutorService exec)
+  {
+    ExecutorProfile profile = exec.getProfile();
+    
+    executors_.add(exec);
+    getMetricsSources().add(exec);
+    
+    taskWatchdog_.watch(exec.getName(), exec.getMetrics(), profile == null
+        ? ExecutorProfile.DEFAULT_STUCK_TASK_THRESHOLD_MILLIS
+        : profile.getStuckTaskThresholdMillis());
+  }
+  
+  @Override
+  public TaskWatchdog getTaskWatchdog()
+  {
+    return taskWatchdog_;
+  }
+  
+  @Override
+  public synchronized IFugueServer withExecutorConfiguration(IConfiguration configuration)
+  {
+    executorConfig_ = configuration;
+    
+    return this;
+  }
+  
   @Override
   public ExecutorService newExecutor(String name)
   {
-    FugueExecutorService fugueExec = new FugueExecutorService(this, name);
+    return newExecutor(new ExecutorProfile(name));
+  }
+  
+  @Override
+  public ExecutorService newExecutor(ExecutorProfile profile)
+  {
+    IConfiguration config;
+    
+    synchronized(this)
+    {
+      config = executorConfig_;
+    }
+    
+    // configure copies, so the caller's profile is unchanged and removed keys revert on reload
+    ExecutorProfile defaults = new ExecutorProfile(profile);
+    ExecutorProfile applied  = config == null ? defaults : new ExecutorProfile(defaults).withConfiguration(config);
+    
+    log_.info("Creating executor " + applied);
+    
+    FugueExecutorService fugueExec = new FugueExecutorService(this, applied);
+    
+    addExecutor(fugueExec);
+    
+    if(config instanceof Configuration)
+    {
+      ((Configuration)config).getConfiguration(profile.getName()).addListener((c, changedPaths) ->
+      {
+        log_.info("Executor configuration changed " + changedPaths + ", reconfiguring " + profile.getName());
+        
+        fugueExec.applyProfile(new ExecutorProfile(defaults).withConfiguration(config));
+      });
+    }
+    
+    return fugueExec;
+  }
+  
+  @Override
+  public ExecutorService newVirtualThreadExecutor(String name)
+  {
+    FugueExecutorService fugueExec = new FugueExecutorService(this, name, VirtualThreads.newExecutor(name));
     
-    executors_.add(fugueExec);
+    addExecutor(fugueExec);
     
     return fugueExec;
   }
   
+  @Override
+  public WorkStealingExecutorService newWorkStealingExecutor(String name)
+  {
+    WorkStealingExecutorService exec = new WorkStealingExecutorService(this, name);
+    
+    addExecutor(exec);
+    
+    return exec;
+  }
+  
+  @Override
+  public PriorityLaneExecutor newPriorityExecutor(String name, int poolSize)
+  {
+    PriorityLaneExecutor exec = new PriorityLaneExecutor(this, name, poolSize, PriorityLaneExecutor.DEFAULT_LANE_CAPACITY);
+    
+    laneExecutors_.add(exec);
+    getMetricsSources().add(exec);
+    
+    for(TaskPriority priority : TaskPriority.values())
+      taskWatchdog_.watch(name + "/" + priority, exec.getMetrics(priority), ExecutorProfile.DEFAULT_STUCK_TASK_THRESHOLD_MILLIS);
+    
+    return exec;
+  }
+  
   @Override
   public ExecutorService newExecutor(ExecutorService exec)
   {
     FugueExecutorService fugueExec = new FugueExecutorService(this, exec);
     
-    executors_.add(fugueExec);
+    addExecutor(fugueExec);
     
     return fugueExec;
   }
@@ -489,7 +670,19 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
   {
     FugueScheduledExecutorService exec = new FugueScheduledExecutorService(this, name);
     
-    executors_.add(exec);
+    addExecutor(exec);
+    
+    return exec;
+  }
+  
+  @Override
+  public ScheduledExecutorService newScheduledExecutor(String name, long tickDuration, TimeUnit tickUnit,
+      int ticksPerWheel, int workerThreads)
+  {
+    FugueScheduledExecutorService exec = new FugueScheduledExecutorService(this, name,
+        new HashedWheelScheduledExecutorService(name, tickDuration, tickUnit, ticksPerWheel, workerThreads));
+    
+    addExecutor(exec);
     
     return exec;
   }
@@ -499,7 +692,7 @@ public class FugueServer extends AbstractComponentContainer<FugueServer> impleme
   {
     FugueScheduledExecutorService fugueExec = new FugueScheduledExecutorService(this, exec);
     
-    executors_.add(fugueExec);
+    addExecutor(fugueExec);
     
     return fugueExec;
   }
@@ -0,0 +1,66 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A component which can drain its in-flight work before it is stopped.
+ * 
+ * During shutdown the ShutdownCoordinator calls stopIntake() on all drainable components, then awaitDrained()
+ * on all of them in parallel under a single deadline, and finally releaseUnstarted() on all of them whether
+ * or not they drained in time.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public interface IDrainableComponent
+{
+  /**
+   * Stop accepting new work.
+   * 
+   * Work which is already in progress should continue, work which has been received but not started
+   * should be held so that it can be released by releaseUnstarted().
+   */
+  void stopIntake();
+  
+  /**
+   * Wait for in-flight work to complete.
+   * 
+   * @param timeout The maximum time to wait.
+   * @param unit    The unit of the timeout argument.
+   * 
+   * @return true if all in-flight work completed, false if the timeout elapsed first.
+   * 
+   * @throws InterruptedException If the calling thread is interrupted.
+   */
+  boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException;
+  
+  /**
+   * Release any work which has been received but not started so that it can be processed elsewhere,
+   * and abandon any work still in progress.
+   * 
+   * @return The number of units of work released.
+   */
+  int releaseUnstarted();
+}
@@ -30,6 +30,7 @@ import org.symphonyoss.s2.fugue.http.IResourceProvider;
 import org.symphonyoss.s2.fugue.http.IServletProvider;
 import org.symphonyoss.s2.fugue.http.IUrlPathServlet;
 import org.symphonyoss.s2.fugue.http.ui.servlet.ICommand;
+import org.symphonyoss.s2.fugue.metrics.IMetricsSource;
 
 /**
  * A fluent container of Fugue components.
@@ -97,6 +98,11 @@ public interface IFugeComponentContainer<T extends IFluent<T>> extends IFluent<T
    */
   List<ICommand> getCommands();
 
+  /**
+   * @return all of the registered components which implement IMetricsSource.
+   */
+  List<IMetricsSource> getMetricsSources();
+
   /**
    * Start the container.
    * 
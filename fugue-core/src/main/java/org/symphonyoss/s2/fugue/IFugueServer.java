@@ -26,7 +26,13 @@ package org.symphonyoss.s2.fugue;
 import java.util.EnumSet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.symphonyoss.s2.fugue.concurrent.ExecutorProfile;
+import org.symphonyoss.s2.fugue.concurrent.PriorityLaneExecutor;
+import org.symphonyoss.s2.fugue.concurrent.TaskWatchdog;
+import org.symphonyoss.s2.fugue.concurrent.WorkStealingExecutorService;
+import org.symphonyoss.s2.fugue.config.IConfiguration;
 import org.symphonyoss.s2.fugue.http.ui.servlet.ICommandHandler;
 import org.symphonyoss.s2.fugue.http.ui.servlet.IUIPanel;
 
@@ -84,12 +90,114 @@ public interface IFugueServer
    * 
    * The ExecutorService will be shut down when the server terminates.
    * 
+   * The thread pool is sized according to the default ExecutorProfile, with any overrides from
+   * the executor configuration of this server.
+   * 
    * @param name The name for threads in the executor.
    * 
    * @return A new ExecutorService.
    */
   ExecutorService newExecutor(String name);
 
+  /**
+   * Create a new ExecutorService with a thread pool sized according to the given profile.
+   * 
+   * If tasks submitted to this service throw exceptions then they are handled the Fugue way.
+   * 
+   * The ExecutorService will be shut down when the server terminates.
+   * 
+   * Any values in the executor configuration of this server for an executor with the name of the
+   * given profile override the values in the profile. The given profile is not modified.
+   * 
+   * @param profile The name, sizing and overload policy for the executor.
+   * 
+   * @return A new ExecutorService.
+   */
+  ExecutorService newExecutor(ExecutorProfile profile);
+
+  /**
+   * Create a new ExecutorService which runs each task on a new virtual thread.
+   * 
+   * If tasks submitted to this service throw exceptions then they are handled the Fugue way.
+   * 
+   * The ExecutorService will be shut down when the server terminates.
+   * 
+   * This is intended for tasks which spend most of their time blocked on I/O, the executor is
+   * unbounded so callers are responsible for limiting concurrency. If the JVM does not support
+   * virtual threads then platform threads are used.
+   * 
+   * @param name The name for threads in the executor.
+   * 
+   * @return A new ExecutorService.
+   */
+  ExecutorService newVirtualThreadExecutor(String name);
+
+  /**
+   * Create a new PriorityLaneExecutor with a thread pool using the given name.
+   * 
+   * Tasks are queued in a lane according to their TaskPriority and lanes are served in weighted-fair
+   * order, so that latency critical work is not delayed by bursts of background work.
+   * 
+   * The executor will be drained and shut down when the server terminates.
+   * 
+   * @param name      The name for threads in the executor.
+   * @param poolSize  The number of threads.
+   * 
+   * @return A new PriorityLaneExecutor.
+   */
+  PriorityLaneExecutor newPriorityExecutor(String name, int poolSize);
+
+  /**
+   * Create a new work stealing ExecutorService with one thread per available processor.
+   * 
+   * This is intended for CPU bound tasks which fan out into subtasks, which should be passed to
+   * WorkStealingExecutorService.invoke() as a RecursiveTask or RecursiveAction.
+   * 
+   * The ExecutorService will be shut down when the server terminates.
+   * 
+   * @param name The name for threads in the executor.
+   * 
+   * @return A new WorkStealingExecutorService.
+   */
+  WorkStealingExecutorService newWorkStealingExecutor(String name);
+
+  /**
+   * Return the watchdog which reports tasks which have been running for longer than the stuck task
+   * threshold of their executor.
+   * 
+   * All executors created by this server are watched, other executors which record their tasks in
+   * ExecutorMetrics can be added with TaskWatchdog.watch().
+   * 
+   * @return The task watchdog for this server.
+   */
+  TaskWatchdog getTaskWatchdog();
+
+  /**
+   * Set the overall deadline for draining in-flight work when the server is stopped.
+   * 
+   * All registered components which implement IDrainableComponent are drained in parallel, and then all
+   * executors created by this server are drained in parallel. Work which has not completed by the deadline
+   * is abandoned.
+   * 
+   * @param shutdownDeadlineMillis The shutdown deadline in milliseconds.
+   * 
+   * @return this (Fluent method).
+   */
+  IFugueServer withShutdownDeadlineMillis(long shutdownDeadlineMillis);
+
+  /**
+   * Set the configuration from which executor profiles are overridden.
+   * 
+   * This configuration should contain a sub-configuration for each executor to be overridden, with
+   * the same name as the executor. If it is a reloadable Configuration, changes to the pool sizes and
+   * overload policy are applied to running executors when it is reloaded.
+   * 
+   * @param configuration The executor configuration.
+   * 
+   * @return this (Fluent method).
+   */
+  IFugueServer withExecutorConfiguration(IConfiguration configuration);
+
   /**
    * Create a new ExecutorService using the given underlying service.
    * 
@@ -116,6 +224,27 @@ public interface IFugueServer
    */
   ScheduledExecutorService newScheduledExecutor(String name);
 
+  /**
+   * Create a new ScheduledExecutorService based on a hashed timing wheel.
+   * 
+   * If tasks submitted to this service throw exceptions then they are handled the Fugue way.
+   * 
+   * The ExecutorService will be shut down when the server terminates.
+   * 
+   * This is suitable for very large numbers of short timers such as timeouts and retries, scheduling
+   * and cancellation are O(1) but timers fire on the first tick after their deadline.
+   * 
+   * @param name          The name for threads in the executor.
+   * @param tickDuration  The resolution of the timer.
+   * @param tickUnit      The unit of tickDuration.
+   * @param ticksPerWheel The number of buckets in the timing wheel.
+   * @param workerThreads The number of threads on which expired timers run.
+   * 
+   * @return A new ScheduledExecutorService.
+   */
+  ScheduledExecutorService newScheduledExecutor(String name, long tickDuration, TimeUnit tickUnit, int ticksPerWheel,
+      int workerThreads);
+
   /**
    * Create a new ScheduledExecutorService using the given underlying service.
    * 
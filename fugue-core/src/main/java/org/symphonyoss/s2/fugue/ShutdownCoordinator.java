@@ -0,0 +1,259 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.common.concurrent.NamedThreadFactory;
+
+/**
+ * Shuts down a set of drainable components in three phases under one overall deadline.
+ * 
+ * First every component stops accepting new work, then all components drain their in-flight work in
+ * parallel, so the total time taken is that of the slowest component rather than the sum of all of them,
+ * and finally any work which was received but not started is released. The release phase runs as soon as
+ * all components have drained or the deadline has passed, whichever is sooner.
+ * 
+ * Intake components, which receive work from outside the process (such as subscriber managers), are
+ * stopped and drained before any other component stops accepting work, so that in-flight handlers can
+ * still submit follow-up work to internal executors while they drain. Internal components then stop
+ * intake and drain in the time remaining before the deadline.
+ * 
+ * The duration of each phase is logged and returned in a ShutdownReport.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ShutdownCoordinator
+{
+  /** The default overall deadline for the drain phase. */
+  public static final long     DEFAULT_DEADLINE_MILLIS = 30000L;
+
+  private static final Logger  log_                    = LoggerFactory.getLogger(ShutdownCoordinator.class);
+
+  private final Stage          intake_                 = new Stage();
+  private final Stage          internal_               = new Stage();
+  private long                 deadlineMillis_         = DEFAULT_DEADLINE_MILLIS;
+
+  /**
+   * Set the overall deadline for the drain phase.
+   * 
+   * @param deadlineMillis The maximum time to wait for all components to drain in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public ShutdownCoordinator withDeadlineMillis(long deadlineMillis)
+  {
+    if(deadlineMillis < 0)
+      throw new IllegalArgumentException("deadlineMillis must be >= 0");
+    
+    deadlineMillis_ = deadlineMillis;
+    
+    return this;
+  }
+
+  /**
+   * Add a component to be shut down.
+   * 
+   * The component stops accepting new work only after all intake components have drained.
+   * 
+   * @param name      The name of the component, used in logging and the report.
+   * @param component The component.
+   * 
+   * @return this (fluent method)
+   */
+  public ShutdownCoordinator withComponent(String name, IDrainableComponent component)
+  {
+    internal_.add(name, component);
+    
+    return this;
+  }
+
+  /**
+   * Add an intake component to be shut down.
+   * 
+   * Intake components receive work from outside the process and may submit work to other components
+   * while they drain, so they are stopped and drained before any component added with withComponent.
+   * 
+   * @param name      The name of the component, used in logging and the report.
+   * @param component The component.
+   * 
+   * @return this (fluent method)
+   */
+  public ShutdownCoordinator withIntakeComponent(String name, IDrainableComponent component)
+  {
+    intake_.add(name, component);
+    
+    return this;
+  }
+
+  /**
+   * Shut down all components.
+   * 
+   * Exceptions thrown by components are logged and do not prevent other components from being shut down.
+   * 
+   * @return A report of the duration of each phase and which components failed to drain.
+   */
+  public ShutdownReport shutdown()
+  {
+    ShutdownReport report   = new ShutdownReport();
+    long           start    = System.nanoTime();
+    long           deadline = start + TimeUnit.MILLISECONDS.toNanos(deadlineMillis_);
+    
+    log_.info("Shutting down " + intake_.names_ + " then " + internal_.names_ + " with a deadline of " + deadlineMillis_ + "ms...");
+    
+    intake_.stopIntake();
+    
+    start = phaseCompleted(report, ShutdownPhase.STOP_INTAKE, start);
+    
+    // internal components keep accepting work until the intake components have drained
+    intake_.drain(report, deadline);
+    internal_.stopIntake();
+    internal_.drain(report, deadline);
+    
+    start = phaseCompleted(report, ShutdownPhase.DRAIN, start);
+    
+    intake_.releaseUnstarted(report);
+    internal_.releaseUnstarted(report);
+    
+    phaseCompleted(report, ShutdownPhase.RELEASE, start);
+    
+    if(report.isDrained())
+      log_.info(report.toString());
+    else
+      log_.warn(report.toString());
+    
+    return report;
+  }
+
+  private long phaseCompleted(ShutdownReport report, ShutdownPhase phase, long start)
+  {
+    long now            = System.nanoTime();
+    long durationMillis = TimeUnit.NANOSECONDS.toMillis(now - start);
+    
+    report.phaseCompleted(phase, durationMillis);
+    log_.info("Shutdown phase " + phase + " completed in " + durationMillis + "ms");
+    
+    return now;
+  }
+  
+  private static class Stage
+  {
+    private final List<String>              names_      = new ArrayList<>();
+    private final List<IDrainableComponent> components_ = new ArrayList<>();
+    
+    void add(String name, IDrainableComponent component)
+    {
+      names_.add(name);
+      components_.add(component);
+    }
+    
+    void stopIntake()
+    {
+      for(int i=0 ; i<components_.size() ; i++)
+      {
+        try
+        {
+          components_.get(i).stopIntake();
+        }
+        catch(RuntimeException e)
+        {
+          log_.error("Failed to stop intake for " + names_.get(i), e);
+        }
+      }
+    }
+    
+    void releaseUnstarted(ShutdownReport report)
+    {
+      for(int i=0 ; i<components_.size() ; i++)
+      {
+        try
+        {
+          report.released(components_.get(i).releaseUnstarted());
+        }
+        catch(RuntimeException e)
+        {
+          log_.error("Failed to release unstarted work for " + names_.get(i), e);
+        }
+      }
+    }
+    
+    void drain(ShutdownReport report, long deadline)
+    {
+      if(components_.isEmpty())
+        return;
+      
+      ExecutorService       drainExecutor = Executors.newFixedThreadPool(components_.size(),
+          new NamedThreadFactory("Drain", true));
+      List<Future<Boolean>> futures       = new ArrayList<>(components_.size());
+      
+      try
+      {
+        for(IDrainableComponent component : components_)
+        {
+          futures.add(drainExecutor.submit(() ->
+              component.awaitDrained(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)));
+        }
+        
+        for(int i=0 ; i<futures.size() ; i++)
+        {
+          boolean drained = false;
+          
+          try
+          {
+            drained = futures.get(i).get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+          }
+          catch(TimeoutException e)
+          {
+            // not drained
+          }
+          catch(ExecutionException e)
+          {
+            log_.error("Failed to drain " + names_.get(i), e.getCause());
+          }
+          catch(InterruptedException e)
+          {
+            log_.warn("Interrupted while draining " + names_.get(i));
+            Thread.currentThread().interrupt();
+          }
+          
+          if(!drained)
+            report.undrained(names_.get(i));
+        }
+      }
+      finally
+      {
+        drainExecutor.shutdownNow();
+      }
+    }
+  }
+}
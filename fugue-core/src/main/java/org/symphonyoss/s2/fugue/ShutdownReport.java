@@ -0,0 +1,109 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of a coordinated shutdown.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ShutdownReport
+{
+  private final Map<ShutdownPhase, Long> durations_  = new EnumMap<>(ShutdownPhase.class);
+  private final List<String>             undrained_  = new ArrayList<>();
+  private int                            released_;
+
+  /* package */ void phaseCompleted(ShutdownPhase phase, long durationMillis)
+  {
+    durations_.put(phase, durationMillis);
+  }
+
+  /* package */ void undrained(String name)
+  {
+    undrained_.add(name);
+  }
+
+  /* package */ void released(int count)
+  {
+    released_ += count;
+  }
+
+  /**
+   * @param phase A shutdown phase.
+   * 
+   * @return The duration of the given phase in milliseconds, or -1 if the phase has not completed.
+   */
+  public long getDurationMillis(ShutdownPhase phase)
+  {
+    Long duration = durations_.get(phase);
+    
+    return duration == null ? -1L : duration;
+  }
+
+  /**
+   * @return The names of the components which did not drain before the deadline.
+   */
+  public List<String> getUndrained()
+  {
+    return Collections.unmodifiableList(undrained_);
+  }
+
+  /**
+   * @return true if all components drained before the deadline.
+   */
+  public boolean isDrained()
+  {
+    return undrained_.isEmpty();
+  }
+
+  /**
+   * @return The number of units of work released.
+   */
+  public int getReleased()
+  {
+    return released_;
+  }
+
+  @Override
+  public String toString()
+  {
+    StringBuilder s = new StringBuilder("Shutdown");
+    
+    for(ShutdownPhase phase : ShutdownPhase.values())
+      s.append(' ').append(phase).append('=').append(getDurationMillis(phase)).append("ms");
+    
+    s.append(", released ").append(released_);
+    
+    if(!undrained_.isEmpty())
+      s.append(", not drained ").append(undrained_);
+    
+    return s.toString();
+  }
+}
@@ -27,25 +27,37 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.common.fault.TransactionFault;
 import org.symphonyoss.s2.fugue.IFugueServer;
+import org.symphonyoss.s2.fugue.metrics.IMetricsCollector;
+import org.symphonyoss.s2.fugue.metrics.IMetricsSource;
 
-public class BlockingThreadPoolExecutor implements Executor
+public class BlockingThreadPoolExecutor implements Executor, IMetricsSource
 {
   private static Logger log_ = LoggerFactory.getLogger(BlockingThreadPoolExecutor.class);
   
   private final IFugueServer    server_;
+  private final String          name_;
   private final Thread[] threads_;
   private final LinkedBlockingQueue<FugueRunnable> queue_;
+  private final ExecutorMetrics metrics_ = new ExecutorMetrics();
+  private final AtomicInteger   active_  = new AtomicInteger();
   
   private boolean running_ = true;
 
   public BlockingThreadPoolExecutor(IFugueServer server, int poolSize, ThreadFactory threadFactory)
+  {
+    this(server, BlockingThreadPoolExecutor.class.getSimpleName(), poolSize, threadFactory);
+  }
+
+  public BlockingThreadPoolExecutor(IFugueServer server, String name, int poolSize, ThreadFactory threadFactory)
   {
     server_ = server;
+    name_ = name;
     queue_ = new LinkedBlockingQueue<FugueRunnable>(poolSize);
     threads_ = new Thread[poolSize];
     
@@ -59,15 +71,19 @@ public class BlockingThreadPoolExecutor implements Executor
   @Override
   public void execute(Runnable task)
   {
+    metrics_.submitted();
+    
+    FugueRunnable fugueTask = new FugueRunnable(server_, task, metrics_, System.nanoTime());
+    
     try
     {
-      if(!queue_.offer(new FugueRunnable(server_, task)))
+      if(!queue_.offer(fugueTask))
       {
         long start = System.currentTimeMillis();
         
         log_.info("Task blocked...");
         
-        while(!queue_.offer(new FugueRunnable(server_, task), 500, TimeUnit.MILLISECONDS))
+        while(!queue_.offer(fugueTask, 500, TimeUnit.MILLISECONDS))
           log_.info("still blocked...");
         
         log_.info("Task queued after " + (System.currentTimeMillis() - start) + "ms.");
@@ -75,10 +91,25 @@ public class BlockingThreadPoolExecutor implements Executor
     }
     catch (InterruptedException e)
     {
+      metrics_.rejected();
       throw new TransactionFault(e);
     }
   }
   
+  @Override
+  public void collectMetrics(IMetricsCollector collector)
+  {
+    metrics_.collectMetrics(collector, name_, threads_.length, active_.get(), queue_.size());
+  }
+  
+  /**
+   * @return The task metrics for this executor.
+   */
+  public ExecutorMetrics getMetrics()
+  {
+    return metrics_;
+  }
+  
   public synchronized void shutdown()
   {
     running_ = false;
@@ -104,7 +135,15 @@ public class BlockingThreadPoolExecutor implements Executor
         {
           FugueRunnable task = queue_.take();
           
-          task.run();
+          active_.incrementAndGet();
+          try
+          {
+            task.run();
+          }
+          finally
+          {
+            active_.decrementAndGet();
+          }
         }
         catch (InterruptedException e)
         {
@@ -0,0 +1,250 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.symphonyoss.s2.fugue.metrics.Histogram;
+import org.symphonyoss.s2.fugue.metrics.IMetricsCollector;
+
+/**
+ * Counters and histograms for the tasks run by an executor.
+ * 
+ * Recording is lock free, a task costs two calls to System.nanoTime(), a handful of LongAdder increments
+ * and an insert and remove on a ConcurrentHashMap of running tasks which is read by the {@link TaskWatchdog}.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ExecutorMetrics
+{
+  /** The name of the label whose value is the name of the executor. */
+  public static final String  EXECUTOR_LABEL     = "executor";
+  
+  private static final String SUBMITTED_METRIC   = "fugue_executor_tasks_submitted_total";
+  private static final String COMPLETED_METRIC   = "fugue_executor_tasks_completed_total";
+  private static final String REJECTED_METRIC    = "fugue_executor_tasks_rejected_total";
+  private static final String FAULTED_METRIC     = "fugue_executor_tasks_faulted_total";
+  private static final String SHED_METRIC        = "fugue_executor_tasks_shed_total";
+  private static final String QUEUE_WAIT_METRIC  = "fugue_executor_queue_wait_microseconds";
+  private static final String RUN_TIME_METRIC    = "fugue_executor_run_time_microseconds";
+  private static final String POOL_SIZE_METRIC   = "fugue_executor_pool_size";
+  private static final String ACTIVE_METRIC      = "fugue_executor_active_threads";
+  private static final String QUEUE_DEPTH_METRIC = "fugue_executor_queue_depth";
+
+  private final LongAdder submitted_ = new LongAdder();
+  private final LongAdder completed_ = new LongAdder();
+  private final LongAdder rejected_  = new LongAdder();
+  private final LongAdder faulted_   = new LongAdder();
+  private final LongAdder shed_      = new LongAdder();
+  private final Histogram queueWait_ = new Histogram();
+  private final Histogram runTime_   = new Histogram();
+  
+  private final ConcurrentHashMap<Thread, RunningTask> running_ = new ConcurrentHashMap<>();
+
+  /**
+   * Record the submission of a task.
+   */
+  public void submitted()
+  {
+    submitted_.increment();
+  }
+
+  /**
+   * Record the rejection of a task by the underlying executor.
+   */
+  public void rejected()
+  {
+    rejected_.increment();
+  }
+
+  /**
+   * Record that a task was discarded because the executor was overloaded.
+   * 
+   * A shed task should also be recorded as rejected, so that every submitted task is counted as either
+   * completed or rejected.
+   */
+  public void shed()
+  {
+    shed_.increment();
+  }
+
+  /**
+   * Record the start of a task.
+   * 
+   * Must be called on the thread which runs the task.
+   * 
+   * @param readyNanos  The System.nanoTime() at which the task became ready to run, or zero if not known.
+   * @param task        The task, whose toString() is used to describe it if it becomes stuck.
+   * 
+   * @return The System.nanoTime() at which the task started, to be passed to finished().
+   */
+  public long started(long readyNanos, Object task)
+  {
+    long   now    = System.nanoTime();
+    Thread thread = Thread.currentThread();
+    
+    if(readyNanos != 0)
+      queueWait_.record((now - readyNanos) / 1000);
+    
+    // A task run by the caller of another task of the same executor is accounted to the outer task.
+    running_.putIfAbsent(thread, new RunningTask(thread, task, now));
+    
+    return now;
+  }
+
+  /**
+   * Record the completion of a task.
+   * 
+   * Must be called on the thread which ran the task.
+   * 
+   * @param startNanos  The value returned by started().
+   * @param faulted     True if the task threw an exception.
+   */
+  public void finished(long startNanos, boolean faulted)
+  {
+    Thread      thread  = Thread.currentThread();
+    RunningTask running = running_.get(thread);
+    
+    if(running != null && running.getStartNanos() == startNanos)
+      running_.remove(thread, running);
+    
+    runTime_.record((System.nanoTime() - startNanos) / 1000);
+    completed_.increment();
+    
+    if(faulted)
+      faulted_.increment();
+  }
+
+  /**
+   * @return The number of tasks submitted.
+   */
+  public long getSubmittedCount()
+  {
+    return submitted_.sum();
+  }
+
+  /**
+   * @return The number of tasks completed, including those which faulted.
+   */
+  public long getCompletedCount()
+  {
+    return completed_.sum();
+  }
+
+  /**
+   * @return The number of tasks rejected by the underlying executor, including those which were shed.
+   */
+  public long getRejectedCount()
+  {
+    return rejected_.sum();
+  }
+
+  /**
+   * @return The number of tasks which threw an exception.
+   */
+  public long getFaultedCount()
+  {
+    return faulted_.sum();
+  }
+
+  /**
+   * @return The number of tasks discarded because the executor was overloaded.
+   */
+  public long getShedCount()
+  {
+    return shed_.sum();
+  }
+
+  /**
+   * @return The tasks which are currently running, in no particular order.
+   */
+  public Collection<RunningTask> getRunningTasks()
+  {
+    return Collections.unmodifiableCollection(running_.values());
+  }
+
+  /**
+   * @return The histogram of time in microseconds between a task becoming ready to run and starting.
+   */
+  public Histogram getQueueWait()
+  {
+    return queueWait_;
+  }
+
+  /**
+   * @return The histogram of task execution time in microseconds.
+   */
+  public Histogram getRunTime()
+  {
+    return runTime_;
+  }
+
+  /**
+   * Pass the counters and histograms, and the given gauges, to the given collector.
+   * 
+   * @param collector   A metrics collector.
+   * @param name        The name of the executor.
+   * @param poolSize    The current number of threads, or a negative value if not known.
+   * @param active      The current number of threads running tasks, or a negative value if not known.
+   * @param queueDepth  The current number of queued tasks, or a negative value if not known.
+   */
+  public void collectMetrics(IMetricsCollector collector, String name, int poolSize, int active, int queueDepth)
+  {
+    collectMetrics(collector, poolSize, active, queueDepth, EXECUTOR_LABEL, name);
+  }
+
+  /**
+   * Pass the counters and histograms, and the given gauges, to the given collector with the given labels.
+   * 
+   * @param collector   A metrics collector.
+   * @param poolSize    The current number of threads, or a negative value if not known.
+   * @param active      The current number of threads running tasks, or a negative value if not known.
+   * @param queueDepth  The current number of queued tasks, or a negative value if not known.
+   * @param labels      Alternating label names and values, which should include the executor label.
+   */
+  public void collectMetrics(IMetricsCollector collector, int poolSize, int active, int queueDepth, String... labels)
+  {
+    collector.counter(SUBMITTED_METRIC, "Tasks submitted to the executor", getSubmittedCount(), labels);
+    collector.counter(COMPLETED_METRIC, "Tasks completed by the executor", getCompletedCount(), labels);
+    collector.counter(REJECTED_METRIC,  "Tasks rejected by the executor", getRejectedCount(), labels);
+    collector.counter(FAULTED_METRIC,   "Tasks which threw an exception", getFaultedCount(), labels);
+    collector.counter(SHED_METRIC,      "Tasks discarded because the executor was overloaded", getShedCount(), labels);
+    
+    if(poolSize >= 0)
+      collector.gauge(POOL_SIZE_METRIC, "Threads in the executor", poolSize, labels);
+    
+    if(active >= 0)
+      collector.gauge(ACTIVE_METRIC, "Threads running tasks", active, labels);
+    
+    if(queueDepth >= 0)
+      collector.gauge(QUEUE_DEPTH_METRIC, "Tasks waiting for a thread", queueDepth, labels);
+    
+    collector.histogram(QUEUE_WAIT_METRIC, "Time from a task being ready to run to it starting", queueWait_, labels);
+    collector.histogram(RUN_TIME_METRIC,   "Task execution time", runTime_, labels);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.symphonyoss.s2.fugue.http.ui.servlet.IUIPanel;
+import org.symphonyoss.s2.fugue.http.ui.servlet.UIHtmlWriter;
+import org.symphonyoss.s2.fugue.http.ui.servlet.UIPanel;
+
+/**
+ * A UI panel which displays the profile and current state of the executors in a server.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ExecutorPanel extends UIPanel implements IUIPanel
+{
+  private final List<? extends FugueExecutorService> executors_;
+
+  /**
+   * Constructor.
+   * 
+   * @param executors The executors to display, which may be added to after construction.
+   */
+  public ExecutorPanel(List<? extends FugueExecutorService> executors)
+  {
+    super("Executors");
+    
+    executors_ = executors;
+  }
+
+  @Override
+  public void handleContent(HttpServletRequest req, UIHtmlWriter out)
+  {
+    out.openElement(TABLE, CLASS, "w3-table " + CLASS_STRIPY_TABLE);
+    
+    out.openElement("tr");
+    out.printElement("td", "Name");
+    out.printElement("td", "Overload Policy");
+    out.printElement("td", "Core");
+    out.printElement("td", "Max");
+    out.printElement("td", "Threads");
+    out.printElement("td", "Active");
+    out.printElement("td", "Queued");
+    out.printElement("td", "Queue Capacity");
+    out.printElement("td", "Submitted");
+    out.printElement("td", "Completed");
+    out.printElement("td", "Rejected");
+    out.printElement("td", "Faulted");
+    out.printElement("td", "Shed");
+    out.printElement("td", "Wait p99 (us)");
+    out.printElement("td", "Run p99 (us)");
+    out.closeElement(); //tr
+    
+    for(FugueExecutorService exec : executors_)
+    {
+      ExecutorProfile     profile = exec.getProfile();
+      ThreadPoolExecutor  pool    = exec.getThreadPoolExecutor();
+      ExecutorMetrics     metrics = exec.getMetrics();
+      
+      out.openElement("tr");
+      out.printElement("td", exec.getName());
+      out.printElement("td", profile == null ? "" : profile.getOverloadPolicy().toString());
+      
+      if(pool == null)
+      {
+        for(int i=0 ; i<6 ; i++)
+          out.printElement("td", "");
+      }
+      else
+      {
+        out.printElement("td", String.valueOf(pool.getCorePoolSize()));
+        out.printElement("td", String.valueOf(pool.getMaximumPoolSize()));
+        out.printElement("td", String.valueOf(pool.getPoolSize()));
+        out.printElement("td", String.valueOf(pool.getActiveCount()));
+        out.printElement("td", String.valueOf(pool.getQueue().size()));
+        out.printElement("td", profile == null ? "" : String.valueOf(profile.getQueueCapacity()));
+      }
+      out.printElement("td", String.valueOf(metrics.getSubmittedCount()));
+      out.printElement("td", String.valueOf(metrics.getCompletedCount()));
+      out.printElement("td", String.valueOf(metrics.getRejectedCount()));
+      out.printElement("td", String.valueOf(metrics.getFaultedCount()));
+      out.printElement("td", String.valueOf(metrics.getShedCount()));
+      out.printElement("td", String.valueOf(metrics.getQueueWait().getValueAtPercentile(99.0)));
+      out.printElement("td", String.valueOf(metrics.getRunTime().getValueAtPercentile(99.0)));
+      out.closeElement(); //tr
+    }
+    
+    out.closeElement(); // table
+  }
+}
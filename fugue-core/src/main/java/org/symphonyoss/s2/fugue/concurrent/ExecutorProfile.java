@@ -0,0 +1,326 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import org.symphonyoss.s2.common.fault.ProgramFault;
+import org.symphonyoss.s2.fugue.config.IConfiguration;
+
+/**
+ * The sizing and overload behaviour of a named FugueExecutorService.
+ * 
+ * The defaults give a pool of between 5 and 20 threads with a queue of 1000 tasks, when the pool and
+ * the queue are both full the submitting thread blocks. Any value may be overridden from configuration
+ * by calling withConfiguration(), in which case the properties are read from the sub-configuration
+ * with the same name as the profile, for example:
+ * 
+ * <pre>
+ * {
+ *   "myExecutor": {
+ *     "coreSize": 10,
+ *     "maxSize": 50,
+ *     "queueCapacity": 5000,
+ *     "keepAliveMillis": 60000,
+ *     "overloadPolicy": "SHED"
+ *   }
+ * }
+ * </pre>
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ExecutorProfile
+{
+  /** The configuration key for the core pool size. */
+  public static final String     CORE_SIZE                = "coreSize";
+  /** The configuration key for the maximum pool size. */
+  public static final String     MAX_SIZE                 = "maxSize";
+  /** The configuration key for the queue capacity. */
+  public static final String     QUEUE_CAPACITY           = "queueCapacity";
+  /** The configuration key for the keep alive time for non-core threads. */
+  public static final String     KEEP_ALIVE_MILLIS        = "keepAliveMillis";
+  /** The configuration key for the overload policy. */
+  public static final String     OVERLOAD_POLICY          = "overloadPolicy";
+  /** The configuration key for the stuck task threshold. */
+  public static final String     STUCK_TASK_THRESHOLD_MILLIS = "stuckTaskThresholdMillis";
+
+  /** The default core pool size. */
+  public static final int            DEFAULT_CORE_SIZE         = 5;
+  /** The default maximum pool size. */
+  public static final int            DEFAULT_MAX_SIZE          = 20;
+  /** The default queue capacity. */
+  public static final int            DEFAULT_QUEUE_CAPACITY    = 1000;
+  /** The default keep alive time for non-core threads. */
+  public static final long           DEFAULT_KEEP_ALIVE_MILLIS = 500L;
+  /** The default overload policy. */
+  public static final OverloadPolicy DEFAULT_OVERLOAD_POLICY   = OverloadPolicy.BLOCK;
+  /** The default time after which a running task is reported as stuck. */
+  public static final long           DEFAULT_STUCK_TASK_THRESHOLD_MILLIS = 60000L;
+
+  private final String           name_;
+  private int                    coreSize_                = DEFAULT_CORE_SIZE;
+  private int                    maxSize_                 = DEFAULT_MAX_SIZE;
+  private int                    queueCapacity_           = DEFAULT_QUEUE_CAPACITY;
+  private long                   keepAliveMillis_         = DEFAULT_KEEP_ALIVE_MILLIS;
+  private OverloadPolicy         overloadPolicy_          = DEFAULT_OVERLOAD_POLICY;
+  private long                   stuckTaskThresholdMillis_ = DEFAULT_STUCK_TASK_THRESHOLD_MILLIS;
+
+  /**
+   * Constructor.
+   * 
+   * @param name The name of the executor, which is also used as the name of its threads.
+   */
+  public ExecutorProfile(String name)
+  {
+    name_ = name;
+  }
+
+  /**
+   * Copy constructor.
+   * 
+   * @param other The profile whose name and values are copied.
+   */
+  public ExecutorProfile(ExecutorProfile other)
+  {
+    name_                     = other.name_;
+    coreSize_                 = other.coreSize_;
+    maxSize_                  = other.maxSize_;
+    queueCapacity_            = other.queueCapacity_;
+    keepAliveMillis_          = other.keepAliveMillis_;
+    overloadPolicy_           = other.overloadPolicy_;
+    stuckTaskThresholdMillis_ = other.stuckTaskThresholdMillis_;
+  }
+
+  /**
+   * Set the number of threads which are kept in the pool even when idle.
+   * 
+   * @param coreSize The core pool size.
+   * 
+   * @return this (fluent method)
+   */
+  public ExecutorProfile withCoreSize(int coreSize)
+  {
+    if(coreSize < 0)
+      throw new IllegalArgumentException("coreSize must be >= 0");
+    
+    coreSize_ = coreSize;
+    
+    return this;
+  }
+
+  /**
+   * Set the maximum number of threads in the pool.
+   * 
+   * The pool only grows beyond the core size when the queue is full.
+   * 
+   * @param maxSize The maximum pool size.
+   * 
+   * @return this (fluent method)
+   */
+  public ExecutorProfile withMaxSize(int maxSize)
+  {
+    if(maxSize < 1)
+      throw new IllegalArgumentException("maxSize must be >= 1");
+    
+    maxSize_ = maxSize;
+    
+    return this;
+  }
+
+  /**
+   * Set the maximum number of tasks which can be queued waiting for a thread.
+   * 
+   * @param queueCapacity The queue capacity.
+   * 
+   * @return this (fluent method)
+   */
+  public ExecutorProfile withQueueCapacity(int queueCapacity)
+  {
+    if(queueCapacity < 1)
+      throw new IllegalArgumentException("queueCapacity must be >= 1");
+    
+    queueCapacity_ = queueCapacity;
+    
+    return this;
+  }
+
+  /**
+   * Set the time for which threads in excess of the core size are kept when idle.
+   * 
+   * @param keepAliveMillis The keep alive time in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public ExecutorProfile withKeepAliveMillis(long keepAliveMillis)
+  {
+    if(keepAliveMillis < 0)
+      throw new IllegalArgumentException("keepAliveMillis must be >= 0");
+    
+    keepAliveMillis_ = keepAliveMillis;
+    
+    return this;
+  }
+
+  /**
+   * Set the action to be taken when the pool and the queue are both full.
+   * 
+   * @param overloadPolicy The overload policy.
+   * 
+   * @return this (fluent method)
+   */
+  public ExecutorProfile withOverloadPolicy(OverloadPolicy overloadPolicy)
+  {
+    if(overloadPolicy == null)
+      throw new IllegalArgumentException("overloadPolicy must not be null");
+    
+    overloadPolicy_ = overloadPolicy;
+    
+    return this;
+  }
+
+  /**
+   * Set the time after which a running task is reported as stuck by the TaskWatchdog.
+   * 
+   * @param stuckTaskThresholdMillis The stuck task threshold in milliseconds, zero to disable reporting.
+   * 
+   * @return this (fluent method)
+   */
+  public ExecutorProfile withStuckTaskThresholdMillis(long stuckTaskThresholdMillis)
+  {
+    if(stuckTaskThresholdMillis < 0)
+      throw new IllegalArgumentException("stuckTaskThresholdMillis must be >= 0");
+    
+    stuckTaskThresholdMillis_ = stuckTaskThresholdMillis;
+    
+    return this;
+  }
+
+  /**
+   * Override any values in this profile which are present in the given configuration.
+   * 
+   * Values are read from the sub-configuration with the same name as this profile.
+   * 
+   * @param configuration A configuration containing overrides for executor profiles.
+   * 
+   * @return this (fluent method)
+   * 
+   * @throws ProgramFault If a configured value is invalid.
+   */
+  public ExecutorProfile withConfiguration(IConfiguration configuration)
+  {
+    IConfiguration config = configuration.getConfiguration(name_);
+    
+    try
+    {
+      String value;
+      
+      if((value = config.getString(CORE_SIZE, null)) != null)
+        withCoreSize(Integer.parseInt(value));
+      
+      if((value = config.getString(MAX_SIZE, null)) != null)
+        withMaxSize(Integer.parseInt(value));
+      
+      if((value = config.getString(QUEUE_CAPACITY, null)) != null)
+        withQueueCapacity(Integer.parseInt(value));
+      
+      if((value = config.getString(KEEP_ALIVE_MILLIS, null)) != null)
+        withKeepAliveMillis(Long.parseLong(value));
+      
+      if((value = config.getString(OVERLOAD_POLICY, null)) != null)
+        withOverloadPolicy(OverloadPolicy.valueOf(value));
+      
+      if((value = config.getString(STUCK_TASK_THRESHOLD_MILLIS, null)) != null)
+        withStuckTaskThresholdMillis(Long.parseLong(value));
+    }
+    catch(IllegalArgumentException e)
+    {
+      throw new ProgramFault("Invalid configuration for executor \"" + name_ + "\"", e);
+    }
+    
+    return this;
+  }
+
+  /**
+   * @return The name of the executor.
+   */
+  public String getName()
+  {
+    return name_;
+  }
+
+  /**
+   * @return The core pool size.
+   */
+  public int getCoreSize()
+  {
+    return coreSize_;
+  }
+
+  /**
+   * @return The maximum pool size, which is never less than the core size.
+   */
+  public int getMaxSize()
+  {
+    return Math.max(coreSize_, maxSize_);
+  }
+
+  /**
+   * @return The queue capacity.
+   */
+  public int getQueueCapacity()
+  {
+    return queueCapacity_;
+  }
+
+  /**
+   * @return The keep alive time for threads in excess of the core size in milliseconds.
+   */
+  public long getKeepAliveMillis()
+  {
+    return keepAliveMillis_;
+  }
+
+  /**
+   * @return The overload policy.
+   */
+  public OverloadPolicy getOverloadPolicy()
+  {
+    return overloadPolicy_;
+  }
+
+  /**
+   * @return The time after which a running task is reported as stuck in milliseconds, zero if disabled.
+   */
+  public long getStuckTaskThresholdMillis()
+  {
+    return stuckTaskThresholdMillis_;
+  }
+
+  @Override
+  public String toString()
+  {
+    return name_ + "[core=" + coreSize_ + ", max=" + getMaxSize() + ", queue=" + queueCapacity_
+        + ", keepAlive=" + keepAliveMillis_ + "ms, overload=" + overloadPolicy_
+        + ", stuckTaskThreshold=" + stuckTaskThresholdMillis_ + "ms]";
+  }
+}
@@ -25,25 +25,38 @@ package org.symphonyoss.s2.fugue.concurrent;
 
 import java.util.concurrent.Callable;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.common.fault.ProgramFault;
 import org.symphonyoss.s2.common.fault.TransactionFault;
 import org.symphonyoss.s2.fugue.IFugueServer;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+import org.symphonyoss.s2.fugue.core.trace.TraceContextHolder;
 
 /**
  * An implementation of Callable which handles Faults and RuntimeExceptions the Fugue way.
  * 
+ * The trace context of the thread which creates the FugueCallable is captured and set as the trace context
+ * of the thread which calls it for the duration of the task.
+ * 
+ * The priority of the task is used by a PriorityLaneExecutor to choose the lane in which the task is queued.
+ * 
  * @author Bruce Skingle
  * @param <V> the result type of method {@code call}
  *
  */
-public class FugueCallable<V> implements Callable<V>
+public class FugueCallable<V> implements Callable<V>, IPrioritized
 {
-  private static Logger      log_ = LoggerFactory.getLogger(FugueRunnable.class);
+  private static Logger         log_ = LoggerFactory.getLogger(FugueRunnable.class);
 
-  private final IFugueServer server_;
-  private final Callable<V>  callable_;
+  private final IFugueServer    server_;
+  private final Callable<V>     callable_;
+  private final ITraceContext   traceContext_;
+  private final ExecutorMetrics metrics_;
+  private final long            readyNanos_;
+  private final TaskPriority    priority_;
   
   /**
    * Create a FugueCallable for the given server and vanilla Callable.
@@ -52,17 +65,66 @@ public class FugueCallable<V> implements Callable<V>
    * @param callable  The actual task.
    */
   public FugueCallable(IFugueServer server, Callable<V> callable)
+  {
+    this(server, callable, TaskPriority.of(callable), null, 0L);
+  }
+  
+  /**
+   * Create a FugueCallable with the given priority.
+   *  
+   * @param server    The IFugueServer in which this task will run.
+   * @param priority  The priority of the task.
+   * @param callable  The actual task.
+   */
+  public FugueCallable(IFugueServer server, TaskPriority priority, Callable<V> callable)
+  {
+    this(server, callable, priority, null, 0L);
+  }
+  
+  /**
+   * Create a FugueCallable which records its execution in the given metrics.
+   *  
+   * @param server      The IFugueServer in which this task will run.
+   * @param callable    The actual task.
+   * @param metrics     Metrics for the executor which will run the task.
+   * @param readyNanos  The System.nanoTime() at which the task will be ready to run, or zero if the
+   *                    queue wait time should not be recorded.
+   */
+  /* package */ FugueCallable(IFugueServer server, Callable<V> callable, @Nullable ExecutorMetrics metrics, long readyNanos)
+  {
+    this(server, callable, TaskPriority.of(callable), metrics, readyNanos);
+  }
+  
+  private FugueCallable(IFugueServer server, Callable<V> callable, TaskPriority priority, @Nullable ExecutorMetrics metrics, long readyNanos)
   {
     server_ = server;
     callable_ = callable;
+    traceContext_ = TraceContextHolder.get();
+    metrics_ = metrics;
+    readyNanos_ = readyNanos;
+    priority_ = priority;
+  }
+
+  @Override
+  public TaskPriority getPriority()
+  {
+    return priority_;
   }
 
   @Override
   public V call()
   {
+    ITraceContext previous = TraceContextHolder.set(traceContext_);
+    long          start    = metrics_ == null ? 0L : metrics_.started(readyNanos_, callable_);
+    boolean       faulted  = true;
+    
     try
     {
-      return callable_.call();
+      V result = callable_.call();
+      
+      faulted = false;
+      
+      return result;
     }
     catch(ProgramFault e)
     {
@@ -85,5 +147,12 @@ public class FugueCallable<V> implements Callable<V>
       log_.error("Task completed with unexpected checked exception", e);
       throw new TransactionFault(e);
     }
+    finally
+    {
+      TraceContextHolder.set(previous);
+      
+      if(metrics_ != null)
+        metrics_.finished(start, faulted);
+    }
   }
 }
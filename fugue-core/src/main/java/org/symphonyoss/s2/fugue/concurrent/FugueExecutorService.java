@@ -29,26 +29,48 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.common.concurrent.NamedThreadFactory;
+import org.symphonyoss.s2.fugue.IDrainableComponent;
 import org.symphonyoss.s2.fugue.IFugueServer;
+import org.symphonyoss.s2.fugue.metrics.IMetricsCollector;
+import org.symphonyoss.s2.fugue.metrics.IMetricsSource;
 
 /**
  * An implementation of ExecutorService which handles Faults and RuntimeExceptions the Fugue way.
  * 
+ * Executors created from an ExecutorProfile have a bounded queue and apply the OverloadPolicy of the
+ * profile when both the pool and the queue are full.
+ * 
+ * Counts of submitted, completed, rejected and faulted tasks and histograms of queue wait and run time
+ * are maintained for all tasks and published as metrics labelled with the name of the executor.
+ * 
+ * As an IDrainableComponent, stopping intake shuts the executor down, it is drained when it terminates
+ * and releasing unstarted work discards any queued tasks and interrupts those still running.
+ * 
  * @author Bruce Skingle
  *
  */
-public class FugueExecutorService implements ExecutorService
+public class FugueExecutorService implements ExecutorService, IMetricsSource, IDrainableComponent
 {
-  private final IFugueServer    server_;
-  private final ExecutorService exec_;
+  private static final Logger      log_     = LoggerFactory.getLogger(FugueExecutorService.class);
+
+  private final IFugueServer       server_;
+  private final ExecutorService    exec_;
+  private final String             name_;
+  private final ExecutorMetrics    metrics_ = new ExecutorMetrics();
+  private volatile ExecutorProfile profile_;
 
   /**
    * Create an instance with the given ExecutorService.
@@ -57,28 +79,194 @@ public class FugueExecutorService implements ExecutorService
    * @param exec      An ExecutorService to do the actual work.
    */
   public FugueExecutorService(IFugueServer server, ExecutorService exec)
+  {
+    this(server, null, exec);
+  }
+
+  /**
+   * Create an instance with the given name and ExecutorService.
+   * 
+   * @param server    The IFugueServer in which this task will run.
+   * @param name      The name of this executor, if null the name of the ExecutorService is used.
+   * @param exec      An ExecutorService to do the actual work.
+   */
+  public FugueExecutorService(IFugueServer server, @Nullable String name, ExecutorService exec)
   {
     server_ = server;
+    name_ = name;
     exec_ = exec;
+    profile_ = null;
   }
 
   /**
-   * Create an instance with a CachedThreadPool ExecutorService.
+   * Create an instance with a ThreadPoolExecutor with the default ExecutorProfile.
    * 
    * @param server    The IFugueServer in which this task will run.
    * @param name      The name for the thread pool.
    */
   public FugueExecutorService(IFugueServer server, String name)
   {
-    this(server, newDefaultExecutor(name));
+    this(server, new ExecutorProfile(name));
+  }
+
+  /**
+   * Create an instance with a ThreadPoolExecutor sized according to the given profile.
+   * 
+   * @param server    The IFugueServer in which this task will run.
+   * @param profile   The sizing and overload policy for the thread pool.
+   */
+  public FugueExecutorService(IFugueServer server, ExecutorProfile profile)
+  {
+    server_ = server;
+    name_ = profile.getName();
+    profile_ = profile;
+    exec_ = new ThreadPoolExecutor(profile.getCoreSize(), profile.getMaxSize(),
+        profile.getKeepAliveMillis(), TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(profile.getQueueCapacity()),
+        new NamedThreadFactory(profile.getName()),
+        new OverloadHandler());
+  }
+  
+  private class OverloadHandler implements RejectedExecutionHandler
+  {
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor)
+    {
+      ExecutorProfile profile = profile_;
+      
+      if(executor.isShutdown())
+        throw new RejectedExecutionException("Executor " + profile.getName() + " has been shut down");
+      
+      switch(profile.getOverloadPolicy())
+      {
+        case BLOCK:
+          try
+          {
+            executor.getQueue().put(task);
+          }
+          catch (InterruptedException e)
+          {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting to queue task on executor " + profile.getName(), e);
+          }
+          break;
+          
+        case CALLER_RUNS:
+          task.run();
+          break;
+          
+        case SHED:
+          metrics_.shed();
+          metrics_.rejected();
+          log_.debug("Executor {} overloaded, task shed.", profile.getName());
+          
+          // the caller of submit() or invokeAll() holds this future, which would otherwise never complete
+          if(task instanceof Future)
+            ((Future<?>)task).cancel(false);
+          break;
+          
+        case FAIL_FAST:
+          throw new RejectedExecutionException("Executor " + profile.getName() + " overloaded");
+      }
+    }
+  }
+
+  /**
+   * @return The profile most recently applied to this executor, or null if it was created with an external ExecutorService.
+   */
+  public @Nullable ExecutorProfile getProfile()
+  {
+    return profile_;
+  }
+
+  /**
+   * @return The name of this executor.
+   */
+  public String getName()
+  {
+    return name_ == null ? exec_.toString() : name_;
+  }
+
+  /**
+   * @return The number of tasks which have been discarded because of the SHED overload policy.
+   */
+  public long getShedCount()
+  {
+    return metrics_.getShedCount();
+  }
+
+  /**
+   * @return The task metrics for this executor.
+   */
+  public ExecutorMetrics getMetrics()
+  {
+    return metrics_;
   }
 
-  private static ExecutorService newDefaultExecutor(String name)
+  @Override
+  public void collectMetrics(IMetricsCollector collector)
   {
-    return new ThreadPoolExecutor(5, 20,
-        500L, TimeUnit.MILLISECONDS,
-        new LinkedBlockingQueue<Runnable>(),
-        new NamedThreadFactory(name));
+    ThreadPoolExecutor pool = getThreadPoolExecutor();
+    
+    if(pool == null)
+      metrics_.collectMetrics(collector, getName(), -1, -1, -1);
+    else
+      metrics_.collectMetrics(collector, getName(), pool.getPoolSize(), pool.getActiveCount(), pool.getQueue().size());
+  }
+
+  /**
+   * @return The underlying ThreadPoolExecutor, or null if the underlying ExecutorService is of some other type.
+   */
+  public @Nullable ThreadPoolExecutor getThreadPoolExecutor()
+  {
+    return exec_ instanceof ThreadPoolExecutor ? (ThreadPoolExecutor)exec_ : null;
+  }
+
+  /**
+   * Apply the pool sizes and keep alive time of the given profile to the underlying thread pool.
+   * 
+   * This allows a running executor to be retuned when its configuration is reloaded. The queue capacity
+   * of a running executor cannot be changed, the overload policy is read from the profile on each overload.
+   * 
+   * The given profile replaces the current one and is read concurrently by submitting threads, so it
+   * should be a new instance which is not modified after this call.
+   * 
+   * @param profile A profile with the same name as the one from which this executor was created.
+   * 
+   * @throws IllegalArgumentException If the executor was not created from a profile, the profile has a different
+   *                                  name, or the sizes are invalid.
+   */
+  public void applyProfile(ExecutorProfile profile)
+  {
+    ThreadPoolExecutor pool = getThreadPoolExecutor();
+    
+    if(profile_ == null || pool == null)
+      throw new IllegalArgumentException("Executor " + getName() + " was not created from a profile");
+    
+    if(!profile_.getName().equals(profile.getName()))
+      throw new IllegalArgumentException("Executor " + getName() + " cannot apply profile " + profile.getName());
+    
+    if(profile.getCoreSize() > profile.getMaxSize())
+      throw new IllegalArgumentException("Executor " + getName() + " coreSize " + profile.getCoreSize() + " exceeds maxSize " + profile.getMaxSize());
+    
+    synchronized(pool)
+    {
+      // The core size may not exceed the maximum size at any point.
+      if(profile.getMaxSize() >= pool.getMaximumPoolSize())
+      {
+        pool.setMaximumPoolSize(profile.getMaxSize());
+        pool.setCorePoolSize(profile.getCoreSize());
+      }
+      else
+      {
+        pool.setCorePoolSize(profile.getCoreSize());
+        pool.setMaximumPoolSize(profile.getMaxSize());
+      }
+      
+      pool.setKeepAliveTime(profile.getKeepAliveMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    profile_ = profile;
   }
 
   protected IFugueServer getServer()
@@ -86,10 +274,64 @@ public class FugueExecutorService implements ExecutorService
     return server_;
   }
 
+  /**
+   * Wrap the given task, recording its submission.
+   * 
+   * @param task        A task.
+   * @param readyNanos  The System.nanoTime() at which the task will be ready to run, or zero if the
+   *                    queue wait time should not be recorded.
+   * 
+   * @return A FugueRunnable which records its execution in the metrics of this executor.
+   */
+  protected FugueRunnable wrap(Runnable task, long readyNanos)
+  {
+    metrics_.submitted();
+    
+    return new FugueRunnable(server_, task, metrics_, readyNanos);
+  }
+
+  /**
+   * Wrap the given task, recording its submission.
+   * 
+   * @param <T>         The type of the result of the task.
+   * @param task        A task.
+   * @param readyNanos  The System.nanoTime() at which the task will be ready to run, or zero if the
+   *                    queue wait time should not be recorded.
+   * 
+   * @return A FugueCallable which records its execution in the metrics of this executor.
+   */
+  protected <T> FugueCallable<T> wrap(Callable<T> task, long readyNanos)
+  {
+    metrics_.submitted();
+    
+    return new FugueCallable<>(server_, task, metrics_, readyNanos);
+  }
+
+  /**
+   * Record the rejection of a task and return the given exception so it can be re-thrown.
+   * 
+   * @param e The exception thrown by the underlying executor.
+   * 
+   * @return The given exception.
+   */
+  protected RejectedExecutionException rejected(RejectedExecutionException e)
+  {
+    metrics_.rejected();
+    
+    return e;
+  }
+
   @Override
   public void execute(Runnable command)
   {
-    exec_.execute(new FugueRunnable(server_, command));
+    try
+    {
+      exec_.execute(wrap(command, System.nanoTime()));
+    }
+    catch(RejectedExecutionException e)
+    {
+      throw rejected(e);
+    }
   }
 
   @Override
@@ -122,22 +364,69 @@ public class FugueExecutorService implements ExecutorService
     return exec_.awaitTermination(timeout, unit);
   }
 
+  @Override
+  public void stopIntake()
+  {
+    shutdown();
+  }
+
+  @Override
+  public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException
+  {
+    return awaitTermination(timeout, unit);
+  }
+
+  @Override
+  public int releaseUnstarted()
+  {
+    if(isTerminated())
+      return 0;
+    
+    List<Runnable> unstarted = shutdownNow();
+    
+    if(!unstarted.isEmpty())
+      log_.warn("Executor " + getName() + " discarded " + unstarted.size() + " queued tasks");
+    
+    return unstarted.size();
+  }
+
   @Override
   public <T> Future<T> submit(Callable<T> task)
   {
-    return exec_.submit(new FugueCallable<T>(server_, task));
+    try
+    {
+      return exec_.submit(wrap(task, System.nanoTime()));
+    }
+    catch(RejectedExecutionException e)
+    {
+      throw rejected(e);
+    }
   }
 
   @Override
   public <T> Future<T> submit(Runnable task, T result)
   {
-    return exec_.submit(new FugueRunnable(server_, task), result);
+    try
+    {
+      return exec_.submit(wrap(task, System.nanoTime()), result);
+    }
+    catch(RejectedExecutionException e)
+    {
+      throw rejected(e);
+    }
   }
 
   @Override
   public Future<?> submit(Runnable task)
   {
-    return exec_.submit(new FugueRunnable(server_, task));
+    try
+    {
+      return exec_.submit(wrap(task, System.nanoTime()));
+    }
+    catch(RejectedExecutionException e)
+    {
+      throw rejected(e);
+    }
   }
 
   @Override
@@ -149,9 +438,10 @@ public class FugueExecutorService implements ExecutorService
   private <T> Collection<FugueCallable<T>> getFugueTasks(Collection<? extends Callable<T>> tasks)
   {
     List<FugueCallable<T>>  fugueTasks = new ArrayList<>(tasks.size());
+    long                    now        = System.nanoTime();
     
     for(Callable<T> task : tasks)
-      fugueTasks.add(new FugueCallable<>(server_, task));
+      fugueTasks.add(wrap(task, now));
     
     return fugueTasks;
   }
@@ -23,24 +23,37 @@
 
 package org.symphonyoss.s2.fugue.concurrent;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.common.fault.ProgramFault;
 import org.symphonyoss.s2.common.fault.TransactionFault;
 import org.symphonyoss.s2.fugue.IFugueServer;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+import org.symphonyoss.s2.fugue.core.trace.TraceContextHolder;
 
 /**
  * An implementation of Runnable which handles Faults and RuntimeExceptions the Fugue way.
  * 
+ * The trace context of the thread which creates the FugueRunnable is captured and set as the trace context
+ * of the thread which runs it for the duration of the task.
+ * 
+ * The priority of the task is used by a PriorityLaneExecutor to choose the lane in which the task is queued.
+ * 
  * @author Bruce Skingle
  *
  */
-public class FugueRunnable implements Runnable
+public class FugueRunnable implements Runnable, IPrioritized
 {
-  private static Logger      log_ = LoggerFactory.getLogger(FugueRunnable.class);
+  private static Logger         log_ = LoggerFactory.getLogger(FugueRunnable.class);
 
-  private final IFugueServer server_;
-  private final Runnable     runnable_;
+  private final IFugueServer    server_;
+  private final Runnable        runnable_;
+  private final ITraceContext   traceContext_;
+  private final ExecutorMetrics metrics_;
+  private final long            readyNanos_;
+  private final TaskPriority    priority_;
   
   /**
    * Create a FugueRunnable for the given server and vanilla Runnable.
@@ -49,17 +62,63 @@ public class FugueRunnable implements Runnable
    * @param runnable  The actual task.
    */
   public FugueRunnable(IFugueServer server, Runnable runnable)
+  {
+    this(server, runnable, TaskPriority.of(runnable), null, 0L);
+  }
+  
+  /**
+   * Create a FugueRunnable with the given priority.
+   *  
+   * @param server    The IFugueServer in which this task will run.
+   * @param priority  The priority of the task.
+   * @param runnable  The actual task.
+   */
+  public FugueRunnable(IFugueServer server, TaskPriority priority, Runnable runnable)
+  {
+    this(server, runnable, priority, null, 0L);
+  }
+  
+  /**
+   * Create a FugueRunnable which records its execution in the given metrics.
+   *  
+   * @param server      The IFugueServer in which this task will run.
+   * @param runnable    The actual task.
+   * @param metrics     Metrics for the executor which will run the task.
+   * @param readyNanos  The System.nanoTime() at which the task will be ready to run, or zero if the
+   *                    queue wait time should not be recorded.
+   */
+  /* package */ FugueRunnable(IFugueServer server, Runnable runnable, @Nullable ExecutorMetrics metrics, long readyNanos)
+  {
+    this(server, runnable, TaskPriority.of(runnable), metrics, readyNanos);
+  }
+  
+  private FugueRunnable(IFugueServer server, Runnable runnable, TaskPriority priority, @Nullable ExecutorMetrics metrics, long readyNanos)
   {
     server_ = server;
     runnable_ = runnable;
+    traceContext_ = TraceContextHolder.get();
+    metrics_ = metrics;
+    readyNanos_ = readyNanos;
+    priority_ = priority;
+  }
+
+  @Override
+  public TaskPriority getPriority()
+  {
+    return priority_;
   }
 
   @Override
   public void run()
   {
+    ITraceContext previous = TraceContextHolder.set(traceContext_);
+    long          start    = metrics_ == null ? 0L : metrics_.started(readyNanos_, runnable_);
+    boolean       faulted  = true;
+    
     try
     {
       runnable_.run();
+      faulted = false;
     }
     catch(ProgramFault e)
     {
@@ -74,5 +133,12 @@ public class FugueRunnable implements Runnable
     {
       log_.error("Task completed with unexpected runtime error", e);
     }
+    finally
+    {
+      TraceContextHolder.set(previous);
+      
+      if(metrics_ != null)
+        metrics_.finished(start, faulted);
+    }
   }
 }
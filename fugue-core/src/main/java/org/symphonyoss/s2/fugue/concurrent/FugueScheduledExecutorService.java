@@ -25,6 +25,7 @@ package org.symphonyoss.s2.fugue.concurrent;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -35,6 +36,10 @@ import org.symphonyoss.s2.fugue.IFugueServer;
 /**
  * An implementation of ScheduledExecutorService which handles Faults and RuntimeExceptions the Fugue way.
  * 
+ * The queue wait time of a one shot task is measured from the time at which it was scheduled to run, it
+ * is not recorded for periodic tasks. Each run of a periodic task is counted as a submission, so that
+ * the counts of submitted and completed tasks match.
+ * 
  * @author Bruce Skingle
  *
  */
@@ -54,6 +59,19 @@ public class FugueScheduledExecutorService extends FugueExecutorService implemen
     exec_ = exec;
   }
 
+  /**
+   * Create an instance with the given name and ExecutorService.
+   * 
+   * @param server    The IFugueServer in which this task will run.
+   * @param name      The name of this executor.
+   * @param exec      A ScheduledExecutorService to do the actual work.
+   */
+  public FugueScheduledExecutorService(IFugueServer server, String name, ScheduledExecutorService exec)
+  {
+    super(server, name, exec);
+    exec_ = exec;
+  }
+
   /**
    * Create an instance with a ScheduledThreadPool ExecutorService.
    * 
@@ -68,26 +86,64 @@ public class FugueScheduledExecutorService extends FugueExecutorService implemen
   @Override
   public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit)
   {
-    return exec_.schedule(new FugueRunnable(getServer(), command), delay, unit);
+    try
+    {
+      return exec_.schedule(wrap(command, System.nanoTime() + unit.toNanos(delay)), delay, unit);
+    }
+    catch(RejectedExecutionException e)
+    {
+      throw rejected(e);
+    }
   }
 
   @Override
   public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit)
   {
-    return exec_.schedule(new FugueCallable<V>(getServer(), callable), delay, unit);
+    try
+    {
+      return exec_.schedule(wrap(callable, System.nanoTime() + unit.toNanos(delay)), delay, unit);
+    }
+    catch(RejectedExecutionException e)
+    {
+      throw rejected(e);
+    }
   }
 
   @Override
   public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit)
   {
-    return exec_.scheduleAtFixedRate(new FugueRunnable(getServer(), command), initialDelay, period, unit);
+    try
+    {
+      return exec_.scheduleAtFixedRate(wrapPeriodic(command), initialDelay, period, unit);
+    }
+    catch(RejectedExecutionException e)
+    {
+      throw rejected(e);
+    }
   }
 
   @Override
   public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit)
   {
-    return exec_.scheduleWithFixedDelay(new FugueRunnable(getServer(), command), initialDelay, delay, unit);
+    try
+    {
+      return exec_.scheduleWithFixedDelay(wrapPeriodic(command), initialDelay, delay, unit);
+    }
+    catch(RejectedExecutionException e)
+    {
+      throw rejected(e);
+    }
   }
 
-
+  private Runnable wrapPeriodic(Runnable command)
+  {
+    ExecutorMetrics metrics = getMetrics();
+    FugueRunnable   task    = new FugueRunnable(getServer(), command, metrics, 0L);
+    
+    return () ->
+    {
+      metrics.submitted();
+      task.run();
+    };
+  }
 }
@@ -0,0 +1,506 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.common.concurrent.NamedThreadFactory;
+
+/**
+ * A ScheduledExecutorService based on a hashed timing wheel.
+ * 
+ * A single timer thread advances the wheel once per tick. Scheduling and cancellation are O(1): new and
+ * cancelled timers are passed to the timer thread through lock free queues and it links them into, or
+ * unlinks them from, the bucket for their deadline. Expired timers are run on a separate pool of worker
+ * threads so that slow tasks do not delay the wheel.
+ * 
+ * Timers fire on the first tick at or after their deadline, so the tick duration is the resolution of the
+ * scheduler. The number of ticks per wheel should be large enough that most timers fire within one
+ * revolution.
+ * 
+ * On shutdown() the wheel stops, timers which have not yet expired are discarded and the worker pool
+ * is shut down.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class HashedWheelScheduledExecutorService extends AbstractExecutorService implements ScheduledExecutorService
+{
+  /** The default tick duration in milliseconds. */
+  public static final long DEFAULT_TICK_MILLIS     = 10;
+  
+  /** The default number of ticks per revolution of the wheel. */
+  public static final int  DEFAULT_TICKS_PER_WHEEL = 512;
+  
+  private static final int MAX_TRANSFERS_PER_TICK  = 100000;
+  
+  private static final Logger log_ = LoggerFactory.getLogger(HashedWheelScheduledExecutorService.class);
+
+  private final ExecutorService                        workers_;
+  private final long                                   tickNanos_;
+  private final Bucket[]                               wheel_;
+  private final int                                    mask_;
+  private final long                                   startNanos_;
+  private final Thread                                 timerThread_;
+  private final ConcurrentLinkedQueue<WheelTimeout<?>> newTimeouts_       = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<WheelTimeout<?>> cancelledTimeouts_ = new ConcurrentLinkedQueue<>();
+  
+  private volatile boolean                             running_           = true;
+  private final List<Runnable>                         unprocessed_       = new ArrayList<>();
+
+  /**
+   * Create an instance with the default tick duration and wheel size.
+   * 
+   * @param name            The name for threads.
+   * @param workerThreads   The number of threads on which expired timers run.
+   */
+  public HashedWheelScheduledExecutorService(String name, int workerThreads)
+  {
+    this(name, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_TICKS_PER_WHEEL, workerThreads);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param name            The name for threads.
+   * @param tickDuration    The resolution of the timer.
+   * @param unit            The unit of tickDuration.
+   * @param ticksPerWheel   The number of buckets in the wheel, which is rounded up to a power of 2.
+   * @param workerThreads   The number of threads on which expired timers run.
+   */
+  public HashedWheelScheduledExecutorService(String name, long tickDuration, TimeUnit unit, int ticksPerWheel, int workerThreads)
+  {
+    this(name, tickDuration, unit, ticksPerWheel, new ThreadPoolExecutor(workerThreads, workerThreads,
+        0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new NamedThreadFactory(name)));
+  }
+
+  /**
+   * Constructor.
+   * 
+   * The given executor is shut down when this executor is shut down.
+   * 
+   * @param name            The name for the timer thread.
+   * @param tickDuration    The resolution of the timer.
+   * @param unit            The unit of tickDuration.
+   * @param ticksPerWheel   The number of buckets in the wheel, which is rounded up to a power of 2.
+   * @param workers         The executor on which expired timers run, which should not block.
+   */
+  public HashedWheelScheduledExecutorService(String name, long tickDuration, TimeUnit unit, int ticksPerWheel, ExecutorService workers)
+  {
+    if(tickDuration <= 0)
+      throw new IllegalArgumentException("tickDuration must be > 0");
+    
+    if(ticksPerWheel < 1 || ticksPerWheel > (1 << 30))
+      throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+    
+    int size = ticksPerWheel == 1 ? 1 : Integer.highestOneBit(ticksPerWheel - 1) << 1;
+    
+    workers_ = workers;
+    tickNanos_ = unit.toNanos(tickDuration);
+    wheel_ = new Bucket[size];
+    mask_ = size - 1;
+    
+    for(int i=0 ; i<size ; i++)
+      wheel_[i] = new Bucket();
+    
+    startNanos_ = System.nanoTime();
+    timerThread_ = new NamedThreadFactory(name + "-timer", true).newThread(new Timer());
+    timerThread_.start();
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit)
+  {
+    return schedule(new WheelTimeout<Void>(Executors.callable(command, null), deadline(delay, unit), 0));
+  }
+
+  @Override
+  public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit)
+  {
+    return schedule(new WheelTimeout<V>(callable, deadline(delay, unit), 0));
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit)
+  {
+    if(period <= 0)
+      throw new IllegalArgumentException("period must be > 0");
+    
+    return schedule(new WheelTimeout<Void>(Executors.callable(command, null), deadline(initialDelay, unit), unit.toNanos(period)));
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit)
+  {
+    if(delay <= 0)
+      throw new IllegalArgumentException("delay must be > 0");
+    
+    return schedule(new WheelTimeout<Void>(Executors.callable(command, null), deadline(initialDelay, unit), -unit.toNanos(delay)));
+  }
+
+  private long deadline(long delay, TimeUnit unit)
+  {
+    return System.nanoTime() - startNanos_ + Math.max(0, unit.toNanos(delay));
+  }
+  
+  private <V> WheelTimeout<V> schedule(WheelTimeout<V> timeout)
+  {
+    if(!running_)
+      throw new RejectedExecutionException("Executor has been shut down");
+    
+    newTimeouts_.add(timeout);
+    
+    return timeout;
+  }
+
+  @Override
+  public void execute(Runnable command)
+  {
+    workers_.execute(command);
+  }
+
+  @Override
+  public void shutdown()
+  {
+    running_ = false;
+    LockSupport.unpark(timerThread_);
+    workers_.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow()
+  {
+    shutdown();
+    
+    List<Runnable> pending = workers_.shutdownNow();
+    
+    try
+    {
+      timerThread_.join();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    
+    synchronized(unprocessed_)
+    {
+      pending.addAll(unprocessed_);
+    }
+    
+    return pending;
+  }
+
+  @Override
+  public boolean isShutdown()
+  {
+    return !running_;
+  }
+
+  @Override
+  public boolean isTerminated()
+  {
+    return !running_ && !timerThread_.isAlive() && workers_.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+  {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    
+    TimeUnit.NANOSECONDS.timedJoin(timerThread_, deadline - System.nanoTime());
+    
+    return workers_.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) && !timerThread_.isAlive();
+  }
+  
+  /*
+   * The timer thread, which owns the wheel. Buckets are only accessed from this thread.
+   */
+  class Timer implements Runnable
+  {
+    private long tick_;
+    
+    @Override
+    public void run()
+    {
+      while(running_)
+      {
+        long deadline = waitForNextTick();
+        
+        if(deadline < 0)
+          break;
+        
+        removeCancelled();
+        transferNewTimeouts();
+        
+        wheel_[(int) (tick_ & mask_)].expire(deadline);
+        tick_++;
+      }
+      
+      synchronized(unprocessed_)
+      {
+        for(Bucket bucket : wheel_)
+          bucket.drainTo(unprocessed_);
+        
+        WheelTimeout<?> timeout;
+        
+        while((timeout = newTimeouts_.poll()) != null)
+        {
+          if(!timeout.isCancelled())
+            unprocessed_.add(timeout);
+        }
+      }
+    }
+
+    private long waitForNextTick()
+    {
+      long deadline = tickNanos_ * (tick_ + 1);
+      
+      for(;;)
+      {
+        long sleepNanos = deadline - (System.nanoTime() - startNanos_);
+        
+        if(sleepNanos <= 0)
+          return deadline;
+        
+        if(!running_)
+          return -1;
+        
+        LockSupport.parkNanos(HashedWheelScheduledExecutorService.this, sleepNanos);
+      }
+    }
+    
+    private void transferNewTimeouts()
+    {
+      for(int i=0 ; i<MAX_TRANSFERS_PER_TICK ; i++)
+      {
+        WheelTimeout<?> timeout = newTimeouts_.poll();
+        
+        if(timeout == null)
+          break;
+        
+        if(timeout.isCancelled())
+          continue;
+        
+        long calculated = timeout.deadline_ / tickNanos_;
+        
+        timeout.remainingRounds_ = (calculated - tick_) / wheel_.length;
+        
+        // a timer which is already due goes in the current bucket
+        wheel_[(int) (Math.max(calculated, tick_) & mask_)].add(timeout);
+      }
+    }
+    
+    private void removeCancelled()
+    {
+      WheelTimeout<?> timeout;
+      
+      while((timeout = cancelledTimeouts_.poll()) != null)
+      {
+        if(timeout.bucket_ != null)
+          timeout.bucket_.remove(timeout);
+      }
+    }
+  }
+  
+  /*
+   * A doubly linked list of timeouts, only accessed by the timer thread.
+   */
+  class Bucket
+  {
+    private WheelTimeout<?> head_;
+    private WheelTimeout<?> tail_;
+    
+    void add(WheelTimeout<?> timeout)
+    {
+      timeout.bucket_ = this;
+      
+      if(head_ == null)
+      {
+        head_ = tail_ = timeout;
+      }
+      else
+      {
+        tail_.next_ = timeout;
+        timeout.prev_ = tail_;
+        tail_ = timeout;
+      }
+    }
+    
+    WheelTimeout<?> remove(WheelTimeout<?> timeout)
+    {
+      WheelTimeout<?> next = timeout.next_;
+      
+      if(timeout.prev_ != null)
+        timeout.prev_.next_ = next;
+      
+      if(next != null)
+        next.prev_ = timeout.prev_;
+      
+      if(timeout == head_)
+        head_ = next;
+      
+      if(timeout == tail_)
+        tail_ = timeout.prev_;
+      
+      timeout.prev_ = null;
+      timeout.next_ = null;
+      timeout.bucket_ = null;
+      
+      return next;
+    }
+    
+    void expire(long deadline)
+    {
+      WheelTimeout<?> timeout = head_;
+      
+      while(timeout != null)
+      {
+        if(timeout.isCancelled())
+        {
+          timeout = remove(timeout);
+        }
+        else if(timeout.remainingRounds_ <= 0)
+        {
+          WheelTimeout<?> next = remove(timeout);
+          
+          try
+          {
+            workers_.execute(timeout);
+          }
+          catch(RejectedExecutionException e)
+          {
+            if(running_)
+              log_.warn("Unable to run expired timer", e);
+          }
+          
+          timeout = next;
+        }
+        else
+        {
+          timeout.remainingRounds_--;
+          timeout = timeout.next_;
+        }
+      }
+    }
+    
+    void drainTo(List<Runnable> list)
+    {
+      while(head_ != null)
+      {
+        WheelTimeout<?> timeout = head_;
+        
+        remove(timeout);
+        
+        if(!timeout.isCancelled())
+          list.add(timeout);
+      }
+    }
+  }
+  
+  /*
+   * A scheduled task. A positive period is a fixed rate, a negative period a fixed delay.
+   */
+  class WheelTimeout<V> extends FutureTask<V> implements ScheduledFuture<V>
+  {
+    private final long      period_;
+    private volatile long   deadline_;
+    
+    // accessed only by the timer thread
+    private long            remainingRounds_;
+    private Bucket          bucket_;
+    private WheelTimeout<?> next_;
+    private WheelTimeout<?> prev_;
+    
+    WheelTimeout(Callable<V> callable, long deadline, long period)
+    {
+      super(callable);
+      deadline_ = deadline;
+      period_ = period;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit)
+    {
+      return unit.convert(deadline_ - (System.nanoTime() - startNanos_), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other)
+    {
+      if(other == this)
+        return 0;
+      
+      return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+      boolean cancelled = super.cancel(mayInterruptIfRunning);
+      
+      if(cancelled)
+        cancelledTimeouts_.add(this);
+      
+      return cancelled;
+    }
+
+    @Override
+    public void run()
+    {
+      if(period_ == 0)
+      {
+        super.run();
+      }
+      else if(super.runAndReset() && running_)
+      {
+        if(period_ > 0)
+          deadline_ += period_;
+        else
+          deadline_ = System.nanoTime() - startNanos_ - period_;
+        
+        newTimeouts_.add(this);
+      }
+    }
+  }
+}
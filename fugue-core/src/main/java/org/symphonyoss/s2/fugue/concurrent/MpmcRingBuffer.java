@@ -0,0 +1,173 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock free, multi producer multi consumer ring buffer.
+ * 
+ * Each slot carries a sequence number which says whether it is free for the producer of a given position
+ * or published for the consumer of a given position (after Dmitry Vyukov's bounded MPMC queue). Consumers
+ * can claim a run of published slots with a single CAS, which is what allows workers to drain in batches.
+ * 
+ * @author Bruce Skingle
+ *
+ * @param <T> The type of the elements.
+ */
+/* package */ class MpmcRingBuffer<T>
+{
+  private final int                     mask_;
+  private final AtomicReferenceArray<T> elements_;
+  private final AtomicLongArray         sequences_;
+  private final PaddedAtomicLong        head_ = new PaddedAtomicLong();
+  private final PaddedAtomicLong        tail_ = new PaddedAtomicLong();
+
+  /**
+   * Constructor.
+   * 
+   * @param capacity The capacity, which must be a power of 2.
+   */
+  /* package */ MpmcRingBuffer(int capacity)
+  {
+    if(capacity < 2 || Integer.bitCount(capacity) != 1)
+      throw new IllegalArgumentException("capacity must be a power of 2");
+    
+    mask_ = capacity - 1;
+    elements_ = new AtomicReferenceArray<>(capacity);
+    sequences_ = new AtomicLongArray(capacity);
+    
+    for(int i=0 ; i<capacity ; i++)
+      sequences_.set(i, i);
+  }
+
+  /**
+   * Add the given element if there is space.
+   * 
+   * @param element An element.
+   * 
+   * @return true if the element was added, false if the buffer is full.
+   */
+  /* package */ boolean offer(T element)
+  {
+    long pos = tail_.get();
+    
+    for(;;)
+    {
+      int   index = (int) pos & mask_;
+      long  dif   = sequences_.get(index) - pos;
+      
+      if(dif == 0)
+      {
+        if(tail_.compareAndSet(pos, pos + 1))
+        {
+          elements_.lazySet(index, element);
+          sequences_.set(index, pos + 1); // publish
+          return true;
+        }
+        pos = tail_.get();
+      }
+      else if(dif < 0)
+      {
+        return false; // full
+      }
+      else
+      {
+        pos = tail_.get();
+      }
+    }
+  }
+
+  /**
+   * Remove up to batch.length published elements into the given array.
+   * 
+   * @param batch An array into which elements are placed, starting at index 0.
+   * 
+   * @return The number of elements removed, which is zero if the buffer is empty.
+   */
+  /* package */ int drainTo(T[] batch)
+  {
+    for(;;)
+    {
+      long  pos = head_.get();
+      int   n   = 0;
+      
+      while(n < batch.length && sequences_.get((int) (pos + n) & mask_) == pos + n + 1)
+        n++;
+      
+      if(n == 0)
+      {
+        long dif = sequences_.get((int) pos & mask_) - (pos + 1);
+        
+        if(dif < 0 && pos == head_.get())
+          return 0; // empty, or the producer of the next slot has not published yet
+        
+        continue;
+      }
+      
+      if(head_.compareAndSet(pos, pos + n))
+      {
+        for(int i=0 ; i<n ; i++)
+        {
+          int index = (int) (pos + i) & mask_;
+          
+          batch[i] = elements_.get(index);
+          elements_.lazySet(index, null);
+          sequences_.set(index, pos + i + mask_ + 1); // free for the next lap
+        }
+        
+        return n;
+      }
+    }
+  }
+
+  /**
+   * @return The approximate number of elements in the buffer.
+   */
+  /* package */ int size()
+  {
+    long size = tail_.get() - head_.get();
+    
+    return size < 0 ? 0 : (int) Math.min(size, mask_ + 1);
+  }
+
+  /**
+   * @return The capacity of the buffer.
+   */
+  /* package */ int capacity()
+  {
+    return mask_ + 1;
+  }
+
+  /**
+   * An AtomicLong padded so that the head and tail do not share a cache line.
+   */
+  @SuppressWarnings({"serial", "unused"})
+  private static class PaddedAtomicLong extends AtomicLong
+  {
+    long p1, p2, p3, p4, p5, p6, p7;
+  }
+}
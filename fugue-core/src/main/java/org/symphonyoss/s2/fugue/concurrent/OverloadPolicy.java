@@ -0,0 +1,49 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+/**
+ * The action taken by a FugueExecutorService when a task is submitted and both the thread pool and the
+ * queue are full.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public enum OverloadPolicy
+{
+  /** The submitting thread blocks until there is space in the queue. */
+  BLOCK,
+  
+  /** The submitting thread runs the task itself, which slows down the producer. */
+  CALLER_RUNS,
+  
+  /**
+   * The task is silently discarded and the shed counter of the executor is incremented. The Future of a
+   * task passed to submit() or invokeAll() is cancelled.
+   */
+  SHED,
+  
+  /** A RejectedExecutionException is thrown to the submitting thread. */
+  FAIL_FAST;
+}
@@ -0,0 +1,597 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.common.concurrent.NamedThreadFactory;
+import org.symphonyoss.s2.fugue.IDrainableComponent;
+import org.symphonyoss.s2.fugue.IFugueServer;
+import org.symphonyoss.s2.fugue.metrics.IMetricsCollector;
+import org.symphonyoss.s2.fugue.metrics.IMetricsSource;
+
+/**
+ * A fixed size thread pool with a separate bounded queue for each TaskPriority.
+ * 
+ * The priority of a task is taken from the task if it implements IPrioritized, so a priority can be given to
+ * any task by wrapping it in a FugueRunnable or FugueCallable, or it can be given explicitly with
+ * execute(TaskPriority, Runnable) or submit(TaskPriority, Callable). Tasks with no priority run in the NORMAL lane.
+ * 
+ * Lanes are served in weighted-fair order: in each round a lane may supply as many tasks as its weight before
+ * lower lanes are served, and a new round starts when every non-empty lane has used its share. In addition,
+ * if the oldest task in any lane has been waiting for longer than the maximum wait time it is run next, so that
+ * a burst of high priority work cannot starve lower lanes indefinitely.
+ * 
+ * When a lane is full further tasks for that lane are rejected with a RejectedExecutionException, other lanes
+ * are unaffected. Each lane has its own ExecutorMetrics, published with a lane label.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class PriorityLaneExecutor extends AbstractExecutorService implements IMetricsSource, IDrainableComponent
+{
+  /** The default maximum number of queued tasks in each lane. */
+  public static final int     DEFAULT_LANE_CAPACITY   = 1000;
+  /** The default time after which a waiting task is run regardless of the weights of the lanes. */
+  public static final long    DEFAULT_MAX_WAIT_MILLIS = 1000L;
+
+  private static final Logger log_                    = LoggerFactory.getLogger(PriorityLaneExecutor.class);
+  private static final String LANE_LABEL              = "lane";
+
+  private final IFugueServer  server_;
+  private final String        name_;
+  private final Lane[]        lanes_;
+  private final Thread[]      threads_;
+  private final ReentrantLock lock_                   = new ReentrantLock();
+  private final Condition     notEmpty_               = lock_.newCondition();
+  private final Condition     terminated_             = lock_.newCondition();
+  
+  private long                maxWaitNanos_           = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_WAIT_MILLIS); // guarded by lock_
+  private boolean             shutdown_;                                                                         // guarded by lock_
+  private int                 liveWorkers_;                                                                      // guarded by lock_
+  private volatile boolean    stopped_;
+  
+  private static class Lane
+  {
+    private final TaskPriority                 priority_;
+    private final int                          capacity_;
+    private final ArrayDeque<QueuedTask>       queue_   = new ArrayDeque<>();
+    private final ExecutorMetrics              metrics_ = new ExecutorMetrics();
+    private final AtomicInteger                active_  = new AtomicInteger();
+    private int                                weight_;
+    private int                                credit_;
+    
+    private Lane(TaskPriority priority, int capacity)
+    {
+      priority_ = priority;
+      capacity_ = capacity;
+      weight_ = priority.getDefaultWeight();
+      credit_ = weight_;
+    }
+  }
+  
+  private static class QueuedTask
+  {
+    private final Lane          lane_;
+    private final FugueRunnable task_;
+    private final long          enqueueNanos_;
+    
+    private QueuedTask(Lane lane, FugueRunnable task, long enqueueNanos)
+    {
+      lane_ = lane;
+      task_ = task;
+      enqueueNanos_ = enqueueNanos;
+    }
+  }
+  
+  private static class PrioritizedFutureTask<T> extends FutureTask<T> implements IPrioritized
+  {
+    private final TaskPriority priority_;
+
+    private PrioritizedFutureTask(Callable<T> callable, TaskPriority priority)
+    {
+      super(callable);
+      priority_ = priority;
+    }
+
+    @Override
+    public TaskPriority getPriority()
+    {
+      return priority_;
+    }
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param server        The IFugueServer in which tasks will run.
+   * @param name          The name of the executor, which is also used as the name of its threads.
+   * @param poolSize      The number of threads.
+   * @param laneCapacity  The maximum number of queued tasks in each lane.
+   */
+  public PriorityLaneExecutor(IFugueServer server, String name, int poolSize, int laneCapacity)
+  {
+    if(poolSize < 1)
+      throw new IllegalArgumentException("poolSize must be >= 1");
+    
+    if(laneCapacity < 1)
+      throw new IllegalArgumentException("laneCapacity must be >= 1");
+    
+    server_ = server;
+    name_ = name;
+    lanes_ = new Lane[TaskPriority.values().length];
+    
+    for(TaskPriority priority : TaskPriority.values())
+      lanes_[priority.ordinal()] = new Lane(priority, laneCapacity);
+    
+    NamedThreadFactory threadFactory = new NamedThreadFactory(name);
+    
+    threads_ = new Thread[poolSize];
+    liveWorkers_ = poolSize;
+    
+    for(int i=0 ; i<poolSize ; i++)
+    {
+      threads_[i] = threadFactory.newThread(() -> work());
+      threads_[i].start();
+    }
+  }
+
+  /**
+   * Set the weight of the given lane.
+   * 
+   * @param priority  The lane.
+   * @param weight    The number of tasks the lane may supply in each round.
+   * 
+   * @return this (fluent method)
+   */
+  public PriorityLaneExecutor withWeight(TaskPriority priority, int weight)
+  {
+    if(weight < 1)
+      throw new IllegalArgumentException("weight must be >= 1");
+    
+    lock_.lock();
+    try
+    {
+      Lane lane = lanes_[priority.ordinal()];
+      
+      lane.weight_ = weight;
+      lane.credit_ = Math.min(lane.credit_, weight);
+    }
+    finally
+    {
+      lock_.unlock();
+    }
+    
+    return this;
+  }
+
+  /**
+   * Set the time after which a waiting task is run regardless of the weights of the lanes.
+   * 
+   * @param maxWaitMillis The maximum wait time in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public PriorityLaneExecutor withMaxWaitMillis(long maxWaitMillis)
+  {
+    if(maxWaitMillis < 0)
+      throw new IllegalArgumentException("maxWaitMillis must be >= 0");
+    
+    lock_.lock();
+    try
+    {
+      maxWaitNanos_ = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+    finally
+    {
+      lock_.unlock();
+    }
+    
+    return this;
+  }
+
+  /**
+   * @return The name of this executor.
+   */
+  public String getName()
+  {
+    return name_;
+  }
+
+  /**
+   * @param priority A lane.
+   * 
+   * @return The metrics for the given lane.
+   */
+  public ExecutorMetrics getMetrics(TaskPriority priority)
+  {
+    return lanes_[priority.ordinal()].metrics_;
+  }
+
+  /**
+   * @param priority A lane.
+   * 
+   * @return The number of tasks queued in the given lane.
+   */
+  public int getQueueDepth(TaskPriority priority)
+  {
+    lock_.lock();
+    try
+    {
+      return lanes_[priority.ordinal()].queue_.size();
+    }
+    finally
+    {
+      lock_.unlock();
+    }
+  }
+
+  @Override
+  public void execute(Runnable command)
+  {
+    execute(TaskPriority.of(command), command);
+  }
+
+  /**
+   * Execute the given task in the given lane.
+   * 
+   * @param priority  The lane in which to queue the task.
+   * @param command   The task.
+   * 
+   * @throws RejectedExecutionException If the executor has been shut down or the lane is full.
+   */
+  public void execute(TaskPriority priority, Runnable command)
+  {
+    Lane lane = lanes_[priority.ordinal()];
+    long now  = System.nanoTime();
+    
+    lock_.lock();
+    try
+    {
+      if(shutdown_)
+      {
+        lane.metrics_.rejected();
+        throw new RejectedExecutionException("Executor " + name_ + " has been shut down");
+      }
+      
+      if(lane.queue_.size() >= lane.capacity_)
+      {
+        lane.metrics_.rejected();
+        throw new RejectedExecutionException("Lane " + priority + " of executor " + name_ + " is full");
+      }
+      
+      // A future created by this executor records its own outcome, which FutureTask hides from the wrapper.
+      ExecutorMetrics metrics = command instanceof PrioritizedFutureTask ? null : lane.metrics_;
+      
+      lane.metrics_.submitted();
+      lane.queue_.add(new QueuedTask(lane, new FugueRunnable(server_, command, metrics, now), now));
+      notEmpty_.signal();
+    }
+    finally
+    {
+      lock_.unlock();
+    }
+  }
+
+  /**
+   * Submit the given task in the given lane.
+   * 
+   * @param <T>       The type of the result of the task.
+   * @param priority  The lane in which to queue the task.
+   * @param task      The task.
+   * 
+   * @return A Future representing the result of the task.
+   * 
+   * @throws RejectedExecutionException If the executor has been shut down or the lane is full.
+   */
+  public <T> Future<T> submit(TaskPriority priority, Callable<T> task)
+  {
+    RunnableFuture<T> future = newFutureTask(task, priority);
+    
+    execute(priority, future);
+    
+    return future;
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value)
+  {
+    return newFutureTask(() ->
+    {
+      runnable.run();
+      return value;
+    }, TaskPriority.of(runnable));
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable)
+  {
+    return newFutureTask(callable, TaskPriority.of(callable));
+  }
+  
+  /*
+   * Create a future which records its execution, including any fault, in the metrics of the given lane.
+   */
+  private <T> RunnableFuture<T> newFutureTask(Callable<T> callable, TaskPriority priority)
+  {
+    return new PrioritizedFutureTask<>(new FugueCallable<>(server_, callable, lanes_[priority.ordinal()].metrics_,
+        System.nanoTime()), priority);
+  }
+  
+  /*
+   * Must be called with lock_ held.
+   */
+  private QueuedTask poll()
+  {
+    long now     = System.nanoTime();
+    Lane starved = null;
+    
+    // Starvation protection, the oldest task which has waited for longer than the maximum runs first.
+    for(Lane lane : lanes_)
+    {
+      QueuedTask head = lane.queue_.peek();
+      
+      if(head != null && now - head.enqueueNanos_ > maxWaitNanos_
+          && (starved == null || head.enqueueNanos_ < starved.queue_.peek().enqueueNanos_))
+        starved = lane;
+    }
+    
+    if(starved != null)
+    {
+      if(starved.credit_ > 0)
+        starved.credit_--;
+      
+      return starved.queue_.poll();
+    }
+    
+    for(int round=0 ; round<2 ; round++)
+    {
+      for(Lane lane : lanes_)
+      {
+        if(lane.credit_ > 0 && !lane.queue_.isEmpty())
+        {
+          lane.credit_--;
+          return lane.queue_.poll();
+        }
+      }
+      
+      // Every non-empty lane has used its share of this round, start the next one.
+      boolean empty = true;
+      
+      for(Lane lane : lanes_)
+      {
+        lane.credit_ = lane.weight_;
+        
+        if(!lane.queue_.isEmpty())
+          empty = false;
+      }
+      
+      if(empty)
+        return null;
+    }
+    
+    return null;
+  }
+  
+  private void work()
+  {
+    try
+    {
+      while(true)
+      {
+        QueuedTask next;
+        
+        lock_.lock();
+        try
+        {
+          while((next = poll()) == null)
+          {
+            if(shutdown_)
+              return;
+            
+            notEmpty_.await();
+          }
+        }
+        finally
+        {
+          lock_.unlock();
+        }
+        
+        next.lane_.active_.incrementAndGet();
+        try
+        {
+          next.task_.run();
+        }
+        catch(RuntimeException e)
+        {
+          // FugueRunnable will have logged this already
+        }
+        finally
+        {
+          next.lane_.active_.decrementAndGet();
+        }
+        
+        if(Thread.interrupted() && stopped_)
+          return;
+      }
+    }
+    catch(InterruptedException e)
+    {
+      log_.debug("Worker interrupted, exiting");
+    }
+    finally
+    {
+      lock_.lock();
+      try
+      {
+        if(--liveWorkers_ == 0)
+          terminated_.signalAll();
+      }
+      finally
+      {
+        lock_.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void shutdown()
+  {
+    lock_.lock();
+    try
+    {
+      shutdown_ = true;
+      notEmpty_.signalAll();
+    }
+    finally
+    {
+      lock_.unlock();
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow()
+  {
+    List<Runnable> unstarted = new ArrayList<>();
+    
+    lock_.lock();
+    try
+    {
+      shutdown_ = true;
+      stopped_ = true;
+      
+      for(Lane lane : lanes_)
+      {
+        QueuedTask task;
+        
+        while((task = lane.queue_.poll()) != null)
+          unstarted.add(task.task_);
+      }
+      
+      notEmpty_.signalAll();
+    }
+    finally
+    {
+      lock_.unlock();
+    }
+    
+    for(Thread thread : threads_)
+      thread.interrupt();
+    
+    return unstarted;
+  }
+
+  @Override
+  public boolean isShutdown()
+  {
+    lock_.lock();
+    try
+    {
+      return shutdown_;
+    }
+    finally
+    {
+      lock_.unlock();
+    }
+  }
+
+  @Override
+  public boolean isTerminated()
+  {
+    lock_.lock();
+    try
+    {
+      return shutdown_ && liveWorkers_ == 0;
+    }
+    finally
+    {
+      lock_.unlock();
+    }
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+  {
+    long nanos = unit.toNanos(timeout);
+    
+    lock_.lock();
+    try
+    {
+      while(!(shutdown_ && liveWorkers_ == 0))
+      {
+        if(nanos <= 0)
+          return false;
+        
+        nanos = terminated_.awaitNanos(nanos);
+      }
+      
+      return true;
+    }
+    finally
+    {
+      lock_.unlock();
+    }
+  }
+
+  @Override
+  public void stopIntake()
+  {
+    shutdown();
+  }
+
+  @Override
+  public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException
+  {
+    return awaitTermination(timeout, unit);
+  }
+
+  @Override
+  public int releaseUnstarted()
+  {
+    return isTerminated() ? 0 : shutdownNow().size();
+  }
+
+  @Override
+  public void collectMetrics(IMetricsCollector collector)
+  {
+    for(Lane lane : lanes_)
+    {
+      lane.metrics_.collectMetrics(collector, -1, lane.active_.get(), getQueueDepth(lane.priority_),
+          ExecutorMetrics.EXECUTOR_LABEL, name_, LANE_LABEL, lane.priority_.toString());
+    }
+  }
+}
@@ -0,0 +1,322 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.symphonyoss.s2.common.fault.TransactionFault;
+import org.symphonyoss.s2.fugue.IFugueServer;
+import org.symphonyoss.s2.fugue.metrics.IMetricsCollector;
+import org.symphonyoss.s2.fugue.metrics.IMetricsSource;
+
+/**
+ * A fixed size thread pool which blocks producers when its queue is full, built on a lock free ring buffer.
+ * 
+ * This is an alternative to BlockingThreadPoolExecutor for high task rates. When the buffer is full producers
+ * park until a worker frees space rather than polling, and workers remove tasks in batches of up to batchSize
+ * with a single CAS. Idle workers park and are woken by the next producer.
+ * 
+ * On shutdown() no more tasks are accepted, parked producers are released with a RejectedExecutionException
+ * and workers exit once they have run all of the tasks already in the buffer. A task which is queued while
+ * the executor shuts down is run by the last worker to exit, or by the producer if all workers have exited.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class RingBufferThreadPoolExecutor implements Executor, IMetricsSource
+{
+  /** The default maximum number of tasks removed by a worker at one time. */
+  public static final int DEFAULT_BATCH_SIZE = 16;
+  
+  private final IFugueServer                         server_;
+  private final String                               name_;
+  private final int                                  batchSize_;
+  private final MpmcRingBuffer<FugueRunnable>        buffer_;
+  private final Thread[]                             threads_;
+  private final ConcurrentLinkedQueue<Thread>        parkedProducers_ = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<Thread>        idleWorkers_     = new ConcurrentLinkedQueue<>();
+  private final ExecutorMetrics                      metrics_         = new ExecutorMetrics();
+  private final AtomicInteger                        active_          = new AtomicInteger();
+  private final AtomicInteger                        liveWorkers_     = new AtomicInteger();
+  
+  private volatile boolean                           running_         = true;
+
+  /**
+   * Constructor.
+   * 
+   * @param server        The IFugueServer in which tasks will run.
+   * @param name          The name of the executor, for metrics.
+   * @param poolSize      The number of worker threads.
+   * @param capacity      The maximum number of queued tasks, which is rounded up to a power of 2.
+   * @param threadFactory A factory for the worker threads.
+   */
+  public RingBufferThreadPoolExecutor(IFugueServer server, String name, int poolSize, int capacity, ThreadFactory threadFactory)
+  {
+    this(server, name, poolSize, capacity, DEFAULT_BATCH_SIZE, threadFactory);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param server        The IFugueServer in which tasks will run.
+   * @param name          The name of the executor, for metrics.
+   * @param poolSize      The number of worker threads.
+   * @param capacity      The maximum number of queued tasks, which is rounded up to a power of 2.
+   * @param batchSize     The maximum number of tasks removed by a worker at one time.
+   * @param threadFactory A factory for the worker threads.
+   */
+  public RingBufferThreadPoolExecutor(IFugueServer server, String name, int poolSize, int capacity, int batchSize,
+      ThreadFactory threadFactory)
+  {
+    if(poolSize < 1)
+      throw new IllegalArgumentException("poolSize must be >= 1");
+    
+    if(capacity < 1 || capacity > (1 << 30))
+      throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+    
+    if(batchSize < 1)
+      throw new IllegalArgumentException("batchSize must be >= 1");
+    
+    server_ = server;
+    name_ = name;
+    buffer_ = new MpmcRingBuffer<>(Math.max(2, Integer.highestOneBit(capacity - 1) << 1));
+    batchSize_ = Math.min(batchSize, buffer_.capacity());
+    threads_ = new Thread[poolSize];
+    
+    for(int i=0 ; i<poolSize ; i++)
+    {
+      threads_[i] = threadFactory.newThread(new Worker());
+      liveWorkers_.incrementAndGet();
+      threads_[i].start();
+    }
+  }
+  
+  @Override
+  public void execute(Runnable task)
+  {
+    if(!running_)
+    {
+      metrics_.rejected();
+      throw new RejectedExecutionException("Executor " + name_ + " has been shut down");
+    }
+    
+    metrics_.submitted();
+    
+    FugueRunnable fugueTask = new FugueRunnable(server_, task, metrics_, System.nanoTime());
+    
+    if(!buffer_.offer(fugueTask))
+    {
+      Thread current = Thread.currentThread();
+      
+      do
+      {
+        parkedProducers_.add(current);
+        
+        // re-check after registering so that a worker which frees space now will wake us
+        if(buffer_.offer(fugueTask))
+        {
+          parkedProducers_.remove(current);
+          break;
+        }
+        
+        LockSupport.park(this);
+        parkedProducers_.remove(current);
+        
+        if(Thread.interrupted())
+        {
+          Thread.currentThread().interrupt();
+          metrics_.rejected();
+          throw new TransactionFault(new InterruptedException());
+        }
+        
+        if(!running_)
+        {
+          metrics_.rejected();
+          throw new RejectedExecutionException("Executor " + name_ + " has been shut down");
+        }
+      } while(!buffer_.offer(fugueTask));
+    }
+    
+    // The workers may have seen an empty buffer and exited since running_ was checked above.
+    if(!running_ && liveWorkers_.get() == 0)
+    {
+      runRemaining();
+      return;
+    }
+    
+    Thread worker = idleWorkers_.poll();
+    
+    if(worker != null)
+      LockSupport.unpark(worker);
+  }
+  
+  /**
+   * Run any tasks left in the buffer on the calling thread.
+   * 
+   * This is called by the last worker to exit and by a producer which finds that all workers have exited,
+   * one of which is certain to see any task which was queued concurrently with shutdown().
+   */
+  private void runRemaining()
+  {
+    FugueRunnable[] batch = new FugueRunnable[batchSize_];
+    int             n;
+    
+    while((n = buffer_.drainTo(batch)) > 0)
+    {
+      for(int i=0 ; i<n ; i++)
+        batch[i].run();
+    }
+  }
+  
+  @Override
+  public void collectMetrics(IMetricsCollector collector)
+  {
+    metrics_.collectMetrics(collector, name_, liveWorkers_.get(), active_.get(), buffer_.size());
+  }
+
+  /**
+   * @return The task metrics for this executor.
+   */
+  public ExecutorMetrics getMetrics()
+  {
+    return metrics_;
+  }
+
+  /**
+   * Stop accepting tasks, workers exit once the tasks already queued have been run.
+   */
+  public void shutdown()
+  {
+    running_ = false;
+    
+    for(Thread t : threads_)
+      LockSupport.unpark(t);
+    
+    Thread producer;
+    
+    while((producer = parkedProducers_.poll()) != null)
+      LockSupport.unpark(producer);
+  }
+
+  /**
+   * Wait for all worker threads to exit after shutdown().
+   * 
+   * @param timeout The maximum time to wait.
+   * @param unit    The unit of the timeout.
+   * 
+   * @return true if all workers have exited.
+   * 
+   * @throws InterruptedException If the calling thread is interrupted.
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+  {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    
+    for(Thread t : threads_)
+    {
+      long remaining = deadline - System.nanoTime();
+      
+      if(remaining <= 0)
+        return liveWorkers_.get() == 0;
+      
+      TimeUnit.NANOSECONDS.timedJoin(t, remaining);
+    }
+    
+    return liveWorkers_.get() == 0;
+  }
+
+  /**
+   * @return true unless shutdown() has been called.
+   */
+  public boolean isRunning()
+  {
+    return running_;
+  }
+
+  class Worker implements Runnable
+  {
+    @Override
+    public void run()
+    {
+      FugueRunnable[] batch   = new FugueRunnable[batchSize_];
+      Thread          current = Thread.currentThread();
+      
+      try
+      {
+        for(;;)
+        {
+          int n = buffer_.drainTo(batch);
+          
+          if(n > 0)
+          {
+            // n slots have been freed, wake up to n parked producers
+            Thread producer;
+            
+            for(int i=0 ; i<n && (producer = parkedProducers_.poll()) != null ; i++)
+              LockSupport.unpark(producer);
+            
+            active_.incrementAndGet();
+            try
+            {
+              for(int i=0 ; i<n ; i++)
+              {
+                batch[i].run();
+                batch[i] = null;
+              }
+            }
+            finally
+            {
+              active_.decrementAndGet();
+            }
+          }
+          else if(!running_)
+          {
+            return;
+          }
+          else
+          {
+            idleWorkers_.add(current);
+            
+            // re-check after registering so that a producer which adds a task now will wake us
+            if(buffer_.size() == 0 && running_)
+              LockSupport.park(RingBufferThreadPoolExecutor.this);
+            
+            idleWorkers_.remove(current);
+          }
+        }
+      }
+      finally
+      {
+        if(liveWorkers_.decrementAndGet() == 0)
+          runRemaining();
+      }
+    }
+  }
+}
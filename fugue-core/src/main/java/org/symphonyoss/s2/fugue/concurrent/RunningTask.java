@@ -0,0 +1,77 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A task which is currently being run by an executor.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class RunningTask
+{
+  private final Thread thread_;
+  private final Object task_;
+  private final long   startNanos_;
+
+  /* package */ RunningTask(Thread thread, Object task, long startNanos)
+  {
+    thread_ = thread;
+    task_ = task;
+    startNanos_ = startNanos;
+  }
+
+  /**
+   * @return The thread running the task.
+   */
+  public Thread getThread()
+  {
+    return thread_;
+  }
+
+  /**
+   * @return The task.
+   */
+  public Object getTask()
+  {
+    return task_;
+  }
+
+  /**
+   * @return The System.nanoTime() at which the task started.
+   */
+  public long getStartNanos()
+  {
+    return startNanos_;
+  }
+
+  /**
+   * @return The time for which the task has been running in milliseconds.
+   */
+  public long getRunningMillis()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos_);
+  }
+}
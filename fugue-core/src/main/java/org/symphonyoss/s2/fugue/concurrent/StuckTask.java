@@ -0,0 +1,214 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.lang.management.LockInfo;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+
+import javax.annotation.Nullable;
+
+/**
+ * A snapshot of a task which has been running for longer than the stuck task threshold of its executor.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class StuckTask
+{
+  private final String     executorName_;
+  private final long       thresholdMillis_;
+  private final long       runningMillis_;
+  private final String     threadName_;
+  private final String     task_;
+  private final ThreadInfo threadInfo_;
+  private final ThreadInfo lockOwnerInfo_;
+
+  /* package */ StuckTask(String executorName, long thresholdMillis, RunningTask runningTask,
+      @Nullable ThreadInfo threadInfo, @Nullable ThreadInfo lockOwnerInfo)
+  {
+    executorName_ = executorName;
+    thresholdMillis_ = thresholdMillis;
+    runningMillis_ = runningTask.getRunningMillis();
+    threadName_ = runningTask.getThread().getName();
+    task_ = String.valueOf(runningTask.getTask());
+    threadInfo_ = threadInfo;
+    lockOwnerInfo_ = lockOwnerInfo;
+  }
+
+  /**
+   * @return The name of the executor running the task.
+   */
+  public String getExecutorName()
+  {
+    return executorName_;
+  }
+
+  /**
+   * @return The stuck task threshold of the executor in milliseconds.
+   */
+  public long getThresholdMillis()
+  {
+    return thresholdMillis_;
+  }
+
+  /**
+   * @return The time for which the task had been running when the snapshot was taken, in milliseconds.
+   */
+  public long getRunningMillis()
+  {
+    return runningMillis_;
+  }
+
+  /**
+   * @return The name of the thread running the task.
+   */
+  public String getThreadName()
+  {
+    return threadName_;
+  }
+
+  /**
+   * @return A description of the task.
+   */
+  public String getTask()
+  {
+    return task_;
+  }
+
+  /**
+   * @return The state of the thread running the task, or null if the thread was not found.
+   */
+  public @Nullable Thread.State getThreadState()
+  {
+    return threadInfo_ == null ? null : threadInfo_.getThreadState();
+  }
+
+  /**
+   * @return The lock on which the thread is blocked or waiting, or null if it is not.
+   */
+  public @Nullable String getLockName()
+  {
+    return threadInfo_ == null ? null : threadInfo_.getLockName();
+  }
+
+  /**
+   * @return The name of the thread which owns the lock on which the thread is blocked, or null if there is none.
+   */
+  public @Nullable String getLockOwnerName()
+  {
+    return threadInfo_ == null ? null : threadInfo_.getLockOwnerName();
+  }
+
+  /**
+   * @return The stack of the thread running the task, or null if the thread was not found.
+   */
+  public @Nullable ThreadInfo getThreadInfo()
+  {
+    return threadInfo_;
+  }
+
+  /**
+   * @return The stack of the thread which owns the lock on which the thread is blocked, or null if there is none.
+   */
+  public @Nullable ThreadInfo getLockOwnerInfo()
+  {
+    return lockOwnerInfo_;
+  }
+
+  /**
+   * @return A thread dump of the thread running the task followed by that of the owner of the lock
+   * on which it is blocked, if any.
+   */
+  public String getThreadDump()
+  {
+    StringBuilder s = new StringBuilder();
+    
+    if(threadInfo_ == null)
+    {
+      s.append('"').append(threadName_).append("\" has terminated\n");
+    }
+    else
+    {
+      appendThreadInfo(s, threadInfo_);
+      
+      if(lockOwnerInfo_ != null)
+      {
+        s.append("\nLock owner:\n");
+        appendThreadInfo(s, lockOwnerInfo_);
+      }
+    }
+    
+    return s.toString();
+  }
+
+  private static void appendThreadInfo(StringBuilder s, ThreadInfo info)
+  {
+    s.append('"').append(info.getThreadName()).append("\" id=").append(info.getThreadId())
+      .append(' ').append(info.getThreadState());
+    
+    if(info.getLockName() != null)
+      s.append(" on ").append(info.getLockName());
+    
+    if(info.getLockOwnerName() != null)
+      s.append(" owned by \"").append(info.getLockOwnerName()).append("\" id=").append(info.getLockOwnerId());
+    
+    s.append('\n');
+    
+    StackTraceElement[] stack = info.getStackTrace();
+    
+    for(int i=0 ; i<stack.length ; i++)
+    {
+      s.append("\tat ").append(stack[i]).append('\n');
+      
+      if(i == 0 && info.getLockInfo() != null)
+      {
+        s.append(info.getThreadState() == Thread.State.BLOCKED ? "\t- blocked on " : "\t- waiting on ")
+          .append(info.getLockInfo()).append('\n');
+      }
+      
+      for(MonitorInfo monitor : info.getLockedMonitors())
+      {
+        if(monitor.getLockedStackDepth() == i)
+          s.append("\t- locked ").append(monitor).append('\n');
+      }
+    }
+    
+    LockInfo[] synchronizers = info.getLockedSynchronizers();
+    
+    if(synchronizers.length > 0)
+    {
+      s.append("\tLocked synchronizers:\n");
+      
+      for(LockInfo synchronizer : synchronizers)
+        s.append("\t- ").append(synchronizer).append('\n');
+    }
+  }
+  
+  @Override
+  public String toString()
+  {
+    return "Task " + task_ + " in executor " + executorName_ + " has been running for " + runningMillis_
+        + "ms (threshold " + thresholdMillis_ + "ms)";
+  }
+}
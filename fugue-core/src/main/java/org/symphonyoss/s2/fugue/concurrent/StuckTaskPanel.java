@@ -0,0 +1,106 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.symphonyoss.s2.fugue.http.ui.servlet.IUIPanel;
+import org.symphonyoss.s2.fugue.http.ui.servlet.UIHtmlWriter;
+import org.symphonyoss.s2.fugue.http.ui.servlet.UIPanel;
+
+/**
+ * A UI panel which displays the stuck tasks found by the last scan of a TaskWatchdog.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class StuckTaskPanel extends UIPanel implements IUIPanel
+{
+  private final TaskWatchdog watchdog_;
+
+  /**
+   * Constructor.
+   * 
+   * @param watchdog The watchdog whose stuck tasks are to be displayed.
+   */
+  public StuckTaskPanel(TaskWatchdog watchdog)
+  {
+    super("Stuck Tasks");
+    
+    watchdog_ = watchdog;
+  }
+
+  @Override
+  public void handleContent(HttpServletRequest req, UIHtmlWriter out)
+  {
+    List<StuckTask> stuckTasks = watchdog_.getStuckTasks();
+    
+    if(stuckTasks.isEmpty())
+    {
+      out.printElement("p", "No stuck tasks.");
+      return;
+    }
+    
+    out.openElement(TABLE, CLASS, "w3-table " + CLASS_STRIPY_TABLE);
+    
+    out.openElement("tr");
+    out.printElement("td", "Executor");
+    out.printElement("td", "Thread");
+    out.printElement("td", "Task");
+    out.printElement("td", "Running (ms)");
+    out.printElement("td", "Threshold (ms)");
+    out.printElement("td", "State");
+    out.printElement("td", "Blocked On");
+    out.printElement("td", "Lock Owner");
+    out.closeElement(); //tr
+    
+    for(StuckTask stuckTask : stuckTasks)
+    {
+      out.openElement("tr");
+      out.printElement("td", stuckTask.getExecutorName());
+      out.printElement("td", stuckTask.getThreadName());
+      out.printElement("td", stuckTask.getTask());
+      out.printElement("td", String.valueOf(stuckTask.getRunningMillis()));
+      out.printElement("td", String.valueOf(stuckTask.getThresholdMillis()));
+      out.printElement("td", valueOf(stuckTask.getThreadState()));
+      out.printElement("td", valueOf(stuckTask.getLockName()));
+      out.printElement("td", valueOf(stuckTask.getLockOwnerName()));
+      out.closeElement(); //tr
+      
+      out.openElement("tr");
+      out.openElement("td", "colspan", "8");
+      out.printElement("pre", stuckTask.getThreadDump());
+      out.closeElement(); //td
+      out.closeElement(); //tr
+    }
+    
+    out.closeElement(); // table
+  }
+
+  private static String valueOf(Object value)
+  {
+    return value == null ? "" : value.toString();
+  }
+}
@@ -0,0 +1,400 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+import org.symphonyoss.s2.fugue.core.trace.TraceContextHolder;
+
+/**
+ * A group of tasks which are executed in parallel and whose results are gathered together.
+ * 
+ * The first task to fail causes all of its siblings to be cancelled (interrupting those which are running),
+ * further submissions to be refused and join() to throw an ExecutionException with the cause of the failure.
+ * An overall deadline may be set with withDeadline(), if it passes before all tasks have completed then join()
+ * cancels the remaining tasks and throws a TimeoutException. The number of tasks which are submitted to the
+ * underlying executor at once may be limited with withMaxParallelism(), tasks beyond that limit are held in
+ * the group until a running task completes.
+ * 
+ * The trace context of the thread which submits each task is set as the trace context of the thread which
+ * runs it.
+ * 
+ * Typical usage is
+ * 
+ * <pre>
+ * try(TaskGroup&lt;Result&gt; group = new TaskGroup&lt;Result&gt;(executor).withDeadline(30, TimeUnit.SECONDS))
+ * {
+ *   for(Request request : requests)
+ *     group.submit(() -&gt; process(request));
+ *   
+ *   List&lt;Result&gt; results = group.join();
+ * }
+ * </pre>
+ * 
+ * Closing the group cancels any tasks which have not completed.
+ * 
+ * @author Bruce Skingle
+ *
+ * @param <T> The type of the results of tasks.
+ */
+public class TaskGroup<T> implements AutoCloseable
+{
+  private final Executor                 executor_;
+  private final List<GroupTask>          tasks_          = new ArrayList<>();
+  private final ArrayDeque<GroupTask>    pending_        = new ArrayDeque<>();
+  
+  private int                            maxParallelism_ = Integer.MAX_VALUE;
+  private long                           deadlineNanos_;
+  private boolean                        hasDeadline_;
+  private int                            running_;
+  private int                            completed_;
+  private Throwable                      failure_;
+  private boolean                        cancelled_;
+
+  /**
+   * Constructor.
+   * 
+   * @param executor The executor on which tasks will run.
+   */
+  public TaskGroup(Executor executor)
+  {
+    executor_ = executor;
+  }
+
+  /**
+   * Limit the number of tasks which are running at the same time.
+   * 
+   * @param maxParallelism The maximum number of tasks submitted to the executor at once.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized TaskGroup<T> withMaxParallelism(int maxParallelism)
+  {
+    if(maxParallelism < 1)
+      throw new IllegalArgumentException("maxParallelism must be >= 1");
+    
+    maxParallelism_ = maxParallelism;
+    
+    return this;
+  }
+
+  /**
+   * Set a deadline for the completion of all tasks, relative to the time of this call.
+   * 
+   * @param timeout The maximum time for all tasks to complete.
+   * @param unit    The unit of timeout.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized TaskGroup<T> withDeadline(long timeout, TimeUnit unit)
+  {
+    deadlineNanos_ = System.nanoTime() + unit.toNanos(timeout);
+    hasDeadline_ = true;
+    
+    return this;
+  }
+
+  /**
+   * Submit the given task.
+   * 
+   * @param task A task whose result will be included in the results of the group.
+   * 
+   * @return A Future for the task.
+   * 
+   * @throws IllegalStateException If a task in the group has already failed or the group has been cancelled.
+   */
+  public Future<T> submit(Callable<T> task)
+  {
+    GroupTask groupTask = new GroupTask(task);
+    
+    synchronized(this)
+    {
+      if(failure_ != null)
+        throw new IllegalStateException("Task group has failed", failure_);
+      
+      if(cancelled_)
+        throw new IllegalStateException("Task group has been cancelled or joined");
+      
+      tasks_.add(groupTask);
+      
+      if(running_ >= maxParallelism_)
+      {
+        pending_.add(groupTask);
+        
+        return groupTask;
+      }
+      
+      if(!markStarted(groupTask))
+        return groupTask;
+    }
+    
+    // outside the lock, the executor may block
+    execute(groupTask);
+    
+    return groupTask;
+  }
+
+  /**
+   * Submit the given task.
+   * 
+   * @param task A task whose result will be included in the results of the group as null.
+   * 
+   * @return A Future for the task.
+   * 
+   * @throws IllegalStateException If a task in the group has already failed or the group has been cancelled.
+   */
+  public Future<T> submit(Runnable task)
+  {
+    return submit(Executors.callable(task, null));
+  }
+
+  /**
+   * Wait for all tasks to complete and return their results.
+   * 
+   * No more tasks may be submitted once join() has returned or thrown.
+   * 
+   * @return The results of all tasks, in the order in which they were submitted. The result of a task
+   *         which was cancelled through its Future is null.
+   * 
+   * @throws ExecutionException   If any task failed, the cause is the exception thrown by the first task to fail.
+   * @throws TimeoutException     If the deadline passed before all tasks completed.
+   * @throws InterruptedException If the calling thread is interrupted, in which case all tasks are cancelled.
+   */
+  public List<T> join() throws ExecutionException, TimeoutException, InterruptedException
+  {
+    synchronized(this)
+    {
+      try
+      {
+        while(failure_ == null && completed_ < tasks_.size())
+        {
+          if(hasDeadline_)
+          {
+            long remaining = deadlineNanos_ - System.nanoTime();
+            
+            if(remaining <= 0)
+            {
+              cancelAll();
+              throw new TimeoutException((tasks_.size() - completed_) + " of " + tasks_.size() + " tasks did not complete before the deadline");
+            }
+            
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+          }
+          else
+          {
+            wait();
+          }
+        }
+      }
+      catch(InterruptedException e)
+      {
+        cancelAll();
+        throw e;
+      }
+      
+      if(failure_ != null)
+      {
+        cancelAll();
+        throw new ExecutionException(failure_);
+      }
+      
+      cancelled_ = true; // no more submissions
+    }
+    
+    List<T> results = new ArrayList<>(tasks_.size());
+    
+    for(GroupTask task : tasks_)
+      results.add(task.getResult());
+    
+    return results;
+  }
+
+  /**
+   * Cancel all tasks which have not completed.
+   */
+  public void cancel()
+  {
+    synchronized(this)
+    {
+      cancelAll();
+    }
+  }
+
+  /**
+   * Cancel all tasks which have not completed.
+   */
+  @Override
+  public void close()
+  {
+    cancel();
+  }
+  
+  private void cancelAll()
+  {
+    cancelled_ = true;
+    pending_.clear();
+    
+    // done() will be called back on this thread for each task, the lock is re-entrant.
+    for(GroupTask task : new ArrayList<>(tasks_))
+      task.cancel(true);
+  }
+  
+  private void execute(GroupTask task)
+  {
+    try
+    {
+      executor_.execute(task);
+    }
+    catch(RejectedExecutionException e)
+    {
+      task.setException(e);
+    }
+  }
+  
+  private void taskDone(GroupTask task)
+  {
+    GroupTask next = null;
+    
+    synchronized(this)
+    {
+      completed_++;
+      
+      if(task.started_)
+        running_--;
+      
+      if(failure_ == null && !task.isCancelled())
+      {
+        try
+        {
+          task.get();
+        }
+        catch(ExecutionException e)
+        {
+          failure_ = e.getCause();
+        }
+        catch(InterruptedException | CancellationException e)
+        {
+          // can't happen, the task is done and not cancelled
+        }
+        
+        if(failure_ != null)
+          cancelAll();
+      }
+      
+      if(!cancelled_ && failure_ == null && running_ < maxParallelism_)
+      {
+        // a task cancelled through its Future while pending has already been counted as completed
+        do
+        {
+          next = pending_.poll();
+        } while(next != null && !markStarted(next));
+      }
+      
+      notifyAll();
+    }
+    
+    if(next != null)
+      execute(next);
+  }
+  
+  /*
+   * Take a running slot for the given task, unless it has been cancelled, in which case FutureTask.run()
+   * would do nothing and the slot would never be released.
+   */
+  private boolean markStarted(GroupTask task)
+  {
+    if(task.isCancelled())
+      return false;
+    
+    running_++;
+    task.started_ = true;
+    
+    return true;
+  }
+  
+  private class GroupTask extends FutureTask<T>
+  {
+    private boolean started_; // guarded by TaskGroup.this
+    
+    GroupTask(Callable<T> callable)
+    {
+      this(callable, TraceContextHolder.get());
+    }
+    
+    GroupTask(Callable<T> callable, ITraceContext traceContext)
+    {
+      super(() ->
+      {
+        ITraceContext previous = TraceContextHolder.set(traceContext);
+        
+        try
+        {
+          return callable.call();
+        }
+        finally
+        {
+          TraceContextHolder.set(previous);
+        }
+      });
+    }
+
+    @Override
+    protected void setException(Throwable t)
+    {
+      // overridden so that TaskGroup can fail a task which the executor rejects
+      super.setException(t);
+    }
+
+    @Override
+    protected void done()
+    {
+      taskDone(this);
+    }
+    
+    T getResult() throws ExecutionException, InterruptedException
+    {
+      try
+      {
+        return get();
+      }
+      catch(CancellationException e)
+      {
+        return null;
+      }
+    }
+  }
+}
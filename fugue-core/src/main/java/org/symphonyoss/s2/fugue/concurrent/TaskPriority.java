@@ -0,0 +1,74 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.concurrent;
+
+/**
+ * The priority lane of a task run by a PriorityLaneExecutor.
+ * 
+ * Lanes are served in weighted-fair order, so when all lanes are busy each lane receives a share of the
+ * threads in proportion to its weight and no lane is starved.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public enum TaskPriority
+{
+  /** Latency critical work such as health checks and request handling. */
+  CRITICAL(8),
+  
+  /** Normal work, the priority of tasks which do not specify one. */
+  NORMAL(4),
+  
+  /** Background work such as trace publishing and housekeeping. */
+  BACKGROUND(1);
+  
+  private final int defaultWeight_;
+
+  private TaskPriority(int defaultWeight)
+  {
+    defaultWeight_ = defaultWeight;
+  }
+
+  /**
+   * @return The default weight of this lane.
+   */
+  public int getDefaultWeight()
+  {
+    return defaultWeight_;
+  }
+  
+  /**
+   * Return the priority of the given task.
+   * 
+   * @param task A task.
+   * 
+   * @return The priority of the given task if it is an IPrioritized, otherwise NORMAL.
+   */
+  public static TaskPriority of(Object task)
+  {
+    if(task instanceof IPrioritized)
+      return ((IPrioritized)task).getPriority();
+    
+    return NORMAL;
+  }
+}
@@ -0,0 +1,357 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.fugue.metrics.IMetricsCollector;
+import org.symphonyoss.s2.fugue.metrics.IMetricsSource;
+
+/**
+ * A watchdog which periodically scans the running tasks of a set of executors and reports those which
+ * have been running for longer than the stuck task threshold of their executor.
+ * 
+ * For each stuck task the stack of the thread running it is captured, together with the lock on which it
+ * is blocked and the stack of the thread which owns that lock. Stuck tasks are shown on the status page,
+ * counted in metrics and logged, but no more than one thread dump is logged per log interval, so that a
+ * pool full of threads stuck on the same lock does not flood the log.
+ * 
+ * The cost to the executors is the registration of each running task in its ExecutorMetrics, the watchdog
+ * thread only calls the ThreadMXBean when it finds a stuck task.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class TaskWatchdog implements IMetricsSource
+{
+  /** The default interval between scans. */
+  public static final long    DEFAULT_SCAN_INTERVAL_MILLIS = 5000L;
+  /** The default minimum interval between logged thread dumps. */
+  public static final long    DEFAULT_LOG_INTERVAL_MILLIS  = 60000L;
+
+  private static final Logger log_                         = LoggerFactory.getLogger(TaskWatchdog.class);
+
+  private static final String STUCK_METRIC                 = "fugue_executor_stuck_tasks";
+  private static final String DETECTED_METRIC              = "fugue_executor_stuck_tasks_detected_total";
+  private static final String EXECUTOR_LABEL               = "executor";
+
+  private final ThreadMXBean                  threadMXBean_       = ManagementFactory.getThreadMXBean();
+  private final CopyOnWriteArrayList<Watched> watched_            = new CopyOnWriteArrayList<>();
+  private final Set<RunningTask>              reported_           = new HashSet<>(); // guarded by this
+
+  private long                                scanIntervalMillis_ = DEFAULT_SCAN_INTERVAL_MILLIS;
+  private long                                logIntervalMillis_  = DEFAULT_LOG_INTERVAL_MILLIS;
+  private long                                lastLogNanos_;                         // guarded by this
+  private boolean                             logged_;                               // guarded by this
+  private int                                 suppressed_;                           // guarded by this
+  private volatile List<StuckTask>            stuckTasks_         = Collections.emptyList();
+  private Thread                              thread_;
+  
+  private static class Watched
+  {
+    private final String          name_;
+    private final ExecutorMetrics metrics_;
+    private final long            thresholdMillis_;
+    private volatile int          stuck_;
+    private volatile long         detected_;
+    
+    private Watched(String name, ExecutorMetrics metrics, long thresholdMillis)
+    {
+      name_ = name;
+      metrics_ = metrics;
+      thresholdMillis_ = thresholdMillis;
+    }
+  }
+
+  /**
+   * Set the interval between scans.
+   * 
+   * @param scanIntervalMillis The scan interval in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized TaskWatchdog withScanIntervalMillis(long scanIntervalMillis)
+  {
+    if(scanIntervalMillis < 1)
+      throw new IllegalArgumentException("scanIntervalMillis must be >= 1");
+    
+    scanIntervalMillis_ = scanIntervalMillis;
+    
+    return this;
+  }
+
+  /**
+   * Set the minimum interval between logged thread dumps.
+   * 
+   * Stuck tasks detected within this interval of the last logged dump are counted and the count is logged
+   * with the next dump.
+   * 
+   * @param logIntervalMillis The log interval in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized TaskWatchdog withLogIntervalMillis(long logIntervalMillis)
+  {
+    if(logIntervalMillis < 0)
+      throw new IllegalArgumentException("logIntervalMillis must be >= 0");
+    
+    logIntervalMillis_ = logIntervalMillis;
+    
+    return this;
+  }
+
+  /**
+   * Watch the tasks of the given executor.
+   * 
+   * @param name            The name of the executor.
+   * @param metrics         The metrics of the executor, which record its running tasks.
+   * @param thresholdMillis The time after which a running task is considered to be stuck, zero to disable.
+   * 
+   * @return this (fluent method)
+   */
+  public TaskWatchdog watch(String name, ExecutorMetrics metrics, long thresholdMillis)
+  {
+    if(thresholdMillis < 0)
+      throw new IllegalArgumentException("thresholdMillis must be >= 0");
+    
+    if(thresholdMillis > 0)
+      watched_.add(new Watched(name, metrics, thresholdMillis));
+    
+    return this;
+  }
+
+  /**
+   * Start the watchdog thread.
+   */
+  public synchronized void start()
+  {
+    if(thread_ != null)
+      return;
+    
+    thread_ = new Thread(() -> run(), "TaskWatchdog");
+    thread_.setDaemon(true);
+    thread_.start();
+  }
+
+  /**
+   * Stop the watchdog thread.
+   */
+  public synchronized void stop()
+  {
+    if(thread_ == null)
+      return;
+    
+    thread_.interrupt();
+    thread_ = null;
+  }
+  
+  private void run()
+  {
+    try
+    {
+      while(!Thread.currentThread().isInterrupted())
+      {
+        long interval;
+        
+        synchronized(this)
+        {
+          interval = scanIntervalMillis_;
+        }
+        
+        Thread.sleep(interval);
+        
+        try
+        {
+          scan();
+        }
+        catch(RuntimeException e)
+        {
+          log_.error("Task watchdog scan failed", e);
+        }
+      }
+    }
+    catch(InterruptedException e)
+    {
+      log_.debug("Task watchdog stopped");
+    }
+  }
+
+  /**
+   * Scan the running tasks of all watched executors.
+   * 
+   * This is called periodically by the watchdog thread once it has been started, and may also be called directly.
+   * 
+   * @return The tasks which are currently stuck.
+   */
+  public synchronized List<StuckTask> scan()
+  {
+    Map<RunningTask, Watched> stuck = new HashMap<>();
+    
+    for(Watched watched : watched_)
+    {
+      int count = 0;
+      
+      for(RunningTask task : watched.metrics_.getRunningTasks())
+      {
+        if(task.getRunningMillis() >= watched.thresholdMillis_)
+        {
+          stuck.put(task, watched);
+          count++;
+          
+          if(!reported_.contains(task))
+            watched.detected_++;
+        }
+      }
+      watched.stuck_ = count;
+    }
+    
+    reported_.retainAll(stuck.keySet());
+    
+    if(stuck.isEmpty())
+    {
+      stuckTasks_ = Collections.emptyList();
+      return stuckTasks_;
+    }
+    
+    Map<RunningTask, StuckTask> captured   = capture(stuck);
+    List<StuckTask>             stuckTasks = new ArrayList<>(captured.values());
+    
+    for(Map.Entry<RunningTask, StuckTask> entry : captured.entrySet())
+    {
+      if(reported_.add(entry.getKey()))
+        report(entry.getValue());
+    }
+    
+    stuckTasks.sort((a, b) -> Long.compare(b.getRunningMillis(), a.getRunningMillis()));
+    stuckTasks_ = Collections.unmodifiableList(stuckTasks);
+    
+    return stuckTasks_;
+  }
+  
+  private Map<RunningTask, StuckTask> capture(Map<RunningTask, Watched> stuck)
+  {
+    List<RunningTask>     tasks     = new ArrayList<>(stuck.keySet());
+    long[]                threadIds = new long[tasks.size()];
+    
+    for(int i=0 ; i<threadIds.length ; i++)
+      threadIds[i] = tasks.get(i).getThread().getId();
+    
+    ThreadInfo[]          infos     = getThreadInfo(threadIds);
+    Map<Long, ThreadInfo> owners    = new HashMap<>();
+    List<Long>            ownerIds  = new ArrayList<>();
+    
+    for(ThreadInfo info : infos)
+    {
+      if(info != null && info.getLockOwnerId() != -1 && !ownerIds.contains(info.getLockOwnerId()))
+        ownerIds.add(info.getLockOwnerId());
+    }
+    
+    if(!ownerIds.isEmpty())
+    {
+      long[] ids = new long[ownerIds.size()];
+      
+      for(int i=0 ; i<ids.length ; i++)
+        ids[i] = ownerIds.get(i);
+      
+      for(ThreadInfo info : getThreadInfo(ids))
+      {
+        if(info != null)
+          owners.put(info.getThreadId(), info);
+      }
+    }
+    
+    Map<RunningTask, StuckTask> result = new LinkedHashMap<>();
+    
+    for(int i=0 ; i<infos.length ; i++)
+    {
+      RunningTask task    = tasks.get(i);
+      Watched     watched = stuck.get(task);
+      ThreadInfo  info    = infos[i];
+      ThreadInfo  owner   = info == null ? null : owners.get(info.getLockOwnerId());
+      
+      result.put(task, new StuckTask(watched.name_, watched.thresholdMillis_, task, info, owner));
+    }
+    
+    return result;
+  }
+
+  private ThreadInfo[] getThreadInfo(long[] threadIds)
+  {
+    return threadMXBean_.getThreadInfo(threadIds,
+        threadMXBean_.isObjectMonitorUsageSupported(),
+        threadMXBean_.isSynchronizerUsageSupported());
+  }
+  
+  private void report(StuckTask stuckTask)
+  {
+    long now = System.nanoTime();
+    
+    if(logged_ && now - lastLogNanos_ < TimeUnit.MILLISECONDS.toNanos(logIntervalMillis_))
+    {
+      suppressed_++;
+      return;
+    }
+    
+    String suppressed = suppressed_ == 0 ? "" : " (" + suppressed_ + " other stuck tasks not logged)";
+    
+    log_.warn(stuckTask + suppressed + "\n" + stuckTask.getThreadDump());
+    
+    logged_ = true;
+    lastLogNanos_ = now;
+    suppressed_ = 0;
+  }
+
+  /**
+   * @return The tasks which were stuck at the time of the last scan, longest running first.
+   */
+  public List<StuckTask> getStuckTasks()
+  {
+    return stuckTasks_;
+  }
+
+  @Override
+  public void collectMetrics(IMetricsCollector collector)
+  {
+    for(Watched watched : watched_)
+      collector.gauge(STUCK_METRIC, "Tasks running for longer than the stuck task threshold", watched.stuck_,
+          EXECUTOR_LABEL, watched.name_);
+    
+    for(Watched watched : watched_)
+      collector.counter(DETECTED_METRIC, "Tasks detected running for longer than the stuck task threshold",
+          watched.detected_, EXECUTOR_LABEL, watched.name_);
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.common.concurrent.NamedThreadFactory;
+import org.symphonyoss.s2.common.fault.CodingFault;
+
+/**
+ * Factory methods for executors which run each task on its own virtual thread.
+ * 
+ * Fugue is built for Java 8 so virtual threads are created by reflection. When the runtime does not
+ * support virtual threads (before Java 21) the methods of this class fall back to platform threads
+ * and log a warning, so callers need not check isSupported() unless they want to size things differently.
+ * 
+ * Support is detected by creating a virtual thread factory and executor rather than by the presence of the
+ * API, because on Java 19 and 20 the API exists but fails when called unless preview features are enabled.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class VirtualThreads
+{
+  private static final Logger log_ = LoggerFactory.getLogger(VirtualThreads.class);
+
+  private static final Method OF_VIRTUAL;
+  private static final Method BUILDER_NAME;
+  private static final Method BUILDER_FACTORY;
+  private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+  
+  static
+  {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderFactory = null;
+    Method newThreadPerTaskExecutor = null;
+    
+    try
+    {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      builderName = builderClass.getMethod("name", String.class, long.class);
+      builderFactory = builderClass.getMethod("factory");
+      newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      
+      Object        builder = builderName.invoke(ofVirtual.invoke(null), "probe-", 0L);
+      ThreadFactory factory = (ThreadFactory) builderFactory.invoke(builder);
+      
+      ((ExecutorService) newThreadPerTaskExecutor.invoke(null, factory)).shutdown();
+    }
+    catch(ReflectiveOperationException | RuntimeException e)
+    {
+      ofVirtual = null;
+    }
+    
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_FACTORY = builderFactory;
+    NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+  }
+  
+  private VirtualThreads() {}
+
+  /**
+   * @return true if the runtime supports virtual threads.
+   */
+  public static boolean isSupported()
+  {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Create a ThreadFactory which creates virtual threads.
+   * 
+   * If virtual threads are not supported then a factory for daemon platform threads is returned.
+   * 
+   * @param name  The prefix for the names of threads.
+   * 
+   * @return A ThreadFactory.
+   */
+  public static ThreadFactory newThreadFactory(String name)
+  {
+    if(!isSupported())
+    {
+      log_.warn("Virtual threads are not supported by this JVM, " + name + " will use platform threads.");
+      
+      return new NamedThreadFactory(name, true);
+    }
+    
+    try
+    {
+      Object builder = OF_VIRTUAL.invoke(null);
+      
+      builder = BUILDER_NAME.invoke(builder, name + "-", 0L);
+      
+      return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+    }
+    catch (ReflectiveOperationException e)
+    {
+      throw new CodingFault("Unable to create virtual thread factory", e);
+    }
+  }
+
+  /**
+   * Create an ExecutorService which starts a new virtual thread for each task.
+   * 
+   * If virtual threads are not supported then an unbounded cached thread pool of daemon platform
+   * threads is returned, which has the same queueing behaviour but is far more expensive.
+   * 
+   * @param name  The prefix for the names of threads.
+   * 
+   * @return An ExecutorService.
+   */
+  public static ExecutorService newExecutor(String name)
+  {
+    ThreadFactory threadFactory = newThreadFactory(name);
+    
+    if(!isSupported())
+      return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+          new SynchronousQueue<Runnable>(), threadFactory);
+    
+    try
+    {
+      return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+    }
+    catch (ReflectiveOperationException e)
+    {
+      throw new CodingFault("Unable to create virtual thread executor", e);
+    }
+  }
+}
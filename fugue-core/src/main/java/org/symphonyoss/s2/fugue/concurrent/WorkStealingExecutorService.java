@@ -0,0 +1,168 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.symphonyoss.s2.fugue.IFugueServer;
+import org.symphonyoss.s2.fugue.metrics.IMetricsCollector;
+
+/**
+ * A FugueExecutorService backed by a work stealing ForkJoinPool, for CPU bound tasks which fan out into subtasks.
+ * 
+ * Each worker thread has its own deque of tasks, subtasks forked by a task are pushed onto the deque of the
+ * thread running it and idle workers steal from the deques of busy ones, so there is no single shared queue
+ * to contend on. The pool is sized to the number of available processors by default.
+ * 
+ * Recursive work should be expressed as a RecursiveTask or RecursiveAction and passed to invoke() or submit(),
+ * the root task then runs with the Fugue fault semantics: a ProgramFault thrown by the task or any of its
+ * subtasks fails the server, a TransactionFault or RuntimeException is logged and re-thrown to the caller.
+ * Tasks submitted through the ExecutorService methods are handled in the same way as in any other
+ * FugueExecutorService.
+ * 
+ * The queues of a ForkJoinPool are unbounded, tasks are only rejected after shutdown.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class WorkStealingExecutorService extends FugueExecutorService
+{
+  private static final String STEALS_METRIC = "fugue_executor_steals_total";
+  
+  private final ForkJoinPool pool_;
+
+  /**
+   * Create an instance with one thread per available processor.
+   * 
+   * @param server  The IFugueServer in which tasks will run.
+   * @param name    The name of the executor, which is also used as the name of its threads.
+   */
+  public WorkStealingExecutorService(IFugueServer server, String name)
+  {
+    this(server, name, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create an instance with the given parallelism.
+   * 
+   * @param server      The IFugueServer in which tasks will run.
+   * @param name        The name of the executor, which is also used as the name of its threads.
+   * @param parallelism The target number of active threads.
+   */
+  public WorkStealingExecutorService(IFugueServer server, String name, int parallelism)
+  {
+    this(server, name, newPool(name, parallelism));
+  }
+  
+  private WorkStealingExecutorService(IFugueServer server, String name, ForkJoinPool pool)
+  {
+    super(server, name, pool);
+    
+    pool_ = pool;
+  }
+  
+  private static ForkJoinPool newPool(String name, int parallelism)
+  {
+    if(parallelism < 1)
+      throw new IllegalArgumentException("parallelism must be >= 1");
+    
+    return new ForkJoinPool(parallelism, (pool) ->
+    {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      
+      thread.setName(name + "-" + thread.getPoolIndex());
+      
+      return thread;
+    }, null, false);
+  }
+
+  /**
+   * Run the given task and its subtasks in this pool and wait for the result.
+   * 
+   * @param <T>   The type of the result of the task.
+   * @param task  A task, typically a RecursiveTask or RecursiveAction.
+   * 
+   * @return The result of the task.
+   * 
+   * @throws RejectedExecutionException If the executor has been shut down.
+   */
+  public <T> T invoke(ForkJoinTask<T> task)
+  {
+    try
+    {
+      return pool_.invoke(adapt(task));
+    }
+    catch(RejectedExecutionException e)
+    {
+      throw rejected(e);
+    }
+  }
+
+  /**
+   * Submit the given task and its subtasks to this pool.
+   * 
+   * @param <T>   The type of the result of the task.
+   * @param task  A task, typically a RecursiveTask or RecursiveAction.
+   * 
+   * @return A ForkJoinTask which can be joined to wait for the result.
+   * 
+   * @throws RejectedExecutionException If the executor has been shut down.
+   */
+  public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task)
+  {
+    try
+    {
+      return pool_.submit(adapt(task));
+    }
+    catch(RejectedExecutionException e)
+    {
+      throw rejected(e);
+    }
+  }
+  
+  private <T> ForkJoinTask<T> adapt(ForkJoinTask<T> task)
+  {
+    return ForkJoinTask.adapt(wrap(() -> task.invoke(), System.nanoTime()));
+  }
+
+  /**
+   * @return The underlying ForkJoinPool.
+   */
+  public ForkJoinPool getForkJoinPool()
+  {
+    return pool_;
+  }
+
+  @Override
+  public void collectMetrics(IMetricsCollector collector)
+  {
+    getMetrics().collectMetrics(collector, getName(), pool_.getPoolSize(), pool_.getActiveThreadCount(),
+        (int)Math.min(Integer.MAX_VALUE, pool_.getQueuedSubmissionCount() + pool_.getQueuedTaskCount()));
+    
+    collector.counter(STEALS_METRIC, "Tasks stolen from the queue of another thread", pool_.getStealCount(),
+        ExecutorMetrics.EXECUTOR_LABEL, getName());
+  }
+}
@@ -24,237 +24,303 @@
 package org.symphonyoss.s2.fugue.config;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.common.exception.NotFoundException;
-import org.symphonyoss.s2.common.fault.CodingFault;
 import org.symphonyoss.s2.common.fault.ProgramFault;
+import org.symphonyoss.s2.fugue.startup.StartupStep;
+import org.symphonyoss.s2.fugue.startup.StartupTimeline;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 
+/**
+ * An implementation of IConfiguration backed by a JSON tree.
+ * 
+ * The tree is flattened into an immutable ConfigurationIndex when it is set, so lookups are lock free
+ * and properties which are absent are detected without throwing exceptions internally.
+ * 
+ * The tree may be replaced at any time, for example by a ConfigurationReloader, in which case the new
+ * snapshot is swapped in atomically and listeners registered for paths which changed are notified.
+ * Sub-configurations are views onto the current snapshot so they always return current values.
+ * 
+ * @author Bruce Skingle
+ *
+ */
 public class Configuration implements IConfiguration
 {
-  private JsonNode tree_;
-  private Map<String, Configuration> subConfigMap_ = new HashMap<>();
-  private String name_ = "";
+  private static final Logger log_ = LoggerFactory.getLogger(Configuration.class);
+  
+  private final Configuration                root_;
+  private final String                       path_;
+  private final Map<String, Configuration>   subConfigMap_  = new ConcurrentHashMap<>();
+  private final List<Subscription>           subscriptions_ = new CopyOnWriteArrayList<>();
+  private volatile ConfigurationIndex        index_;
+  private volatile String                    name_          = "";
+  private volatile IConfigurationSource      source_;
 
   protected Configuration()
-  {}
+  {
+    root_ = this;
+    path_ = null;
+  }
   
   protected Configuration(JsonNode tree)
   {
-    tree_ = tree;
+    this();
+    setTree(tree);
   }
 
-  
-  protected void setTree(JsonNode tree)
+  private Configuration(Configuration root, String path, String name)
   {
-    tree_ = tree;
+    root_ = root;
+    path_ = path;
+    name_ = name;
   }
   
-//  /* package */  JsonNode getTree()
-//  {
-//    return tree_;
-//  }
-
-  @Override
-  public @Nonnull String getString(@Nonnull String name) throws NotFoundException
+  /**
+   * Set the configuration tree, replacing any previous snapshot.
+   * 
+   * If a previous snapshot existed, listeners registered for paths which have changed are called,
+   * in the order in which snapshots were set.
+   * 
+   * @param tree The new configuration tree.
+   */
+  protected synchronized void setTree(JsonNode tree)
   {
-    if(tree_ == null)
-      throw new NotFoundException("No configuration loaded");
+    if(root_ != this)
+      throw new IllegalStateException("The tree of a sub-configuration cannot be set");
+    
+    ConfigurationIndex oldIndex = index_;
+    ConfigurationIndex newIndex = tree == null ? null : ConfigurationIndex.build(tree);
+    
+    index_ = newIndex;
     
-    return getString(name.split("/"), 0);
+    if(oldIndex != null && newIndex != null)
+    {
+      for(Subscription subscription : subscriptions_)
+        subscription.notifyIfChanged(oldIndex, newIndex);
+    }
   }
 
-  private @Nonnull String getString(String[] names, int index) throws NotFoundException
+  /**
+   * Load this configuration from the given source, and record it so that it can be reloaded.
+   * 
+   * @param source  The source from which to load this configuration.
+   * @param cache   A snapshot cache for remote sources, or null.
+   * 
+   * @throws IOException If the configuration cannot be loaded.
+   */
+  protected void load(IConfigurationSource source, @Nullable ConfigurationSnapshotCache cache) throws IOException
   {
-    if(index < names.length - 1)
+    try(StartupStep step = StartupTimeline.getDefault().begin("load config " + source))
     {
-      return getConfiguration(names[index]).getString(names, index+1);
+      if(cache == null)
+      {
+        setTree(source.fetchIfChanged());
+        setSource(source);
+      }
+      else
+      {
+        cache.load(this, source);
+      }
     }
+  }
+
+  /**
+   * Set the source from which this configuration was loaded, so that it can be reloaded.
+   * 
+   * @param source The source from which this configuration was loaded.
+   */
+  protected void setSource(IConfigurationSource source)
+  {
+    root_.source_ = source;
+  }
+  
+  /**
+   * @return The source from which this configuration can be reloaded, or null if it is not reloadable.
+   */
+  public @Nullable IConfigurationSource getSource()
+  {
+    return root_.source_;
+  }
+
+  /**
+   * Register a listener to be called when any of the given paths change.
+   * 
+   * @param listener  A listener.
+   * @param paths     Paths relative to this configuration, if none are given the listener is called
+   *                  when anything in this configuration changes.
+   * 
+   * @return this (fluent method)
+   */
+  public Configuration addListener(IConfigurationListener listener, String ...paths)
+  {
+    root_.subscriptions_.add(new Subscription(this, listener, paths));
     
-    JsonNode node = tree_.get(names[index]);
+    return this;
+  }
+  
+  /**
+   * Remove all registrations of the given listener.
+   * 
+   * @param listener  A listener.
+   */
+  public void removeListener(IConfigurationListener listener)
+  {
+    root_.subscriptions_.removeIf((s) -> s.listener_ == listener);
+  }
+
+  /**
+   * @return The flattened index of this configuration, which is empty if no configuration is loaded.
+   */
+  public @Nonnull ConfigurationIndex getIndex()
+  {
+    ConfigurationIndex index = root_.index_;
     
-    if(node == null)
-      throw new NotFoundException("No such property");
+    if(index == null)
+      return ConfigurationIndex.EMPTY;
+    
+    return path_ == null ? index : index.getIndex(path_);
+  }
+  
+  /**
+   * Return the value of the given property.
+   * 
+   * @param name  The slash separated path of the required property.
+   * 
+   * @return The value of the given property, or ConfigurationValue.ABSENT if it does not exist.
+   */
+  public @Nonnull ConfigurationValue getValue(@Nonnull String name)
+  {
+    return getIndex().get(name);
+  }
+  
+  private @Nonnull ConfigurationValue getPresentValue(@Nonnull String name) throws NotFoundException
+  {
+    if(root_.index_ == null)
+      throw new NotFoundException("No configuration loaded");
     
-//    if(!node.isTextual())
-//      throw new NotFoundException("Not a text value");
+    ConfigurationValue value = getIndex().get(name);
     
-    return node.asText();
+    if(!value.isPresent())
+      throw new NotFoundException("No such property");
+    
+    return value;
+  }
+
+  @Override
+  public @Nonnull String getString(@Nonnull String name) throws NotFoundException
+  {
+    return getPresentValue(name).getString();
   }
 
   @Override
   public String getString(String name, String defaultValue)
   {
-    try
-    {
-      return getString(name);
-    }
-    catch (NotFoundException e)
-    {
-      return defaultValue;
-    }
+    return getValue(name).getString(defaultValue);
   }
 
   @Override
   public @Nonnull String getRequiredString(@Nonnull String name)
   {
-    try
-    {
-      return getString(name);
-    }
-    catch (NotFoundException e)
-    {
-      throw new ProgramFault("Required property  \"" + name + "\" not found in " + name_, e);
-    }
+    ConfigurationValue value = getValue(name);
+    
+    if(!value.isPresent())
+      throw new ProgramFault("Required property  \"" + name + "\" not found in " + name_);
+    
+    return value.getString();
   }
   
   @Override
   public long getRequiredLong(String name)
   {
-    String s = null;
+    ConfigurationValue value = getValue(name);
     
-    try
-    {
-      s = getString(name);
-      
-      return Long.parseLong(s);
-    }
-    catch (NotFoundException e)
-    {
-      throw new ProgramFault("Required property  \"" + name + "\" not found in " + name_, e);
-    }
-    catch(NumberFormatException e)
-    {
-      throw new ProgramFault("Required long integer property  \"" + name + "\" has the value \"" + s + "\" in " + name_, e);
-    }
+    if(!value.isPresent())
+      throw new ProgramFault("Required property  \"" + name + "\" not found in " + name_);
+    
+    if(!value.isLong())
+      throw new ProgramFault("Required long integer property  \"" + name + "\" has the value \"" + value.getString() + "\" in " + name_);
+    
+    return value.getLong(0L);
   }
 
   @Override
   public boolean getBoolean(@Nonnull String name)
   {
-    try
-    {
-      return "true".equalsIgnoreCase(getString(name));
-    }
-    catch (NotFoundException e)
-    {
-      return false;
-    }
+    return getValue(name).getBoolean(false);
   }
   
   @Override
   public boolean getRequiredBoolean(String name)
   {
-    try
-    {
-      return "true".equalsIgnoreCase(getString(name));
-    }
-    catch (NotFoundException e)
-    {
-      throw new ProgramFault(e);
-    }
+    ConfigurationValue value = getValue(name);
+    
+    if(!value.isPresent())
+      throw new ProgramFault("Required property  \"" + name + "\" not found in " + name_);
+    
+    return value.getBoolean(false);
   }
   
   @Override
   public boolean getBoolean(String name, boolean defaultValue)
   {
-    try
-    {
-      return "true".equalsIgnoreCase(getString(name));
-    }
-    catch (NotFoundException e)
-    {
-      return defaultValue;
-    }
+    return getValue(name).getBoolean(defaultValue);
   }
 
   @Override
   public @Nonnull List<String> getStringArray(@Nonnull String name) throws NotFoundException
   {
-    if(tree_ == null)
-      throw new NotFoundException("No configuration loaded");
-    
-    JsonNode node = tree_.get(name);
-    
-    if(node == null)
-      throw new NotFoundException("No such property");
-    
-    List<String> result = new ArrayList<>();
-    
-    if(node.isArray())
-    {
-      for(JsonNode child : node)
-      {
-        result.add(child.asText());
-      }
-    }
-    else
-    {
-      for(String s : node.asText().split(" *, *"))
-      {
-        result.add(s);
-      }
-    }
-      
-    return result;
+    return getPresentValue(name).getStringArray();
   }
 
   @Override
   public @Nonnull List<String> getRequiredStringArray(@Nonnull String name)
   {
-    try
-    {
-      return getStringArray(name);
-    }
-    catch (NotFoundException e)
-    {
-      throw new ProgramFault("Required array property  \"" + name + "\" not found", e);
-    }
+    ConfigurationValue value = getValue(name);
+    
+    if(!value.isPresent())
+      throw new ProgramFault("Required array property  \"" + name + "\" not found");
+    
+    return value.getStringArray();
   }
 
   @Override
-  public synchronized @Nonnull Configuration getConfiguration(String name)
+  public @Nonnull Configuration getConfiguration(String name)
   {
-    if(tree_ == null)
+    if(root_.index_ == null)
       throw new IllegalStateException("No configuration loaded");
     
     Configuration subConfig = subConfigMap_.get(name);
     
     if(subConfig == null)
     {
-      JsonNode node = tree_.get(name);
+      subConfig = new Configuration(root_, path_ == null ? name : path_ + "/" + name, name_ + "/" + name);
       
-      if(node == null || !node.isObject())
-      {
-        try
-        {
-          node = new ObjectMapper().readTree("{}");
-        }
-        catch (IOException e)
-        {
-          throw new CodingFault(e);
-        }
-      }
+      Configuration existing = subConfigMap_.putIfAbsent(name, subConfig);
       
-      subConfig = new Configuration((ObjectNode)node);
-      
-      subConfigMap_.put(name, subConfig);
+      if(existing != null)
+        subConfig = existing;
     }
     
-    subConfig.name_ = name_ + "/" + name;
-    
     return subConfig;
   }
 
+  @Override
   public String getName()
   {
     return name_;
@@ -263,5 +329,65 @@ public class Configuration implements IConfiguration
   protected void setName(String name)
   {
     name_ = name;
+    subConfigMap_.clear();
+  }
+  
+  private static class Subscription
+  {
+    private final Configuration           configuration_;
+    private final IConfigurationListener  listener_;
+    private final String[]                paths_;
+
+    private Subscription(Configuration configuration, IConfigurationListener listener, String[] paths)
+    {
+      configuration_ = configuration;
+      listener_ = listener;
+      paths_ = paths;
+    }
+    
+    private ConfigurationIndex getView(ConfigurationIndex index)
+    {
+      return configuration_.path_ == null ? index : index.getIndex(configuration_.path_);
+    }
+
+    private void notifyIfChanged(ConfigurationIndex oldIndex, ConfigurationIndex newIndex)
+    {
+      ConfigurationIndex oldView = getView(oldIndex);
+      ConfigurationIndex newView = getView(newIndex);
+      
+      if(oldView == newView || Objects.equals(oldView.getTree(), newView.getTree()))
+        return;
+      
+      Set<String> changedPaths = new TreeSet<>();
+      
+      if(paths_.length == 0)
+      {
+        Set<String> paths = new HashSet<>(oldView.getPaths());
+        
+        paths.addAll(newView.getPaths());
+        
+        for(String path : paths)
+          if(!Objects.equals(oldView.get(path).getNode(), newView.get(path).getNode()))
+            changedPaths.add(path);
+      }
+      else
+      {
+        for(String path : paths_)
+          if(!Objects.equals(oldView.get(path).getNode(), newView.get(path).getNode()))
+            changedPaths.add(path);
+      }
+      
+      if(changedPaths.isEmpty())
+        return;
+      
+      try
+      {
+        listener_.configurationChanged(configuration_, Collections.unmodifiableSet(changedPaths));
+      }
+      catch(RuntimeException e)
+      {
+        log_.error("Configuration listener failed for " + configuration_.getName() + " " + Arrays.toString(paths_), e);
+      }
+    }
   }
 }
@@ -0,0 +1,390 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.symphonyoss.s2.common.exception.NotFoundException;
+import org.symphonyoss.s2.common.fault.ProgramFault;
+
+/**
+ * Binds a configuration subtree to an immutable typed object.
+ * 
+ * The type may be an interface, in which case a proxy is returned whose getter methods return the bound
+ * values, or a class with a no-args constructor whose non-static fields are set to the bound values and
+ * are then read with plain field access.
+ * 
+ * The property name for a getter is derived by removing any "get" or "is" prefix, and for a field by
+ * removing any trailing underscore, unless a ConfigurationProperty annotation gives a name. Supported
+ * types are String, int, long, double, boolean and their wrapper types, enums, List&lt;String&gt;, and
+ * nested interfaces or classes, which are bound to the sub-configuration of the same name.
+ * 
+ * All values are read, parsed and validated once, and every problem is reported in a single ProgramFault,
+ * so an invalid configuration fails at startup rather than when the code path using it is first hit.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ConfigurationBinder
+{
+  private static final Map<Class<?>, List<Property>> PROPERTIES = new ConcurrentHashMap<>();
+  
+  private ConfigurationBinder()
+  {
+  }
+
+  /**
+   * Bind the given configuration to a new instance of the given type.
+   * 
+   * @param <T>           The type to be bound.
+   * @param configuration A configuration.
+   * @param type          The type to be bound.
+   * 
+   * @return A new immutable instance of the given type.
+   * 
+   * @throws ProgramFault If any property is missing or invalid, listing all of the problems found.
+   * @throws IllegalArgumentException If the given type cannot be bound.
+   */
+  public static <T> T bind(IConfiguration configuration, Class<T> type)
+  {
+    List<String> errors = new ArrayList<>();
+    T            result = bind(configuration, type, "", errors);
+    
+    if(!errors.isEmpty())
+    {
+      StringBuilder report = new StringBuilder("Invalid configuration for ")
+          .append(type.getSimpleName())
+          .append(" in \"")
+          .append(configuration.getName())
+          .append("\":");
+      
+      for(String error : errors)
+        report.append("\n  ").append(error);
+      
+      throw new ProgramFault(report.toString());
+    }
+    
+    return result;
+  }
+
+  /**
+   * Bind the given configuration to a new instance of the given type, and bind each subsequent snapshot
+   * of it to a new instance when it is reloaded.
+   * 
+   * @param <T>           The type to be bound.
+   * @param configuration A reloadable configuration.
+   * @param type          The type to be bound.
+   * 
+   * @return A binding from which the instance bound to the current snapshot can be obtained.
+   * 
+   * @throws ProgramFault If any property in the initial configuration is missing or invalid.
+   * @throws IllegalArgumentException If the given type cannot be bound.
+   */
+  public static <T> ConfigurationBinding<T> bindReloadable(Configuration configuration, Class<T> type)
+  {
+    return new ConfigurationBinding<>(configuration, type);
+  }
+
+  private static <T> T bind(IConfiguration configuration, Class<T> type, String prefix, List<String> errors)
+  {
+    List<Property>      properties  = PROPERTIES.computeIfAbsent(type, ConfigurationBinder::introspect);
+    Map<String, Object> values      = new HashMap<>();
+    
+    for(Property property : properties)
+    {
+      values.put(property.name_, property.bind(configuration, prefix, errors));
+    }
+    
+    if(type.isInterface())
+      return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new BoundHandler(type, properties, values)));
+    
+    try
+    {
+      Constructor<T> constructor = type.getDeclaredConstructor();
+      
+      constructor.setAccessible(true);
+      
+      T instance = constructor.newInstance();
+      
+      for(Property property : properties)
+      {
+        property.field_.set(instance, values.get(property.name_));
+      }
+      
+      return instance;
+    }
+    catch(ReflectiveOperationException e)
+    {
+      throw new IllegalArgumentException("Unable to instantiate " + type, e);
+    }
+  }
+  
+  private static List<Property> introspect(Class<?> type)
+  {
+    List<Property> properties = new ArrayList<>();
+    
+    if(type.isInterface())
+    {
+      for(Method method : type.getMethods())
+      {
+        if(method.isDefault() || Modifier.isStatic(method.getModifiers()))
+          throw new IllegalArgumentException(type + " has default or static method " + method.getName() + " which cannot be bound");
+        
+        if(method.getParameterCount() != 0 || method.getReturnType() == void.class)
+          throw new IllegalArgumentException(type + " has non-getter method " + method.getName() + " which cannot be bound");
+        
+        String name = method.getName();
+        
+        if(name.startsWith("get") && name.length() > 3)
+          name = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+        else if(name.startsWith("is") && name.length() > 2 && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class))
+          name = Character.toLowerCase(name.charAt(2)) + name.substring(3);
+        
+        properties.add(new Property(name, method.getReturnType(), method.getGenericReturnType(),
+            method.getAnnotation(ConfigurationProperty.class), method, null));
+      }
+    }
+    else
+    {
+      for(Class<?> c = type ; c != Object.class ; c = c.getSuperclass())
+      {
+        for(Field field : c.getDeclaredFields())
+        {
+          int modifiers = field.getModifiers();
+          
+          if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic())
+            continue;
+          
+          String name = field.getName();
+          
+          if(name.endsWith("_"))
+            name = name.substring(0, name.length() - 1);
+          
+          field.setAccessible(true);
+          
+          properties.add(new Property(name, field.getType(), field.getGenericType(),
+              field.getAnnotation(ConfigurationProperty.class), null, field));
+        }
+      }
+    }
+    
+    return Collections.unmodifiableList(properties);
+  }
+  
+  private static class Property
+  {
+    private final String      name_;
+    private final Class<?>    type_;
+    private final boolean     list_;
+    private final boolean     required_;
+    private final String      defaultValue_;
+    private final Method      method_;
+    private final Field       field_;
+    
+    private Property(String name, Class<?> type, Type genericType, ConfigurationProperty annotation, Method method, Field field)
+    {
+      type_ = type;
+      method_ = method;
+      field_ = field;
+      
+      if(annotation == null)
+      {
+        name_ = name;
+        required_ = true;
+        defaultValue_ = null;
+      }
+      else
+      {
+        name_ = annotation.name().isEmpty() ? name : annotation.name();
+        defaultValue_ = annotation.defaultValue().isEmpty() ? null : annotation.defaultValue();
+        required_ = annotation.required() && defaultValue_ == null;
+      }
+      
+      list_ = type == List.class;
+      
+      if(list_ && !(genericType instanceof ParameterizedType
+          && ((ParameterizedType)genericType).getActualTypeArguments()[0] == String.class))
+        throw new IllegalArgumentException("Property " + name_ + " must be a List<String>");
+      
+      if(type_.isPrimitive() && type_ != int.class && type_ != long.class && type_ != double.class && type_ != boolean.class)
+        throw new IllegalArgumentException("Property " + name_ + " has unsupported type " + type_);
+      
+      if(isNested() && (type_.isArray() || type_.getName().startsWith("java.")))
+        throw new IllegalArgumentException("Property " + name_ + " has unsupported type " + type_);
+    }
+    
+    private boolean isNested()
+    {
+      return !list_ && !type_.isPrimitive() && !type_.isEnum() && type_ != String.class
+          && type_ != Integer.class && type_ != Long.class && type_ != Double.class && type_ != Boolean.class;
+    }
+
+    private Object bind(IConfiguration configuration, String prefix, List<String> errors)
+    {
+      String path = prefix + name_;
+      
+      if(isNested())
+        return ConfigurationBinder.bind(configuration.getConfiguration(name_), type_, path + "/", errors);
+      
+      if(list_)
+      {
+        try
+        {
+          return Collections.unmodifiableList(new ArrayList<>(configuration.getStringArray(name_)));
+        }
+        catch(NotFoundException e)
+        {
+          if(defaultValue_ != null)
+            return Collections.unmodifiableList(Arrays.asList(defaultValue_.split(" *, *")));
+          
+          if(required_)
+            errors.add(path + ": required property is missing");
+          
+          return Collections.emptyList();
+        }
+      }
+      
+      String value = configuration.getString(name_, defaultValue_);
+      
+      if(value == null)
+      {
+        if(required_)
+          errors.add(path + ": required property is missing");
+        
+        return absentValue();
+      }
+      
+      try
+      {
+        return convert(value.trim());
+      }
+      catch(IllegalArgumentException e)
+      {
+        errors.add(path + ": \"" + value + "\" is not a valid " + type_.getSimpleName()
+          + (type_.isEnum() ? " " + Arrays.toString(type_.getEnumConstants()) : ""));
+        
+        return absentValue();
+      }
+    }
+    
+    private Object absentValue()
+    {
+      if(type_ == boolean.class)
+        return false;
+      
+      if(type_ == int.class)
+        return 0;
+      
+      if(type_ == long.class)
+        return 0L;
+      
+      if(type_ == double.class)
+        return 0.0;
+      
+      return null;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object convert(String value)
+    {
+      if(type_ == String.class)
+        return value;
+      
+      if(type_ == int.class || type_ == Integer.class)
+        return Integer.parseInt(value);
+      
+      if(type_ == long.class || type_ == Long.class)
+        return Long.parseLong(value);
+      
+      if(type_ == double.class || type_ == Double.class)
+        return Double.parseDouble(value);
+      
+      if(type_ == boolean.class || type_ == Boolean.class)
+      {
+        if("true".equalsIgnoreCase(value))
+          return Boolean.TRUE;
+        
+        if("false".equalsIgnoreCase(value))
+          return Boolean.FALSE;
+        
+        throw new IllegalArgumentException("Not a boolean");
+      }
+      
+      return Enum.valueOf((Class<? extends Enum>)type_, value);
+    }
+  }
+  
+  private static class BoundHandler implements InvocationHandler
+  {
+    private final Class<?>            type_;
+    private final Map<Method, Object> values_ = new HashMap<>();
+    private final Map<String, Object> namedValues_;
+
+    private BoundHandler(Class<?> type, List<Property> properties, Map<String, Object> values)
+    {
+      type_ = type;
+      namedValues_ = values;
+      
+      for(Property property : properties)
+        values_.put(property.method_, values.get(property.name_));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+    {
+      if(method.getDeclaringClass() == Object.class)
+      {
+        switch(method.getName())
+        {
+          case "equals":
+            return args[0] != null && Proxy.isProxyClass(args[0].getClass())
+                && Proxy.getInvocationHandler(args[0]) instanceof BoundHandler
+                && ((BoundHandler)Proxy.getInvocationHandler(args[0])).type_ == type_
+                && ((BoundHandler)Proxy.getInvocationHandler(args[0])).namedValues_.equals(namedValues_);
+            
+          case "hashCode":
+            return namedValues_.hashCode();
+            
+          default:
+            return type_.getSimpleName() + namedValues_;
+        }
+      }
+      
+      return values_.get(method);
+    }
+  }
+}
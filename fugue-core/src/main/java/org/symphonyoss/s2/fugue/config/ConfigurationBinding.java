@@ -0,0 +1,105 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.common.fault.ProgramFault;
+
+/**
+ * A typed object bound to a reloadable configuration.
+ * 
+ * Each time the configuration is reloaded and the bound subtree has changed, a new immutable instance is
+ * bound and swapped in. If the new snapshot is invalid the error is logged and the previous instance
+ * remains in force.
+ * 
+ * Callers should call get() each time they need the current values, rather than holding on to the instance.
+ * 
+ * @author Bruce Skingle
+ *
+ * @param <T> The bound type.
+ */
+public class ConfigurationBinding<T> implements IConfigurationListener
+{
+  private static final Logger log_ = LoggerFactory.getLogger(ConfigurationBinding.class);
+  
+  private final Class<T>                  type_;
+  private final List<Consumer<? super T>> listeners_ = new CopyOnWriteArrayList<>();
+  private volatile T                      value_;
+  
+  /* package */ ConfigurationBinding(Configuration configuration, Class<T> type)
+  {
+    type_ = type;
+    value_ = ConfigurationBinder.bind(configuration, type);
+    
+    configuration.addListener(this);
+  }
+
+  /**
+   * @return The instance bound to the current configuration snapshot.
+   */
+  public T get()
+  {
+    return value_;
+  }
+  
+  /**
+   * Add a listener to be called with each new bound instance.
+   * 
+   * @param listener A listener.
+   * 
+   * @return this (fluent method)
+   */
+  public ConfigurationBinding<T> withListener(Consumer<? super T> listener)
+  {
+    listeners_.add(listener);
+    
+    return this;
+  }
+
+  @Override
+  public void configurationChanged(IConfiguration configuration, Set<String> changedPaths)
+  {
+    T value;
+    
+    try
+    {
+      value = ConfigurationBinder.bind(configuration, type_);
+    }
+    catch(ProgramFault e)
+    {
+      log_.error("Reloaded configuration is invalid, the previous " + type_.getSimpleName() + " remains in force", e);
+      return;
+    }
+    
+    value_ = value;
+    
+    for(Consumer<? super T> listener : listeners_)
+      listener.accept(value);
+  }
+}
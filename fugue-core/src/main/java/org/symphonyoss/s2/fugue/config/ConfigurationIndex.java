@@ -0,0 +1,160 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * An immutable, flattened index of a configuration tree.
+ * 
+ * The index is built once from a JSON tree and maps the full slash separated path of every property
+ * to a pre-typed ConfigurationValue, so lookups need no parsing, locking or exception handling. Every
+ * nested object also has its own index relative to itself, which is shared by sub-configurations.
+ * 
+ * Keys which themselves contain a slash cannot be addressed by a path and are not indexed.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public final class ConfigurationIndex
+{
+  /** An index with no values. */
+  public static final ConfigurationIndex EMPTY = new ConfigurationIndex(null, Collections.emptyMap(), Collections.emptyMap());
+  
+  private final JsonNode                        tree_;
+  private final Map<String, ConfigurationValue> values_;
+  private final Map<String, ConfigurationIndex> children_;
+
+  private ConfigurationIndex(JsonNode tree, Map<String, ConfigurationValue> values, Map<String, ConfigurationIndex> children)
+  {
+    tree_ = tree;
+    values_ = values;
+    children_ = children;
+  }
+
+  /**
+   * Build an index of the given tree.
+   * 
+   * @param tree A JSON object.
+   * 
+   * @return An index of the given tree, which is EMPTY if the tree is null or not an object.
+   */
+  public static @Nonnull ConfigurationIndex build(@Nullable JsonNode tree)
+  {
+    if(tree == null || !tree.isObject() || tree.size() == 0)
+      return EMPTY;
+    
+    Map<String, ConfigurationValue> values    = new HashMap<>();
+    Map<String, ConfigurationIndex> children  = new HashMap<>();
+    Iterator<Entry<String, JsonNode>> it      = tree.fields();
+    
+    while(it.hasNext())
+    {
+      Entry<String, JsonNode> field = it.next();
+      String                  name  = field.getKey();
+      JsonNode                node  = field.getValue();
+      
+      if(name.indexOf('/') != -1)
+        continue;
+      
+      values.put(name, new ConfigurationValue(node));
+      
+      if(node.isObject())
+      {
+        ConfigurationIndex child = build(node);
+        
+        children.put(name, child);
+        
+        for(Entry<String, ConfigurationValue> entry : child.values_.entrySet())
+          values.put(name + "/" + entry.getKey(), entry.getValue());
+        
+        for(Entry<String, ConfigurationIndex> entry : child.children_.entrySet())
+          children.put(name + "/" + entry.getKey(), entry.getValue());
+      }
+    }
+    
+    return new ConfigurationIndex(tree, Collections.unmodifiableMap(values), Collections.unmodifiableMap(children));
+  }
+
+  /**
+   * Return the value at the given path.
+   * 
+   * @param path A slash separated path relative to the root of this index.
+   * 
+   * @return The value at the given path, or ConfigurationValue.ABSENT if there is none.
+   */
+  public @Nonnull ConfigurationValue get(String path)
+  {
+    ConfigurationValue value = values_.get(path);
+    
+    return value == null ? ConfigurationValue.ABSENT : value;
+  }
+
+  /**
+   * Return the index of the nested object at the given path.
+   * 
+   * @param path A slash separated path relative to the root of this index.
+   * 
+   * @return The index of the given object, or EMPTY if there is no object at that path.
+   */
+  public @Nonnull ConfigurationIndex getIndex(String path)
+  {
+    ConfigurationIndex index = children_.get(path);
+    
+    return index == null ? EMPTY : index;
+  }
+
+  /**
+   * @return The tree from which this index was built, or null if this index is EMPTY.
+   */
+  public @Nullable JsonNode getTree()
+  {
+    return tree_;
+  }
+
+  /**
+   * @return The paths of all values in this index.
+   */
+  public @Nonnull Set<String> getPaths()
+  {
+    return values_.keySet();
+  }
+
+  /**
+   * @return The number of values in this index.
+   */
+  public int size()
+  {
+    return values_.size();
+  }
+}
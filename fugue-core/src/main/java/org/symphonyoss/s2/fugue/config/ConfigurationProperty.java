@@ -0,0 +1,55 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Customises how a getter method or field is bound by ConfigurationBinder.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.FIELD})
+public @interface ConfigurationProperty
+{
+  /**
+   * @return The name of the configuration property, by default derived from the method or field name.
+   */
+  String name() default "";
+  
+  /**
+   * @return Whether the property must be present, ignored if a default value is given.
+   */
+  boolean required() default true;
+  
+  /**
+   * @return The value to be used if the property is absent, as it would appear in the configuration,
+   *         the empty string means there is no default.
+   */
+  String defaultValue() default "";
+}
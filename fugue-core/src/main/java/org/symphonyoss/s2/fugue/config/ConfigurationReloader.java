@@ -0,0 +1,203 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.common.concurrent.NamedThreadFactory;
+import org.symphonyoss.s2.fugue.FugueComponentState;
+import org.symphonyoss.s2.fugue.IFugueComponent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A component which periodically reloads a Configuration from its source.
+ * 
+ * Each poll asks the source for the tree only if it has changed, and a changed tree is swapped into the
+ * configuration as a new immutable snapshot, which notifies any registered IConfigurationListeners.
+ * If a reload fails the previous snapshot remains in force.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ConfigurationReloader implements IFugueComponent
+{
+  /** The default interval between polls of the configuration source. */
+  public static final long DEFAULT_POLL_INTERVAL_MILLIS = 30000;
+  
+  private static final Logger log_ = LoggerFactory.getLogger(ConfigurationReloader.class);
+  
+  private final Configuration        configuration_;
+  private final IConfigurationSource source_;
+  private long                       pollIntervalMillis_ = DEFAULT_POLL_INTERVAL_MILLIS;
+  private ScheduledExecutorService   executor_;
+  private volatile long              reloadCount_;
+  private volatile long              failureCount_;
+  private volatile String            lastError_;
+
+  /**
+   * Create a reloader for a configuration which was loaded from a reloadable source.
+   * 
+   * @param configuration A configuration.
+   * 
+   * @throws IllegalArgumentException If the given configuration has no source.
+   */
+  public ConfigurationReloader(IConfiguration configuration)
+  {
+    this(toConfiguration(configuration), ((Configuration)configuration).getSource());
+  }
+  
+  /**
+   * Create a reloader which loads the given configuration from the given source.
+   * 
+   * @param configuration A configuration.
+   * @param source        The source from which to reload it.
+   */
+  public ConfigurationReloader(Configuration configuration, IConfigurationSource source)
+  {
+    if(source == null)
+      throw new IllegalArgumentException("Configuration " + configuration.getName() + " is not reloadable");
+    
+    configuration_ = configuration;
+    source_ = source;
+  }
+
+  private static Configuration toConfiguration(IConfiguration configuration)
+  {
+    if(!(configuration instanceof Configuration))
+      throw new IllegalArgumentException("Configuration " + configuration.getName() + " is not reloadable");
+    
+    return (Configuration)configuration;
+  }
+
+  /**
+   * Set the interval between polls of the configuration source.
+   * 
+   * @param pollIntervalMillis The interval between polls in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized ConfigurationReloader withPollIntervalMillis(long pollIntervalMillis)
+  {
+    if(pollIntervalMillis < 1)
+      throw new IllegalArgumentException("pollIntervalMillis must be >= 1");
+    
+    pollIntervalMillis_ = pollIntervalMillis;
+    
+    return this;
+  }
+
+  @Override
+  public synchronized void start()
+  {
+    if(executor_ != null)
+      return;
+    
+    executor_ = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("ConfigReloader", true));
+    executor_.scheduleWithFixedDelay(this::reload, pollIntervalMillis_, pollIntervalMillis_, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public synchronized void stop()
+  {
+    if(executor_ != null)
+    {
+      executor_.shutdownNow();
+      executor_ = null;
+    }
+    
+    source_.close();
+  }
+
+  /**
+   * Check the source now and swap in a new snapshot if it has changed.
+   * 
+   * @return true if a new snapshot was loaded.
+   */
+  public synchronized boolean reload()
+  {
+    try
+    {
+      JsonNode tree = source_.fetchIfChanged();
+      
+      lastError_ = null;
+      
+      if(tree == null)
+        return false;
+      
+      configuration_.setTree(tree);
+      reloadCount_++;
+      
+      log_.info("Reloaded configuration from {}", source_);
+      
+      return true;
+    }
+    catch(IOException | RuntimeException e)
+    {
+      failureCount_++;
+      lastError_ = e.toString();
+      
+      log_.warn("Failed to reload configuration from " + source_ + ", the previous configuration remains in force", e);
+      
+      return false;
+    }
+  }
+
+  /**
+   * @return The number of times a changed configuration has been loaded.
+   */
+  public long getReloadCount()
+  {
+    return reloadCount_;
+  }
+
+  /**
+   * @return The number of polls which failed.
+   */
+  public long getFailureCount()
+  {
+    return failureCount_;
+  }
+
+  @Override
+  public FugueComponentState getComponentState()
+  {
+    return lastError_ == null ? FugueComponentState.OK : FugueComponentState.Warn;
+  }
+
+  @Override
+  public String getComponentStatusMessage()
+  {
+    String lastError = lastError_;
+    
+    if(lastError == null)
+      return "Reloaded " + reloadCount_ + " times from " + source_;
+    
+    return "Last reload from " + source_ + " failed: " + lastError;
+  }
+}
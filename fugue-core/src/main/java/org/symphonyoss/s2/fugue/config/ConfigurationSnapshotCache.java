@@ -0,0 +1,411 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.common.concurrent.NamedThreadFactory;
+import org.symphonyoss.s2.fugue.Fugue;
+import org.symphonyoss.s2.fugue.metrics.IMetricsCollector;
+import org.symphonyoss.s2.fugue.metrics.IMetricsSource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A local on-disk cache of the last good snapshot of remote configurations.
+ * 
+ * When a configuration is loaded and a snapshot of it exists, the remote source is asked to revalidate
+ * the snapshot's ETag. If the remote does not answer within the remote timeout the configuration starts
+ * from the snapshot immediately and the remote result is applied in the background when it arrives, so
+ * a slow remote store does not delay startup. A snapshot older than the max age, if one is set, is
+ * ignored.
+ * 
+ * The default cache is registered as a metrics source by FugueServer.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ConfigurationSnapshotCache implements IMetricsSource
+{
+  /** The default cache directory, relative to the working directory. */
+  public static final String DEFAULT_DIRECTORY              = "config-cache";
+  
+  /** The default time to wait for the remote source before starting from the snapshot. */
+  public static final long   DEFAULT_REMOTE_TIMEOUT_MILLIS  = 2000;
+  
+  /** The value of FUGUE_CONFIG_CACHE which disables the cache. */
+  public static final String NONE                           = "none";
+  
+  private static final Logger log_ = LoggerFactory.getLogger(ConfigurationSnapshotCache.class);
+
+  private static final String ETAG      = "etag";
+  private static final String SAVED_AT  = "savedAt";
+  private static final String SOURCE    = "source";
+  private static final String CONFIG    = "config";
+  
+  private static ConfigurationSnapshotCache defaultCache_;
+  
+  private final File       directory_;
+  private long             maxAgeMillis_          = 0;
+  private long             remoteTimeoutMillis_   = DEFAULT_REMOTE_TIMEOUT_MILLIS;
+  private final AtomicLong hitCount_              = new AtomicLong();
+  private final AtomicLong missCount_             = new AtomicLong();
+  private final AtomicLong staleCount_            = new AtomicLong();
+  private final AtomicLong remoteFailureCount_    = new AtomicLong();
+  private volatile long    lastLoadMillis_;
+
+  /**
+   * Constructor.
+   * 
+   * @param directory The directory in which snapshots are stored.
+   */
+  public ConfigurationSnapshotCache(File directory)
+  {
+    directory_ = directory;
+  }
+
+  /**
+   * Return the cache configured by the FUGUE_CONFIG_CACHE and FUGUE_CONFIG_CACHE_MAX_AGE_MILLIS environment
+   * variables, which is in DEFAULT_DIRECTORY under the working directory unless otherwise configured.
+   * 
+   * @return The default cache, or null if it is disabled.
+   */
+  public static synchronized @Nullable ConfigurationSnapshotCache getDefault()
+  {
+    String directory = Fugue.getProperty(Fugue.FUGUE_CONFIG_CACHE, DEFAULT_DIRECTORY);
+    
+    if(NONE.equalsIgnoreCase(directory.trim()))
+      return null;
+    
+    if(defaultCache_ == null)
+    {
+      defaultCache_ = new ConfigurationSnapshotCache(new File(directory));
+      
+      String maxAge = Fugue.getProperty(Fugue.FUGUE_CONFIG_CACHE_MAX_AGE_MILLIS);
+      
+      if(maxAge != null)
+        defaultCache_.withMaxAgeMillis(Long.parseLong(maxAge.trim()));
+    }
+    
+    return defaultCache_;
+  }
+
+  /**
+   * Set the maximum age of a snapshot which may be used.
+   * 
+   * @param maxAgeMillis The maximum age in milliseconds, or zero for no limit.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized ConfigurationSnapshotCache withMaxAgeMillis(long maxAgeMillis)
+  {
+    if(maxAgeMillis < 0)
+      throw new IllegalArgumentException("maxAgeMillis must be >= 0");
+    
+    maxAgeMillis_ = maxAgeMillis;
+    
+    return this;
+  }
+
+  /**
+   * Set the time to wait for the remote source before starting from a snapshot.
+   * 
+   * @param remoteTimeoutMillis The timeout in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized ConfigurationSnapshotCache withRemoteTimeoutMillis(long remoteTimeoutMillis)
+  {
+    if(remoteTimeoutMillis < 0)
+      throw new IllegalArgumentException("remoteTimeoutMillis must be >= 0");
+    
+    remoteTimeoutMillis_ = remoteTimeoutMillis;
+    
+    return this;
+  }
+
+  /**
+   * Load the given configuration from the given source, using a snapshot if the source is slow.
+   * 
+   * @param configuration A configuration.
+   * @param source        The remote source of the configuration.
+   * 
+   * @throws IOException If there is no usable snapshot and the source cannot be read.
+   */
+  public void load(Configuration configuration, IConfigurationSource source) throws IOException
+  {
+    long     startNanos = System.nanoTime();
+    Snapshot snapshot   = read(source);
+    
+    configuration.setSource(source);
+    
+    if(snapshot == null)
+    {
+      missCount_.incrementAndGet();
+      
+      JsonNode tree = source.fetchIfChanged();
+      
+      if(tree == null)
+        throw new IOException("No configuration returned by " + source);
+      
+      configuration.setTree(tree);
+      write(source, tree);
+      
+      loaded(startNanos, "Config cache miss for {}, loaded from remote in {}ms", source);
+      return;
+    }
+    
+    hitCount_.incrementAndGet();
+    source.setETag(snapshot.etag_);
+    
+    CompletableFuture<JsonNode> remote = new CompletableFuture<>();
+    
+    new NamedThreadFactory("ConfigRevalidate", true).newThread(() ->
+    {
+      try
+      {
+        remote.complete(source.fetchIfChanged());
+      }
+      catch(IOException | RuntimeException e)
+      {
+        remote.completeExceptionally(e);
+      }
+    }).start();
+    
+    try
+    {
+      JsonNode tree = remote.get(remoteTimeoutMillis_, TimeUnit.MILLISECONDS);
+      
+      if(tree == null)
+      {
+        configuration.setTree(snapshot.tree_);
+        loaded(startNanos, "Config cache hit for {}, revalidated in {}ms", source);
+      }
+      else
+      {
+        configuration.setTree(tree);
+        write(source, tree);
+        loaded(startNanos, "Config cache hit for {} was out of date, loaded from remote in {}ms", source);
+      }
+    }
+    catch(TimeoutException e)
+    {
+      staleCount_.incrementAndGet();
+      configuration.setTree(snapshot.tree_);
+      loaded(startNanos, "Config cache hit for {}, remote is slow, started from snapshot in {}ms", source);
+      
+      remote.whenComplete((tree, error) ->
+      {
+        if(error != null)
+        {
+          remoteFailed(source, error);
+        }
+        else if(tree != null)
+        {
+          configuration.setTree(tree);
+          write(source, tree);
+          log_.info("Config for {} revalidated in the background, snapshot was out of date", source);
+        }
+        else
+        {
+          log_.info("Config for {} revalidated in the background, snapshot is current", source);
+        }
+      });
+    }
+    catch(ExecutionException e)
+    {
+      remoteFailed(source, e.getCause());
+      configuration.setTree(snapshot.tree_);
+      loaded(startNanos, "Config cache hit for {}, remote failed, started from snapshot in {}ms", source);
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      configuration.setTree(snapshot.tree_);
+      loaded(startNanos, "Config cache hit for {}, interrupted, started from snapshot in {}ms", source);
+    }
+  }
+
+  private void loaded(long startNanos, String message, IConfigurationSource source)
+  {
+    lastLoadMillis_ = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    
+    log_.info(message, source, lastLoadMillis_);
+  }
+
+  private void remoteFailed(IConfigurationSource source, Throwable cause)
+  {
+    remoteFailureCount_.incrementAndGet();
+    log_.warn("Failed to revalidate config for " + source + ", continuing with the cached snapshot", cause);
+  }
+
+  /* package */ File getFile(IConfigurationSource source)
+  {
+    return new File(directory_, source.toString().replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+  }
+  
+  private @Nullable Snapshot read(IConfigurationSource source)
+  {
+    File file = getFile(source);
+    
+    if(!file.isFile())
+      return null;
+    
+    try
+    {
+      JsonNode snapshot = new ObjectMapper().readTree(file);
+      JsonNode tree     = snapshot.get(CONFIG);
+      long     savedAt  = snapshot.path(SAVED_AT).asLong();
+      
+      if(tree == null || !tree.isObject() || !source.toString().equals(snapshot.path(SOURCE).asText()))
+      {
+        log_.warn("Ignoring invalid config snapshot " + file.getAbsolutePath());
+        return null;
+      }
+      
+      long maxAgeMillis = maxAgeMillis_;
+      
+      if(maxAgeMillis > 0 && System.currentTimeMillis() - savedAt > maxAgeMillis)
+      {
+        log_.info("Ignoring config snapshot " + file.getAbsolutePath() + " which is older than " + maxAgeMillis + "ms");
+        return null;
+      }
+      
+      JsonNode etag = snapshot.get(ETAG);
+      
+      return new Snapshot(tree, etag == null || etag.isNull() ? null : etag.asText());
+    }
+    catch(IOException e)
+    {
+      log_.warn("Failed to read config snapshot " + file.getAbsolutePath(), e);
+      return null;
+    }
+  }
+
+  private void write(IConfigurationSource source, JsonNode tree)
+  {
+    File file = getFile(source);
+    
+    try
+    {
+      ObjectMapper  mapper    = new ObjectMapper();
+      ObjectNode    snapshot  = mapper.createObjectNode();
+      
+      snapshot.put(SOURCE, source.toString());
+      snapshot.put(ETAG, source.getETag());
+      snapshot.put(SAVED_AT, System.currentTimeMillis());
+      snapshot.set(CONFIG, tree);
+      
+      Files.createDirectories(directory_.toPath());
+      
+      Path tmp = Files.createTempFile(directory_.toPath(), file.getName(), ".tmp");
+      
+      try
+      {
+        // Configuration may contain sensitive values.
+        Files.setPosixFilePermissions(tmp, PosixFilePermissions.fromString("rw-------"));
+      }
+      catch(UnsupportedOperationException e)
+      {
+        // Not a POSIX file system
+      }
+      
+      mapper.writeValue(tmp.toFile(), snapshot);
+      Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch(IOException | RuntimeException e)
+    {
+      log_.warn("Failed to write config snapshot " + file.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * @return The number of loads which found a usable snapshot.
+   */
+  public long getHitCount()
+  {
+    return hitCount_.get();
+  }
+
+  /**
+   * @return The number of loads which had no usable snapshot.
+   */
+  public long getMissCount()
+  {
+    return missCount_.get();
+  }
+
+  /**
+   * @return The number of loads which started from a snapshot because the remote was slow.
+   */
+  public long getStaleCount()
+  {
+    return staleCount_.get();
+  }
+
+  /**
+   * @return The time taken by the most recent load in milliseconds.
+   */
+  public long getLastLoadMillis()
+  {
+    return lastLoadMillis_;
+  }
+
+  @Override
+  public void collectMetrics(IMetricsCollector collector)
+  {
+    collector.counter("fugue_config_cache_hits_total", "Configuration loads which found a usable snapshot", hitCount_.get());
+    collector.counter("fugue_config_cache_misses_total", "Configuration loads which had no usable snapshot", missCount_.get());
+    collector.counter("fugue_config_cache_stale_starts_total", "Configuration loads which started from a snapshot because the remote was slow", staleCount_.get());
+    collector.counter("fugue_config_cache_remote_failures_total", "Failed revalidations of a snapshot", remoteFailureCount_.get());
+    collector.gauge("fugue_config_load_millis", "Time taken by the most recent configuration load", lastLoadMillis_);
+  }
+  
+  private static class Snapshot
+  {
+    private final JsonNode tree_;
+    private final String   etag_;
+    
+    private Snapshot(JsonNode tree, String etag)
+    {
+      tree_ = tree;
+      etag_ = etag;
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * An immutable, pre-typed configuration value.
+ * 
+ * Values are held in a ConfigurationIndex and are parsed once when the index is built. A lookup of a
+ * property which does not exist returns ABSENT rather than throwing an exception.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public final class ConfigurationValue
+{
+  /** The value returned by lookups of properties which do not exist. */
+  public static final ConfigurationValue ABSENT = new ConfigurationValue();
+  
+  private final JsonNode     node_;
+  private final String       text_;
+  private final Long         long_;
+  private final boolean      boolean_;
+  private final List<String> array_;
+
+  private ConfigurationValue()
+  {
+    node_     = null;
+    text_     = null;
+    long_     = null;
+    boolean_  = false;
+    array_    = Collections.emptyList();
+  }
+  
+  /* package */ ConfigurationValue(JsonNode node)
+  {
+    node_     = node;
+    text_     = node.asText();
+    long_     = parseLong(text_);
+    boolean_  = "true".equalsIgnoreCase(text_);
+    
+    List<String> array = new ArrayList<>();
+    
+    if(node.isArray())
+    {
+      for(JsonNode child : node)
+      {
+        array.add(child.asText());
+      }
+    }
+    else
+    {
+      for(String s : text_.split(" *, *"))
+      {
+        array.add(s);
+      }
+    }
+    
+    array_ = Collections.unmodifiableList(array);
+  }
+
+  private static Long parseLong(String s)
+  {
+    try
+    {
+      return Long.parseLong(s);
+    }
+    catch(NumberFormatException e)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * @return true if this value exists.
+   */
+  public boolean isPresent()
+  {
+    return node_ != null;
+  }
+  
+  /**
+   * @return true if this value is a nested object.
+   */
+  public boolean isObject()
+  {
+    return node_ != null && node_.isObject();
+  }
+
+  /**
+   * @return true if this value can be parsed as a long integer.
+   */
+  public boolean isLong()
+  {
+    return long_ != null;
+  }
+
+  /**
+   * @return The underlying JSON node, or null if this value is absent.
+   */
+  public @Nullable JsonNode getNode()
+  {
+    return node_;
+  }
+
+  /**
+   * @return The text of this value, or null if it is absent.
+   */
+  public @Nullable String getString()
+  {
+    return text_;
+  }
+
+  /**
+   * @param defaultValue The value to be returned if this value is absent.
+   * 
+   * @return The text of this value, or the given default if it is absent.
+   */
+  public String getString(String defaultValue)
+  {
+    return text_ == null ? defaultValue : text_;
+  }
+
+  /**
+   * @param defaultValue The value to be returned if this value is absent or not a long integer.
+   * 
+   * @return The value of this value as a long integer.
+   */
+  public long getLong(long defaultValue)
+  {
+    return long_ == null ? defaultValue : long_;
+  }
+
+  /**
+   * @param defaultValue The value to be returned if this value is absent.
+   * 
+   * @return true if the text of this value is "true", ignoring case.
+   */
+  public boolean getBoolean(boolean defaultValue)
+  {
+    return node_ == null ? defaultValue : boolean_;
+  }
+
+  /**
+   * A JSON array is returned element by element, any other value is split on commas.
+   * 
+   * @return The value of this value as an unmodifiable list of Strings, which is empty if it is absent.
+   */
+  public List<String> getStringArray()
+  {
+    return array_;
+  }
+
+  @Override
+  public String toString()
+  {
+    return node_ == null ? "ABSENT" : text_;
+  }
+}
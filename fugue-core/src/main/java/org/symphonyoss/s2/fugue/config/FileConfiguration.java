@@ -24,22 +24,18 @@
 package org.symphonyoss.s2.fugue.config;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.common.fault.ProgramFault;
 import org.symphonyoss.s2.fugue.Fugue;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
  * An implementation of IConfiguration which reads a JSON document from a file.
  * 
+ * The configuration can be reloaded when the file changes with a ConfigurationReloader.
+ * 
  * @author Bruce Skingle
  *
  */
@@ -65,42 +61,24 @@ public class FileConfiguration extends Configuration
     
     if(file.exists())
     {
-      try(InputStream in = new FileInputStream(file))
-      {
-        log_.info("Loading config from file " + file.getAbsolutePath());
-        
-        loadConfig(in);
-        setName(file.getAbsolutePath() + " ");
-      }
-      catch (FileNotFoundException e)
+      log_.info("Loading config from file " + file.getAbsolutePath());
+      
+      FileConfigurationSource source = new FileConfigurationSource(file);
+      
+      try
       {
-        throw new ProgramFault(variableName + " is " + fugueConfig + " but this file does not exist.", e);
+        load(source, null);
       }
       catch (IOException e)
       {
-        log_.warn("Failed to close config input", e);
+        throw new ProgramFault("Cannot parse config.", e);
       }
+      
+      setName(file.getAbsolutePath() + " ");
     }
     else
     {
       throw new ProgramFault(variableName + " is " + fugueConfig + " but this file does not exist.");
     }
   }
-
-
-  private void loadConfig(InputStream in)
-  {
-    ObjectMapper mapper = new ObjectMapper();
-    
-    try
-    {
-      JsonNode configSpec = mapper.readTree(in);
-      
-      setTree(configSpec);
-    }
-    catch (IOException e1)
-    {
-      throw new ProgramFault("Cannot parse config.", e1);
-    }
-  }
 }
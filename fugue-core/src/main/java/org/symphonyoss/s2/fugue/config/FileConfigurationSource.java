@@ -0,0 +1,152 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * An IConfigurationSource which reads a JSON document from a file.
+ * 
+ * After the initial load a WatchService is registered on the directory containing the file, so that
+ * subsequent checks only read the file when it has been modified.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class FileConfigurationSource implements IConfigurationSource
+{
+  private static final Logger log_ = LoggerFactory.getLogger(FileConfigurationSource.class);
+  
+  private final Path   path_;
+  private WatchService watchService_;
+  private byte[]       content_;
+  private long         lastModified_;
+
+  /**
+   * Constructor.
+   * 
+   * @param file The file containing the configuration.
+   */
+  public FileConfigurationSource(File file)
+  {
+    path_ = file.getAbsoluteFile().toPath();
+  }
+
+  @Override
+  public synchronized @Nullable JsonNode fetchIfChanged() throws IOException
+  {
+    if(content_ == null)
+      return read();
+    
+    if(watchService_ == null)
+    {
+      watchService_ = FileSystems.getDefault().newWatchService();
+      path_.getParent().register(watchService_, ENTRY_CREATE, ENTRY_MODIFY);
+      
+      // The file may have changed before the watch was registered.
+      if(path_.toFile().lastModified() != lastModified_)
+        return read();
+      
+      return null;
+    }
+    
+    boolean modified = false;
+    WatchKey key;
+    
+    while((key = watchService_.poll()) != null)
+    {
+      for(WatchEvent<?> event : key.pollEvents())
+      {
+        if(path_.getFileName().equals(event.context()))
+          modified = true;
+      }
+      
+      key.reset();
+    }
+    
+    return modified ? read() : null;
+  }
+
+  private @Nullable JsonNode read() throws IOException
+  {
+    lastModified_ = path_.toFile().lastModified();
+    
+    byte[] content = Files.readAllBytes(path_);
+    
+    // An empty file is most likely being rewritten, we will see another event when it has been.
+    if(content.length == 0 || Arrays.equals(content, content_))
+      return null;
+    
+    JsonNode tree = new ObjectMapper().readTree(content);
+    
+    if(tree == null || !tree.isObject())
+      throw new IOException(path_ + " does not contain a JSON object");
+    
+    content_ = content;
+    
+    return tree;
+  }
+
+  @Override
+  public synchronized void close()
+  {
+    if(watchService_ != null)
+    {
+      try
+      {
+        watchService_.close();
+      }
+      catch (IOException e)
+      {
+        log_.warn("Failed to close watch service for " + path_, e);
+      }
+      
+      watchService_ = null;
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return path_.toString();
+  }
+}
@@ -31,7 +31,6 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 
-import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.common.fault.ProgramFault;
@@ -151,18 +150,9 @@ public class GitHubConfiguration extends Configuration
     {
       URL configUrl = new URL(urlNode.asText());
       
-      String host = configUrl.getHost();
-      
-      switch(host)
-      {
-        case "api.github.com":
-          loadFromGitHub(configUrl);
-          break;
-        
-        default:
-          // We will assume that the url just returns the raw config data
-          loadFromUrl(configUrl);
-      }
+      // UrlConfigurationSource decodes content from api.github.com, otherwise we
+      // will assume that the url just returns the raw config data
+      loadFromUrl(configUrl);
     }
     catch (MalformedURLException e)
     {
@@ -172,34 +162,11 @@ public class GitHubConfiguration extends Configuration
   
   private void loadFromUrl(URL configUrl)
   {
-    try(InputStream in =configUrl.openStream())
-    {
-      ObjectMapper mapper = new ObjectMapper();
-      
-      setTree(mapper.readTree(in));
-    }
-    catch (IOException e)
-    {
-      throw new ProgramFault("FUGUE_CONFIG is " + configUrl + " but this URL is not readable", e);
-    }
-  }
-
-  private void loadFromGitHub(URL configUrl)
-  {
-    try(InputStream in =configUrl.openStream())
+    UrlConfigurationSource source = new UrlConfigurationSource(configUrl);
+    
+    try
     {
-      ObjectMapper mapper = new ObjectMapper();
-      
-      JsonNode tree = mapper.readTree(in);
-      
-      JsonNode content = tree.get("content");
-      
-      if(content == null || !content.isTextual())
-        throw new RuntimeException("FUGUE_CONFIG is " + configUrl + " but there is no content node in the JSON there");
-      
-      byte[] bytes = Base64.decodeBase64(content.asText());
-      
-      setTree(mapper.readTree(bytes));
+      load(source, ConfigurationSnapshotCache.getDefault());
     }
     catch (IOException e)
     {
@@ -0,0 +1,47 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import java.util.Set;
+
+/**
+ * A listener for changes to a reloadable configuration.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+@FunctionalInterface
+public interface IConfigurationListener
+{
+  /**
+   * Called after a new configuration snapshot has been swapped in, if any of the paths for which
+   * this listener was registered have changed.
+   * 
+   * Listeners are called on the thread which reloaded the configuration and should not block.
+   * 
+   * @param configuration The configuration on which this listener was registered, which already
+   *                      returns the new values.
+   * @param changedPaths  The paths which changed, relative to that configuration.
+   */
+  void configurationChanged(IConfiguration configuration, Set<String> changedPaths);
+}
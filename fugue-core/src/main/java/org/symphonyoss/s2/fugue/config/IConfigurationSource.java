@@ -0,0 +1,74 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A source from which a configuration tree can be loaded and reloaded.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public interface IConfigurationSource extends Closeable
+{
+  /**
+   * Fetch the configuration tree if it has changed since the last call.
+   * 
+   * Implementations should make this check as cheap as possible, for example with a conditional request.
+   * 
+   * @return The new configuration tree, or null if it is unchanged since the previous call.
+   * 
+   * @throws IOException If the configuration cannot be read or parsed.
+   */
+  @Nullable JsonNode fetchIfChanged() throws IOException;
+  
+  /**
+   * @return An opaque version identifier, such as an HTTP ETag, of the tree last returned by
+   *         fetchIfChanged(), or null if this source does not support versions.
+   */
+  default @Nullable String getETag()
+  {
+    return null;
+  }
+  
+  /**
+   * Set the version identifier of a tree which the caller already holds, so that the next call to
+   * fetchIfChanged() returns null if the source is still at that version.
+   * 
+   * @param etag A version identifier previously returned by getETag().
+   */
+  default void setETag(@Nullable String etag)
+  {
+  }
+  
+  @Override
+  default void close()
+  {
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * An IConfigurationSource which reads a JSON document from a URL.
+ * 
+ * HTTP requests are conditional on the ETag and Last-Modified headers of the previous response, so an
+ * unchanged document is not transferred again. Documents served by the GitHub contents API are decoded
+ * from the base64 content node.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class UrlConfigurationSource implements IConfigurationSource
+{
+  private static final String GITHUB_API = "api.github.com";
+  
+  private final URL    url_;
+  private String       etag_;
+  private long         lastModified_;
+  private byte[]       content_;
+
+  /**
+   * Constructor.
+   * 
+   * @param url The URL of the configuration.
+   */
+  public UrlConfigurationSource(URL url)
+  {
+    url_ = url;
+  }
+
+  @Override
+  public synchronized @Nullable JsonNode fetchIfChanged() throws IOException
+  {
+    URLConnection connection = url_.openConnection();
+    
+    if(connection instanceof HttpURLConnection)
+    {
+      if(etag_ != null)
+        connection.setRequestProperty("If-None-Match", etag_);
+      
+      if(lastModified_ != 0)
+        connection.setIfModifiedSince(lastModified_);
+      
+      int responseCode = ((HttpURLConnection)connection).getResponseCode();
+      
+      if(responseCode == HttpURLConnection.HTTP_NOT_MODIFIED)
+        return null;
+      
+      if(responseCode != HttpURLConnection.HTTP_OK)
+        throw new IOException("Unexpected response " + responseCode + " from " + url_);
+    }
+    
+    byte[] content;
+    
+    try(InputStream in = connection.getInputStream())
+    {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[]                buf = new byte[4096];
+      int                   nbytes;
+      
+      while((nbytes = in.read(buf)) != -1)
+        out.write(buf, 0, nbytes);
+      
+      content = out.toByteArray();
+    }
+    
+    etag_ = connection.getHeaderField("ETag");
+    lastModified_ = connection.getLastModified();
+    
+    if(Arrays.equals(content, content_))
+      return null;
+    
+    ObjectMapper  mapper  = new ObjectMapper();
+    JsonNode      tree    = mapper.readTree(content);
+    
+    if(GITHUB_API.equals(url_.getHost()))
+    {
+      JsonNode gitHubContent = tree.get("content");
+      
+      if(gitHubContent == null || !gitHubContent.isTextual())
+        throw new IOException(url_ + " has no content node in the JSON there");
+      
+      tree = mapper.readTree(Base64.decodeBase64(gitHubContent.asText()));
+    }
+    
+    if(tree == null || !tree.isObject())
+      throw new IOException(url_ + " does not contain a JSON object");
+    
+    content_ = content;
+    
+    return tree;
+  }
+
+  @Override
+  public synchronized @Nullable String getETag()
+  {
+    return etag_;
+  }
+
+  @Override
+  public synchronized void setETag(@Nullable String etag)
+  {
+    etag_ = etag;
+  }
+
+  @Override
+  public String toString()
+  {
+    return url_.toString();
+  }
+}
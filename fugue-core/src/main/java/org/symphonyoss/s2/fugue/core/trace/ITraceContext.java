@@ -25,6 +25,8 @@ package org.symphonyoss.s2.fugue.core.trace;
 
 import java.time.Instant;
 
+import javax.annotation.Nullable;
+
 import org.symphonyoss.s2.common.hash.Hash;
 
 /**
@@ -60,6 +62,18 @@ public interface ITraceContext
    */
   Instant getTimestamp();
 
+  /**
+   * Return an ID for this context which can be carried to another process, for example as a message attribute,
+   * and passed to {@link ITraceContextFactory#createTransaction(String, String, Instant, String)} there so that
+   * the remote transaction can be related to this one.
+   * 
+   * @return The propagatable ID of this context, or null if this context cannot be propagated.
+   */
+  default @Nullable String getTraceId()
+  {
+    return null;
+  }
+
   /**
    * Record an operation having taken place within a trace context.
    * 
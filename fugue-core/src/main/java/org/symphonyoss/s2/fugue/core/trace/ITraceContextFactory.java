@@ -47,4 +47,22 @@ public interface ITraceContextFactory
 
   ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime);
 
+  /**
+   * Create a TraceTransaction with the given subject, which continues a trace from another process.
+   * 
+   * Implementations which cannot relate transactions to a remote parent ignore the parent ID.
+   * 
+   * @param subjectType   The type of the subject of the transaction
+   * @param subjectId     The ID of the subject of the transaction.
+   * @param startTime     The time at which the transaction started, for a received message this is the
+   *                      time at which the message was sent so that queue wait time is included.
+   * @param parentTraceId The value of ITraceContext.getTraceId() of the remote context, or null.
+   * 
+   * @return  An ITraceTransaction.
+   */
+  default ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime, @Nullable String parentTraceId)
+  {
+    return createTransaction(subjectType, subjectId, startTime);
+  }
+
 }
@@ -0,0 +1,83 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace;
+
+import javax.annotation.Nullable;
+
+/**
+ * Holds the trace context of the current thread.
+ * 
+ * The context is captured by FugueRunnable and FugueCallable when a task is submitted to a FugueExecutorService
+ * and restored when the task runs, so that work handed to an executor continues in the context which
+ * submitted it.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class TraceContextHolder
+{
+  private static final ThreadLocal<ITraceContext> context_ = new ThreadLocal<>();
+  
+  private TraceContextHolder()
+  {}
+  
+  /**
+   * @return The trace context of the current thread, or null if there is none.
+   */
+  public static @Nullable ITraceContext get()
+  {
+    return context_.get();
+  }
+  
+  /**
+   * @return The trace context of the current thread, or the no-op context if there is none.
+   */
+  public static ITraceContext getOrNoOp()
+  {
+    ITraceContext context = context_.get();
+    
+    return context == null ? NoOpTraceContext.INSTANCE : context;
+  }
+  
+  /**
+   * Set the trace context of the current thread.
+   * 
+   * Callers should restore the previous value when they have finished, typically in a finally block.
+   * 
+   * @param context The new trace context, or null to clear it.
+   * 
+   * @return The previous trace context of the current thread, or null if there was none.
+   */
+  public static @Nullable ITraceContext set(@Nullable ITraceContext context)
+  {
+    ITraceContext previous = context_.get();
+    
+    if(context == null)
+      context_.remove();
+    else
+      context_.set(context);
+    
+    return previous;
+  }
+}
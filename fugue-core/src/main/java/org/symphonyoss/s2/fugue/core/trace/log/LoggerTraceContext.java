@@ -36,27 +36,41 @@ class LoggerTraceContext implements ITraceContext
 {
   private static final Logger log_ = LoggerFactory.getLogger(LoggerTraceContext.class);
 
-  private static final String LONG_FORMAT = "TRACE|%s|%s|%s|%s|%s|%s";
-  private static final String SHORT_FORMAT = "TRACE|%s|%s|%s|%s";
+  private static final String LONG_FORMAT = "TRACE|%s|%s|%s|%s|%s|%s|%s";
+  private static final String SHORT_FORMAT = "TRACE|%s|%s|%s|%s|%s";
 
   private final Hash          id_  = HashProvider.getCompositeHashOf(UUID.randomUUID());
+  private final String        parentId_;
   private final String        subjectType_;
   private final String        subjectId_;
+  private final Instant       timestamp_;
   private final Hash          hash_;
   
   public LoggerTraceContext(String subjectType, String subjectId)
   {
+    this(null, subjectType, subjectId, Instant.now());
+  }
+  
+  public LoggerTraceContext(String subjectType, String subjectId, Instant timestamp)
+  {
+    this(null, subjectType, subjectId, timestamp);
+  }
+  
+  public LoggerTraceContext(String subjectType, String subjectId, Instant timestamp, String parentTraceId)
+  {
+    this(parentTraceId, subjectType, subjectId, timestamp);
+  }
+  
+  private LoggerTraceContext(String parentId, String subjectType, String subjectId, Instant timestamp)
+  {
+    parentId_ = parentId;
     subjectType_ = subjectType;
     subjectId_ = subjectId;
+    timestamp_ = timestamp;
     hash_ = HashProvider.getCompositeHashOf(id_, subjectType_, subjectId_);
     
     trace("STARTED");
   }
-  
-  private LoggerTraceContext(LoggerTraceContext parent, String subjectType, String subjectId)
-  {
-    this(subjectType, subjectId);
-  }
 
   @Override
   public Hash getHash()
@@ -67,19 +81,24 @@ class LoggerTraceContext implements ITraceContext
   @Override
   public void trace(String operationId)
   {
-    log_.debug(String.format(SHORT_FORMAT, id_, subjectType_, subjectId_, operationId));
+    log_.debug(String.format(SHORT_FORMAT, id_, parentId(), subjectType_, subjectId_, operationId));
   }
 
   @Override
   public void trace(String operationId, String subjectType, String subjectId)
   {
-    log_.debug(String.format(LONG_FORMAT, id_, "", subjectType_, subjectId_, operationId, subjectType, subjectId));
+    log_.debug(String.format(LONG_FORMAT, id_, parentId(), subjectType_, subjectId_, operationId, subjectType, subjectId));
+  }
+
+  private String parentId()
+  {
+    return parentId_ == null ? "" : parentId_;
   }
 
   @Override
   public ITraceContext createSubContext(String externalSubjectType, String externalSubjectId)
   {
-    return new LoggerTraceContext(this, externalSubjectType, externalSubjectId);
+    return new LoggerTraceContext(getTraceId(), externalSubjectType, externalSubjectId, Instant.now());
   }
 
   @Override
@@ -91,12 +110,18 @@ class LoggerTraceContext implements ITraceContext
   @Override
   public ITraceContext createSubContext(String externalSubjectType, String externalSubjectId, Instant time)
   {
-    return createSubContext(externalSubjectType, externalSubjectId);
+    return new LoggerTraceContext(getTraceId(), externalSubjectType, externalSubjectId, time);
+  }
+
+  @Override
+  public String getTraceId()
+  {
+    return id_.toString();
   }
 
   @Override
   public Instant getTimestamp()
   {
-    return Instant.EPOCH;
+    return timestamp_;
   }
 }
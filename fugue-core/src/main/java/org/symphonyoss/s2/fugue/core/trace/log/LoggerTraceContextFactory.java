@@ -45,6 +45,12 @@ public class LoggerTraceContextFactory implements ITraceContextFactory
   @Override
   public ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime)
   {
-    return new LoggerTraceContext(subjectType, subjectId);
+    return new LoggerTraceContext(subjectType, subjectId, startTime);
+  }
+
+  @Override
+  public ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime, String parentTraceId)
+  {
+    return new LoggerTraceContext(subjectType, subjectId, startTime, parentTraceId);
   }
 }
@@ -0,0 +1,127 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.metrics;
+
+import java.time.Instant;
+
+import org.symphonyoss.s2.common.hash.Hash;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+
+/**
+ * An ITraceContext which measures the time between consecutive operations and passes all events to a delegate.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+/* package */ class MetricsTraceContext implements ITraceContext
+{
+  private final MetricsTraceContextFactory factory_;
+  private final ITraceContext              delegate_;
+  private final String                     subjectType_;
+  private final long                       startMicros_;
+  
+  private long                             lastMicros_;
+
+  /* package */ MetricsTraceContext(MetricsTraceContextFactory factory, ITraceContext delegate, String subjectType,
+      Instant startTime)
+  {
+    factory_ = factory;
+    delegate_ = delegate;
+    subjectType_ = subjectType == null ? "" : subjectType;
+    startMicros_ = lastMicros_ = toMicros(startTime);
+  }
+
+  private static long toMicros(Instant time)
+  {
+    return time.getEpochSecond() * 1000000L + time.getNano() / 1000;
+  }
+
+  private void record(String operationId, Instant time)
+  {
+    long now = toMicros(time);
+    long phase;
+    
+    synchronized(this)
+    {
+      phase = now - lastMicros_;
+      lastMicros_ = now;
+    }
+    
+    factory_.recordPhase(subjectType_, operationId, phase);
+    
+    if(FINISHED.equals(operationId) || ABORTED.equals(operationId))
+      factory_.recordTransaction(subjectType_, operationId, now - startMicros_);
+  }
+
+  @Override
+  public Hash getHash()
+  {
+    return delegate_.getHash();
+  }
+
+  @Override
+  public String getTraceId()
+  {
+    return delegate_.getTraceId();
+  }
+
+  @Override
+  public Instant getTimestamp()
+  {
+    return delegate_.getTimestamp();
+  }
+
+  @Override
+  public void trace(String operationId)
+  {
+    record(operationId, Instant.now());
+    delegate_.trace(operationId);
+  }
+
+  @Override
+  public void trace(String operationId, Instant time)
+  {
+    record(operationId, time);
+    delegate_.trace(operationId, time);
+  }
+
+  @Override
+  public void trace(String operationId, String subjectType, String subjectId)
+  {
+    record(operationId, Instant.now());
+    delegate_.trace(operationId, subjectType, subjectId);
+  }
+
+  @Override
+  public ITraceContext createSubContext(String subjectType, String subjectId)
+  {
+    return new MetricsTraceContext(factory_, delegate_.createSubContext(subjectType, subjectId), subjectType, Instant.now());
+  }
+
+  @Override
+  public ITraceContext createSubContext(String subjectType, String subjectId, Instant time)
+  {
+    return new MetricsTraceContext(factory_, delegate_.createSubContext(subjectType, subjectId, time), subjectType, time);
+  }
+}
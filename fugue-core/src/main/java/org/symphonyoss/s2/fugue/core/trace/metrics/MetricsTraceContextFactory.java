@@ -0,0 +1,196 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.metrics;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContextFactory;
+import org.symphonyoss.s2.fugue.core.trace.NoOpContextFactory;
+import org.symphonyoss.s2.fugue.metrics.Histogram;
+import org.symphonyoss.s2.fugue.metrics.IMetricsCollector;
+import org.symphonyoss.s2.fugue.metrics.IMetricsSource;
+
+/**
+ * An ITraceContextFactory which derives latency histograms from trace operations.
+ * 
+ * For each subject type the time since the previous operation (or since the context started) is recorded against
+ * each operation, and the time from start to FINISHED or ABORTED is recorded against the transaction. All events
+ * are passed on to a delegate factory.
+ * 
+ * Register this factory as a component of the server to expose the histograms on the Metrics panel and
+ * the /metrics endpoint.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class MetricsTraceContextFactory implements ITraceContextFactory, IMetricsSource
+{
+  /** The operation name under which operations are recorded once the maximum number of histograms is reached. */
+  public static final String OTHER_OPERATION = "OTHER";
+  
+  private static final String PHASE_METRIC       = "fugue_trace_phase_microseconds";
+  private static final String TRANSACTION_METRIC = "fugue_trace_transaction_microseconds";
+
+  private final ITraceContextFactory                                     delegate_;
+  private final int                                                      maxHistograms_;
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, Histogram>> phases_       = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, Histogram>> transactions_ = new ConcurrentHashMap<>();
+  private final AtomicInteger                                            histogramCount_ = new AtomicInteger();
+
+  /**
+   * Constructor for a factory which only records metrics.
+   */
+  public MetricsTraceContextFactory()
+  {
+    this(new NoOpContextFactory());
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param delegate The factory to which all events are passed.
+   */
+  public MetricsTraceContextFactory(ITraceContextFactory delegate)
+  {
+    this(delegate, 1000);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param delegate      The factory to which all events are passed.
+   * @param maxHistograms The maximum number of distinct (subject type, operation) histograms, beyond which
+   *                      new operations are recorded as OTHER.
+   */
+  public MetricsTraceContextFactory(ITraceContextFactory delegate, int maxHistograms)
+  {
+    delegate_ = delegate;
+    maxHistograms_ = maxHistograms;
+  }
+
+  @Override
+  public ITraceContext createTransaction(@Nullable String subjectType, @Nullable String subjectId)
+  {
+    return createTransaction(subjectType, subjectId, Instant.now());
+  }
+
+  @Override
+  public ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime)
+  {
+    return new MetricsTraceContext(this, delegate_.createTransaction(subjectType, subjectId, startTime), subjectType, startTime);
+  }
+
+  @Override
+  public ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime, @Nullable String parentTraceId)
+  {
+    return new MetricsTraceContext(this, delegate_.createTransaction(subjectType, subjectId, startTime, parentTraceId), subjectType, startTime);
+  }
+
+  /* package */ void recordPhase(String subjectType, String operationId, long micros)
+  {
+    getHistogram(phases_, subjectType, operationId).record(micros);
+  }
+
+  /* package */ void recordTransaction(String subjectType, String operationId, long micros)
+  {
+    getHistogram(transactions_, subjectType, operationId).record(micros);
+  }
+
+  private Histogram getHistogram(ConcurrentHashMap<String, ConcurrentHashMap<String, Histogram>> map,
+      String subjectType, String operationId)
+  {
+    ConcurrentHashMap<String, Histogram> operationMap = map.computeIfAbsent(subjectType, (k) -> new ConcurrentHashMap<>());
+    Histogram histogram = operationMap.get(operationId);
+    
+    if(histogram != null)
+      return histogram;
+    
+    if(histogramCount_.get() >= maxHistograms_)
+      operationId = OTHER_OPERATION;
+    
+    return operationMap.computeIfAbsent(operationId, (k) -> 
+    {
+      histogramCount_.incrementAndGet();
+      return new Histogram();
+    });
+  }
+
+  /**
+   * Return the histogram of the time from the previous operation to the given operation.
+   * 
+   * @param subjectType The subject type of the trace context.
+   * @param operationId The operation.
+   * 
+   * @return The histogram in microseconds, or null if no such operation has been recorded.
+   */
+  public @Nullable Histogram getPhaseHistogram(String subjectType, String operationId)
+  {
+    Map<String, Histogram> operationMap = phases_.get(subjectType);
+    
+    return operationMap == null ? null : operationMap.get(operationId);
+  }
+
+  /**
+   * Return the histogram of the time from the start of a trace context to the given terminal operation.
+   * 
+   * @param subjectType The subject type of the trace context.
+   * @param operationId FINISHED or ABORTED.
+   * 
+   * @return The histogram in microseconds, or null if no such transaction has been recorded.
+   */
+  public @Nullable Histogram getTransactionHistogram(String subjectType, String operationId)
+  {
+    Map<String, Histogram> operationMap = transactions_.get(subjectType);
+    
+    return operationMap == null ? null : operationMap.get(operationId);
+  }
+
+  @Override
+  public void collectMetrics(IMetricsCollector collector)
+  {
+    collect(collector, PHASE_METRIC, "Time from the previous trace operation to this operation", phases_);
+    collect(collector, TRANSACTION_METRIC, "Time from the start of a trace context to its completion", transactions_);
+  }
+
+  private void collect(IMetricsCollector collector, String name, String help,
+      ConcurrentHashMap<String, ConcurrentHashMap<String, Histogram>> map)
+  {
+    for(Map.Entry<String, ConcurrentHashMap<String, Histogram>> subjectEntry : new TreeMap<>(map).entrySet())
+    {
+      for(Map.Entry<String, Histogram> operationEntry : new TreeMap<>(subjectEntry.getValue()).entrySet())
+      {
+        collector.histogram(name, help, operationEntry.getValue(),
+            "subject_type", subjectEntry.getKey(),
+            "operation", operationEntry.getKey());
+      }
+    }
+  }
+}
@@ -0,0 +1,365 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.sampling;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.common.fluent.Fluent;
+import org.symphonyoss.s2.fugue.FugueLifecycleState;
+import org.symphonyoss.s2.fugue.IFugueServer;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContextFactory;
+import org.symphonyoss.s2.fugue.core.trace.NoOpTraceContext;
+import org.symphonyoss.s2.fugue.http.ui.servlet.IParameterizedCommandHandler;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * An ITraceContextFactory which samples the transactions passed to a delegate factory.
+ * 
+ * Head sampling passes a fixed fraction of transactions, chosen at random when the transaction is created,
+ * straight through to the delegate.
+ * 
+ * Transactions which continue a trace from another process (i.e. which have a parent trace ID) are always
+ * passed to the delegate, since the remote transaction was sampled.
+ * 
+ * If tail sampling is enabled then the events of transactions which were not head sampled are buffered and
+ * emitted only if the transaction runs for longer than the latency threshold or records an interesting
+ * operation such as ABORTED, otherwise they are discarded when the root context is finished.
+ * 
+ * Sampling parameters can be changed at runtime via the command registered by {@link #registerCommand(IFugueServer)}.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class SamplingTraceContextFactory extends Fluent<SamplingTraceContextFactory> implements ITraceContextFactory
+{
+  private static final Logger       log_                  = LoggerFactory.getLogger(SamplingTraceContextFactory.class);
+
+  /** The name of the parameter for the head sampling rate. */
+  public static final String        HEAD_SAMPLE_RATE      = "headSampleRate";
+  /** The name of the parameter which enables tail sampling. */
+  public static final String        TAIL_SAMPLING         = "tailSampling";
+  /** The name of the parameter for the tail sampling latency threshold. */
+  public static final String        TAIL_LATENCY_MILLIS   = "tailLatencyMillis";
+
+  private static final Set<String>  DEFAULT_INTERESTING_OPERATIONS = ImmutableSet.of(
+      ITraceContext.ABORTED,
+      "MESSAGE_IS_UNPROCESSABLE",
+      "MESSAGE_RETRIES_EXCEEDED");
+
+  private final ITraceContextFactory delegate_;
+  private final AtomicLong           transactionCount_     = new AtomicLong();
+  private final AtomicLong           headSampledCount_     = new AtomicLong();
+  private final AtomicLong           tailSampledCount_     = new AtomicLong();
+
+  private Set<String>                interestingOperations_ = DEFAULT_INTERESTING_OPERATIONS;
+  private int                        maxBufferedEvents_    = 200;
+
+  private volatile double            headSampleRate_       = 1.0;
+  private volatile boolean           tailSampling_         = false;
+  private volatile long              tailLatencyMillis_    = 5000;
+
+  /**
+   * Constructor.
+   * 
+   * @param delegate The factory to which sampled transactions are passed.
+   */
+  public SamplingTraceContextFactory(ITraceContextFactory delegate)
+  {
+    super(SamplingTraceContextFactory.class);
+    
+    delegate_ = delegate;
+  }
+
+  /**
+   * Set the fraction of transactions which are head sampled.
+   * 
+   * @param headSampleRate A value between 0.0 (no transactions) and 1.0 (all transactions).
+   * 
+   * @return this (fluent method)
+   */
+  public SamplingTraceContextFactory withHeadSampleRate(double headSampleRate)
+  {
+    setHeadSampleRate(headSampleRate);
+    
+    return self();
+  }
+
+  /**
+   * Enable tail sampling of transactions which are not head sampled.
+   * 
+   * @param tailLatency The latency threshold beyond which a transaction is kept.
+   * @param unit        The unit of tailLatency.
+   * 
+   * @return this (fluent method)
+   */
+  public SamplingTraceContextFactory withTailSampling(long tailLatency, TimeUnit unit)
+  {
+    tailLatencyMillis_ = unit.toMillis(tailLatency);
+    tailSampling_ = true;
+    
+    return self();
+  }
+
+  /**
+   * Set the maximum number of events buffered for a single tail sampled transaction, beyond which events are
+   * dropped. The creation of sub-contexts is always buffered so that a kept transaction can be replayed,
+   * only trace events count towards this limit. The number of dropped events is recorded if the
+   * transaction is kept.
+   * 
+   * @param maxBufferedEvents The maximum number of events buffered per transaction.
+   * 
+   * @return this (fluent method)
+   */
+  public SamplingTraceContextFactory withMaxBufferedEvents(int maxBufferedEvents)
+  {
+    maxBufferedEvents_ = maxBufferedEvents;
+    
+    return self();
+  }
+
+  /**
+   * Add an operation which causes a tail sampled transaction to be kept. By default these are ABORTED,
+   * MESSAGE_IS_UNPROCESSABLE and MESSAGE_RETRIES_EXCEEDED.
+   * 
+   * @param operationId An operation ID.
+   * 
+   * @return this (fluent method)
+   */
+  public SamplingTraceContextFactory withInterestingOperation(String operationId)
+  {
+    interestingOperations_ = ImmutableSet.<String>builder()
+        .addAll(interestingOperations_)
+        .add(operationId)
+        .build();
+    
+    return self();
+  }
+
+  /**
+   * Register a command on the given server to allow the sampling parameters to be changed at runtime.
+   * 
+   * @param server The server on which the command is to be registered.
+   * 
+   * @return this (fluent method)
+   */
+  public SamplingTraceContextFactory registerCommand(IFugueServer server)
+  {
+    server.withCommand("/app/", "traceSampling", EnumSet.of(FugueLifecycleState.Running), new SamplingCommandHandler());
+    
+    return self();
+  }
+
+  /**
+   * Set the fraction of transactions which are head sampled.
+   * 
+   * @param headSampleRate A value between 0.0 (no transactions) and 1.0 (all transactions).
+   */
+  public void setHeadSampleRate(double headSampleRate)
+  {
+    if(headSampleRate < 0.0 || headSampleRate > 1.0)
+      throw new IllegalArgumentException("headSampleRate must be between 0.0 and 1.0");
+    
+    headSampleRate_ = headSampleRate;
+  }
+
+  /**
+   * Enable or disable tail sampling.
+   * 
+   * @param tailSampling true if tail sampling is to be enabled.
+   */
+  public void setTailSampling(boolean tailSampling)
+  {
+    tailSampling_ = tailSampling;
+  }
+
+  /**
+   * Set the latency threshold beyond which tail sampled transactions are kept.
+   * 
+   * @param tailLatencyMillis The threshold in milliseconds.
+   */
+  public void setTailLatencyMillis(long tailLatencyMillis)
+  {
+    if(tailLatencyMillis < 0)
+      throw new IllegalArgumentException("tailLatencyMillis must not be negative");
+    
+    tailLatencyMillis_ = tailLatencyMillis;
+  }
+
+  /**
+   * @return The fraction of transactions which are head sampled.
+   */
+  public double getHeadSampleRate()
+  {
+    return headSampleRate_;
+  }
+
+  /**
+   * @return true if tail sampling is enabled.
+   */
+  public boolean isTailSampling()
+  {
+    return tailSampling_;
+  }
+
+  /**
+   * @return The latency threshold beyond which tail sampled transactions are kept.
+   */
+  public long getTailLatencyMillis()
+  {
+    return tailLatencyMillis_;
+  }
+
+  /**
+   * @return The total number of transactions created.
+   */
+  public long getTransactionCount()
+  {
+    return transactionCount_.get();
+  }
+
+  /**
+   * @return The number of transactions which were head sampled.
+   */
+  public long getHeadSampledCount()
+  {
+    return headSampledCount_.get();
+  }
+
+  /**
+   * @return The number of transactions which were kept by tail sampling.
+   */
+  public long getTailSampledCount()
+  {
+    return tailSampledCount_.get();
+  }
+
+  @Override
+  public ITraceContext createTransaction(@Nullable String subjectType, @Nullable String subjectId)
+  {
+    return createTransaction(subjectType, subjectId, Instant.now());
+  }
+
+  @Override
+  public ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime)
+  {
+    transactionCount_.incrementAndGet();
+    
+    double headSampleRate = headSampleRate_;
+    
+    if(headSampleRate >= 1.0 || (headSampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < headSampleRate))
+    {
+      headSampledCount_.incrementAndGet();
+      
+      return delegate_.createTransaction(subjectType, subjectId, startTime);
+    }
+    
+    if(tailSampling_)
+      return new TailSamplingTraceContext(this, new TailSample(this, startTime), null, subjectType, subjectId, startTime);
+    
+    return NoOpTraceContext.INSTANCE;
+  }
+
+  /**
+   * Create a transaction which continues a trace from another process.
+   * 
+   * Since the remote transaction was sampled, the local transaction is always passed to the delegate so that
+   * traces are either complete or absent.
+   */
+  @Override
+  public ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime, @Nullable String parentTraceId)
+  {
+    if(parentTraceId == null)
+      return createTransaction(subjectType, subjectId, startTime);
+    
+    transactionCount_.incrementAndGet();
+    headSampledCount_.incrementAndGet();
+    
+    return delegate_.createTransaction(subjectType, subjectId, startTime, parentTraceId);
+  }
+
+  /* package */ ITraceContextFactory getDelegate()
+  {
+    return delegate_;
+  }
+  
+  /* package */ boolean isInteresting(String operationId)
+  {
+    return interestingOperations_.contains(operationId);
+  }
+
+  /* package */ int getMaxBufferedEvents()
+  {
+    return maxBufferedEvents_;
+  }
+
+  /* package */ void kept()
+  {
+    tailSampledCount_.incrementAndGet();
+  }
+
+  private class SamplingCommandHandler implements IParameterizedCommandHandler
+  {
+    @Override
+    public Map<String, String> getParameters()
+    {
+      Map<String, String> parameters = new LinkedHashMap<>();
+      
+      parameters.put(HEAD_SAMPLE_RATE, String.valueOf(headSampleRate_));
+      parameters.put(TAIL_SAMPLING, String.valueOf(tailSampling_));
+      parameters.put(TAIL_LATENCY_MILLIS, String.valueOf(tailLatencyMillis_));
+      
+      return parameters;
+    }
+
+    @Override
+    public void handle(Map<String, String> parameters)
+    {
+      String value;
+      
+      if((value = parameters.get(HEAD_SAMPLE_RATE)) != null)
+        setHeadSampleRate(Double.parseDouble(value));
+      
+      if((value = parameters.get(TAIL_SAMPLING)) != null)
+        setTailSampling(Boolean.parseBoolean(value));
+      
+      if((value = parameters.get(TAIL_LATENCY_MILLIS)) != null)
+        setTailLatencyMillis(Long.parseLong(value));
+      
+      log_.info("Trace sampling set to " + getParameters());
+    }
+  }
+}
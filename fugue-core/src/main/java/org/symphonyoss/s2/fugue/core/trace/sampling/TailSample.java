@@ -0,0 +1,168 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.sampling;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+
+/**
+ * The shared state of a tail sampled transaction, which is held by the root context and all of its
+ * sub-contexts.
+ * 
+ * Events are buffered until a decision is made to keep or discard the transaction. Once the transaction is
+ * kept all buffered events are replayed to the delegate factory in order and subsequent events are passed
+ * straight through.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+/* package */ class TailSample
+{
+  private enum Decision {PENDING, KEEP, DISCARD}
+  
+  private final SamplingTraceContextFactory factory_;
+  private final long                        startMillis_;
+  private final List<Event>                 events_ = new ArrayList<>();
+  
+  private Decision                          decision_ = Decision.PENDING;
+  private int                               bufferedTraces_;
+  private int                               overflow_;
+
+  /* package */ TailSample(SamplingTraceContextFactory factory, Instant startTime)
+  {
+    factory_ = factory;
+    startMillis_ = startTime.toEpochMilli();
+  }
+
+  /* package */ synchronized void created(TailSamplingTraceContext context)
+  {
+    switch(decision_)
+    {
+      case PENDING:
+        buffer(new Event(context, null, null, null, null));
+        break;
+        
+      case KEEP:
+        context.materialize();
+        break;
+        
+      case DISCARD:
+        break;
+    }
+  }
+  
+  /* package */ synchronized void trace(TailSamplingTraceContext context, String operationId, Instant time,
+      String subjectType, String subjectId)
+  {
+    switch(decision_)
+    {
+      case PENDING:
+        buffer(new Event(context, operationId, time, subjectType, subjectId));
+        
+        if(factory_.isInteresting(operationId) || time.toEpochMilli() - startMillis_ > factory_.getTailLatencyMillis())
+        {
+          keep();
+        }
+        else if(context.isRoot() && ITraceContext.FINISHED.equals(operationId))
+        {
+          events_.clear();
+          bufferedTraces_ = 0;
+          decision_ = Decision.DISCARD;
+        }
+        break;
+        
+      case KEEP:
+        replay(new Event(context, operationId, time, subjectType, subjectId));
+        break;
+        
+      case DISCARD:
+        break;
+    }
+  }
+
+  private void buffer(Event event)
+  {
+    // creation events are never dropped, a kept transaction must materialize every context it traces to
+    if(event.operationId_ == null)
+    {
+      events_.add(event);
+    }
+    else if(bufferedTraces_ < factory_.getMaxBufferedEvents())
+    {
+      events_.add(event);
+      bufferedTraces_++;
+    }
+    else
+    {
+      overflow_++;
+    }
+  }
+
+  private void keep()
+  {
+    decision_ = Decision.KEEP;
+    factory_.kept();
+    
+    for(Event event : events_)
+      replay(event);
+    
+    if(overflow_ > 0)
+      events_.get(0).context_.getDelegate().trace("TAIL_SAMPLE_EVENTS_DROPPED", "count", String.valueOf(overflow_));
+    
+    events_.clear();
+    bufferedTraces_ = 0;
+  }
+
+  private void replay(Event event)
+  {
+    if(event.operationId_ == null)
+      event.context_.materialize();
+    else if(event.subjectType_ == null && event.subjectId_ == null)
+      event.context_.getDelegate().trace(event.operationId_, event.time_);
+    else
+      event.context_.getDelegate().trace(event.operationId_, event.subjectType_, event.subjectId_);
+  }
+  
+  private static class Event
+  {
+    private final TailSamplingTraceContext context_;
+    private final String                   operationId_;
+    private final Instant                  time_;
+    private final String                   subjectType_;
+    private final String                   subjectId_;
+    
+    private Event(TailSamplingTraceContext context, String operationId, Instant time, String subjectType,
+        String subjectId)
+    {
+      context_ = context;
+      operationId_ = operationId;
+      time_ = time;
+      subjectType_ = subjectType;
+      subjectId_ = subjectId;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.sampling;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.symphonyoss.s2.common.hash.Hash;
+import org.symphonyoss.s2.common.hash.HashProvider;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+
+/**
+ * A trace context whose events are buffered in a TailSample until a decision is made as to whether
+ * the transaction should be traced.
+ * 
+ * The delegate context is only created if and when the transaction is kept.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+/* package */ class TailSamplingTraceContext implements ITraceContext
+{
+  private final SamplingTraceContextFactory factory_;
+  private final TailSample                  sample_;
+  private final TailSamplingTraceContext    parent_;
+  private final String                      subjectType_;
+  private final String                      subjectId_;
+  private final Instant                     timestamp_;
+  
+  private Hash                              hash_;
+  private volatile ITraceContext            delegate_;
+
+  /* package */ TailSamplingTraceContext(SamplingTraceContextFactory factory, TailSample sample,
+      TailSamplingTraceContext parent, String subjectType, String subjectId, Instant timestamp)
+  {
+    factory_ = factory;
+    sample_ = sample;
+    parent_ = parent;
+    subjectType_ = subjectType;
+    subjectId_ = subjectId;
+    timestamp_ = timestamp;
+    
+    sample_.created(this);
+  }
+
+  /* package */ boolean isRoot()
+  {
+    return parent_ == null;
+  }
+  
+  /* package */ ITraceContext getDelegate()
+  {
+    return delegate_;
+  }
+
+  /* package */ void materialize()
+  {
+    if(delegate_ == null)
+    {
+      if(parent_ == null)
+      {
+        delegate_ = factory_.getDelegate().createTransaction(subjectType_, subjectId_, timestamp_);
+      }
+      else
+      {
+        parent_.materialize();
+        delegate_ = parent_.getDelegate().createSubContext(subjectType_, subjectId_, timestamp_);
+      }
+    }
+  }
+
+  @Override
+  public synchronized Hash getHash()
+  {
+    if(hash_ == null)
+      hash_ = HashProvider.getCompositeHashOf(UUID.randomUUID(), subjectType_, subjectId_);
+    
+    return hash_;
+  }
+
+  @Override
+  public String getTraceId()
+  {
+    // Only a context which has been kept has an ID which can be propagated.
+    ITraceContext delegate = delegate_;
+    
+    return delegate == null ? null : delegate.getTraceId();
+  }
+
+  @Override
+  public Instant getTimestamp()
+  {
+    return timestamp_;
+  }
+
+  @Override
+  public void trace(String operationId)
+  {
+    sample_.trace(this, operationId, Instant.now(), null, null);
+  }
+
+  @Override
+  public void trace(String operationId, Instant time)
+  {
+    sample_.trace(this, operationId, time, null, null);
+  }
+
+  @Override
+  public void trace(String operationId, String subjectType, String subjectId)
+  {
+    sample_.trace(this, operationId, Instant.now(), subjectType, subjectId);
+  }
+
+  @Override
+  public ITraceContext createSubContext(String subjectType, String subjectId)
+  {
+    return new TailSamplingTraceContext(factory_, sample_, this, subjectType, subjectId, Instant.now());
+  }
+
+  @Override
+  public ITraceContext createSubContext(String subjectType, String subjectId, Instant time)
+  {
+    return new TailSamplingTraceContext(factory_, sample_, this, subjectType, subjectId, time);
+  }
+}
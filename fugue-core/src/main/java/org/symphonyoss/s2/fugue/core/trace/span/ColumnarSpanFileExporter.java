@@ -0,0 +1,459 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.span;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.fugue.FugueComponentState;
+import org.symphonyoss.s2.fugue.FugueLifecycleComponent;
+import org.symphonyoss.s2.fugue.FugueLifecycleState;
+
+/**
+ * An ISpanExporter which writes spans in batches to rolling, compressed, columnar files in a local directory.
+ * 
+ * Spans are handed off to a bounded queue and written by a single background thread, if the queue is full
+ * spans are dropped and counted. Each batch is written as a self contained block (see SpanCodec) and the
+ * compressed stream is flushed after each block so that the current file is readable while it is being written.
+ * 
+ * File I/O is guarded by its own lock rather than the monitor of the exporter, so that stop() can wait for the
+ * writer thread to finish its last block without holding a lock which the writer needs.
+ * 
+ * Files can be aggregated offline with {@link SpanFileReader}.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ColumnarSpanFileExporter extends FugueLifecycleComponent<ColumnarSpanFileExporter> implements ISpanExporter
+{
+  /** The suffix of span file names. */
+  public static final String      FILE_SUFFIX     = ".spans.gz";
+  
+  private static final Logger     log_            = LoggerFactory.getLogger(ColumnarSpanFileExporter.class);
+  private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+  private final File              directory_;
+  private final String            prefix_;
+  private final AtomicLong        exportedCount_  = new AtomicLong();
+  private final AtomicLong        droppedCount_   = new AtomicLong();
+  private final AtomicLong        failedCount_    = new AtomicLong();
+  private final Object            fileLock_       = new Object();
+
+  private int                     batchSize_      = 1024;
+  private int                     queueCapacity_  = 64 * 1024;
+  private long                    maxDelayMillis_ = 1000;
+  private long                    maxFileBytes_   = 64L * 1024 * 1024;
+  private long                    maxFileMillis_  = TimeUnit.HOURS.toMillis(1);
+  private int                     maxFiles_       = 48;
+
+  private BlockingQueue<Span>     queue_;
+  private Thread                  writerThread_;
+  private volatile boolean        running_;
+  private CountingOutputStream    fileBytes_;
+  private OutputStream            out_;
+  private long                    fileOpened_;
+  private boolean                 closed_;
+
+  /**
+   * Constructor.
+   * 
+   * @param directory The directory in which span files are written.
+   * @param prefix    The prefix for span file names.
+   */
+  public ColumnarSpanFileExporter(File directory, String prefix)
+  {
+    super(ColumnarSpanFileExporter.class);
+    
+    directory_ = directory;
+    prefix_ = prefix;
+  }
+
+  /**
+   * Set the maximum number of spans written in a single block.
+   * 
+   * @param batchSize The maximum number of spans in a block.
+   * 
+   * @return this (fluent method)
+   */
+  public ColumnarSpanFileExporter withBatchSize(int batchSize)
+  {
+    assertConfigurable();
+    batchSize_ = batchSize;
+    
+    return self();
+  }
+
+  /**
+   * Set the maximum number of spans waiting to be written, beyond which spans are dropped.
+   * 
+   * @param queueCapacity The maximum number of spans queued.
+   * 
+   * @return this (fluent method)
+   */
+  public ColumnarSpanFileExporter withQueueCapacity(int queueCapacity)
+  {
+    assertConfigurable();
+    queueCapacity_ = queueCapacity;
+    
+    return self();
+  }
+
+  /**
+   * Set the maximum time for which a span is queued before a partial block is written.
+   * 
+   * @param maxDelay  The maximum delay.
+   * @param unit      The unit of maxDelay.
+   * 
+   * @return this (fluent method)
+   */
+  public ColumnarSpanFileExporter withMaxDelay(long maxDelay, TimeUnit unit)
+  {
+    assertConfigurable();
+    maxDelayMillis_ = Math.max(1, unit.toMillis(maxDelay));
+    
+    return self();
+  }
+
+  /**
+   * Set the size and age at which a new file is started.
+   * 
+   * @param maxFileBytes  The maximum compressed size of a file.
+   * @param maxFileAge    The maximum age of a file.
+   * @param unit          The unit of maxFileAge.
+   * 
+   * @return this (fluent method)
+   */
+  public ColumnarSpanFileExporter withRollover(long maxFileBytes, long maxFileAge, TimeUnit unit)
+  {
+    assertConfigurable();
+    maxFileBytes_ = maxFileBytes;
+    maxFileMillis_ = unit.toMillis(maxFileAge);
+    
+    return self();
+  }
+
+  /**
+   * Set the number of files retained, older files are deleted when a new file is started.
+   * 
+   * @param maxFiles The number of files retained, zero means unlimited.
+   * 
+   * @return this (fluent method)
+   */
+  public ColumnarSpanFileExporter withMaxFiles(int maxFiles)
+  {
+    assertConfigurable();
+    maxFiles_ = maxFiles;
+    
+    return self();
+  }
+
+  @Override
+  public synchronized void start()
+  {
+    setLifeCycleState(FugueLifecycleState.Starting);
+    
+    if(!directory_.isDirectory() && !directory_.mkdirs())
+      throw new IllegalStateException("Unable to create span directory " + directory_.getAbsolutePath());
+    
+    queue_ = new ArrayBlockingQueue<>(queueCapacity_);
+    
+    synchronized(fileLock_)
+    {
+      closed_ = false;
+    }
+    
+    running_ = true;
+    
+    writerThread_ = new Thread(() -> runWriter(), "SpanWriter");
+    writerThread_.setDaemon(true);
+    writerThread_.start();
+    
+    setLifeCycleState(FugueLifecycleState.Running);
+  }
+
+  @Override
+  public void stop()
+  {
+    Thread writerThread;
+    
+    synchronized(this)
+    {
+      setLifeCycleState(FugueLifecycleState.Stopping);
+      
+      running_ = false;
+      writerThread = writerThread_;
+      writerThread_ = null;
+      
+      if(writerThread != null)
+        writerThread.interrupt();
+    }
+    
+    if(writerThread != null)
+    {
+      try
+      {
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+      }
+      catch (InterruptedException e)
+      {
+        log_.warn("Interrupted waiting for span writer to terminate", e);
+        Thread.currentThread().interrupt();
+      }
+    }
+    
+    synchronized(fileLock_)
+    {
+      if(queue_ != null)
+      {
+        List<Span> batch = new ArrayList<>(batchSize_);
+        
+        while(queue_.drainTo(batch, batchSize_) > 0)
+        {
+          write(batch);
+          batch.clear();
+        }
+      }
+      
+      closeFile();
+      
+      // a writer which failed to terminate in time must not reopen the file
+      closed_ = true;
+    }
+    
+    setLifeCycleState(FugueLifecycleState.Stopped);
+  }
+
+  @Override
+  public FugueComponentState getComponentState()
+  {
+    if(failedCount_.get() > 0)
+      return FugueComponentState.Error;
+    
+    if(droppedCount_.get() > 0)
+      return FugueComponentState.Warn;
+    
+    return FugueComponentState.OK;
+  }
+
+  @Override
+  public String getComponentStatusMessage()
+  {
+    return String.format("%d spans written to %s, %d dropped, %d failed", exportedCount_.get(),
+        directory_.getAbsolutePath(), droppedCount_.get(), failedCount_.get());
+  }
+
+  @Override
+  public void export(Span span)
+  {
+    if(!running_ || !queue_.offer(span))
+      droppedCount_.incrementAndGet();
+  }
+
+  private void runWriter()
+  {
+    List<Span> batch = new ArrayList<>(batchSize_);
+    
+    while(running_)
+    {
+      try
+      {
+        Span span = queue_.poll(maxDelayMillis_, TimeUnit.MILLISECONDS);
+        
+        if(span != null)
+        {
+          batch.add(span);
+          
+          long deadline = System.currentTimeMillis() + maxDelayMillis_;
+          
+          while(batch.size() < batchSize_ && System.currentTimeMillis() < deadline)
+          {
+            if(queue_.drainTo(batch, batchSize_ - batch.size()) == 0)
+            {
+              span = queue_.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+              
+              if(span != null)
+                batch.add(span);
+            }
+          }
+        }
+      }
+      catch (InterruptedException e)
+      {
+        // Expected on stop()
+      }
+      
+      if(!batch.isEmpty())
+      {
+        write(batch);
+        batch.clear();
+      }
+      else
+      {
+        closeIfExpired();
+      }
+    }
+  }
+
+  private void write(List<Span> batch)
+  {
+    synchronized(fileLock_)
+    {
+      if(closed_)
+      {
+        droppedCount_.addAndGet(batch.size());
+        return;
+      }
+      
+      try
+      {
+        if(out_ != null && (fileBytes_.count_ > maxFileBytes_ || System.currentTimeMillis() - fileOpened_ > maxFileMillis_))
+          closeFile();
+        
+        if(out_ == null)
+          openFile();
+        
+        SpanCodec.encode(batch, out_);
+        out_.flush();
+        
+        exportedCount_.addAndGet(batch.size());
+      }
+      catch(IOException | RuntimeException e)
+      {
+        failedCount_.addAndGet(batch.size());
+        log_.error("Failed to write " + batch.size() + " spans", e);
+        
+        closeFile();
+      }
+    }
+  }
+
+  private void closeIfExpired()
+  {
+    synchronized(fileLock_)
+    {
+      if(out_ != null && System.currentTimeMillis() - fileOpened_ > maxFileMillis_)
+        closeFile();
+    }
+  }
+
+  private void openFile() throws IOException
+  {
+    File file = new File(directory_, prefix_ + "-" + LocalDateTime.now().format(FILE_TIME) + FILE_SUFFIX);
+    
+    fileBytes_ = new CountingOutputStream(new FileOutputStream(file));
+    out_ = new GZIPOutputStream(new BufferedOutputStream(fileBytes_), 64 * 1024, true);
+    fileOpened_ = System.currentTimeMillis();
+    
+    log_.debug("Writing spans to " + file.getAbsolutePath());
+    
+    deleteOldFiles();
+  }
+
+  private void closeFile()
+  {
+    synchronized(fileLock_)
+    {
+      if(out_ != null)
+      {
+        try
+        {
+          out_.close();
+        }
+        catch (IOException e)
+        {
+          log_.error("Failed to close span file", e);
+        }
+        out_ = null;
+        fileBytes_ = null;
+      }
+    }
+  }
+  
+  /* package */ boolean isFileOpen()
+  {
+    synchronized(fileLock_)
+    {
+      return out_ != null;
+    }
+  }
+
+  private void deleteOldFiles()
+  {
+    if(maxFiles_ <= 0)
+      return;
+    
+    File[] files = directory_.listFiles((dir, name) -> name.startsWith(prefix_ + "-") && name.endsWith(FILE_SUFFIX));
+    
+    if(files == null || files.length <= maxFiles_)
+      return;
+    
+    Arrays.sort(files);
+    
+    for(int i=0 ; i<files.length - maxFiles_ ; i++)
+    {
+      if(!files[i].delete())
+        log_.warn("Unable to delete old span file " + files[i].getAbsolutePath());
+    }
+  }
+  
+  private static class CountingOutputStream extends FilterOutputStream
+  {
+    private long count_;
+    
+    private CountingOutputStream(OutputStream out)
+    {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+      out.write(b);
+      count_++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      out.write(b, off, len);
+      count_ += len;
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.span;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable, completed span.
+ * 
+ * A span represents the processing of a single subject within a trace. The root span of a trace has a
+ * parentSpanId of zero, all other spans refer to the span of the trace context from which they were created.
+ * 
+ * Times are in microseconds since the epoch.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class Span
+{
+  private final long                traceIdHigh_;
+  private final long                traceIdLow_;
+  private final long                spanId_;
+  private final long                parentSpanId_;
+  private final String              name_;
+  private final String              subjectId_;
+  private final long                startMicros_;
+  private final long                endMicros_;
+  private final String              status_;
+  private final Map<String, String> attributes_;
+  private final List<SpanEvent>     events_;
+
+  /**
+   * Constructor.
+   * 
+   * @param traceIdHigh   The high order 64 bits of the trace ID.
+   * @param traceIdLow    The low order 64 bits of the trace ID.
+   * @param spanId        The ID of this span.
+   * @param parentSpanId  The ID of the parent span, or zero for a root span.
+   * @param name          The name of the span, which is the subject type of the trace context.
+   * @param subjectId     The subject ID of the trace context.
+   * @param startMicros   The start time in microseconds since the epoch.
+   * @param endMicros     The end time in microseconds since the epoch.
+   * @param status        The terminal operation of the span, usually FINISHED or ABORTED.
+   * @param attributes    The attributes of the span.
+   * @param events        The operations recorded within the span.
+   */
+  public Span(long traceIdHigh, long traceIdLow, long spanId, long parentSpanId, @Nullable String name,
+      @Nullable String subjectId, long startMicros, long endMicros, String status, Map<String, String> attributes,
+      List<SpanEvent> events)
+  {
+    traceIdHigh_ = traceIdHigh;
+    traceIdLow_ = traceIdLow;
+    spanId_ = spanId;
+    parentSpanId_ = parentSpanId;
+    name_ = name;
+    subjectId_ = subjectId;
+    startMicros_ = startMicros;
+    endMicros_ = endMicros;
+    status_ = status;
+    attributes_ = Collections.unmodifiableMap(attributes);
+    events_ = Collections.unmodifiableList(events);
+  }
+
+  /**
+   * @return The high order 64 bits of the trace ID.
+   */
+  public long getTraceIdHigh()
+  {
+    return traceIdHigh_;
+  }
+
+  /**
+   * @return The low order 64 bits of the trace ID.
+   */
+  public long getTraceIdLow()
+  {
+    return traceIdLow_;
+  }
+
+  /**
+   * @return The trace ID as a 32 character hex string.
+   */
+  public String getTraceId()
+  {
+    return String.format("%016x%016x", traceIdHigh_, traceIdLow_);
+  }
+
+  /**
+   * @return The ID of this span.
+   */
+  public long getSpanId()
+  {
+    return spanId_;
+  }
+
+  /**
+   * @return The ID of the parent span, or zero for a root span.
+   */
+  public long getParentSpanId()
+  {
+    return parentSpanId_;
+  }
+
+  /**
+   * @return true if this is the root span of its trace.
+   */
+  public boolean isRoot()
+  {
+    return parentSpanId_ == 0;
+  }
+
+  /**
+   * @return The name of the span, which is the subject type of the trace context.
+   */
+  public @Nullable String getName()
+  {
+    return name_;
+  }
+
+  /**
+   * @return The subject ID of the trace context.
+   */
+  public @Nullable String getSubjectId()
+  {
+    return subjectId_;
+  }
+
+  /**
+   * @return The start time in microseconds since the epoch.
+   */
+  public long getStartMicros()
+  {
+    return startMicros_;
+  }
+
+  /**
+   * @return The end time in microseconds since the epoch.
+   */
+  public long getEndMicros()
+  {
+    return endMicros_;
+  }
+
+  /**
+   * @return The duration of the span in microseconds.
+   */
+  public long getDurationMicros()
+  {
+    return endMicros_ - startMicros_;
+  }
+
+  /**
+   * @return The terminal operation of the span, usually FINISHED or ABORTED.
+   */
+  public String getStatus()
+  {
+    return status_;
+  }
+
+  /**
+   * @return The attributes of the span.
+   */
+  public Map<String, String> getAttributes()
+  {
+    return attributes_;
+  }
+
+  /**
+   * @return The operations recorded within the span.
+   */
+  public List<SpanEvent> getEvents()
+  {
+    return events_;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getTraceId() + "/" + Long.toHexString(spanId_) + "<" + Long.toHexString(parentSpanId_) + " " + name_ + ":" + subjectId_ +
+        " " + status_ + " " + getDurationMicros() + "us " + attributes_ + " " + events_;
+  }
+}
@@ -0,0 +1,387 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.span;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The encoding of blocks of spans in span files.
+ * 
+ * Each block is self contained and begins with a magic number, a span count, a table of the distinct
+ * trace IDs in the block and a dictionary of all the strings in the block. The span data follows as
+ * columns (all span IDs, then all names, then all start times etc), with times delta encoded and all
+ * small integers written as variable length. This makes blocks compact before compression and
+ * compress very well.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+/* package */ class SpanCodec
+{
+  /* package */ static final int MAGIC = 0x53504E31; // SPN1
+
+  private SpanCodec()
+  {}
+  
+  /**
+   * Encode the given spans as a block.
+   * 
+   * @param spans A list of spans.
+   * @param out   The stream to which the block is written.
+   * 
+   * @throws IOException If the stream throws.
+   */
+  /* package */ static void encode(List<Span> spans, OutputStream out) throws IOException
+  {
+    Map<String, Integer>  dictionary  = new LinkedHashMap<>();
+    Map<TraceId, Integer> traceIds    = new LinkedHashMap<>();
+    ByteArrayOutputStream columns     = new ByteArrayOutputStream(spans.size() * 64);
+    
+    for(Span span : spans)
+      writeVarint(columns, traceIds.computeIfAbsent(new TraceId(span.getTraceIdHigh(), span.getTraceIdLow()), (k) -> traceIds.size()));
+    
+    for(Span span : spans)
+      writeLong(columns, span.getSpanId());
+    
+    for(Span span : spans)
+      writeLong(columns, span.getParentSpanId());
+    
+    for(Span span : spans)
+      writeString(columns, dictionary, span.getName());
+    
+    for(Span span : spans)
+      writeString(columns, dictionary, span.getSubjectId());
+    
+    long previous = 0;
+    
+    for(Span span : spans)
+    {
+      writeZigzag(columns, span.getStartMicros() - previous);
+      previous = span.getStartMicros();
+    }
+    
+    for(Span span : spans)
+      writeZigzag(columns, span.getDurationMicros());
+    
+    for(Span span : spans)
+      writeString(columns, dictionary, span.getStatus());
+    
+    for(Span span : spans)
+      writeVarint(columns, span.getAttributes().size());
+    
+    for(Span span : spans)
+    {
+      for(Map.Entry<String, String> entry : span.getAttributes().entrySet())
+      {
+        writeString(columns, dictionary, entry.getKey());
+        writeString(columns, dictionary, entry.getValue());
+      }
+    }
+    
+    for(Span span : spans)
+      writeVarint(columns, span.getEvents().size());
+    
+    for(Span span : spans)
+    {
+      for(SpanEvent event : span.getEvents())
+      {
+        writeString(columns, dictionary, event.getName());
+        writeZigzag(columns, event.getTimeMicros() - span.getStartMicros());
+        writeString(columns, dictionary, event.getSubjectType());
+        writeString(columns, dictionary, event.getSubjectId());
+      }
+    }
+    
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    
+    writeInt(header, MAGIC);
+    writeVarint(header, spans.size());
+    writeVarint(header, traceIds.size());
+    
+    for(TraceId traceId : traceIds.keySet())
+    {
+      writeLong(header, traceId.high_);
+      writeLong(header, traceId.low_);
+    }
+    
+    writeVarint(header, dictionary.size());
+    
+    for(String s : dictionary.keySet())
+    {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      
+      writeVarint(header, bytes.length);
+      header.write(bytes);
+    }
+    
+    header.writeTo(out);
+    columns.writeTo(out);
+  }
+  
+  /**
+   * Decode a block of spans.
+   * 
+   * @param in  The stream from which to read.
+   * 
+   * @return The spans in the block, or null if the stream is at end of file.
+   * 
+   * @throws IOException If the stream throws or the data is not a valid block.
+   */
+  /* package */ static List<Span> decode(DataInputStream in) throws IOException
+  {
+    int magic;
+    
+    try
+    {
+      magic = in.readInt();
+    }
+    catch(EOFException e)
+    {
+      return null;
+    }
+    
+    if(magic != MAGIC)
+      throw new IOException("Invalid span block header " + Integer.toHexString(magic));
+    
+    int       count       = readVarint(in);
+    long[]    traceIds    = new long[2 * readVarint(in)];
+    
+    for(int i=0 ; i<traceIds.length ; i++)
+      traceIds[i] = in.readLong();
+    
+    String[]  dictionary  = new String[readVarint(in)];
+    
+    for(int i=0 ; i<dictionary.length ; i++)
+    {
+      byte[] bytes = new byte[readVarint(in)];
+      
+      in.readFully(bytes);
+      dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    int[]     traceIndex  = new int[count];
+    long[]    spanId      = new long[count];
+    long[]    parentId    = new long[count];
+    String[]  name        = new String[count];
+    String[]  subjectId   = new String[count];
+    long[]    start       = new long[count];
+    long[]    duration    = new long[count];
+    String[]  status      = new String[count];
+    int[]     attrCount   = new int[count];
+    int[]     eventCount  = new int[count];
+    
+    for(int i=0 ; i<count ; i++)
+      traceIndex[i] = readVarint(in);
+    
+    for(int i=0 ; i<count ; i++)
+      spanId[i] = in.readLong();
+    
+    for(int i=0 ; i<count ; i++)
+      parentId[i] = in.readLong();
+    
+    for(int i=0 ; i<count ; i++)
+      name[i] = readString(in, dictionary);
+    
+    for(int i=0 ; i<count ; i++)
+      subjectId[i] = readString(in, dictionary);
+    
+    long previous = 0;
+    
+    for(int i=0 ; i<count ; i++)
+      previous = start[i] = previous + readZigzag(in);
+    
+    for(int i=0 ; i<count ; i++)
+      duration[i] = readZigzag(in);
+    
+    for(int i=0 ; i<count ; i++)
+      status[i] = readString(in, dictionary);
+    
+    for(int i=0 ; i<count ; i++)
+      attrCount[i] = readVarint(in);
+    
+    List<Map<String, String>> attributes = new ArrayList<>(count);
+    
+    for(int i=0 ; i<count ; i++)
+    {
+      if(attrCount[i] == 0)
+      {
+        attributes.add(Collections.emptyMap());
+      }
+      else
+      {
+        Map<String, String> map = new LinkedHashMap<>();
+        
+        for(int j=0 ; j<attrCount[i] ; j++)
+          map.put(readString(in, dictionary), readString(in, dictionary));
+        
+        attributes.add(map);
+      }
+    }
+    
+    for(int i=0 ; i<count ; i++)
+      eventCount[i] = readVarint(in);
+    
+    List<Span> spans = new ArrayList<>(count);
+    
+    for(int i=0 ; i<count ; i++)
+    {
+      List<SpanEvent> events = eventCount[i] == 0 ? Collections.emptyList() : new ArrayList<>(eventCount[i]);
+      
+      for(int j=0 ; j<eventCount[i] ; j++)
+        events.add(new SpanEvent(readString(in, dictionary), start[i] + readZigzag(in), readString(in, dictionary), readString(in, dictionary)));
+      
+      int t = 2 * traceIndex[i];
+      
+      if(t + 1 >= traceIds.length)
+        throw new IOException("Invalid trace index " + traceIndex[i]);
+      
+      spans.add(new Span(traceIds[t], traceIds[t + 1], spanId[i], parentId[i], name[i], subjectId[i], start[i],
+          start[i] + duration[i], status[i], attributes.get(i), events));
+    }
+    
+    return spans;
+  }
+
+  private static void writeString(OutputStream out, Map<String, Integer> dictionary, String s) throws IOException
+  {
+    // index zero represents null
+    writeVarint(out, s == null ? 0 : dictionary.computeIfAbsent(s, (k) -> dictionary.size()) + 1);
+  }
+
+  private static String readString(DataInputStream in, String[] dictionary) throws IOException
+  {
+    int index = readVarint(in);
+    
+    if(index == 0)
+      return null;
+    
+    if(index > dictionary.length)
+      throw new IOException("Invalid dictionary index " + index);
+    
+    return dictionary[index - 1];
+  }
+
+  private static void writeInt(OutputStream out, int value) throws IOException
+  {
+    out.write(value >>> 24);
+    out.write(value >>> 16);
+    out.write(value >>> 8);
+    out.write(value);
+  }
+
+  private static void writeLong(OutputStream out, long value) throws IOException
+  {
+    writeInt(out, (int)(value >>> 32));
+    writeInt(out, (int)value);
+  }
+
+  private static void writeVarint(OutputStream out, long value) throws IOException
+  {
+    while((value & ~0x7FL) != 0)
+    {
+      out.write((int)((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int)value);
+  }
+
+  private static void writeZigzag(OutputStream out, long value) throws IOException
+  {
+    writeVarint(out, (value << 1) ^ (value >> 63));
+  }
+
+  private static long readVarlong(InputStream in) throws IOException
+  {
+    long  value = 0;
+    int   shift = 0;
+    
+    while(shift < 64)
+    {
+      int b = in.read();
+      
+      if(b < 0)
+        throw new EOFException();
+      
+      value |= (long)(b & 0x7F) << shift;
+      
+      if((b & 0x80) == 0)
+        return value;
+      
+      shift += 7;
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  private static int readVarint(InputStream in) throws IOException
+  {
+    long value = readVarlong(in);
+    
+    if(value < 0 || value > Integer.MAX_VALUE)
+      throw new IOException("Varint out of range " + value);
+    
+    return (int)value;
+  }
+
+  private static long readZigzag(InputStream in) throws IOException
+  {
+    long value = readVarlong(in);
+    
+    return (value >>> 1) ^ -(value & 1);
+  }
+  
+  private static class TraceId
+  {
+    private final long high_;
+    private final long low_;
+    
+    private TraceId(long high, long low)
+    {
+      high_ = high;
+      low_ = low;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Long.hashCode(high_) * 31 + Long.hashCode(low_);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      return obj instanceof TraceId && ((TraceId)obj).high_ == high_ && ((TraceId)obj).low_ == low_;
+    }
+  }
+}
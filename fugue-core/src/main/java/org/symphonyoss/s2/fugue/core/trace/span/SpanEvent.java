@@ -0,0 +1,94 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.span;
+
+import javax.annotation.Nullable;
+
+/**
+ * An operation recorded within a span.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class SpanEvent
+{
+  private final String name_;
+  private final long   timeMicros_;
+  private final String subjectType_;
+  private final String subjectId_;
+
+  /**
+   * Constructor.
+   * 
+   * @param name        The operation ID.
+   * @param timeMicros  The time of the operation in microseconds since the epoch.
+   * @param subjectType The type of the subject of the operation, if any.
+   * @param subjectId   The ID of the subject of the operation, if any.
+   */
+  public SpanEvent(String name, long timeMicros, @Nullable String subjectType, @Nullable String subjectId)
+  {
+    name_ = name;
+    timeMicros_ = timeMicros;
+    subjectType_ = subjectType;
+    subjectId_ = subjectId;
+  }
+
+  /**
+   * @return The operation ID.
+   */
+  public String getName()
+  {
+    return name_;
+  }
+
+  /**
+   * @return The time of the operation in microseconds since the epoch.
+   */
+  public long getTimeMicros()
+  {
+    return timeMicros_;
+  }
+
+  /**
+   * @return The type of the subject of the operation, if any.
+   */
+  public @Nullable String getSubjectType()
+  {
+    return subjectType_;
+  }
+
+  /**
+   * @return The ID of the subject of the operation, if any.
+   */
+  public @Nullable String getSubjectId()
+  {
+    return subjectId_;
+  }
+
+  @Override
+  public String toString()
+  {
+    return subjectType_ == null ? name_ : name_ + "(" + subjectType_ + ":" + subjectId_ + ")";
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.span;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import org.symphonyoss.s2.fugue.metrics.Histogram;
+
+/**
+ * A reader for span files written by ColumnarSpanFileExporter.
+ * 
+ * When run from the command line this class reads all of the span files given as arguments (directories are
+ * searched for span files) and prints a summary of span durations by name and status:
+ * 
+ * <code>java org.symphonyoss.s2.fugue.core.trace.span.SpanFileReader [-dump] file-or-directory...</code>
+ * 
+ * The -dump option prints every span as well.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class SpanFileReader
+{
+  private SpanFileReader()
+  {}
+  
+  /**
+   * Read all spans from the given file.
+   * 
+   * A truncated final block, as may be found in a file which is still being written, is ignored.
+   * 
+   * @param file      A span file.
+   * @param consumer  A consumer for the spans.
+   * 
+   * @throws IOException If the file cannot be read or is not a valid span file.
+   */
+  public static void read(File file, Consumer<Span> consumer) throws IOException
+  {
+    try(DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file)))))
+    {
+      List<Span> spans;
+      
+      while((spans = readBlock(in)) != null)
+      {
+        for(Span span : spans)
+          consumer.accept(span);
+      }
+    }
+  }
+
+  private static List<Span> readBlock(DataInputStream in) throws IOException
+  {
+    try
+    {
+      return SpanCodec.decode(in);
+    }
+    catch(EOFException e)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Summarise the given span files.
+   * 
+   * @param args  Command line arguments.
+   * 
+   * @throws IOException If a file cannot be read.
+   */
+  public static void main(String[] args) throws IOException
+  {
+    boolean     dump  = false;
+    List<File>  files = new ArrayList<>();
+    
+    for(String arg : args)
+    {
+      if("-dump".equals(arg))
+      {
+        dump = true;
+      }
+      else
+      {
+        File file = new File(arg);
+        
+        if(file.isDirectory())
+        {
+          File[] children = file.listFiles((dir, name) -> name.endsWith(ColumnarSpanFileExporter.FILE_SUFFIX));
+          
+          if(children != null)
+          {
+            Arrays.sort(children);
+            files.addAll(Arrays.asList(children));
+          }
+        }
+        else
+        {
+          files.add(file);
+        }
+      }
+    }
+    
+    if(files.isEmpty())
+    {
+      System.err.println("Usage: SpanFileReader [-dump] file-or-directory...");
+      System.exit(1);
+    }
+    
+    Summary summary = new Summary();
+    PrintStream out = System.out;
+    boolean printSpans = dump;
+    
+    for(File file : files)
+    {
+      read(file, (span) ->
+      {
+        if(printSpans)
+          out.println(span);
+        
+        summary.accept(span);
+      });
+    }
+    
+    summary.print(out);
+  }
+  
+  private static class Summary implements Consumer<Span>
+  {
+    private final Map<String, Histogram> histograms_ = new TreeMap<>();
+    private long                         roots_;
+    
+    @Override
+    public void accept(Span span)
+    {
+      if(span.isRoot())
+        roots_++;
+      
+      histograms_.computeIfAbsent(span.getName() + "|" + span.getStatus(), (k) -> new Histogram())
+        .record(span.getDurationMicros());
+    }
+    
+    private void print(PrintStream out)
+    {
+      out.format("%d traces%n%n", roots_);
+      out.format("%-40s %-16s %10s %12s %12s %12s %12s %12s%n", "Name", "Status", "Count", "Mean(us)", "p50(us)", "p99(us)",
+          "p99.9(us)", "Max(us)");
+      
+      for(Map.Entry<String, Histogram> entry : histograms_.entrySet())
+      {
+        String[]  key = entry.getKey().split("\\|", 2);
+        Histogram h   = entry.getValue();
+        
+        out.format("%-40s %-16s %10d %12.1f %12d %12d %12d %12d%n", key[0], key[1], h.getCount(), h.getMean(),
+            h.getValueAtPercentile(50.0), h.getValueAtPercentile(99.0), h.getValueAtPercentile(99.9), h.getMax());
+      }
+    }
+  }
+}
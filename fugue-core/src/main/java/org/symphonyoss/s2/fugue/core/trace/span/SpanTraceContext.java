@@ -0,0 +1,210 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.span;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.s2.common.hash.Hash;
+import org.symphonyoss.s2.common.hash.HashProvider;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+
+/**
+ * An ITraceContext which records a span.
+ * 
+ * The span is completed, and passed to the exporter, when FINISHED or ABORTED is traced. Operations traced after
+ * that are ignored. Sub-contexts record child spans within the same trace.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class SpanTraceContext implements ITraceContext
+{
+  private final SpanTraceContextFactory factory_;
+  private final long                    traceIdHigh_;
+  private final long                    traceIdLow_;
+  private final long                    spanId_;
+  private final long                    parentSpanId_;
+  private final String                  subjectType_;
+  private final String                  subjectId_;
+  private final Instant                 timestamp_;
+  private final long                    startMicros_;
+
+  private Map<String, String>           attributes_;
+  private List<SpanEvent>               events_;
+  private boolean                       ended_;
+  private Hash                          hash_;
+
+  /* package */ SpanTraceContext(SpanTraceContextFactory factory, long traceIdHigh, long traceIdLow, long parentSpanId,
+      @Nullable String subjectType, @Nullable String subjectId, Instant timestamp)
+  {
+    factory_ = factory;
+    traceIdHigh_ = traceIdHigh;
+    traceIdLow_ = traceIdLow;
+    spanId_ = newId();
+    parentSpanId_ = parentSpanId;
+    subjectType_ = subjectType;
+    subjectId_ = subjectId;
+    timestamp_ = timestamp;
+    startMicros_ = toMicros(timestamp);
+  }
+
+  /* package */ static long newId()
+  {
+    long id;
+    
+    do
+    {
+      id = ThreadLocalRandom.current().nextLong();
+    } while(id == 0);
+    
+    return id;
+  }
+
+  /* package */ static long toMicros(Instant time)
+  {
+    return time.getEpochSecond() * 1000000L + time.getNano() / 1000;
+  }
+
+  /**
+   * Set an attribute of the span.
+   * 
+   * @param name  The attribute name.
+   * @param value The attribute value.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized SpanTraceContext withAttribute(String name, String value)
+  {
+    if(!ended_)
+    {
+      if(attributes_ == null)
+        attributes_ = new LinkedHashMap<>();
+      
+      attributes_.put(name, value);
+    }
+    
+    return this;
+  }
+
+  /**
+   * Return the propagatable ID of this context, which is of the form traceId-spanId in hex.
+   */
+  @Override
+  public String getTraceId()
+  {
+    return String.format("%016x%016x-%016x", traceIdHigh_, traceIdLow_, spanId_);
+  }
+
+  /**
+   * @return The ID of this span.
+   */
+  public long getSpanId()
+  {
+    return spanId_;
+  }
+
+  @Override
+  public synchronized Hash getHash()
+  {
+    if(hash_ == null)
+      hash_ = HashProvider.getCompositeHashOf(getTraceId());
+    
+    return hash_;
+  }
+
+  @Override
+  public Instant getTimestamp()
+  {
+    return timestamp_;
+  }
+
+  @Override
+  public void trace(String operationId)
+  {
+    record(operationId, toMicros(Instant.now()), null, null);
+  }
+
+  @Override
+  public void trace(String operationId, Instant time)
+  {
+    record(operationId, toMicros(time), null, null);
+  }
+
+  @Override
+  public void trace(String operationId, String subjectType, String subjectId)
+  {
+    record(operationId, toMicros(Instant.now()), subjectType, subjectId);
+  }
+
+  private void record(String operationId, long timeMicros, String subjectType, String subjectId)
+  {
+    Span span;
+    
+    synchronized(this)
+    {
+      if(ended_)
+        return;
+      
+      if(!FINISHED.equals(operationId) && !ABORTED.equals(operationId))
+      {
+        if(events_ == null)
+          events_ = new ArrayList<>();
+        
+        if(events_.size() < factory_.getMaxEventsPerSpan())
+          events_.add(new SpanEvent(operationId, timeMicros, subjectType, subjectId));
+        
+        return;
+      }
+      
+      ended_ = true;
+      
+      span = new Span(traceIdHigh_, traceIdLow_, spanId_, parentSpanId_, subjectType_, subjectId_, startMicros_,
+          timeMicros, operationId,
+          attributes_ == null ? Collections.emptyMap() : attributes_,
+          events_ == null ? Collections.emptyList() : events_);
+    }
+    
+    factory_.export(span);
+  }
+
+  @Override
+  public ITraceContext createSubContext(String subjectType, String subjectId)
+  {
+    return createSubContext(subjectType, subjectId, Instant.now());
+  }
+
+  @Override
+  public ITraceContext createSubContext(String subjectType, String subjectId, Instant time)
+  {
+    return new SpanTraceContext(factory_, traceIdHigh_, traceIdLow_, spanId_, subjectType, subjectId, time);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.span;
+
+import java.time.Instant;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.s2.fugue.core.trace.ITraceContextFactory;
+
+/**
+ * An ITraceContextFactory which records a tree of spans for each transaction and passes completed spans
+ * to an ISpanExporter.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class SpanTraceContextFactory implements ITraceContextFactory
+{
+  private final ISpanExporter exporter_;
+  private final int           maxEventsPerSpan_;
+
+  /**
+   * Constructor.
+   * 
+   * @param exporter The exporter for completed spans.
+   */
+  public SpanTraceContextFactory(ISpanExporter exporter)
+  {
+    this(exporter, 100);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param exporter          The exporter for completed spans.
+   * @param maxEventsPerSpan  The maximum number of operations recorded in a single span, beyond which
+   *                          operations are ignored.
+   */
+  public SpanTraceContextFactory(ISpanExporter exporter, int maxEventsPerSpan)
+  {
+    exporter_ = exporter;
+    maxEventsPerSpan_ = maxEventsPerSpan;
+  }
+
+  @Override
+  public SpanTraceContext createTransaction(@Nullable String subjectType, @Nullable String subjectId)
+  {
+    return createTransaction(subjectType, subjectId, Instant.now());
+  }
+
+  @Override
+  public SpanTraceContext createTransaction(String subjectType, String subjectId, Instant startTime)
+  {
+    return new SpanTraceContext(this, SpanTraceContext.newId(), SpanTraceContext.newId(), 0, subjectType, subjectId, startTime);
+  }
+
+  /**
+   * Create a transaction whose root span is a child of the given remote span.
+   * 
+   * If parentTraceId is not a valid span trace ID (see SpanTraceContext.getTraceId()) a new trace is started.
+   */
+  @Override
+  public SpanTraceContext createTransaction(String subjectType, String subjectId, Instant startTime, @Nullable String parentTraceId)
+  {
+    if(parentTraceId != null && parentTraceId.length() == 49 && parentTraceId.charAt(32) == '-')
+    {
+      try
+      {
+        return new SpanTraceContext(this,
+            Long.parseUnsignedLong(parentTraceId.substring(0, 16), 16),
+            Long.parseUnsignedLong(parentTraceId.substring(16, 32), 16),
+            Long.parseUnsignedLong(parentTraceId.substring(33), 16),
+            subjectType, subjectId, startTime);
+      }
+      catch(NumberFormatException e)
+      {
+        // fall through and start a new trace
+      }
+    }
+    
+    return createTransaction(subjectType, subjectId, startTime);
+  }
+
+  /* package */ int getMaxEventsPerSpan()
+  {
+    return maxEventsPerSpan_;
+  }
+
+  /* package */ void export(Span span)
+  {
+    exporter_.export(span);
+  }
+}
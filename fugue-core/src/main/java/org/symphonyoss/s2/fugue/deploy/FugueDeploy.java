@@ -554,7 +554,7 @@ public abstract class FugueDeploy extends CommandLineHandler
 
   private IBatch createBatch()
   {
-    return new ExecutorBatch(executor_);
+    return new TaskGroupBatch(executor_);
 //    return new SerialBatch();
   }
 
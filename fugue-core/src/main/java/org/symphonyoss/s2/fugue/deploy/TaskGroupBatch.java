@@ -0,0 +1,95 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.deploy;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+
+import org.symphonyoss.s2.fugue.concurrent.TaskGroup;
+
+/**
+ * An implementation of IBatch based on a TaskGroup.
+ * 
+ * If any task throws an exception then all other tasks are cancelled, subsequent calls to submit
+ * throw an IllegalStateException and waitForAllTasks throws an IllegalStateException with the
+ * original exception as its cause.
+ * 
+ * We assume that any exception from any task is program fatal.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class TaskGroupBatch implements IBatch
+{
+  private final TaskGroup<Void> group_;
+
+  /**
+   * Constructor.
+   * 
+   * @param executor The executor to process tasks.
+   */
+  public TaskGroupBatch(Executor executor)
+  {
+    group_ = new TaskGroup<>(executor);
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param group The task group to process tasks.
+   */
+  public TaskGroupBatch(TaskGroup<Void> group)
+  {
+    group_ = group;
+  }
+  
+  @Override
+  public void submit(Runnable task)
+  {
+    group_.submit(task);
+  }
+
+  @Override
+  public void waitForAllTasks()
+  {
+    try
+    {
+      group_.join();
+    }
+    catch (ExecutionException e)
+    {
+      throw new IllegalStateException("Batch task failed", e.getCause());
+    }
+    catch (TimeoutException e)
+    {
+      throw new IllegalStateException("Batch timed out", e);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for batch", e);
+    }
+  }
+}
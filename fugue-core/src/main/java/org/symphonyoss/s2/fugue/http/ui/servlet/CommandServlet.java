@@ -25,6 +25,8 @@ package org.symphonyoss.s2.fugue.http.ui.servlet;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.servlet.ServletException;
@@ -56,7 +58,11 @@ public class CommandServlet extends HttpServlet
   {
     try
     {
-      handler_.handle();
+      if(handler_ instanceof IParameterizedCommandHandler)
+        ((IParameterizedCommandHandler)handler_).handle(getParameters(req));
+      else
+        handler_.handle();
+      
       respondOK(resp);
     }
     catch(Exception e)
@@ -65,6 +71,21 @@ public class CommandServlet extends HttpServlet
     }
   }
 
+  private Map<String, String> getParameters(HttpServletRequest req)
+  {
+    Map<String, String> parameters = new HashMap<>();
+    
+    for(Map.Entry<String, String[]> entry : req.getParameterMap().entrySet())
+    {
+      String[] values = entry.getValue();
+      
+      if(values != null && values.length > 0 && values[0] != null && values[0].trim().length() > 0)
+        parameters.put(entry.getKey(), values[0].trim());
+    }
+    
+    return parameters;
+  }
+
   protected void doPost(HttpServletRequest req, HttpServletResponse resp)
       throws ServletException, IOException
   {
@@ -0,0 +1,60 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.http.ui.servlet;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A command handler which accepts named parameters.
+ * 
+ * The parameters are rendered as input fields alongside the command button on the status page and passed
+ * to the handler as request parameters.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public interface IParameterizedCommandHandler extends ICommandHandler
+{
+  /**
+   * Return the names of the parameters accepted by this handler together with their current values,
+   * which are used as the initial values of the input fields.
+   * 
+   * @return The parameters accepted by this handler, in display order.
+   */
+  Map<String, String> getParameters();
+  
+  /**
+   * Execute the command.
+   * 
+   * @param parameters  The non-empty parameters supplied by the caller.
+   */
+  void handle(Map<String, String> parameters);
+  
+  @Override
+  default void handle()
+  {
+    handle(Collections.emptyMap());
+  }
+}
@@ -169,6 +169,15 @@ public class StatusServlet extends UIServlet implements IUrlPathServlet, IUIPane
   private void printCommand(UIHtmlWriter out, ICommand command)
   {
     out.openElement("form", "method", "GET", "action", command.getPath(), "class", "commandForm");
+    
+    if(command.getHandler() instanceof IParameterizedCommandHandler)
+    {
+      for(Map.Entry<String, String> entry : ((IParameterizedCommandHandler)command.getHandler()).getParameters().entrySet())
+      {
+        out.printElement("label", entry.getKey());
+        out.printTextInput(entry.getKey(), entry.getValue());
+      }
+    }
     out.println(
         "<button class=\"w3-btn\">" + command.getName() + " &nbsp;<i class=\"fa fa-arrow-right\"></i></button>");
     out.closeElement(); // form
@@ -0,0 +1,179 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free log-linear histogram of non-negative long values.
+ * 
+ * Values are counted in buckets whose width doubles with each power of two, each power of two being divided into
+ * 32 linear sub-buckets, so percentiles are accurate to about 3% of the value over the entire range of long.
+ * 
+ * Recording a value is a handful of atomic operations and never allocates, so histograms can be updated from
+ * business threads. Reads are not atomic with respect to concurrent updates, so percentiles may be very
+ * slightly inconsistent with the count while values are being recorded.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class Histogram
+{
+  private static final int    SUB_BUCKET_BITS  = 5;
+  private static final int    SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int    SUB_BUCKET_MASK  = SUB_BUCKET_COUNT - 1;
+  private static final int    BUCKET_COUNT     = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts_        = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder       count_         = new LongAdder();
+  private final LongAdder       sum_           = new LongAdder();
+  private final AtomicLong      max_           = new AtomicLong();
+
+  /**
+   * Record the given value, negative values are recorded as zero.
+   * 
+   * @param value A value.
+   */
+  public void record(long value)
+  {
+    if(value < 0)
+      value = 0;
+    
+    counts_.incrementAndGet(indexOf(value));
+    count_.increment();
+    sum_.add(value);
+    
+    long max;
+    
+    while(value > (max = max_.get()))
+    {
+      if(max_.compareAndSet(max, value))
+        break;
+    }
+  }
+
+  /**
+   * @return The number of values recorded.
+   */
+  public long getCount()
+  {
+    return count_.sum();
+  }
+
+  /**
+   * @return The sum of all values recorded.
+   */
+  public long getSum()
+  {
+    return sum_.sum();
+  }
+
+  /**
+   * @return The largest value recorded.
+   */
+  public long getMax()
+  {
+    return max_.get();
+  }
+
+  /**
+   * @return The mean of all values recorded, or zero if there are none.
+   */
+  public double getMean()
+  {
+    long count = count_.sum();
+    
+    return count == 0 ? 0.0 : (double)sum_.sum() / count;
+  }
+
+  /**
+   * Return the value at the given percentile.
+   * 
+   * The value returned is the highest value which falls into the same bucket as the value at the given percentile, so
+   * it is never lower than the true value.
+   * 
+   * @param percentile A percentile between 0.0 and 100.0.
+   * 
+   * @return The value at the given percentile, or zero if no values have been recorded.
+   */
+  public long getValueAtPercentile(double percentile)
+  {
+    long[] counts = new long[BUCKET_COUNT];
+    long   total  = 0;
+    
+    for(int i=0 ; i<BUCKET_COUNT ; i++)
+    {
+      counts[i] = counts_.get(i);
+      total += counts[i];
+    }
+    
+    if(total == 0)
+      return 0;
+    
+    long rank       = Math.max(1, (long)Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total));
+    long cumulative = 0;
+    
+    for(int i=0 ; i<BUCKET_COUNT ; i++)
+    {
+      cumulative += counts[i];
+      
+      if(cumulative >= rank)
+        return Math.min(highestValueAt(i), max_.get());
+    }
+    
+    return max_.get();
+  }
+  
+  /* package */ static int indexOf(long value)
+  {
+    if(value < SUB_BUCKET_COUNT)
+      return (int)value;
+    
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    
+    return (shift + 1) * SUB_BUCKET_COUNT + (int)((value >>> shift) & SUB_BUCKET_MASK);
+  }
+  
+  /* package */ static long lowestValueAt(int index)
+  {
+    if(index < SUB_BUCKET_COUNT)
+      return index;
+    
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    
+    return ((long)(SUB_BUCKET_COUNT + (index & SUB_BUCKET_MASK))) << shift;
+  }
+  
+  /* package */ static long highestValueAt(int index)
+  {
+    if(index < SUB_BUCKET_COUNT)
+      return index;
+    
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    
+    return lowestValueAt(index) + (1L << shift) - 1;
+  }
+}
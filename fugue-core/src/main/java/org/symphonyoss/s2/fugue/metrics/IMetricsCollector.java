@@ -0,0 +1,65 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.metrics;
+
+/**
+ * A collector of metric values.
+ * 
+ * Labels are passed as alternating name, value pairs.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public interface IMetricsCollector
+{
+  /**
+   * Collect a gauge, which is a value which can go up and down.
+   * 
+   * @param name    The metric name.
+   * @param help    A description of the metric.
+   * @param value   The current value.
+   * @param labels  Alternating label names and values.
+   */
+  void gauge(String name, String help, double value, String ...labels);
+  
+  /**
+   * Collect a counter, which is a monotonically increasing value.
+   * 
+   * @param name    The metric name.
+   * @param help    A description of the metric.
+   * @param value   The current value.
+   * @param labels  Alternating label names and values.
+   */
+  void counter(String name, String help, long value, String ...labels);
+  
+  /**
+   * Collect a histogram, which is reported as a summary with the 50th, 99th and 99.9th percentiles.
+   * 
+   * @param name      The metric name.
+   * @param help      A description of the metric.
+   * @param histogram The histogram.
+   * @param labels    Alternating label names and values.
+   */
+  void histogram(String name, String help, Histogram histogram, String ...labels);
+}
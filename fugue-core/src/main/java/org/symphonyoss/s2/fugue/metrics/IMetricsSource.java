@@ -0,0 +1,46 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.metrics;
+
+/**
+ * A component which produces metrics.
+ * 
+ * Components registered with a FugueServer which implement this interface have their metrics exposed
+ * on the Metrics panel of the status UI and on the /metrics scrape endpoint.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+@FunctionalInterface
+public interface IMetricsSource
+{
+  /**
+   * Pass the current values of all metrics to the given collector.
+   * 
+   * All of the values for a given metric name must be passed consecutively.
+   * 
+   * @param collector A collector for metric values.
+   */
+  void collectMetrics(IMetricsCollector collector);
+}
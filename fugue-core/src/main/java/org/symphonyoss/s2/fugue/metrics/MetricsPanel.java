@@ -0,0 +1,125 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.metrics;
+
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.symphonyoss.s2.fugue.http.ui.servlet.IUIPanel;
+import org.symphonyoss.s2.fugue.http.ui.servlet.UIHtmlWriter;
+import org.symphonyoss.s2.fugue.http.ui.servlet.UIPanel;
+
+/**
+ * A UI panel which displays the metrics of all registered IMetricsSource components.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class MetricsPanel extends UIPanel implements IUIPanel
+{
+  private final List<IMetricsSource> sources_;
+
+  /**
+   * Constructor.
+   * 
+   * @param sources The sources of metrics, which may be added to after construction.
+   */
+  public MetricsPanel(List<IMetricsSource> sources)
+  {
+    super("Metrics");
+    
+    sources_ = sources;
+  }
+
+  @Override
+  public void handleContent(HttpServletRequest req, UIHtmlWriter out)
+  {
+    out.openElement(TABLE, CLASS, "w3-table " + CLASS_STRIPY_TABLE);
+    
+    out.openElement("tr");
+    out.printElement("td", "Metric");
+    out.printElement("td", "Labels");
+    out.printElement("td", "Value / Count");
+    out.printElement("td", "Mean");
+    out.printElement("td", "p50");
+    out.printElement("td", "p99");
+    out.printElement("td", "p99.9");
+    out.printElement("td", "Max");
+    out.closeElement(); //tr
+    
+    IMetricsCollector collector = new IMetricsCollector()
+    {
+      @Override
+      public void gauge(String name, String help, double value, String... labels)
+      {
+        printRow(out, name, labels, String.valueOf(value));
+      }
+
+      @Override
+      public void counter(String name, String help, long value, String... labels)
+      {
+        printRow(out, name, labels, String.valueOf(value));
+      }
+
+      @Override
+      public void histogram(String name, String help, Histogram histogram, String... labels)
+      {
+        printRow(out, name, labels, String.valueOf(histogram.getCount()),
+            String.format("%.1f", histogram.getMean()),
+            String.valueOf(histogram.getValueAtPercentile(50.0)),
+            String.valueOf(histogram.getValueAtPercentile(99.0)),
+            String.valueOf(histogram.getValueAtPercentile(99.9)),
+            String.valueOf(histogram.getMax()));
+      }
+    };
+    
+    for(IMetricsSource source : sources_)
+      source.collectMetrics(collector);
+    
+    out.closeElement(); // table
+  }
+
+  private void printRow(UIHtmlWriter out, String name, String[] labels, String ...values)
+  {
+    StringBuilder s = new StringBuilder();
+    
+    for(int i=0 ; i<labels.length - 1 ; i += 2)
+    {
+      if(s.length() > 0)
+        s.append(", ");
+      
+      s.append(labels[i]).append('=').append(labels[i + 1]);
+    }
+    
+    out.openElement("tr");
+    out.printElement("td", name);
+    out.printElement("td", s.toString());
+    
+    for(int i=0 ; i<6 ; i++)
+      out.printElement("td", i < values.length ? values[i] : "");
+    
+    out.closeElement(); //tr
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.symphonyoss.s2.fugue.http.IUrlPathServlet;
+
+/**
+ * A servlet which exposes the metrics of all registered IMetricsSource components for scraping.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class MetricsServlet extends HttpServlet implements IUrlPathServlet
+{
+  private static final long          serialVersionUID = 1L;
+
+  private final List<IMetricsSource> sources_;
+
+  /**
+   * Constructor.
+   * 
+   * @param sources The sources of metrics, which may be added to after construction.
+   */
+  public MetricsServlet(List<IMetricsSource> sources)
+  {
+    sources_ = sources;
+  }
+
+  @Override
+  public String getUrlPath()
+  {
+    return "/metrics";
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException
+  {
+    resp.setContentType(PrometheusMetricsWriter.CONTENT_TYPE);
+    
+    try(PrintWriter out = resp.getWriter())
+    {
+      PrometheusMetricsWriter writer = new PrometheusMetricsWriter(out);
+      
+      for(IMetricsSource source : sources_)
+        source.collectMetrics(writer);
+    }
+  }
+}
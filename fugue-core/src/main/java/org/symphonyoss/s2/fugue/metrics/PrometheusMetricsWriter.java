@@ -0,0 +1,146 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.metrics;
+
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An IMetricsCollector which writes metrics in the Prometheus text exposition format.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class PrometheusMetricsWriter implements IMetricsCollector
+{
+  /** The content type of the Prometheus text format. */
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  
+  private static final String[] QUANTILES       = { "0.5", "0.99", "0.999" };
+  private static final double[] PERCENTILES     = { 50.0, 99.0, 99.9 };
+
+  private final PrintWriter     out_;
+  private final Set<String>     describedNames_ = new HashSet<>();
+
+  /**
+   * Constructor.
+   * 
+   * @param out The writer to which output is written.
+   */
+  public PrometheusMetricsWriter(PrintWriter out)
+  {
+    out_ = out;
+  }
+
+  @Override
+  public void gauge(String name, String help, double value, String... labels)
+  {
+    describe(name, help, "gauge");
+    sample(name, labels, null, String.valueOf(value));
+  }
+
+  @Override
+  public void counter(String name, String help, long value, String... labels)
+  {
+    describe(name, help, "counter");
+    sample(name, labels, null, String.valueOf(value));
+  }
+
+  @Override
+  public void histogram(String name, String help, Histogram histogram, String... labels)
+  {
+    describe(name, help, "summary");
+    
+    for(int i=0 ; i<QUANTILES.length ; i++)
+      sample(name, labels, QUANTILES[i], String.valueOf(histogram.getValueAtPercentile(PERCENTILES[i])));
+    
+    sample(name + "_sum", labels, null, String.valueOf(histogram.getSum()));
+    sample(name + "_count", labels, null, String.valueOf(histogram.getCount()));
+  }
+
+  private void describe(String name, String help, String type)
+  {
+    if(describedNames_.add(name))
+    {
+      out_.append("# HELP ").append(name).append(' ').println(help.replace("\\", "\\\\").replace("\n", "\\n"));
+      out_.append("# TYPE ").append(name).append(' ').println(type);
+    }
+  }
+
+  private void sample(String name, String[] labels, String quantile, String value)
+  {
+    out_.append(name);
+    
+    if(labels.length > 0 || quantile != null)
+    {
+      char separator = '{';
+      
+      for(int i=0 ; i<labels.length - 1 ; i += 2)
+      {
+        appendLabel(separator, labels[i], labels[i + 1]);
+        separator = ',';
+      }
+      
+      if(quantile != null)
+        appendLabel(separator, "quantile", quantile);
+      
+      out_.append('}');
+    }
+    
+    out_.append(' ').println(value);
+  }
+
+  private void appendLabel(char separator, String name, String value)
+  {
+    out_.append(separator).append(name).append("=\"");
+    
+    if(value != null)
+    {
+      for(int i=0 ; i<value.length() ; i++)
+      {
+        char c = value.charAt(i);
+        
+        switch(c)
+        {
+          case '\\':
+            out_.append("\\\\");
+            break;
+            
+          case '"':
+            out_.append("\\\"");
+            break;
+            
+          case '\n':
+            out_.append("\\n");
+            break;
+            
+          default:
+            out_.append(c);
+        }
+      }
+    }
+    out_.append('"');
+  }
+}
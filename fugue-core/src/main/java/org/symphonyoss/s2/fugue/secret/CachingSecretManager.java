@@ -0,0 +1,502 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.secret;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.common.concurrent.NamedThreadFactory;
+import org.symphonyoss.s2.common.dom.json.IImmutableJsonDomNode;
+import org.symphonyoss.s2.common.exception.NoSuchObjectException;
+import org.symphonyoss.s2.fugue.FugueComponentState;
+import org.symphonyoss.s2.fugue.IFugueComponent;
+import org.symphonyoss.s2.fugue.metrics.IMetricsCollector;
+import org.symphonyoss.s2.fugue.metrics.IMetricsSource;
+import org.symphonyoss.s2.fugue.naming.CredentialName;
+
+/**
+ * An ISecretManager which caches the secrets returned by another ISecretManager.
+ * 
+ * Each entry lives for the TTL after it was loaded. Entries which have been read since they were loaded
+ * are refreshed in the background shortly before they expire, so readers of active secrets never wait
+ * for the underlying secret manager, and entries which have not been read are dropped instead.
+ * 
+ * Concurrent misses for the same secret result in a single fetch. If a refresh fails the previous value
+ * continues to be served for up to the max stale time while further refreshes are attempted. The cache
+ * holds at most max size entries, evicting the least recently read. Secrets are evicted when they are put.
+ * 
+ * Register an instance as a server component to expose its metrics and stop its refresh thread.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class CachingSecretManager implements ISecretManager, IFugueComponent, IMetricsSource
+{
+  /** The default time for which a secret is cached. */
+  public static final long DEFAULT_TTL_MILLIS           = TimeUnit.MINUTES.toMillis(5);
+  
+  /** The default time before expiry at which an active secret is refreshed. */
+  public static final long DEFAULT_REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  
+  /** The default time after expiry for which a secret may be served if it cannot be refreshed. */
+  public static final long DEFAULT_MAX_STALE_MILLIS     = TimeUnit.MINUTES.toMillis(15);
+  
+  /** The default maximum number of cached secrets. */
+  public static final int  DEFAULT_MAX_SIZE             = 1000;
+  
+  private static final Logger log_ = LoggerFactory.getLogger(CachingSecretManager.class);
+  
+  private final ISecretManager                                  delegate_;
+  private final Map<String, Entry>                              cache_      = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<Entry>>           inFlight_   = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService                        scheduler_;
+  private final AtomicLong                                      hitCount_           = new AtomicLong();
+  private final AtomicLong                                      missCount_          = new AtomicLong();
+  private final AtomicLong                                      loadFailureCount_   = new AtomicLong();
+  private final AtomicLong                                      staleCount_         = new AtomicLong();
+  private final AtomicLong                                      evictionCount_      = new AtomicLong();
+  private final AtomicLong                                      evictGeneration_    = new AtomicLong();
+  
+  private volatile long ttlNanos_           = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TTL_MILLIS);
+  private volatile long refreshAheadNanos_  = TimeUnit.MILLISECONDS.toNanos(DEFAULT_REFRESH_AHEAD_MILLIS);
+  private volatile long maxStaleNanos_      = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_STALE_MILLIS);
+  private volatile int  maxSize_            = DEFAULT_MAX_SIZE;
+
+  /**
+   * Constructor.
+   * 
+   * @param delegate The secret manager from which secrets are loaded.
+   */
+  public CachingSecretManager(ISecretManager delegate)
+  {
+    delegate_ = delegate;
+    scheduler_ = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("SecretRefresh", true));
+  }
+  
+  /**
+   * Set the time for which a secret is cached.
+   * 
+   * @param ttlMillis The TTL in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public CachingSecretManager withTtlMillis(long ttlMillis)
+  {
+    if(ttlMillis < 1)
+      throw new IllegalArgumentException("ttlMillis must be >= 1");
+    
+    ttlNanos_ = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    
+    return this;
+  }
+  
+  /**
+   * Set the time before expiry at which a secret which has been read is refreshed in the background.
+   * 
+   * @param refreshAheadMillis The refresh ahead time in milliseconds, zero disables background refresh.
+   * 
+   * @return this (fluent method)
+   */
+  public CachingSecretManager withRefreshAheadMillis(long refreshAheadMillis)
+  {
+    if(refreshAheadMillis < 0)
+      throw new IllegalArgumentException("refreshAheadMillis must be >= 0");
+    
+    refreshAheadNanos_ = TimeUnit.MILLISECONDS.toNanos(refreshAheadMillis);
+    
+    return this;
+  }
+  
+  /**
+   * Set the time after expiry for which a secret may be served if it cannot be refreshed.
+   * 
+   * @param maxStaleMillis The max stale time in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public CachingSecretManager withMaxStaleMillis(long maxStaleMillis)
+  {
+    if(maxStaleMillis < 0)
+      throw new IllegalArgumentException("maxStaleMillis must be >= 0");
+    
+    maxStaleNanos_ = TimeUnit.MILLISECONDS.toNanos(maxStaleMillis);
+    
+    return this;
+  }
+  
+  /**
+   * Set the maximum number of cached secrets.
+   * 
+   * @param maxSize The maximum number of cached secrets.
+   * 
+   * @return this (fluent method)
+   */
+  public CachingSecretManager withMaxSize(int maxSize)
+  {
+    if(maxSize < 1)
+      throw new IllegalArgumentException("maxSize must be >= 1");
+    
+    maxSize_ = maxSize;
+    
+    return this;
+  }
+
+  @Override
+  public IImmutableJsonDomNode getSecret(CredentialName name) throws NoSuchObjectException
+  {
+    String  key   = name.toString();
+    Entry   entry = cache_.get(key);
+    long    now   = System.nanoTime();
+    
+    if(entry != null)
+    {
+      entry.lastReadNanos_ = now;
+      
+      if(now - entry.loadedNanos_ < ttlNanos_)
+      {
+        hitCount_.incrementAndGet();
+        
+        return entry.value_;
+      }
+      
+      if(entry.refreshFailed_ && now - entry.loadedNanos_ < ttlNanos_ + maxStaleNanos_)
+      {
+        // The last refresh failed, serve the stale value while we try again in the background.
+        staleCount_.incrementAndGet();
+        
+        if(entry.refreshing_.compareAndSet(false, true))
+          scheduler_.execute(() -> refresh(name, key, entry));
+        
+        return entry.value_;
+      }
+    }
+    
+    missCount_.incrementAndGet();
+    
+    try
+    {
+      return load(name, key).value_;
+    }
+    catch(RuntimeException e)
+    {
+      if(entry != null && now - entry.loadedNanos_ < ttlNanos_ + maxStaleNanos_)
+      {
+        log_.warn("Failed to load secret " + key + ", serving stale value", e);
+        
+        staleCount_.incrementAndGet();
+        entry.refreshFailed_ = true;
+        
+        return entry.value_;
+      }
+      
+      throw e;
+    }
+  }
+
+  /*
+   * Load the given secret, or wait for a load of it which is already in progress.
+   */
+  private Entry load(CredentialName name, String key) throws NoSuchObjectException
+  {
+    CompletableFuture<Entry> future   = new CompletableFuture<>();
+    CompletableFuture<Entry> existing = inFlight_.putIfAbsent(key, future);
+    
+    if(existing != null)
+      return await(existing);
+    
+    try
+    {
+      long  generation  = evictGeneration_.get();
+      Entry entry       = new Entry(delegate_.getSecret(name));
+      
+      future.complete(entry);
+      
+      // If the secret may have been put while we were loading it then don't cache what we loaded.
+      if(evictGeneration_.get() != generation)
+        return entry;
+      
+      cache_.put(key, entry);
+      
+      // An evict() between the check above and the put would otherwise leave what we loaded in the cache.
+      if(evictGeneration_.get() != generation)
+      {
+        cache_.remove(key, entry);
+        return entry;
+      }
+      
+      if(cache_.size() > maxSize_)
+        evictLeastRecentlyRead();
+      
+      long refreshAheadNanos = refreshAheadNanos_;
+      
+      if(refreshAheadNanos > 0)
+        scheduler_.schedule(() -> refreshAhead(name, key, entry), Math.max(0, ttlNanos_ - refreshAheadNanos), TimeUnit.NANOSECONDS);
+      
+      return entry;
+    }
+    catch(NoSuchObjectException e)
+    {
+      if(cache_.remove(key) != null)
+        evictionCount_.incrementAndGet();
+      
+      future.completeExceptionally(e);
+      throw e;
+    }
+    catch(RuntimeException e)
+    {
+      loadFailureCount_.incrementAndGet();
+      future.completeExceptionally(e);
+      throw e;
+    }
+    finally
+    {
+      inFlight_.remove(key, future);
+    }
+  }
+
+  private Entry await(CompletableFuture<Entry> future) throws NoSuchObjectException
+  {
+    try
+    {
+      return future.get();
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for secret", e);
+    }
+    catch(ExecutionException e)
+    {
+      if(e.getCause() instanceof NoSuchObjectException)
+        throw (NoSuchObjectException)e.getCause();
+      
+      if(e.getCause() instanceof RuntimeException)
+        throw (RuntimeException)e.getCause();
+      
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+  
+  private void refreshAhead(CredentialName name, String key, Entry entry)
+  {
+    if(cache_.get(key) != entry)
+      return;
+    
+    if(entry.lastReadNanos_ == entry.loadedNanos_)
+    {
+      // Not read since it was loaded, let it go rather than keeping it alive forever.
+      if(cache_.remove(key, entry))
+        evictionCount_.incrementAndGet();
+      
+      return;
+    }
+    
+    refresh(name, key, entry);
+  }
+
+  private void refresh(CredentialName name, String key, Entry entry)
+  {
+    if(cache_.get(key) != entry)
+      return;
+    
+    entry.refreshing_.set(true);
+    
+    try
+    {
+      load(name, key);
+    }
+    catch(NoSuchObjectException e)
+    {
+      log_.warn("Secret " + key + " no longer exists");
+    }
+    catch(RuntimeException e)
+    {
+      entry.refreshFailed_ = true;
+      
+      log_.warn("Failed to refresh secret " + key + ", continuing with the cached value", e);
+    }
+    finally
+    {
+      entry.refreshing_.set(false);
+    }
+  }
+  
+  private void evictLeastRecentlyRead()
+  {
+    while(cache_.size() > maxSize_)
+    {
+      Map.Entry<String, Entry> oldest = null;
+      
+      for(Map.Entry<String, Entry> e : cache_.entrySet())
+      {
+        if(oldest == null || e.getValue().lastReadNanos_ - oldest.getValue().lastReadNanos_ < 0)
+          oldest = e;
+      }
+      
+      if(oldest == null || !cache_.remove(oldest.getKey(), oldest.getValue()))
+        return;
+      
+      evictionCount_.incrementAndGet();
+    }
+  }
+
+  /**
+   * Remove the given secret from the cache, so that the next read loads it from the underlying secret manager.
+   * 
+   * @param name The name of a secret.
+   */
+  public void evict(CredentialName name)
+  {
+    evictGeneration_.incrementAndGet();
+    
+    if(cache_.remove(name.toString()) != null)
+      evictionCount_.incrementAndGet();
+  }
+
+  /**
+   * Remove all secrets from the cache.
+   */
+  public void evictAll()
+  {
+    evictGeneration_.incrementAndGet();
+    evictionCount_.addAndGet(cache_.size());
+    cache_.clear();
+  }
+
+  @Override
+  public void putSecret(CredentialName name, IImmutableJsonDomNode secret)
+  {
+    try
+    {
+      delegate_.putSecret(name, secret);
+    }
+    finally
+    {
+      evict(name);
+    }
+  }
+
+  @Override
+  public void putSecret(CredentialName name, String secret)
+  {
+    try
+    {
+      delegate_.putSecret(name, secret);
+    }
+    finally
+    {
+      evict(name);
+    }
+  }
+
+  /**
+   * @return The number of cached secrets.
+   */
+  public int size()
+  {
+    return cache_.size();
+  }
+
+  /**
+   * @return The number of reads served from the cache.
+   */
+  public long getHitCount()
+  {
+    return hitCount_.get();
+  }
+
+  /**
+   * @return The number of reads which were not served from the cache.
+   */
+  public long getMissCount()
+  {
+    return missCount_.get();
+  }
+
+  /**
+   * @return The number of reads which were served a stale value.
+   */
+  public long getStaleCount()
+  {
+    return staleCount_.get();
+  }
+
+  @Override
+  public void start()
+  {
+  }
+
+  @Override
+  public void stop()
+  {
+    scheduler_.shutdownNow();
+  }
+
+  @Override
+  public FugueComponentState getComponentState()
+  {
+    return FugueComponentState.OK;
+  }
+
+  @Override
+  public String getComponentStatusMessage()
+  {
+    return cache_.size() + " secrets cached";
+  }
+
+  @Override
+  public void collectMetrics(IMetricsCollector collector)
+  {
+    collector.gauge("fugue_secret_cache_size", "Number of cached secrets", cache_.size());
+    collector.counter("fugue_secret_cache_hits_total", "Secret reads served from the cache", hitCount_.get());
+    collector.counter("fugue_secret_cache_misses_total", "Secret reads not served from the cache", missCount_.get());
+    collector.counter("fugue_secret_cache_stale_total", "Secret reads served a stale value", staleCount_.get());
+    collector.counter("fugue_secret_cache_load_failures_total", "Failed loads from the underlying secret manager", loadFailureCount_.get());
+    collector.counter("fugue_secret_cache_evictions_total", "Secrets evicted from the cache", evictionCount_.get());
+  }
+  
+  private static class Entry
+  {
+    private final IImmutableJsonDomNode value_;
+    private final long                  loadedNanos_;
+    private volatile long               lastReadNanos_;
+    private volatile boolean            refreshFailed_;
+    private final AtomicBoolean         refreshing_ = new AtomicBoolean();
+    
+    private Entry(IImmutableJsonDomNode value)
+    {
+      value_ = value;
+      loadedNanos_ = System.nanoTime();
+      lastReadNanos_ = loadedNanos_;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.startup;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.symphonyoss.s2.fugue.http.ui.servlet.IUIPanel;
+import org.symphonyoss.s2.fugue.http.ui.servlet.UIHtmlWriter;
+import org.symphonyoss.s2.fugue.http.ui.servlet.UIPanel;
+
+/**
+ * A UI panel which displays the critical path and all steps of a StartupTimeline.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class StartupPanel extends UIPanel implements IUIPanel
+{
+  private final StartupTimeline timeline_;
+
+  /**
+   * Constructor.
+   * 
+   * @param timeline The timeline to display.
+   */
+  public StartupPanel(StartupTimeline timeline)
+  {
+    super("Startup");
+    
+    timeline_ = timeline;
+  }
+
+  @Override
+  public void handleContent(HttpServletRequest req, UIHtmlWriter out)
+  {
+    out.printElement("p", (timeline_.isFinished() ? "Startup completed at " : "Startup in progress, ")
+        + timeline_.getTotalMillis() + "ms");
+    
+    out.printElement("h3", "Critical Path");
+    
+    out.openElement(TABLE, CLASS, "w3-table " + CLASS_STRIPY_TABLE);
+    printHeader(out);
+    
+    for(StartupTimeline.Node node : timeline_.analyse())
+      printRow(out, node.getStep(), node.getDepth());
+    
+    out.closeElement(); // table
+    
+    out.printElement("h3", "All Steps");
+    
+    out.openElement(TABLE, CLASS, "w3-table " + CLASS_STRIPY_TABLE);
+    printHeader(out);
+    
+    for(StartupStep step : timeline_.getSteps())
+      printRow(out, step, 0);
+    
+    out.closeElement(); // table
+  }
+
+  private void printHeader(UIHtmlWriter out)
+  {
+    out.openElement("tr");
+    out.printElement("td", "Step");
+    out.printElement("td", "Thread");
+    out.printElement("td", "Start (ms)");
+    out.printElement("td", "Duration (ms)");
+    out.closeElement(); //tr
+  }
+
+  private void printRow(UIHtmlWriter out, StartupStep step, int depth)
+  {
+    out.openElement("tr");
+    out.printElement("td", step.getName(), "style", "padding-left:" + (depth + 1) + "em");
+    out.printElement("td", step.getThreadName());
+    out.printElement("td", String.valueOf(step.getStartMillis()));
+    out.printElement("td", step.isEnded() ? String.valueOf(step.getDurationMillis()) : step.getDurationMillis() + " (running)");
+    out.closeElement(); //tr
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.startup;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.symphonyoss.s2.fugue.http.IUrlPathServlet;
+
+/**
+ * A servlet which exposes a StartupTimeline as JSON, so that startup can be compared between builds.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class StartupServlet extends HttpServlet implements IUrlPathServlet
+{
+  private static final long               serialVersionUID = 1L;
+
+  private final transient StartupTimeline timeline_;
+
+  /**
+   * Constructor.
+   * 
+   * @param timeline The timeline to expose.
+   */
+  public StartupServlet(StartupTimeline timeline)
+  {
+    timeline_ = timeline;
+  }
+
+  @Override
+  public String getUrlPath()
+  {
+    return "/startup";
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException
+  {
+    resp.setContentType("application/json");
+    
+    try(PrintWriter out = resp.getWriter())
+    {
+      out.println(timeline_.toJson());
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.startup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A step in a startup timeline.
+ * 
+ * A step is begun by StartupTimeline.begin() and ends when it is closed, so that it can be used
+ * in a try-with-resources block around the work which it measures.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class StartupStep implements AutoCloseable
+{
+  private final StartupTimeline timeline_;
+  private final String          name_;
+  private final String          threadName_;
+  private final long            startNanos_;
+  private volatile long         endNanos_ = -1;
+
+  /* package */ StartupStep(StartupTimeline timeline, String name, String threadName, long startNanos)
+  {
+    timeline_ = timeline;
+    name_ = name;
+    threadName_ = threadName;
+    startNanos_ = startNanos;
+  }
+  
+  /* package */ StartupStep(StartupTimeline timeline, String name, String threadName, long startNanos, long endNanos)
+  {
+    this(timeline, name, threadName, startNanos);
+    
+    endNanos_ = endNanos;
+  }
+
+  /**
+   * End this step, if it has not already ended.
+   */
+  @Override
+  public void close()
+  {
+    if(endNanos_ < 0)
+      endNanos_ = System.nanoTime();
+  }
+
+  /**
+   * @return The name of this step.
+   */
+  public String getName()
+  {
+    return name_;
+  }
+
+  /**
+   * @return The name of the thread on which this step began.
+   */
+  public String getThreadName()
+  {
+    return threadName_;
+  }
+
+  /**
+   * @return true if this step has ended.
+   */
+  public boolean isEnded()
+  {
+    return endNanos_ >= 0;
+  }
+
+  /**
+   * @return The time at which this step began, in milliseconds since the start of the JVM.
+   */
+  public long getStartMillis()
+  {
+    return timeline_.toMillis(startNanos_);
+  }
+
+  /**
+   * @return The duration of this step in milliseconds, or the time since it began if it has not ended.
+   */
+  public long getDurationMillis()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(getEndNanos() - startNanos_);
+  }
+  
+  /* package */ long getStartNanos()
+  {
+    return startNanos_;
+  }
+  
+  /* package */ long getEndNanos()
+  {
+    long endNanos = endNanos_;
+    
+    return endNanos < 0 ? System.nanoTime() : endNanos;
+  }
+  
+  @Override
+  public String toString()
+  {
+    return name_ + "@" + getStartMillis() + "+" + getDurationMillis() + "ms";
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.startup;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A timeline of the steps taken to start a process.
+ * 
+ * Steps may be recorded from any thread. Steps are not explicitly nested, a step whose interval lies
+ * within the interval of another step is treated as part of that step, so that work done on other
+ * threads, such as the parallel start of components, is attributed to the step which waited for it.
+ * 
+ * The critical path is the chain of steps which determined when startup completed. It is found by
+ * starting from the step which ended last and repeatedly choosing the step which ended most recently
+ * before the current one began, among the steps at the same level of nesting, and then doing the same
+ * within each step on the path. Gaps between steps on the path are time which was not instrumented.
+ * 
+ * Times are reported in milliseconds since the start of the JVM. Once the timeline has been finished,
+ * which FugueServer does when it reaches the Running state, further steps are not recorded.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class StartupTimeline
+{
+  private static final StartupTimeline DEFAULT = new StartupTimeline(
+      System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime()));
+
+  private final long              originNanos_;
+  private final List<StartupStep> steps_       = new ArrayList<>();
+  private volatile long           finishNanos_ = -1;
+
+  /**
+   * Constructor for a timeline which starts now.
+   */
+  public StartupTimeline()
+  {
+    this(System.nanoTime());
+  }
+  
+  private StartupTimeline(long originNanos)
+  {
+    originNanos_ = originNanos;
+  }
+  
+  /**
+   * @return The timeline for the startup of this process.
+   */
+  public static StartupTimeline getDefault()
+  {
+    return DEFAULT;
+  }
+
+  /**
+   * Begin a step which ends when the returned step is closed.
+   * 
+   * @param name The name of the step.
+   * 
+   * @return The step.
+   */
+  public StartupStep begin(String name)
+  {
+    StartupStep step = new StartupStep(this, name, Thread.currentThread().getName(), System.nanoTime());
+    
+    add(step);
+    
+    return step;
+  }
+  
+  /**
+   * Record a step which has already completed.
+   * 
+   * @param name        The name of the step.
+   * @param startNanos  The value of System.nanoTime() when the step began.
+   * @param endNanos    The value of System.nanoTime() when the step ended.
+   */
+  public void record(String name, long startNanos, long endNanos)
+  {
+    add(new StartupStep(this, name, Thread.currentThread().getName(), startNanos, endNanos));
+  }
+  
+  private synchronized void add(StartupStep step)
+  {
+    if(finishNanos_ < 0)
+      steps_.add(step);
+  }
+  
+  /**
+   * Mark the end of startup, steps which begin after this are not recorded.
+   */
+  public synchronized void finish()
+  {
+    if(finishNanos_ < 0)
+      finishNanos_ = System.nanoTime();
+  }
+
+  /**
+   * @return true if startup has finished.
+   */
+  public boolean isFinished()
+  {
+    return finishNanos_ >= 0;
+  }
+
+  /**
+   * @return The time at which startup finished in milliseconds since the start of the JVM, or the current
+   * time if it has not finished.
+   */
+  public long getTotalMillis()
+  {
+    long finishNanos = finishNanos_;
+    
+    return toMillis(finishNanos < 0 ? System.nanoTime() : finishNanos);
+  }
+
+  /**
+   * @return All recorded steps in the order in which they began.
+   */
+  public synchronized List<StartupStep> getSteps()
+  {
+    List<StartupStep> steps = new ArrayList<>(steps_);
+    
+    steps.sort((a, b) -> Long.compare(a.getStartNanos(), b.getStartNanos()));
+    
+    return steps;
+  }
+
+  /**
+   * @return The steps on the critical path in order, each followed by the critical path within it.
+   */
+  public List<StartupStep> getCriticalPath()
+  {
+    List<StartupStep> result = new ArrayList<>();
+    
+    for(Node node : analyse())
+      result.add(node.step_);
+    
+    return result;
+  }
+  
+  /**
+   * @return The timeline as a JSON object, containing the total time, all steps and the critical path.
+   */
+  public String toJson()
+  {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode   json   = mapper.createObjectNode();
+    
+    json.put("finished", isFinished());
+    json.put("totalMillis", getTotalMillis());
+    
+    ArrayNode steps = json.putArray("steps");
+    
+    for(StartupStep step : getSteps())
+      steps.add(toJson(mapper, step, -1));
+    
+    ArrayNode criticalPath = json.putArray("criticalPath");
+    
+    for(Node node : analyse())
+      criticalPath.add(toJson(mapper, node.step_, node.depth_));
+    
+    try
+    {
+      return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(json);
+    }
+    catch (JsonProcessingException e)
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+  
+  private ObjectNode toJson(ObjectMapper mapper, StartupStep step, int depth)
+  {
+    ObjectNode json = mapper.createObjectNode();
+    
+    json.put("name", step.getName());
+    json.put("thread", step.getThreadName());
+    json.put("startMillis", step.getStartMillis());
+    json.put("durationMillis", step.getDurationMillis());
+    
+    if(!step.isEnded())
+      json.put("ended", false);
+    
+    if(depth >= 0)
+      json.put("depth", depth);
+    
+    return json;
+  }
+  
+  /* package */ long toMillis(long nanos)
+  {
+    return TimeUnit.NANOSECONDS.toMillis(nanos - originNanos_);
+  }
+
+  /**
+   * Nest the steps by their intervals and compute the critical path.
+   * 
+   * @return The nodes on the critical path, each followed by the critical path within it.
+   */
+  /* package */ List<Node> analyse()
+  {
+    List<Node> nodes = new ArrayList<>();
+    List<Node> roots = new ArrayList<>();
+    List<Node> stack = new ArrayList<>();
+    
+    for(StartupStep step : getSteps())
+      nodes.add(new Node(step));
+    
+    // steps which begin together are ordered outermost first
+    nodes.sort((a, b) -> a.start_ == b.start_ ? Long.compare(b.end_, a.end_) : Long.compare(a.start_, b.start_));
+    
+    for(Node node : nodes)
+    {
+      while(!stack.isEmpty() && !stack.get(stack.size() - 1).contains(node))
+        stack.remove(stack.size() - 1);
+      
+      if(stack.isEmpty())
+        roots.add(node);
+      else
+        stack.get(stack.size() - 1).children_.add(node);
+      
+      stack.add(node);
+    }
+    
+    List<Node> result = new ArrayList<>();
+    
+    addCriticalPath(result, roots, 0);
+    
+    return result;
+  }
+  
+  private void addCriticalPath(List<Node> result, List<Node> siblings, int depth)
+  {
+    if(siblings.isEmpty())
+      return;
+    
+    List<Node> path    = new ArrayList<>();
+    Node       current = null;
+    
+    for(Node node : siblings)
+    {
+      if(current == null || node.end_ > current.end_)
+        current = node;
+    }
+    
+    while(current != null)
+    {
+      path.add(current);
+      
+      Node predecessor = null;
+      
+      for(Node node : siblings)
+      {
+        if(node.end_ <= current.start_ && (predecessor == null || node.end_ > predecessor.end_))
+          predecessor = node;
+      }
+      
+      current = predecessor;
+    }
+    
+    Collections.reverse(path);
+    
+    for(Node node : path)
+    {
+      node.depth_ = depth;
+      result.add(node);
+      addCriticalPath(result, node.children_, depth + 1);
+    }
+  }
+  
+  /* package */ static class Node
+  {
+    private final StartupStep step_;
+    private final long        start_;
+    private final long        end_;
+    private final List<Node>  children_ = new ArrayList<>();
+    private int               depth_;
+    
+    private Node(StartupStep step)
+    {
+      step_ = step;
+      start_ = step.getStartNanos();
+      end_ = step.getEndNanos();
+    }
+    
+    private boolean contains(Node other)
+    {
+      return start_ <= other.start_ && other.end_ <= end_;
+    }
+    
+    /* package */ StartupStep getStep()
+    {
+      return step_;
+    }
+    
+    /* package */ int getDepth()
+    {
+      return depth_;
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestComponentStopper
+{
+  private static class SlowComponent implements IFugueComponent
+  {
+    private final String       name_;
+    private final long         stopMillis_;
+    private final List<String> events_;
+    
+    private SlowComponent(String name, long stopMillis, List<String> events)
+    {
+      name_ = name;
+      stopMillis_ = stopMillis;
+      events_ = events;
+    }
+
+    @Override
+    public void start()
+    {
+      events_.add("start " + name_);
+    }
+
+    @Override
+    public void stop()
+    {
+      try
+      {
+        Thread.sleep(stopMillis_);
+      }
+      catch (InterruptedException e)
+      {
+        events_.add("interrupted " + name_);
+        return;
+      }
+      
+      if(stopMillis_ < 0)
+        throw new IllegalStateException("Failed to stop");
+      
+      events_.add("stop " + name_);
+    }
+    
+    @Override
+    public String toString()
+    {
+      return name_;
+    }
+  }
+  
+  private static List<List<IFugueComponent>> levels(IFugueComponent[] ...levels)
+  {
+    List<List<IFugueComponent>> result = new ArrayList<>();
+    
+    for(IFugueComponent[] level : levels)
+      result.add(Arrays.asList(level));
+    
+    return result;
+  }
+  
+  @Test
+  public void testParallelLevel()
+  {
+    List<String>  events = Collections.synchronizedList(new ArrayList<>());
+    SlowComponent a      = new SlowComponent("A", 300, events);
+    SlowComponent b      = new SlowComponent("B", 300, events);
+    SlowComponent c      = new SlowComponent("C", 300, events);
+    SlowComponent d      = new SlowComponent("D", 0, events);
+    
+    ComponentStopper stopper = new ComponentStopper(5000, 10000);
+    long start = System.currentTimeMillis();
+    
+    assertFalse(stopper.stop(levels(new IFugueComponent[] {a, b, c}, new IFugueComponent[] {d})));
+    
+    long elapsed = System.currentTimeMillis() - start;
+    
+    assertTrue("Took " + elapsed + "ms", elapsed < 800);
+    assertEquals("stop D", events.get(3));
+    
+    Map<IFugueComponent, Long> stopMillis = stopper.getStopMillis();
+    
+    assertEquals(4, stopMillis.size());
+    assertTrue(stopMillis.get(a) >= 290);
+  }
+  
+  @Test
+  public void testTimeout()
+  {
+    List<String>  events = Collections.synchronizedList(new ArrayList<>());
+    SlowComponent hung   = new SlowComponent("Hung", 60000, events);
+    SlowComponent next   = new SlowComponent("Next", 0, events);
+    
+    ComponentStopper stopper = new ComponentStopper(200, 10000);
+    long start = System.currentTimeMillis();
+    
+    assertTrue(stopper.stop(levels(new IFugueComponent[] {hung}, new IFugueComponent[] {next})));
+    
+    long elapsed = System.currentTimeMillis() - start;
+    
+    assertTrue("Took " + elapsed + "ms", elapsed < 2000);
+    assertTrue(events.contains("stop Next"));
+  }
+  
+  @Test
+  public void testDeadline()
+  {
+    List<String>  events = Collections.synchronizedList(new ArrayList<>());
+    SlowComponent slow   = new SlowComponent("Slow", 300, events);
+    SlowComponent never  = new SlowComponent("Never", 0, events);
+    
+    ComponentStopper stopper = new ComponentStopper(5000, 100);
+    
+    assertTrue(stopper.stop(levels(new IFugueComponent[] {slow}, new IFugueComponent[] {never})));
+    assertFalse(events.contains("stop Never"));
+    assertFalse(stopper.getStopMillis().containsKey(never));
+  }
+  
+  @Test
+  public void testFailure()
+  {
+    List<String>  events = Collections.synchronizedList(new ArrayList<>());
+    SlowComponent failed = new SlowComponent("Failed", -1, events);
+    SlowComponent next   = new SlowComponent("Next", 0, events);
+    
+    ComponentStopper stopper = new ComponentStopper(5000, 10000);
+    
+    assertTrue(stopper.stop(levels(new IFugueComponent[] {failed}, new IFugueComponent[] {next})));
+    assertTrue(events.contains("stop Next"));
+  }
+  
+  @Test
+  public void testContainerStopsEachComponentOnce()
+  {
+    List<String>  events = Collections.synchronizedList(new ArrayList<>());
+    SlowComponent a      = new SlowComponent("A", 0, events);
+    SlowComponent b      = new SlowComponent("B", 200, events);
+    SlowComponent c      = new SlowComponent("C", 200, events);
+    
+    FugueComponentContainer container = new FugueComponentContainer()
+        .withComponents(a)
+        .withIndependentComponents(b, c);
+    
+    container.start();
+    
+    long start = System.currentTimeMillis();
+    container.stop();
+    long elapsed = System.currentTimeMillis() - start;
+    
+    assertEquals(FugueLifecycleState.Stopped, container.getLifecycleState());
+    assertEquals(6, events.size());
+    assertEquals(1, Collections.frequency(events, "stop A"));
+    assertEquals("stop A", events.get(5));
+    assertTrue("Took " + elapsed + "ms", elapsed < 350);
+    assertEquals(3, container.getStopMillis().size());
+  }
+  
+  @Test
+  public void testSlowDrainByDefault()
+  {
+    List<String>  events = Collections.synchronizedList(new ArrayList<>());
+    SlowComponent slow   = new SlowComponent("Slow", ShutdownCoordinator.DEFAULT_DEADLINE_MILLIS + 500, events);
+    
+    FugueComponentContainer container = new FugueComponentContainer()
+        .withComponents(slow);
+    
+    container.start();
+    container.stop();
+    
+    assertEquals(FugueLifecycleState.Stopped, container.getLifecycleState());
+    assertTrue(events.contains("stop Slow"));
+    assertFalse(events.contains("interrupted Slow"));
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.symphonyoss.s2.fugue.concurrent.ExecutorProfile;
+import org.symphonyoss.s2.fugue.concurrent.FugueExecutorService;
+
+@SuppressWarnings("javadoc")
+public class TestShutdownCoordinator
+{
+  private static FugueExecutorService newExecutor(String name)
+  {
+    return new FugueExecutorService(null, new ExecutorProfile(name)
+        .withCoreSize(1)
+        .withMaxSize(1));
+  }
+  
+  private static Runnable sleep(long millis)
+  {
+    return () ->
+    {
+      try
+      {
+        Thread.sleep(millis);
+      }
+      catch (InterruptedException e)
+      {
+        throw new IllegalStateException(e);
+      }
+    };
+  }
+  
+  @Test
+  public void testPhases()
+  {
+    List<String> calls = new ArrayList<>();
+    
+    IDrainableComponent component = new IDrainableComponent()
+    {
+      @Override
+      public void stopIntake()
+      {
+        calls.add("stopIntake");
+      }
+
+      @Override
+      public boolean awaitDrained(long timeout, TimeUnit unit)
+      {
+        calls.add("awaitDrained");
+        return true;
+      }
+
+      @Override
+      public int releaseUnstarted()
+      {
+        calls.add("releaseUnstarted");
+        return 3;
+      }
+    };
+    
+    ShutdownReport report = new ShutdownCoordinator()
+        .withComponent("test", component)
+        .shutdown();
+    
+    assertEquals(Arrays.asList("stopIntake", "awaitDrained", "releaseUnstarted"), calls);
+    assertTrue(report.isDrained());
+    assertEquals(3, report.getReleased());
+    
+    for(ShutdownPhase phase : ShutdownPhase.values())
+      assertTrue(report.getDurationMillis(phase) >= 0);
+  }
+  
+  @Test
+  public void testParallelDrain() throws InterruptedException
+  {
+    FugueExecutorService a = newExecutor("a");
+    FugueExecutorService b = newExecutor("b");
+    
+    a.execute(sleep(300));
+    b.execute(sleep(300));
+    
+    long start = System.nanoTime();
+    
+    ShutdownReport report = new ShutdownCoordinator()
+        .withDeadlineMillis(5000)
+        .withComponent(a.getName(), a)
+        .withComponent(b.getName(), b)
+        .shutdown();
+    
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    
+    assertTrue(report.isDrained());
+    assertEquals(0, report.getReleased());
+    assertTrue("Took " + elapsed + "ms", elapsed < 550);
+    assertTrue(a.isTerminated());
+    assertTrue(b.isTerminated());
+  }
+  
+  @Test
+  public void testDeadline() throws InterruptedException
+  {
+    FugueExecutorService stuck    = newExecutor("stuck");
+    FugueExecutorService quick    = newExecutor("quick");
+    CountDownLatch       release  = new CountDownLatch(1);
+    CountDownLatch       running  = new CountDownLatch(1);
+    
+    stuck.execute(() ->
+    {
+      running.countDown();
+      
+      try
+      {
+        release.await();
+      }
+      catch (InterruptedException e)
+      {
+        // expected when released
+      }
+    });
+    stuck.execute(sleep(1)); // queued
+    stuck.execute(sleep(1)); // queued
+    quick.execute(sleep(1));
+    
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    
+    long start = System.nanoTime();
+    
+    ShutdownReport report = new ShutdownCoordinator()
+        .withDeadlineMillis(200)
+        .withComponent(stuck.getName(), stuck)
+        .withComponent(quick.getName(), quick)
+        .shutdown();
+    
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    
+    assertFalse(report.isDrained());
+    assertEquals(Arrays.asList("stuck"), report.getUndrained());
+    assertEquals(2, report.getReleased());
+    assertTrue("Took " + elapsed + "ms", elapsed >= 200 && elapsed < 2000);
+    assertTrue(report.getDurationMillis(ShutdownPhase.DRAIN) >= 200);
+    assertTrue(stuck.awaitTermination(5, TimeUnit.SECONDS));
+  }
+  
+  @Test
+  public void testIntakeDrainedFirst() throws InterruptedException
+  {
+    FugueExecutorService handler   = newExecutor("handler");
+    FugueExecutorService followUp  = newExecutor("followUp");
+    AtomicBoolean        submitted = new AtomicBoolean();
+    AtomicBoolean        completed = new AtomicBoolean();
+    CountDownLatch       running   = new CountDownLatch(1);
+    
+    handler.execute(() ->
+    {
+      running.countDown();
+      sleep(200).run();
+      
+      followUp.execute(() -> completed.set(true));
+      submitted.set(true);
+    });
+    
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    
+    ShutdownReport report = new ShutdownCoordinator()
+        .withDeadlineMillis(5000)
+        .withComponent(followUp.getName(), followUp)
+        .withIntakeComponent(handler.getName(), handler)
+        .shutdown();
+    
+    assertTrue(report.isDrained());
+    assertTrue(submitted.get());
+    assertTrue(completed.get());
+    assertTrue(followUp.isTerminated());
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares BlockingThreadPoolExecutor with RingBufferThreadPoolExecutor.
+ * 
+ * Each invocation runs TASKS trivial tasks submitted by the given number of producer threads, so the score
+ * is throughput in tasks per millisecond. The queue wait percentiles from the executor metrics are printed
+ * at the end of each trial as the latency comparison.
+ * 
+ * The capacity parameter applies only to the ring buffer, BlockingThreadPoolExecutor always has a queue
+ * of the same size as its pool, so capacity=4 is the like for like comparison.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class BlockingExecutorBenchmark
+{
+  private static final int TASKS     = 100000;
+  private static final int POOL_SIZE = 4;
+
+  @Param({"BLOCKING", "RING_BUFFER"})
+  public String impl;
+  
+  @Param({"1", "4", "16"})
+  public int    producers;
+  
+  @Param({"4", "1024"})
+  public int    capacity;
+
+  private Executor                     executor_;
+  private BlockingThreadPoolExecutor   blocking_;
+  private RingBufferThreadPoolExecutor ringBuffer_;
+
+  @Setup
+  public void setup()
+  {
+    if("BLOCKING".equals(impl))
+      executor_ = blocking_ = new BlockingThreadPoolExecutor(null, "blocking", POOL_SIZE, newThreadFactory());
+    else
+      executor_ = ringBuffer_ = new RingBufferThreadPoolExecutor(null, "ringBuffer", POOL_SIZE, capacity, newThreadFactory());
+  }
+
+  private static ThreadFactory newThreadFactory()
+  {
+    return (r) ->
+    {
+      Thread t = new Thread(r);
+      t.setDaemon(true);
+      return t;
+    };
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException
+  {
+    ExecutorMetrics metrics;
+    
+    if(blocking_ != null)
+    {
+      metrics = blocking_.getMetrics();
+      blocking_.shutdown();
+    }
+    else
+    {
+      metrics = ringBuffer_.getMetrics();
+      ringBuffer_.shutdown();
+      ringBuffer_.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    
+    System.out.format("%n%s producers=%d capacity=%d queue wait us p50=%d p99=%d p99.9=%d max=%d%n", impl, producers, capacity,
+        metrics.getQueueWait().getValueAtPercentile(50.0),
+        metrics.getQueueWait().getValueAtPercentile(99.0),
+        metrics.getQueueWait().getValueAtPercentile(99.9),
+        metrics.getQueueWait().getMax());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS)
+  public void submit() throws InterruptedException
+  {
+    CountDownLatch done           = new CountDownLatch(TASKS);
+    Runnable       task           = () -> done.countDown();
+    int            tasksPerThread = TASKS / producers;
+    Thread[]       threads        = new Thread[producers];
+    
+    for(int p=0 ; p<producers ; p++)
+    {
+      int count = p == 0 ? TASKS - tasksPerThread * (producers - 1) : tasksPerThread;
+      
+      threads[p] = new Thread(() ->
+      {
+        for(int i=0 ; i<count ; i++)
+          executor_.execute(task);
+      });
+      threads[p].start();
+    }
+    
+    done.await();
+  }
+
+  public static void main(String[] args) throws RunnerException
+  {
+    new Runner(new OptionsBuilder()
+        .include(BlockingExecutorBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
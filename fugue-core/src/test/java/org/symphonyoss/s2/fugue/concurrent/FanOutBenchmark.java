@@ -0,0 +1,223 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares a ThreadPoolExecutor backed FugueExecutorService with WorkStealingExecutorService on a fan-out
+ * workload.
+ * 
+ * Each invocation transforms a batch of MESSAGES messages, each of which is split into the given number of
+ * fields which are transformed independently, so the score is throughput in messages per millisecond.
+ * The thread pool runs one task per field from a single shared queue, the work stealing pool runs the batch
+ * as a RecursiveAction which splits into messages and then fields.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class FanOutBenchmark
+{
+  private static final int MESSAGES     = 256;
+  private static final int MESSAGE_SIZE = 16 * 1024;
+
+  @Param({"THREAD_POOL", "WORK_STEALING"})
+  public String impl;
+  
+  @Param({"4", "64"})
+  public int    fields;
+
+  private final AtomicLong     checksum_ = new AtomicLong();
+  private byte[][]             messages_;
+  private FugueExecutorService threadPool_;
+  private WorkStealingExecutorService workStealing_;
+
+  @Setup
+  public void setup()
+  {
+    int    cores  = Runtime.getRuntime().availableProcessors();
+    Random random = new Random(1);
+    
+    messages_ = new byte[MESSAGES][MESSAGE_SIZE];
+    
+    for(byte[] message : messages_)
+      random.nextBytes(message);
+    
+    if("THREAD_POOL".equals(impl))
+      threadPool_ = new FugueExecutorService(null, new ExecutorProfile("threadPool")
+          .withCoreSize(cores)
+          .withMaxSize(cores)
+          .withQueueCapacity(MESSAGES * 64));
+    else
+      workStealing_ = new WorkStealingExecutorService(null, "workStealing", cores);
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException
+  {
+    FugueExecutorService exec = threadPool_ == null ? workStealing_ : threadPool_;
+    
+    exec.shutdown();
+    exec.awaitTermination(10, TimeUnit.SECONDS);
+    
+    if(workStealing_ != null)
+      System.out.format("%n%s fields=%d steals=%d%n", impl, fields, workStealing_.getForkJoinPool().getStealCount());
+  }
+  
+  /*
+   * A stand in for parsing and transforming one field of a message.
+   */
+  private long transform(byte[] message, int field)
+  {
+    int  length = message.length / fields;
+    int  from   = field * length;
+    long hash   = 1125899906842597L;
+    
+    for(int i=from ; i<from + length ; i++)
+      hash = 31 * hash + message[i];
+    
+    return hash;
+  }
+  
+  private class TransformBatch extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+    
+    private final int from_;
+    private final int to_;
+    
+    private TransformBatch(int from, int to)
+    {
+      from_ = from;
+      to_ = to;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if(to_ - from_ == 1)
+      {
+        TransformField[] tasks = new TransformField[fields];
+        
+        for(int f=0 ; f<fields ; f++)
+          tasks[f] = new TransformField(messages_[from_], f);
+        
+        invokeAll(tasks);
+      }
+      else
+      {
+        int mid = (from_ + to_) >>> 1;
+        
+        invokeAll(new TransformBatch(from_, mid), new TransformBatch(mid, to_));
+      }
+    }
+  }
+  
+  private class TransformField extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+    
+    private final byte[] message_;
+    private final int    field_;
+    
+    private TransformField(byte[] message, int field)
+    {
+      message_ = message;
+      field_ = field;
+    }
+
+    @Override
+    protected void compute()
+    {
+      checksum_.addAndGet(transform(message_, field_));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES)
+  public void transformBatch(Blackhole blackhole) throws InterruptedException
+  {
+    if(threadPool_ != null)
+    {
+      CountDownLatch done = new CountDownLatch(MESSAGES * fields);
+      
+      for(byte[] message : messages_)
+      {
+        for(int f=0 ; f<fields ; f++)
+        {
+          int field = f;
+          
+          threadPool_.execute(() ->
+          {
+            checksum_.addAndGet(transform(message, field));
+            done.countDown();
+          });
+        }
+      }
+      
+      done.await();
+    }
+    else
+    {
+      workStealing_.invoke(new TransformBatch(0, MESSAGES));
+    }
+    
+    blackhole.consume(checksum_.get());
+  }
+
+  public static void main(String[] args) throws RunnerException
+  {
+    new Runner(new OptionsBuilder()
+        .include(FanOutBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
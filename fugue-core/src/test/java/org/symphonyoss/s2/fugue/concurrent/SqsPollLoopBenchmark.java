@@ -0,0 +1,162 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares platform and virtual threads for the SQS poll-and-handle loop.
+ * 
+ * Each task simulates one iteration of SqsSubscriber.run(), a long poll receive followed by a blocking
+ * handler and a delete for each message in the batch. The platform model uses a fixed pool of the same
+ * size as SqsSubscriberManager, the virtual model uses a thread per task.
+ * 
+ * Run with <code>java -cp target/test-classes:... org.symphonyoss.s2.fugue.concurrent.SqsPollLoopBenchmark</code>,
+ * the virtual model falls back to platform threads on JVMs before Java 21.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class SqsPollLoopBenchmark
+{
+  private static final int PLATFORM_POOL_SIZE   = 50;
+  private static final int MESSAGES_PER_RECEIVE = 10;
+  private static final int DELETE_MILLIS        = 1;
+
+  @Param({"PLATFORM", "VIRTUAL"})
+  public String model;
+  
+  @Param({"50", "500"})
+  public int    concurrentPolls;
+  
+  @Param({"20"})
+  public int    receiveMillis;
+  
+  @Param({"5"})
+  public int    handleMillis;
+
+  private ExecutorService executor_;
+
+  @Setup
+  public void setup()
+  {
+    if("VIRTUAL".equals(model))
+      executor_ = new FugueExecutorService(null, "virtual", VirtualThreads.newExecutor("virtual"));
+    else
+      executor_ = new FugueExecutorService(null, "platform", new ThreadPoolExecutor(PLATFORM_POOL_SIZE, PLATFORM_POOL_SIZE,
+          0L, TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<Runnable>()));
+  }
+
+  @TearDown
+  public void tearDown()
+  {
+    executor_.shutdownNow();
+  }
+
+  @Benchmark
+  public int pollAndHandle() throws InterruptedException
+  {
+    CountDownLatch done    = new CountDownLatch(concurrentPolls);
+    AtomicInteger  handled = new AtomicInteger();
+    
+    for(int i=0 ; i<concurrentPolls ; i++)
+    {
+      executor_.execute(() ->
+      {
+        try
+        {
+          pollAndHandleOnce(handled);
+        }
+        finally
+        {
+          done.countDown();
+        }
+      });
+    }
+    
+    done.await();
+    
+    return handled.get();
+  }
+
+  private void pollAndHandleOnce(AtomicInteger handled)
+  {
+    block(receiveMillis);
+    
+    for(int i=0 ; i<MESSAGES_PER_RECEIVE ; i++)
+    {
+      block(handleMillis);
+      block(DELETE_MILLIS);
+      handled.incrementAndGet();
+    }
+  }
+
+  private static void block(long millis)
+  {
+    try
+    {
+      Thread.sleep(millis);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException
+  {
+    new Runner(new OptionsBuilder()
+        .include(SqsPollLoopBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -0,0 +1,346 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.symphonyoss.s2.fugue.config.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SuppressWarnings("javadoc")
+public class TestFugueExecutorService
+{
+  private static FugueExecutorService newSaturatedExecutor(OverloadPolicy policy, CountDownLatch release)
+  {
+    FugueExecutorService exec = new FugueExecutorService(null, new ExecutorProfile("test-" + policy)
+        .withCoreSize(1)
+        .withMaxSize(1)
+        .withQueueCapacity(1)
+        .withOverloadPolicy(policy));
+    
+    Runnable blocked = () ->
+    {
+      try
+      {
+        release.await();
+      }
+      catch (InterruptedException e)
+      {
+        throw new IllegalStateException(e);
+      }
+    };
+    
+    exec.execute(blocked); // occupies the only thread
+    exec.execute(blocked); // fills the queue
+    
+    return exec;
+  }
+  
+  @Test
+  public void testShed() throws InterruptedException
+  {
+    CountDownLatch release = new CountDownLatch(1);
+    FugueExecutorService exec = newSaturatedExecutor(OverloadPolicy.SHED, release);
+    
+    AtomicInteger runs = new AtomicInteger();
+    
+    exec.execute(() -> runs.incrementAndGet());
+    exec.execute(() -> runs.incrementAndGet());
+    
+    assertEquals(2, exec.getShedCount());
+    
+    release.countDown();
+    exec.shutdown();
+    exec.awaitTermination(5, TimeUnit.SECONDS);
+    
+    assertEquals(0, runs.get());
+    
+    ExecutorMetrics metrics = exec.getMetrics();
+    
+    assertEquals(4, metrics.getSubmittedCount());
+    assertEquals(2, metrics.getCompletedCount());
+    assertEquals(2, metrics.getRejectedCount());
+  }
+  
+  @Test
+  public void testShedSubmit() throws InterruptedException, ExecutionException, TimeoutException
+  {
+    CountDownLatch release = new CountDownLatch(1);
+    FugueExecutorService exec = newSaturatedExecutor(OverloadPolicy.SHED, release);
+    AtomicInteger runs = new AtomicInteger();
+    
+    Future<Integer> future = exec.submit(() -> runs.incrementAndGet());
+    Future<?> runnableFuture = exec.submit(() -> { runs.incrementAndGet(); });
+    
+    assertEquals(2, exec.getShedCount());
+    assertTrue(future.isCancelled());
+    assertTrue(runnableFuture.isCancelled());
+    
+    try
+    {
+      future.get(1, TimeUnit.SECONDS);
+      fail("Shed future should be cancelled");
+    }
+    catch(CancellationException e)
+    {
+      // expected
+    }
+    
+    release.countDown();
+    exec.shutdown();
+    exec.awaitTermination(5, TimeUnit.SECONDS);
+    
+    assertEquals(0, runs.get());
+  }
+  
+  @Test
+  public void testFailFast() throws InterruptedException
+  {
+    CountDownLatch release = new CountDownLatch(1);
+    FugueExecutorService exec = newSaturatedExecutor(OverloadPolicy.FAIL_FAST, release);
+    
+    try
+    {
+      exec.execute(() -> {});
+      fail("Execute should throw RejectedExecutionException");
+    }
+    catch(RejectedExecutionException e)
+    {
+      // expected
+    }
+    
+    release.countDown();
+    exec.shutdown();
+    exec.awaitTermination(5, TimeUnit.SECONDS);
+  }
+  
+  @Test
+  public void testCallerRuns() throws InterruptedException
+  {
+    CountDownLatch release = new CountDownLatch(1);
+    FugueExecutorService exec = newSaturatedExecutor(OverloadPolicy.CALLER_RUNS, release);
+    Thread[] runner = new Thread[1];
+    
+    exec.execute(() -> runner[0] = Thread.currentThread());
+    
+    assertEquals(Thread.currentThread(), runner[0]);
+    
+    release.countDown();
+    exec.shutdown();
+    exec.awaitTermination(5, TimeUnit.SECONDS);
+  }
+  
+  @Test
+  public void testBlock() throws InterruptedException
+  {
+    CountDownLatch release = new CountDownLatch(1);
+    FugueExecutorService exec = newSaturatedExecutor(OverloadPolicy.BLOCK, release);
+    CountDownLatch done = new CountDownLatch(1);
+    
+    new Thread(() ->
+    {
+      try
+      {
+        Thread.sleep(200);
+      }
+      catch (InterruptedException e)
+      {
+        throw new IllegalStateException(e);
+      }
+      release.countDown();
+    }).start();
+    
+    long start = System.currentTimeMillis();
+    
+    exec.execute(() -> done.countDown());
+    
+    if(System.currentTimeMillis() - start < 100)
+      fail("Execute should have blocked until the queue had space");
+    
+    if(!done.await(5, TimeUnit.SECONDS))
+      fail("Blocked task did not run");
+    
+    exec.shutdown();
+    exec.awaitTermination(5, TimeUnit.SECONDS);
+  }
+  
+  @Test
+  public void testVirtualThreadExecutor() throws InterruptedException
+  {
+    FugueExecutorService exec = new FugueExecutorService(null, "virtual", VirtualThreads.newExecutor("virtual"));
+    CountDownLatch done = new CountDownLatch(100);
+    
+    for(int i=0 ; i<100 ; i++)
+      exec.execute(() ->
+      {
+        done.countDown();
+        throw new IllegalStateException("Handled the Fugue way");
+      });
+    
+    if(!done.await(5, TimeUnit.SECONDS))
+      fail("Tasks did not run");
+    
+    assertEquals("virtual", exec.getName());
+    
+    exec.shutdown();
+    exec.awaitTermination(5, TimeUnit.SECONDS);
+  }
+  
+  @Test
+  public void testMetrics() throws InterruptedException
+  {
+    FugueExecutorService exec = new FugueExecutorService(null, new ExecutorProfile("metrics")
+        .withCoreSize(2)
+        .withMaxSize(2));
+    
+    for(int i=0 ; i<10 ; i++)
+      exec.execute(() -> {});
+    
+    exec.execute(() ->
+    {
+      throw new IllegalStateException("Handled the Fugue way");
+    });
+    
+    exec.shutdown();
+    exec.awaitTermination(5, TimeUnit.SECONDS);
+    
+    try
+    {
+      exec.execute(() -> {});
+      fail("Execute should throw RejectedExecutionException after shutdown");
+    }
+    catch(RejectedExecutionException e)
+    {
+      // expected
+    }
+    
+    ExecutorMetrics metrics = exec.getMetrics();
+    
+    assertEquals(12, metrics.getSubmittedCount());
+    assertEquals(11, metrics.getCompletedCount());
+    assertEquals(1, metrics.getFaultedCount());
+    assertEquals(1, metrics.getRejectedCount());
+    assertEquals(11, metrics.getRunTime().getCount());
+    assertEquals(11, metrics.getQueueWait().getCount());
+  }
+  
+  @Test
+  public void testPeriodicMetrics() throws InterruptedException
+  {
+    FugueScheduledExecutorService exec = new FugueScheduledExecutorService(null, "periodic");
+    CountDownLatch                runs = new CountDownLatch(5);
+    
+    exec.scheduleAtFixedRate(() -> runs.countDown(), 0, 10, TimeUnit.MILLISECONDS);
+    
+    if(!runs.await(5, TimeUnit.SECONDS))
+      fail("Periodic task did not run");
+    
+    exec.shutdown();
+    exec.awaitTermination(5, TimeUnit.SECONDS);
+    
+    ExecutorMetrics metrics = exec.getMetrics();
+    
+    assertTrue(metrics.getCompletedCount() >= 5);
+    assertEquals(metrics.getCompletedCount(), metrics.getSubmittedCount());
+  }
+  
+  @Test
+  public void testConfigurationOverride() throws IOException
+  {
+    Configuration config = new Configuration(new ObjectMapper().readTree(
+        "{\"myExecutor\": {\"maxSize\": 50, \"overloadPolicy\": \"SHED\"}}")) {};
+    
+    ExecutorProfile profile = new ExecutorProfile("myExecutor")
+        .withMaxSize(10)
+        .withQueueCapacity(200)
+        .withConfiguration(config);
+    
+    assertEquals(ExecutorProfile.DEFAULT_CORE_SIZE, profile.getCoreSize());
+    assertEquals(50, profile.getMaxSize());
+    assertEquals(200, profile.getQueueCapacity());
+    assertEquals(OverloadPolicy.SHED, profile.getOverloadPolicy());
+  }
+  
+  @Test
+  public void testApplyProfile() throws IOException
+  {
+    ExecutorProfile profile = new ExecutorProfile("resized")
+        .withCoreSize(2)
+        .withMaxSize(4);
+    
+    FugueExecutorService exec = new FugueExecutorService(null, profile);
+    
+    exec.applyProfile(profile.withConfiguration(new Configuration(new ObjectMapper().readTree(
+        "{\"resized\": {\"coreSize\": 8, \"maxSize\": 16}}")) {}));
+    
+    assertEquals(8, exec.getThreadPoolExecutor().getCorePoolSize());
+    assertEquals(16, exec.getThreadPoolExecutor().getMaximumPoolSize());
+    
+    exec.applyProfile(profile.withCoreSize(1).withMaxSize(1));
+    
+    assertEquals(1, exec.getThreadPoolExecutor().getCorePoolSize());
+    assertEquals(1, exec.getThreadPoolExecutor().getMaximumPoolSize());
+    
+    exec.shutdown();
+  }
+  
+  @Test
+  public void testApplyProfileReverts() throws IOException
+  {
+    ExecutorProfile defaults = new ExecutorProfile("reloaded")
+        .withCoreSize(2)
+        .withMaxSize(4);
+    
+    FugueExecutorService exec = new FugueExecutorService(null, new ExecutorProfile(defaults));
+    
+    exec.applyProfile(new ExecutorProfile(defaults).withConfiguration(new Configuration(new ObjectMapper().readTree(
+        "{\"reloaded\": {\"maxSize\": 16, \"overloadPolicy\": \"SHED\"}}")) {}));
+    
+    assertEquals(OverloadPolicy.SHED, exec.getProfile().getOverloadPolicy());
+    assertEquals(16, exec.getThreadPoolExecutor().getMaximumPoolSize());
+    
+    exec.applyProfile(new ExecutorProfile(defaults).withConfiguration(new Configuration(new ObjectMapper().readTree(
+        "{\"reloaded\": {}}")) {}));
+    
+    assertEquals(ExecutorProfile.DEFAULT_OVERLOAD_POLICY, exec.getProfile().getOverloadPolicy());
+    assertEquals(4, exec.getThreadPoolExecutor().getMaximumPoolSize());
+    assertEquals(OverloadPolicy.BLOCK, defaults.getOverloadPolicy());
+    
+    exec.shutdown();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestHashedWheelScheduledExecutorService
+{
+  private final HashedWheelScheduledExecutorService exec_ = new HashedWheelScheduledExecutorService("test",
+      5, TimeUnit.MILLISECONDS, 8, 2);
+  
+  @After
+  public void tearDown() throws InterruptedException
+  {
+    exec_.shutdown();
+    exec_.awaitTermination(5, TimeUnit.SECONDS);
+  }
+  
+  @Test
+  public void testSchedule() throws InterruptedException, ExecutionException
+  {
+    long start = System.nanoTime();
+    
+    // 200ms is several revolutions of an 8 tick wheel of 5ms
+    ScheduledFuture<String> future = exec_.schedule(() -> "done", 200, TimeUnit.MILLISECONDS);
+    
+    assertEquals("done", future.get());
+    
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    
+    assertTrue("Fired early after " + elapsedMillis + "ms", elapsedMillis >= 200);
+    assertTrue("Fired late after " + elapsedMillis + "ms", elapsedMillis < 1000);
+  }
+  
+  @Test
+  public void testOrder() throws InterruptedException
+  {
+    List<Integer>   fired = new ArrayList<>();
+    CountDownLatch  done  = new CountDownLatch(5);
+    
+    for(int i=5 ; i>0 ; i--)
+    {
+      int n = i;
+      
+      exec_.schedule(() ->
+      {
+        synchronized(fired)
+        {
+          fired.add(n);
+        }
+        done.countDown();
+      }, n * 30, TimeUnit.MILLISECONDS);
+    }
+    
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    
+    for(int i=0 ; i<5 ; i++)
+      assertEquals(Integer.valueOf(i + 1), fired.get(i));
+  }
+  
+  @Test
+  public void testCancel() throws InterruptedException
+  {
+    AtomicInteger count = new AtomicInteger();
+    List<ScheduledFuture<?>> futures = new ArrayList<>();
+    
+    for(int i=0 ; i<1000 ; i++)
+      futures.add(exec_.schedule(() -> count.incrementAndGet(), 50, TimeUnit.MILLISECONDS));
+    
+    for(int i=0 ; i<1000 ; i += 2)
+      assertTrue(futures.get(i).cancel(false));
+    
+    Thread.sleep(300);
+    
+    assertEquals(500, count.get());
+    assertTrue(futures.get(0).isCancelled());
+    assertFalse(futures.get(1).isCancelled());
+    assertTrue(futures.get(1).isDone());
+  }
+  
+  @Test
+  public void testFixedRate() throws InterruptedException
+  {
+    CountDownLatch done = new CountDownLatch(10);
+    
+    ScheduledFuture<?> future = exec_.scheduleAtFixedRate(() -> done.countDown(), 0, 10, TimeUnit.MILLISECONDS);
+    
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertTrue(future.cancel(false));
+    assertTrue(future.isDone());
+  }
+  
+  @Test
+  public void testShutdownDiscardsPendingTimers() throws InterruptedException
+  {
+    AtomicInteger count = new AtomicInteger();
+    
+    exec_.schedule(() -> count.incrementAndGet(), 10, TimeUnit.SECONDS);
+    
+    assertEquals(1, exec_.shutdownNow().size());
+    assertTrue(exec_.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(0, count.get());
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestPriorityLaneExecutor
+{
+  private static Runnable await(CountDownLatch latch)
+  {
+    return () ->
+    {
+      try
+      {
+        latch.await();
+      }
+      catch (InterruptedException e)
+      {
+        throw new IllegalStateException(e);
+      }
+    };
+  }
+  
+  private static void awaitStarted(PriorityLaneExecutor exec, TaskPriority priority) throws InterruptedException
+  {
+    for(int i=0 ; i<500 && exec.getMetrics(priority).getRunningTasks().isEmpty() ; i++)
+      Thread.sleep(10);
+  }
+  
+  @Test
+  public void testWeightedFairDequeue() throws InterruptedException
+  {
+    PriorityLaneExecutor exec    = new PriorityLaneExecutor(null, "fair", 1, 100).withMaxWaitMillis(60000);
+    CountDownLatch       release = new CountDownLatch(1);
+    List<TaskPriority>   order   = Collections.synchronizedList(new ArrayList<>());
+    
+    exec.execute(TaskPriority.CRITICAL, await(release));
+    awaitStarted(exec, TaskPriority.CRITICAL);
+    
+    for(int i=0 ; i<20 ; i++)
+    {
+      for(TaskPriority priority : TaskPriority.values())
+        exec.execute(priority, () -> order.add(priority));
+    }
+    
+    release.countDown();
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+    
+    assertEquals(60, order.size());
+    
+    // The blocking task used one CRITICAL credit, then each lane gets its weight per round.
+    List<TaskPriority> expected = new ArrayList<>();
+    
+    for(int i=0 ; i<7 ; i++)
+      expected.add(TaskPriority.CRITICAL);
+    for(int i=0 ; i<4 ; i++)
+      expected.add(TaskPriority.NORMAL);
+    expected.add(TaskPriority.BACKGROUND);
+    for(int i=0 ; i<8 ; i++)
+      expected.add(TaskPriority.CRITICAL);
+    for(int i=0 ; i<4 ; i++)
+      expected.add(TaskPriority.NORMAL);
+    expected.add(TaskPriority.BACKGROUND);
+    
+    assertEquals(expected, order.subList(0, expected.size()));
+    
+    for(TaskPriority priority : TaskPriority.values())
+      assertEquals(20 + (priority == TaskPriority.CRITICAL ? 1 : 0), exec.getMetrics(priority).getCompletedCount());
+  }
+  
+  @Test
+  public void testStarvationProtection() throws InterruptedException
+  {
+    PriorityLaneExecutor exec    = new PriorityLaneExecutor(null, "starved", 1, 100)
+        .withWeight(TaskPriority.CRITICAL, 1000)
+        .withMaxWaitMillis(50);
+    CountDownLatch       release = new CountDownLatch(1);
+    List<TaskPriority>   order   = Collections.synchronizedList(new ArrayList<>());
+    
+    exec.execute(TaskPriority.NORMAL, await(release));
+    awaitStarted(exec, TaskPriority.NORMAL);
+    
+    exec.execute(TaskPriority.BACKGROUND, () -> order.add(TaskPriority.BACKGROUND));
+    
+    for(int i=0 ; i<50 ; i++)
+      exec.execute(TaskPriority.CRITICAL, () -> order.add(TaskPriority.CRITICAL));
+    
+    Thread.sleep(100);
+    release.countDown();
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+    
+    // The background task has waited longer than the maximum so it runs before the critical tasks
+    assertEquals(TaskPriority.BACKGROUND, order.get(0));
+  }
+  
+  @Test
+  public void testLaneCapacity() throws InterruptedException
+  {
+    PriorityLaneExecutor exec    = new PriorityLaneExecutor(null, "capacity", 1, 2);
+    CountDownLatch       release = new CountDownLatch(1);
+    
+    exec.execute(TaskPriority.NORMAL, await(release));
+    awaitStarted(exec, TaskPriority.NORMAL);
+    
+    exec.execute(TaskPriority.BACKGROUND, () -> {});
+    exec.execute(TaskPriority.BACKGROUND, () -> {});
+    
+    try
+    {
+      exec.execute(TaskPriority.BACKGROUND, () -> {});
+      fail("Full lane should reject");
+    }
+    catch(RejectedExecutionException e)
+    {
+      // expected
+    }
+    
+    exec.execute(TaskPriority.CRITICAL, () -> {});
+    
+    assertEquals(1, exec.getMetrics(TaskPriority.BACKGROUND).getRejectedCount());
+    assertEquals(2, exec.getQueueDepth(TaskPriority.BACKGROUND));
+    assertEquals(1, exec.getQueueDepth(TaskPriority.CRITICAL));
+    
+    release.countDown();
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+  }
+  
+  @Test
+  public void testPriorityHint() throws InterruptedException, ExecutionException
+  {
+    PriorityLaneExecutor exec = new PriorityLaneExecutor(null, "hint", 2, 10);
+    
+    assertEquals("ok", exec.submit(TaskPriority.CRITICAL, () -> "ok").get());
+    assertEquals("ok", exec.submit(new FugueCallable<>(null, TaskPriority.BACKGROUND, () -> "ok")).get());
+    exec.submit(new FugueRunnable(null, TaskPriority.BACKGROUND, () -> {})).get();
+    exec.submit(() -> {}).get();
+    
+    // completion is recorded after the future completes
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+    
+    assertEquals(1, exec.getMetrics(TaskPriority.CRITICAL).getCompletedCount());
+    assertEquals(2, exec.getMetrics(TaskPriority.BACKGROUND).getCompletedCount());
+    assertEquals(1, exec.getMetrics(TaskPriority.NORMAL).getCompletedCount());
+  }
+  
+  @Test
+  public void testSubmitFault() throws InterruptedException
+  {
+    PriorityLaneExecutor exec   = new PriorityLaneExecutor(null, "fault", 1, 100);
+    Future<String>       future = exec.submit(TaskPriority.BACKGROUND, () ->
+    {
+      throw new IllegalStateException("Failed");
+    });
+    
+    try
+    {
+      future.get();
+      fail("Expected ExecutionException");
+    }
+    catch(ExecutionException e)
+    {
+      assertEquals("Failed", e.getCause().getMessage());
+    }
+    
+    exec.submit(() -> "OK");
+    
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+    
+    ExecutorMetrics background = exec.getMetrics(TaskPriority.BACKGROUND);
+    ExecutorMetrics normal     = exec.getMetrics(TaskPriority.NORMAL);
+    
+    assertEquals(1, background.getFaultedCount());
+    assertEquals(1, background.getCompletedCount());
+    assertEquals(0, normal.getFaultedCount());
+    assertEquals(1, normal.getCompletedCount());
+  }
+}
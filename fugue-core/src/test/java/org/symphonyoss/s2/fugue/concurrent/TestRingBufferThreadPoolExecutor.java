@@ -0,0 +1,235 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.symphonyoss.s2.common.fault.TransactionFault;
+
+@SuppressWarnings("javadoc")
+public class TestRingBufferThreadPoolExecutor
+{
+  private static final int PRODUCERS          = 16;
+  private static final int TASKS_PER_PRODUCER = 10000;
+  
+  @Test
+  public void testAllTasksRun() throws InterruptedException
+  {
+    RingBufferThreadPoolExecutor exec = new RingBufferThreadPoolExecutor(null, "test", 4, 64, Thread::new);
+    AtomicInteger count = new AtomicInteger();
+    Thread[] producers = new Thread[PRODUCERS];
+    
+    for(int p=0 ; p<PRODUCERS ; p++)
+    {
+      producers[p] = new Thread(() ->
+      {
+        for(int i=0 ; i<TASKS_PER_PRODUCER ; i++)
+          exec.execute(() -> count.incrementAndGet());
+      });
+      producers[p].start();
+    }
+    
+    for(Thread producer : producers)
+      producer.join();
+    
+    exec.shutdown();
+    
+    assertTrue(exec.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(PRODUCERS * TASKS_PER_PRODUCER, count.get());
+    assertEquals(PRODUCERS * TASKS_PER_PRODUCER, exec.getMetrics().getCompletedCount());
+  }
+  
+  @Test
+  public void testBackpressure() throws InterruptedException
+  {
+    RingBufferThreadPoolExecutor exec = new RingBufferThreadPoolExecutor(null, "test", 1, 2, Thread::new);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicInteger count = new AtomicInteger();
+    
+    exec.execute(() ->
+    {
+      started.countDown();
+      try
+      {
+        release.await();
+      }
+      catch (InterruptedException e)
+      {
+        throw new IllegalStateException(e);
+      }
+    });
+    
+    started.await();
+    
+    exec.execute(() -> count.incrementAndGet());
+    exec.execute(() -> count.incrementAndGet());
+    
+    Thread producer = new Thread(() -> exec.execute(() -> count.incrementAndGet()));
+    
+    producer.start();
+    producer.join(200);
+    
+    assertTrue("Producer should be parked while the buffer is full", producer.isAlive());
+    assertEquals(Thread.State.WAITING, producer.getState());
+    
+    release.countDown();
+    producer.join(5000);
+    
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(3, count.get());
+  }
+  
+  @Test
+  public void testShutdown() throws InterruptedException
+  {
+    RingBufferThreadPoolExecutor exec = new RingBufferThreadPoolExecutor(null, "test", 2, 1024, Thread::new);
+    AtomicInteger count = new AtomicInteger();
+    
+    for(int i=0 ; i<1000 ; i++)
+      exec.execute(() -> count.incrementAndGet());
+    
+    exec.shutdown();
+    
+    try
+    {
+      exec.execute(() -> count.incrementAndGet());
+      fail("Execute should throw RejectedExecutionException after shutdown");
+    }
+    catch(RejectedExecutionException e)
+    {
+      // expected
+    }
+    
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(1000, count.get());
+    assertEquals(1, exec.getMetrics().getRejectedCount());
+  }
+  
+  @Test
+  public void testShutdownWhileExecuting() throws InterruptedException
+  {
+    for(int round=0 ; round<20 ; round++)
+    {
+      RingBufferThreadPoolExecutor exec = new RingBufferThreadPoolExecutor(null, "test", 2, 1024, Thread::new);
+      AtomicInteger accepted = new AtomicInteger();
+      AtomicInteger count = new AtomicInteger();
+      Thread[] producers = new Thread[4];
+      
+      for(int p=0 ; p<producers.length ; p++)
+      {
+        producers[p] = new Thread(() ->
+        {
+          try
+          {
+            for(int i=0 ; i<10000 ; i++)
+            {
+              exec.execute(() -> count.incrementAndGet());
+              accepted.incrementAndGet();
+            }
+          }
+          catch(RejectedExecutionException e)
+          {
+            // expected once shut down
+          }
+        });
+        producers[p].start();
+      }
+      
+      Thread.sleep(1);
+      exec.shutdown();
+      
+      for(Thread producer : producers)
+        producer.join();
+      
+      assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+      assertEquals(accepted.get(), count.get());
+    }
+  }
+  
+  @Test
+  public void testInterruptedProducer() throws InterruptedException
+  {
+    RingBufferThreadPoolExecutor exec = new RingBufferThreadPoolExecutor(null, "test", 1, 2, Thread::new);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicInteger  interrupted = new AtomicInteger();
+    
+    exec.execute(() ->
+    {
+      started.countDown();
+      try
+      {
+        release.await();
+      }
+      catch (InterruptedException e)
+      {
+        throw new IllegalStateException(e);
+      }
+    });
+    
+    started.await();
+    
+    exec.execute(() -> {});
+    exec.execute(() -> {});
+    
+    Thread producer = new Thread(() ->
+    {
+      try
+      {
+        exec.execute(() -> {});
+      }
+      catch(TransactionFault e)
+      {
+        if(Thread.currentThread().isInterrupted())
+          interrupted.incrementAndGet();
+      }
+    });
+    
+    producer.start();
+    
+    while(producer.getState() != Thread.State.WAITING)
+      Thread.sleep(1);
+    
+    producer.interrupt();
+    producer.join(5000);
+    
+    assertFalse(producer.isAlive());
+    assertEquals(1, interrupted.get());
+    
+    release.countDown();
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+import org.symphonyoss.s2.fugue.core.trace.NoOpTraceContext;
+import org.symphonyoss.s2.fugue.core.trace.TraceContextHolder;
+
+@SuppressWarnings("javadoc")
+public class TestTaskGroup
+{
+  private static final ExecutorService executor_ = Executors.newFixedThreadPool(20);
+  
+  private static void sleep(long millis)
+  {
+    try
+    {
+      Thread.sleep(millis);
+    }
+    catch (InterruptedException e)
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+  
+  @Test
+  public void testResults() throws ExecutionException, TimeoutException, InterruptedException
+  {
+    try(TaskGroup<Integer> group = new TaskGroup<>(executor_))
+    {
+      for(int i=0 ; i<25 ; i++)
+      {
+        int n = i;
+        
+        group.submit(() ->
+        {
+          sleep(25 - n);
+          return n;
+        });
+      }
+      
+      List<Integer> results = group.join();
+      
+      assertEquals(25, results.size());
+      
+      for(int i=0 ; i<25 ; i++)
+        assertEquals(Integer.valueOf(i), results.get(i));
+    }
+  }
+  
+  @Test
+  public void testFailFast() throws TimeoutException, InterruptedException
+  {
+    CountDownLatch              started = new CountDownLatch(1);
+    IllegalStateException       barf    = new IllegalStateException("Barf!");
+    TaskGroup<Void>             group   = new TaskGroup<>(executor_);
+    
+    Future<Void> sibling = group.submit(() ->
+    {
+      started.countDown();
+      Thread.sleep(10000);
+      return null;
+    });
+    
+    started.await();
+    
+    group.submit(() ->
+    {
+      throw barf;
+    });
+    
+    try
+    {
+      group.join();
+      fail("join should throw ExecutionException");
+    }
+    catch(ExecutionException e)
+    {
+      assertSame(barf, e.getCause());
+    }
+    
+    assertTrue(sibling.isCancelled());
+    
+    try
+    {
+      group.submit(() -> {});
+      fail("submit should throw IllegalStateException");
+    }
+    catch(IllegalStateException e)
+    {
+      // expected
+    }
+  }
+  
+  @Test
+  public void testDeadline() throws ExecutionException, InterruptedException
+  {
+    TaskGroup<Void> group = new TaskGroup<Void>(executor_).withDeadline(100, TimeUnit.MILLISECONDS);
+    
+    Future<Void> slow = group.submit(() -> sleep(10000));
+    
+    long start = System.currentTimeMillis();
+    
+    try
+    {
+      group.join();
+      fail("join should throw TimeoutException");
+    }
+    catch(TimeoutException e)
+    {
+      // expected
+    }
+    
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    assertTrue(slow.isCancelled());
+  }
+  
+  @Test
+  public void testMaxParallelism() throws ExecutionException, TimeoutException, InterruptedException
+  {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger max     = new AtomicInteger();
+    
+    try(TaskGroup<Void> group = new TaskGroup<Void>(executor_).withMaxParallelism(3))
+    {
+      for(int i=0 ; i<20 ; i++)
+      {
+        group.submit(() ->
+        {
+          max.accumulateAndGet(running.incrementAndGet(), Math::max);
+          sleep(10);
+          running.decrementAndGet();
+        });
+      }
+      
+      assertEquals(20, group.join().size());
+    }
+    
+    assertTrue("Max parallelism was " + max.get(), max.get() <= 3);
+  }
+  
+  @Test
+  public void testCancelPending() throws ExecutionException, TimeoutException, InterruptedException
+  {
+    CountDownLatch release = new CountDownLatch(1);
+    
+    try(TaskGroup<Integer> group = new TaskGroup<Integer>(executor_).withMaxParallelism(1))
+    {
+      group.submit(() ->
+      {
+        release.await();
+        return 1;
+      });
+      
+      Future<Integer> cancelled = group.submit(() -> 2);
+      
+      group.submit(() -> 3);
+      
+      assertTrue(cancelled.cancel(false));
+      
+      release.countDown();
+      
+      // join has no deadline, so run it on another thread in case the group hangs
+      List<Integer> results = executor_.submit(() -> group.join()).get(5, TimeUnit.SECONDS);
+      
+      assertEquals(Arrays.asList(1, null, 3), results);
+    }
+  }
+  
+  @Test
+  public void testTraceContextPropagation() throws ExecutionException, TimeoutException, InterruptedException
+  {
+    ITraceContext trace = NoOpTraceContext.INSTANCE;
+    ITraceContext previous = TraceContextHolder.set(trace);
+    
+    try(TaskGroup<ITraceContext> group = new TaskGroup<>(executor_))
+    {
+      group.submit(() -> TraceContextHolder.get());
+      
+      assertSame(trace, group.join().get(0));
+    }
+    finally
+    {
+      TraceContextHolder.set(previous);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestTaskWatchdog
+{
+  private static FugueExecutorService newExecutor(String name)
+  {
+    return new FugueExecutorService(null, new ExecutorProfile(name)
+        .withCoreSize(2)
+        .withMaxSize(2));
+  }
+  
+  private static void awaitRunning(ExecutorMetrics metrics, int count) throws InterruptedException
+  {
+    for(int i=0 ; i<500 && metrics.getRunningTasks().size() < count ; i++)
+      Thread.sleep(10);
+    
+    assertEquals(count, metrics.getRunningTasks().size());
+  }
+  
+  @Test
+  public void testBlockedTask() throws InterruptedException
+  {
+    FugueExecutorService exec     = newExecutor("blocked");
+    TaskWatchdog         watchdog = new TaskWatchdog().watch(exec.getName(), exec.getMetrics(), 50);
+    Object               lock     = new Object();
+    
+    synchronized(lock)
+    {
+      exec.execute(() ->
+      {
+        synchronized(lock)
+        {
+          lock.notifyAll();
+        }
+      });
+      
+      awaitRunning(exec.getMetrics(), 1);
+      Thread.sleep(100);
+      
+      List<StuckTask> stuckTasks = watchdog.scan();
+      
+      assertEquals(1, stuckTasks.size());
+      
+      StuckTask stuckTask = stuckTasks.get(0);
+      
+      assertEquals("blocked", stuckTask.getExecutorName());
+      assertTrue(stuckTask.getRunningMillis() >= 50);
+      assertEquals(Thread.State.BLOCKED, stuckTask.getThreadState());
+      assertEquals(Thread.currentThread().getName(), stuckTask.getLockOwnerName());
+      assertNotNull(stuckTask.getLockOwnerInfo());
+      assertTrue(stuckTask.getThreadDump(), stuckTask.getThreadDump().contains("testBlockedTask"));
+      assertEquals(stuckTasks, watchdog.getStuckTasks());
+      
+      // still stuck on a second scan
+      assertEquals(1, watchdog.scan().size());
+    }
+    
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+    
+    assertEquals(0, exec.getMetrics().getRunningTasks().size());
+    assertEquals(0, watchdog.scan().size());
+  }
+  
+  @Test
+  public void testThreshold() throws InterruptedException
+  {
+    FugueExecutorService slow     = newExecutor("slow");
+    FugueExecutorService fast     = newExecutor("fast");
+    TaskWatchdog         watchdog = new TaskWatchdog()
+        .watch(slow.getName(), slow.getMetrics(), 50)
+        .watch(fast.getName(), fast.getMetrics(), 60000);
+    CountDownLatch       release  = new CountDownLatch(1);
+    Runnable             task     = () ->
+    {
+      try
+      {
+        release.await();
+      }
+      catch (InterruptedException e)
+      {
+        throw new IllegalStateException(e);
+      }
+    };
+    
+    slow.execute(task);
+    fast.execute(task);
+    
+    awaitRunning(slow.getMetrics(), 1);
+    awaitRunning(fast.getMetrics(), 1);
+    Thread.sleep(100);
+    
+    List<StuckTask> stuckTasks = watchdog.scan();
+    
+    assertEquals(1, stuckTasks.size());
+    assertEquals("slow", stuckTasks.get(0).getExecutorName());
+    assertEquals(Thread.State.WAITING, stuckTasks.get(0).getThreadState());
+    
+    release.countDown();
+    slow.shutdown();
+    fast.shutdown();
+    assertTrue(slow.awaitTermination(5, TimeUnit.SECONDS));
+    assertTrue(fast.awaitTermination(5, TimeUnit.SECONDS));
+    
+    assertEquals(0, watchdog.scan().size());
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.symphonyoss.s2.common.fault.ProgramFault;
+import org.symphonyoss.s2.fugue.IFugueServer;
+
+@SuppressWarnings("javadoc")
+public class TestWorkStealingExecutorService
+{
+  private static class Sum extends RecursiveTask<Long>
+  {
+    private static final long serialVersionUID = 1L;
+    
+    private final int from_;
+    private final int to_;
+    private final int failAt_;
+    
+    private Sum(int from, int to, int failAt)
+    {
+      from_ = from;
+      to_ = to;
+      failAt_ = failAt;
+    }
+
+    @Override
+    protected Long compute()
+    {
+      if(to_ - from_ <= 1000)
+      {
+        long sum = 0;
+        
+        for(int i=from_ ; i<to_ ; i++)
+        {
+          if(i == failAt_)
+            throw new IllegalStateException("Failed at " + i);
+          
+          sum += i;
+        }
+        
+        return sum;
+      }
+      
+      int mid  = (from_ + to_) >>> 1;
+      Sum left = new Sum(from_, mid, failAt_);
+      
+      left.fork();
+      
+      return new Sum(mid, to_, failAt_).compute() + left.join();
+    }
+  }
+  
+  private static IFugueServer newServer(AtomicInteger failCount)
+  {
+    return (IFugueServer)Proxy.newProxyInstance(IFugueServer.class.getClassLoader(), new Class<?>[] { IFugueServer.class },
+        (proxy, method, args) ->
+        {
+          if("fail".equals(method.getName()))
+            failCount.incrementAndGet();
+          
+          return null;
+        });
+  }
+  
+  @Test
+  public void testRecursiveTask() throws InterruptedException
+  {
+    WorkStealingExecutorService exec = new WorkStealingExecutorService(null, "sum", 4);
+    
+    assertEquals(Long.valueOf(99999L * 100000L / 2), exec.invoke(new Sum(0, 100000, -1)));
+    assertEquals(Long.valueOf(999L * 1000L / 2), exec.submit(new Sum(0, 1000, -1)).join());
+    
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+    
+    assertEquals(2, exec.getMetrics().getSubmittedCount());
+    assertEquals(2, exec.getMetrics().getCompletedCount());
+    assertEquals(0, exec.getMetrics().getFaultedCount());
+  }
+  
+  @Test
+  public void testSubtaskFault() throws InterruptedException
+  {
+    AtomicInteger               failCount = new AtomicInteger();
+    WorkStealingExecutorService exec      = new WorkStealingExecutorService(newServer(failCount), "fault", 4);
+    
+    try
+    {
+      exec.invoke(new Sum(0, 100000, 54321));
+      fail("Expected exception");
+    }
+    catch(IllegalStateException e)
+    {
+      // expected
+    }
+    
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+    
+    assertEquals(1, exec.getMetrics().getFaultedCount());
+    assertEquals(0, failCount.get());
+  }
+  
+  @Test
+  public void testProgramFault() throws InterruptedException
+  {
+    AtomicInteger               failCount = new AtomicInteger();
+    WorkStealingExecutorService exec      = new WorkStealingExecutorService(newServer(failCount), "programFault", 4);
+    
+    try
+    {
+      exec.invoke(new RecursiveTask<Void>()
+      {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected Void compute()
+        {
+          throw new ProgramFault("Fatal");
+        }
+      });
+      fail("Expected exception");
+    }
+    catch(ProgramFault e)
+    {
+      // expected
+    }
+    
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+    
+    assertEquals(1, failCount.get());
+  }
+}
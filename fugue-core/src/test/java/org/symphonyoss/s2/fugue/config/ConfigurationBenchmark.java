@@ -0,0 +1,199 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.symphonyoss.s2.common.exception.NotFoundException;
+import org.symphonyoss.s2.common.fault.ProgramFault;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares configuration lookups through the flattened ConfigurationIndex with the previous implementation,
+ * which split the path and walked nested configurations on every call and used exceptions to detect
+ * absent properties.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+@SuppressWarnings("javadoc")
+public class ConfigurationBenchmark
+{
+  private static final String CONFIG = "{\"fugue\": {\"executor\": {\"maxSize\": \"50\", \"overloadPolicy\": \"SHED\"}}}";
+  private static final String HIT     = "fugue/executor/overloadPolicy";
+  private static final String MISS    = "fugue/executor/queueCapacity";
+  private static final String LONG    = "fugue/executor/maxSize";
+
+  private Configuration       indexed_;
+  private LegacyConfiguration legacy_;
+
+  @Setup
+  public void setup() throws IOException
+  {
+    JsonNode tree = new ObjectMapper().readTree(CONFIG);
+    
+    indexed_ = new Configuration(tree);
+    legacy_ = new LegacyConfiguration(tree);
+  }
+
+  @Benchmark
+  public String legacyNestedHit() throws NotFoundException
+  {
+    return legacy_.getString(HIT);
+  }
+
+  @Benchmark
+  public String indexedNestedHit() throws NotFoundException
+  {
+    return indexed_.getString(HIT);
+  }
+
+  @Benchmark
+  public String legacyOptionalMiss()
+  {
+    return legacy_.getString(MISS, "default");
+  }
+
+  @Benchmark
+  public String indexedOptionalMiss()
+  {
+    return indexed_.getString(MISS, "default");
+  }
+
+  @Benchmark
+  public long legacyRequiredLong()
+  {
+    return legacy_.getRequiredLong(LONG);
+  }
+
+  @Benchmark
+  public long indexedRequiredLong()
+  {
+    return indexed_.getRequiredLong(LONG);
+  }
+
+  /*
+   * The lookup path of Configuration before the index was introduced.
+   */
+  private static class LegacyConfiguration
+  {
+    private final JsonNode                         tree_;
+    private final Map<String, LegacyConfiguration> subConfigMap_ = new HashMap<>();
+
+    private LegacyConfiguration(JsonNode tree)
+    {
+      tree_ = tree;
+    }
+    
+    private String getString(String name) throws NotFoundException
+    {
+      return getString(name.split("/"), 0);
+    }
+
+    private String getString(String[] names, int index) throws NotFoundException
+    {
+      if(index < names.length - 1)
+        return getConfiguration(names[index]).getString(names, index+1);
+      
+      JsonNode node = tree_.get(names[index]);
+      
+      if(node == null)
+        throw new NotFoundException("No such property");
+      
+      return node.asText();
+    }
+
+    private String getString(String name, String defaultValue)
+    {
+      try
+      {
+        return getString(name);
+      }
+      catch (NotFoundException e)
+      {
+        return defaultValue;
+      }
+    }
+    
+    private long getRequiredLong(String name)
+    {
+      try
+      {
+        return Long.parseLong(getString(name));
+      }
+      catch (NotFoundException | NumberFormatException e)
+      {
+        throw new ProgramFault(e);
+      }
+    }
+    
+    private synchronized LegacyConfiguration getConfiguration(String name)
+    {
+      LegacyConfiguration subConfig = subConfigMap_.get(name);
+      
+      if(subConfig == null)
+      {
+        JsonNode node = tree_.get(name);
+        
+        subConfig = new LegacyConfiguration(node == null || !node.isObject() ? new ObjectMapper().createObjectNode() : node);
+        
+        subConfigMap_.put(name, subConfig);
+      }
+      
+      return subConfig;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException
+  {
+    new Runner(new OptionsBuilder()
+        .include(ConfigurationBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -23,12 +23,17 @@
 package org.symphonyoss.s2.fugue.config;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import org.junit.Test;
 import org.symphonyoss.s2.common.exception.NotFoundException;
+import org.symphonyoss.s2.common.fault.ProgramFault;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -105,4 +110,60 @@ public class TestBaseConfigurationProvider
     
     provider.getString(ABSENT_NEST_TWO_PROPERTY_NAME);
   }
-}
\ No newline at end of file
+  
+  @Test
+  public void testSubConfiguration() throws NotFoundException
+  {
+    Configuration provider = new Configuration(json_);
+    Configuration nestOne = provider.getConfiguration(NEST_ONE);
+    
+    assertEquals("Test propety is not valid", TEST_NEST_TWO_PROPERTY_VALUE, nestOne.getString(NEST_TWO + "/" + TEST_PROPERTY_NAME));
+    assertEquals("Test propety is not valid", TEST_NEST_TWO_PROPERTY_VALUE, nestOne.getConfiguration(NEST_TWO).getString(TEST_PROPERTY_NAME));
+    assertEquals("/" + NEST_ONE + "/" + NEST_TWO, nestOne.getConfiguration(NEST_TWO).getName());
+    assertSame(nestOne, provider.getConfiguration(NEST_ONE));
+    assertEquals(0, provider.getConfiguration(TEST_PROPERTY_NAME).getIndex().size());
+  }
+  
+  @Test
+  public void testIndex()
+  {
+    ConfigurationIndex index = new Configuration(json_).getIndex();
+    
+    assertEquals(TEST_NEST_TWO_PROPERTY_VALUE, index.get(TEST_NEST_TWO_PROPERTY_NAME).getString());
+    assertTrue(index.get(NEST_ONE).isObject());
+    assertSame(ConfigurationValue.ABSENT, index.get(ABSENT_NEST_TWO_PROPERTY_NAME));
+    assertSame(ConfigurationValue.ABSENT, index.get(TEST_PROPERTY_NAME + "/" + TEST_PROPERTY_NAME));
+    assertEquals("default", index.get(ABSENT_PROPERTY_NAME).getString("default"));
+    assertSame(index.getIndex(NEST_ONE + "/" + NEST_TWO), index.getIndex(NEST_ONE).getIndex(NEST_TWO));
+  }
+  
+  @Test
+  public void testTypedValues() throws IOException, NotFoundException
+  {
+    Configuration provider = new Configuration(new ObjectMapper().readTree(
+        "{\"a\": {\"long\": 42, \"text\": \"x\", \"flag\": \"TRUE\", \"list\": \"one, two\", \"array\": [\"three\", 4]}}"));
+    
+    assertEquals(42L, provider.getRequiredLong("a/long"));
+    assertTrue(provider.getBoolean("a/flag", false));
+    assertFalse(provider.getBoolean("a/absent"));
+    assertTrue(provider.getBoolean("a/absent", true));
+    assertEquals(Arrays.asList("one", "two"), provider.getStringArray("a/list"));
+    assertEquals(Arrays.asList("three", "4"), provider.getConfiguration("a").getStringArray("array"));
+    
+    try
+    {
+      provider.getRequiredLong("a/text");
+      throw new AssertionError("Expected ProgramFault");
+    }
+    catch(ProgramFault e)
+    {
+      assertTrue(e.getMessage().contains("\"x\""));
+    }
+  }
+  
+  @Test(expected=ProgramFault.class)
+  public void testMissingRequiredLong()
+  {
+    new Configuration(json_).getRequiredLong(ABSENT_NEST_ONE_PROPERTY_NAME);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.symphonyoss.s2.common.fault.ProgramFault;
+import org.symphonyoss.s2.fugue.concurrent.OverloadPolicy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SuppressWarnings("javadoc")
+public class TestConfigurationBinder
+{
+  public interface IEndpoint
+  {
+    String getHost();
+    int getPort();
+  }
+  
+  public interface IServiceConfig
+  {
+    String getName();
+    long getTimeoutMillis();
+    boolean isEnabled();
+    OverloadPolicy getOverloadPolicy();
+    List<String> getRegions();
+    IEndpoint getEndpoint();
+    
+    @ConfigurationProperty(name="batch-size", defaultValue="10")
+    int getBatchSize();
+    
+    @ConfigurationProperty(required=false)
+    String getDescription();
+  }
+  
+  public static class ServiceConfig
+  {
+    private String            name_;
+    private long              timeoutMillis_;
+    private boolean           enabled_;
+    private Endpoint          endpoint_;
+    
+    @ConfigurationProperty(name="batch-size", defaultValue="10")
+    private int               batchSize_;
+  }
+  
+  public static class Endpoint
+  {
+    private String            host_;
+    private int               port_;
+  }
+  
+  private static final String VALID = "{\"service\": {"
+      + "\"name\": \"svc\", \"timeoutMillis\": 1500, \"enabled\": \"TRUE\", \"overloadPolicy\": \"SHED\","
+      + "\"regions\": \"us-east-1, eu-west-1\", \"endpoint\": {\"host\": \"localhost\", \"port\": 8080}}}";
+  
+  private static Configuration configuration(String json) throws IOException
+  {
+    return new Configuration(new ObjectMapper().readTree(json)) {};
+  }
+  
+  @Test
+  public void testBindInterface() throws IOException
+  {
+    IServiceConfig config = ConfigurationBinder.bind(configuration(VALID).getConfiguration("service"), IServiceConfig.class);
+    
+    assertEquals("svc", config.getName());
+    assertEquals(1500L, config.getTimeoutMillis());
+    assertTrue(config.isEnabled());
+    assertEquals(OverloadPolicy.SHED, config.getOverloadPolicy());
+    assertEquals(Arrays.asList("us-east-1", "eu-west-1"), config.getRegions());
+    assertEquals("localhost", config.getEndpoint().getHost());
+    assertEquals(8080, config.getEndpoint().getPort());
+    assertEquals(10, config.getBatchSize());
+    assertNull(config.getDescription());
+    assertEquals(config, ConfigurationBinder.bind(configuration(VALID).getConfiguration("service"), IServiceConfig.class));
+  }
+  
+  @Test
+  public void testBindClass() throws IOException
+  {
+    ServiceConfig config = ConfigurationBinder.bind(configuration(VALID).getConfiguration("service"), ServiceConfig.class);
+    
+    assertEquals("svc", config.name_);
+    assertEquals(1500L, config.timeoutMillis_);
+    assertTrue(config.enabled_);
+    assertEquals(10, config.batchSize_);
+    assertEquals("localhost", config.endpoint_.host_);
+    assertEquals(8080, config.endpoint_.port_);
+  }
+  
+  @Test
+  public void testReport() throws IOException
+  {
+    try
+    {
+      ConfigurationBinder.bind(configuration("{\"service\": {\"timeoutMillis\": \"soon\", \"enabled\": \"yes\", "
+          + "\"overloadPolicy\": \"DROP\", \"endpoint\": {\"port\": \"http\"}}}").getConfiguration("service"), IServiceConfig.class);
+      
+      fail("Expected ProgramFault");
+    }
+    catch(ProgramFault e)
+    {
+      String report = e.getMessage();
+      
+      assertTrue(report, report.contains("name: required property is missing"));
+      assertTrue(report, report.contains("timeoutMillis: \"soon\" is not a valid long"));
+      assertTrue(report, report.contains("enabled: \"yes\" is not a valid boolean"));
+      assertTrue(report, report.contains("overloadPolicy: \"DROP\" is not a valid OverloadPolicy"));
+      assertTrue(report, report.contains("regions: required property is missing"));
+      assertTrue(report, report.contains("endpoint/host: required property is missing"));
+      assertTrue(report, report.contains("endpoint/port: \"http\" is not a valid int"));
+      assertFalse(report, report.contains("batch-size"));
+      assertFalse(report, report.contains("description"));
+    }
+  }
+  
+  @Test
+  public void testReloadable() throws IOException
+  {
+    Configuration                         config  = configuration(VALID);
+    ConfigurationBinding<IServiceConfig>  binding = ConfigurationBinder.bindReloadable(config.getConfiguration("service"), IServiceConfig.class);
+    AtomicInteger                         count   = new AtomicInteger();
+    IServiceConfig                        first   = binding.get();
+    
+    binding.withListener((c) -> count.incrementAndGet());
+    
+    config.setTree(new ObjectMapper().readTree(VALID.replace("1500", "2500")));
+    
+    assertEquals(2500L, binding.get().getTimeoutMillis());
+    assertEquals(1500L, first.getTimeoutMillis());
+    assertEquals(1, count.get());
+    
+    IServiceConfig second = binding.get();
+    
+    config.setTree(new ObjectMapper().readTree(VALID.replace("1500", "\"never\"")));
+    
+    assertSame(second, binding.get());
+    assertEquals(1, count.get());
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+@SuppressWarnings("javadoc")
+public class TestConfigurationReloader
+{
+  private static final String CONFIG_ONE = "{\"executor\": {\"maxSize\": 10, \"coreSize\": 2}, \"other\": \"x\"}";
+  private static final String CONFIG_TWO = "{\"executor\": {\"maxSize\": 20, \"coreSize\": 2}, \"other\": \"x\"}";
+  
+  private static class ReloadableConfiguration extends Configuration
+  {
+    ReloadableConfiguration(IConfigurationSource source) throws IOException
+    {
+      setTree(source.fetchIfChanged());
+      setSource(source);
+    }
+  }
+  
+  private static void write(File file, String content) throws IOException
+  {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+  
+  private static boolean reload(ConfigurationReloader reloader) throws InterruptedException
+  {
+    long deadline = System.currentTimeMillis() + 10000;
+    
+    while(System.currentTimeMillis() < deadline)
+    {
+      if(reloader.reload())
+        return true;
+      
+      Thread.sleep(50);
+    }
+    
+    return false;
+  }
+  
+  @Test
+  public void testFileReload() throws IOException, InterruptedException
+  {
+    File file = File.createTempFile("config", ".json");
+    
+    try
+    {
+      write(file, CONFIG_ONE);
+      
+      ReloadableConfiguration config   = new ReloadableConfiguration(new FileConfigurationSource(file));
+      ConfigurationReloader   reloader = new ConfigurationReloader(config);
+      Configuration           executor = config.getConfiguration("executor");
+      List<Set<String>>       changes  = Collections.synchronizedList(new ArrayList<>());
+      AtomicInteger           other    = new AtomicInteger();
+      
+      executor.addListener((c, changedPaths) -> changes.add(changedPaths), "maxSize", "coreSize");
+      config.addListener((c, changedPaths) -> other.incrementAndGet(), "other");
+      
+      assertEquals(10, executor.getRequiredLong("maxSize"));
+      assertFalse(reloader.reload());
+      
+      write(file, CONFIG_TWO);
+      
+      assertTrue(reload(reloader));
+      assertEquals(20, executor.getRequiredLong("maxSize"));
+      assertEquals(1, changes.size());
+      assertEquals(Collections.singleton("maxSize"), changes.get(0));
+      assertEquals(0, other.get());
+      
+      write(file, "{ not json");
+      
+      long deadline = System.currentTimeMillis() + 10000;
+      
+      while(reloader.getFailureCount() == 0 && System.currentTimeMillis() < deadline)
+      {
+        reloader.reload();
+        Thread.sleep(50);
+      }
+      
+      assertEquals(1, reloader.getFailureCount());
+      assertEquals(20, executor.getRequiredLong("maxSize"));
+      assertEquals(1, reloader.getReloadCount());
+      
+      reloader.stop();
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+  
+  @Test
+  public void testConditionalUrl() throws IOException
+  {
+    AtomicInteger   fullResponses = new AtomicInteger();
+    String[]        content       = new String[] { CONFIG_ONE };
+    HttpServer      server        = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    
+    server.createContext("/config", (exchange) ->
+    {
+      String etag = "\"" + content[0].hashCode() + "\"";
+      
+      if(etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+      {
+        exchange.sendResponseHeaders(304, -1);
+      }
+      else
+      {
+        byte[] bytes = content[0].getBytes(StandardCharsets.UTF_8);
+        
+        fullResponses.incrementAndGet();
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.sendResponseHeaders(200, bytes.length);
+        
+        try(OutputStream out = exchange.getResponseBody())
+        {
+          out.write(bytes);
+        }
+      }
+      exchange.close();
+    });
+    server.start();
+    
+    try
+    {
+      UrlConfigurationSource source = new UrlConfigurationSource(new URL("http://localhost:" + server.getAddress().getPort() + "/config"));
+      
+      assertEquals(10, source.fetchIfChanged().get("executor").get("maxSize").asInt());
+      assertNull(source.fetchIfChanged());
+      assertEquals(1, fullResponses.get());
+      
+      content[0] = CONFIG_TWO;
+      
+      assertEquals(20, source.fetchIfChanged().get("executor").get("maxSize").asInt());
+      assertEquals(2, fullResponses.get());
+    }
+    finally
+    {
+      server.stop(0);
+    }
+  }
+}
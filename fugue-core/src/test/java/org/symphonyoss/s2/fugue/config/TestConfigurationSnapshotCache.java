@@ -0,0 +1,236 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SuppressWarnings("javadoc")
+public class TestConfigurationSnapshotCache
+{
+  private File directory_;
+  
+  private static class TestSource implements IConfigurationSource
+  {
+    private volatile String         content_;
+    private volatile String         etag_;
+    private volatile long           delayMillis_;
+    private volatile boolean        fail_;
+    private volatile int            fetchCount_;
+    private final CountDownLatch    fetched_ = new CountDownLatch(1);
+
+    TestSource(String content)
+    {
+      content_ = content;
+    }
+
+    @Override
+    public JsonNode fetchIfChanged() throws IOException
+    {
+      fetchCount_++;
+      
+      try
+      {
+        Thread.sleep(delayMillis_);
+        
+        if(fail_)
+          throw new IOException("Remote failure");
+        
+        String etag = "\"" + content_.hashCode() + "\"";
+        
+        if(etag.equals(etag_))
+          return null;
+        
+        etag_ = etag;
+        
+        return new ObjectMapper().readTree(content_);
+      }
+      catch(InterruptedException e)
+      {
+        throw new IOException(e);
+      }
+      finally
+      {
+        fetched_.countDown();
+      }
+    }
+
+    @Override
+    public String getETag()
+    {
+      return etag_;
+    }
+
+    @Override
+    public void setETag(String etag)
+    {
+      etag_ = etag;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "test://config";
+    }
+  }
+  
+  private static class CachedConfiguration extends Configuration
+  {
+    CachedConfiguration(IConfigurationSource source, ConfigurationSnapshotCache cache) throws IOException
+    {
+      load(source, cache);
+    }
+  }
+  
+  @Before
+  public void setUp() throws IOException
+  {
+    directory_ = Files.createTempDirectory("configCache").toFile();
+  }
+  
+  @After
+  public void tearDown()
+  {
+    for(File file : directory_.listFiles())
+      file.delete();
+    
+    directory_.delete();
+  }
+  
+  @Test
+  public void testMissThenHit() throws IOException
+  {
+    ConfigurationSnapshotCache cache = new ConfigurationSnapshotCache(directory_);
+    
+    assertEquals("one", new CachedConfiguration(new TestSource("{\"value\": \"one\"}"), cache).getRequiredString("value"));
+    assertEquals(1, cache.getMissCount());
+    assertTrue(cache.getFile(new TestSource("{}")).isFile());
+    
+    TestSource source = new TestSource("{\"value\": \"one\"}");
+    
+    assertEquals("one", new CachedConfiguration(source, cache).getRequiredString("value"));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, source.fetchCount_);
+    
+    source = new TestSource("{\"value\": \"two\"}");
+    
+    assertEquals("two", new CachedConfiguration(source, cache).getRequiredString("value"));
+    assertEquals(2, cache.getHitCount());
+  }
+  
+  @Test
+  public void testSlowRemote() throws IOException, InterruptedException
+  {
+    ConfigurationSnapshotCache cache = new ConfigurationSnapshotCache(directory_)
+        .withRemoteTimeoutMillis(50);
+    
+    new CachedConfiguration(new TestSource("{\"value\": \"one\"}"), cache);
+    
+    TestSource source = new TestSource("{\"value\": \"two\"}");
+    
+    source.delayMillis_ = 500;
+    
+    long          start   = System.nanoTime();
+    Configuration config  = new CachedConfiguration(source, cache);
+    
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 450);
+    assertEquals("one", config.getRequiredString("value"));
+    assertEquals(1, cache.getStaleCount());
+    
+    source.fetched_.await(5, TimeUnit.SECONDS);
+    
+    long deadline = System.currentTimeMillis() + 5000;
+    
+    while(!"two".equals(config.getString("value", null)) && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+    
+    assertEquals("two", config.getRequiredString("value"));
+  }
+  
+  @Test
+  public void testRemoteFailure() throws IOException
+  {
+    ConfigurationSnapshotCache cache = new ConfigurationSnapshotCache(directory_);
+    
+    new CachedConfiguration(new TestSource("{\"value\": \"one\"}"), cache);
+    
+    TestSource source = new TestSource("{\"value\": \"two\"}");
+    
+    source.fail_ = true;
+    
+    assertEquals("one", new CachedConfiguration(source, cache).getRequiredString("value"));
+  }
+  
+  @Test(expected=IOException.class)
+  public void testMaxAge() throws IOException, InterruptedException
+  {
+    ConfigurationSnapshotCache cache = new ConfigurationSnapshotCache(directory_)
+        .withMaxAgeMillis(1);
+    
+    new CachedConfiguration(new TestSource("{\"value\": \"one\"}"), cache);
+    
+    Thread.sleep(10);
+    
+    TestSource source = new TestSource("{\"value\": \"two\"}");
+    
+    source.fail_ = true;
+    
+    new CachedConfiguration(source, cache);
+  }
+  
+  @Test
+  public void testMissWithNoTree() throws IOException
+  {
+    ConfigurationSnapshotCache cache = new ConfigurationSnapshotCache(directory_);
+    TestSource                 source = new TestSource("{\"value\": \"one\"}");
+    
+    source.etag_ = "\"" + source.content_.hashCode() + "\"";
+    
+    try
+    {
+      new CachedConfiguration(source, cache);
+      fail("Expected IOException");
+    }
+    catch(IOException e)
+    {
+      // expected
+    }
+    
+    assertFalse(cache.getFile(source).exists());
+  }
+}
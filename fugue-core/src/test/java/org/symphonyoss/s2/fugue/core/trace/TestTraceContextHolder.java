@@ -0,0 +1,146 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.core.trace;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.symphonyoss.s2.fugue.concurrent.FugueCallable;
+import org.symphonyoss.s2.fugue.concurrent.FugueRunnable;
+import org.symphonyoss.s2.fugue.core.trace.log.LoggerTraceContextFactory;
+
+@SuppressWarnings("javadoc")
+public class TestTraceContextHolder
+{
+  private final ITraceContext trace_ = new LoggerTraceContextFactory().createTransaction("Test", "1");
+  
+  @Test
+  public void testRunnable() throws InterruptedException, ExecutionException
+  {
+    ExecutorService                executor = Executors.newSingleThreadExecutor();
+    AtomicReference<ITraceContext> seen     = new AtomicReference<>();
+    FugueRunnable                  task;
+    
+    TraceContextHolder.set(trace_);
+    try
+    {
+      task = new FugueRunnable(null, () -> seen.set(TraceContextHolder.get()));
+    }
+    finally
+    {
+      TraceContextHolder.set(null);
+    }
+    
+    try
+    {
+      executor.submit(task).get();
+      
+      assertSame(trace_, seen.get());
+      assertNull(executor.submit(() -> TraceContextHolder.get()).get());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testCallable() throws InterruptedException, ExecutionException
+  {
+    ExecutorService              executor = Executors.newSingleThreadExecutor();
+    FugueCallable<ITraceContext> task;
+    
+    TraceContextHolder.set(trace_);
+    try
+    {
+      task = new FugueCallable<>(null, () -> TraceContextHolder.get());
+    }
+    finally
+    {
+      TraceContextHolder.set(null);
+    }
+    
+    try
+    {
+      assertSame(trace_, executor.submit(task).get());
+      assertNull(executor.submit(() -> TraceContextHolder.get()).get());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testRestorePrevious()
+  {
+    ITraceContext other = new LoggerTraceContextFactory().createTransaction("Test", "2");
+    FugueRunnable task;
+    
+    TraceContextHolder.set(trace_);
+    try
+    {
+      task = new FugueRunnable(null, () -> assertSame(trace_, TraceContextHolder.get()));
+    }
+    finally
+    {
+      TraceContextHolder.set(other);
+    }
+    
+    try
+    {
+      // run on the same thread, which has its own context
+      task.run();
+      
+      assertSame(other, TraceContextHolder.get());
+    }
+    finally
+    {
+      TraceContextHolder.set(null);
+    }
+  }
+  
+  @Test
+  public void testNoContext()
+  {
+    FugueRunnable task = new FugueRunnable(null, () -> assertNull(TraceContextHolder.get()));
+    
+    TraceContextHolder.set(trace_);
+    try
+    {
+      task.run();
+      
+      assertSame(trace_, TraceContextHolder.get());
+    }
+    finally
+    {
+      TraceContextHolder.set(null);
+    }
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.sampling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.symphonyoss.s2.common.hash.Hash;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContextFactory;
+import org.symphonyoss.s2.fugue.core.trace.NoOpTraceContext;
+
+@SuppressWarnings("javadoc")
+public class TestSamplingTraceContextFactory
+{
+  @Test
+  public void testHeadSampling()
+  {
+    RecordingFactory            delegate  = new RecordingFactory();
+    SamplingTraceContextFactory factory   = new SamplingTraceContextFactory(delegate).withHeadSampleRate(0.0);
+    
+    assertSame(NoOpTraceContext.INSTANCE, factory.createTransaction("Test", "1"));
+    
+    factory.setHeadSampleRate(1.0);
+    factory.createTransaction("Test", "2").finished();
+    
+    assertEquals(2, delegate.events_.size());
+    assertEquals("Test/2 STARTED", delegate.events_.get(0));
+    assertEquals("Test/2 " + ITraceContext.FINISHED, delegate.events_.get(1));
+  }
+  
+  @Test
+  public void testTailSamplingDiscard()
+  {
+    RecordingFactory            delegate  = new RecordingFactory();
+    SamplingTraceContextFactory factory   = new SamplingTraceContextFactory(delegate)
+        .withHeadSampleRate(0.0)
+        .withTailSampling(1, TimeUnit.HOURS);
+    
+    ITraceContext trace = factory.createTransaction("Test", "1");
+    
+    trace.trace("RECEIVED");
+    trace.createSubContext("Sub", "A").trace("PROCESSED");
+    trace.finished();
+    
+    assertEquals(0, delegate.events_.size());
+    assertEquals(0, factory.getTailSampledCount());
+  }
+  
+  @Test
+  public void testTailSamplingAborted()
+  {
+    RecordingFactory            delegate  = new RecordingFactory();
+    SamplingTraceContextFactory factory   = new SamplingTraceContextFactory(delegate)
+        .withHeadSampleRate(0.0)
+        .withTailSampling(1, TimeUnit.HOURS);
+    
+    ITraceContext trace = factory.createTransaction("Test", "1");
+    
+    trace.trace("RECEIVED");
+    ITraceContext sub = trace.createSubContext("Sub", "A");
+    sub.aborted();
+    trace.finished();
+    
+    assertEquals(1, factory.getTailSampledCount());
+    assertEquals(5, delegate.events_.size());
+    assertEquals("Test/1 STARTED", delegate.events_.get(0));
+    assertEquals("Test/1 RECEIVED", delegate.events_.get(1));
+    assertEquals("Sub/A STARTED", delegate.events_.get(2));
+    assertEquals("Sub/A " + ITraceContext.ABORTED, delegate.events_.get(3));
+    assertEquals("Test/1 " + ITraceContext.FINISHED, delegate.events_.get(4));
+  }
+  
+  @Test
+  public void testTailSamplingLatency()
+  {
+    RecordingFactory            delegate  = new RecordingFactory();
+    SamplingTraceContextFactory factory   = new SamplingTraceContextFactory(delegate)
+        .withHeadSampleRate(0.0)
+        .withTailSampling(1, TimeUnit.SECONDS);
+    
+    Instant       start = Instant.now();
+    ITraceContext trace = factory.createTransaction("Test", "1", start);
+    
+    trace.trace("RECEIVED", start.plusMillis(10));
+    trace.trace(ITraceContext.FINISHED, start.plusMillis(1500));
+    
+    assertEquals(3, delegate.events_.size());
+    assertEquals("Test/1 " + ITraceContext.FINISHED, delegate.events_.get(2));
+  }
+  
+  @Test
+  public void testTailSamplingOverflow()
+  {
+    RecordingFactory            delegate  = new RecordingFactory();
+    SamplingTraceContextFactory factory   = new SamplingTraceContextFactory(delegate)
+        .withHeadSampleRate(0.0)
+        .withTailSampling(1, TimeUnit.HOURS)
+        .withMaxBufferedEvents(2);
+    
+    ITraceContext trace = factory.createTransaction("Test", "1");
+    
+    trace.trace("ONE");
+    trace.trace("TWO");
+    trace.trace("THREE");
+    
+    ITraceContext sub = trace.createSubContext("Sub", "A");
+    
+    sub.trace("FOUR");
+    
+    ITraceContext subSub = sub.createSubContext("Sub", "B");
+    
+    subSub.aborted();
+    trace.finished();
+    
+    assertEquals(1, factory.getTailSampledCount());
+    assertEquals(Arrays.asList(
+        "Test/1 STARTED",
+        "Test/1 ONE",
+        "Test/1 TWO",
+        "Sub/A STARTED",
+        "Sub/B STARTED",
+        "Test/1 TAIL_SAMPLE_EVENTS_DROPPED",
+        "Test/1 " + ITraceContext.FINISHED), delegate.events_);
+  }
+  
+  private static class RecordingFactory implements ITraceContextFactory
+  {
+    private final List<String> events_ = new ArrayList<>();
+
+    @Override
+    public ITraceContext createTransaction(String subjectType, String subjectId)
+    {
+      return new RecordingContext(events_, subjectType + "/" + subjectId);
+    }
+
+    @Override
+    public ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime)
+    {
+      return createTransaction(subjectType, subjectId);
+    }
+  }
+  
+  private static class RecordingContext implements ITraceContext
+  {
+    private final List<String> events_;
+    private final String       subject_;
+    
+    private RecordingContext(List<String> events, String subject)
+    {
+      events_ = events;
+      subject_ = subject;
+      
+      trace("STARTED");
+    }
+
+    @Override
+    public Hash getHash()
+    {
+      return null;
+    }
+
+    @Override
+    public Instant getTimestamp()
+    {
+      return null;
+    }
+
+    @Override
+    public void trace(String operationId)
+    {
+      events_.add(subject_ + " " + operationId);
+    }
+
+    @Override
+    public void trace(String operationId, Instant time)
+    {
+      trace(operationId);
+    }
+
+    @Override
+    public void trace(String operationId, String subjectType, String subjectId)
+    {
+      trace(operationId);
+    }
+
+    @Override
+    public ITraceContext createSubContext(String subjectType, String subjectId)
+    {
+      return new RecordingContext(events_, subjectType + "/" + subjectId);
+    }
+
+    @Override
+    public ITraceContext createSubContext(String subjectType, String subjectId, Instant time)
+    {
+      return createSubContext(subjectType, subjectId);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.core.trace.span;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestColumnarSpanFileExporter
+{
+  @Test
+  public void testStop() throws IOException, InterruptedException
+  {
+    File                     directory = Files.createTempDirectory("spans").toFile();
+    ColumnarSpanFileExporter exporter  = new ColumnarSpanFileExporter(directory, "test")
+        .withMaxDelay(10, TimeUnit.MILLISECONDS);
+    SpanTraceContextFactory  factory   = new SpanTraceContextFactory(exporter);
+    
+    exporter.start();
+    
+    factory.createTransaction("Test", "1").finished();
+    
+    // let the writer open the file and write the first block
+    Thread.sleep(200);
+    
+    assertTrue(exporter.isFileOpen());
+    
+    factory.createTransaction("Test", "2").finished();
+    factory.createTransaction("Test", "3").finished();
+    
+    long start = System.currentTimeMillis();
+    
+    exporter.stop();
+    
+    long elapsed = System.currentTimeMillis() - start;
+    
+    assertTrue("Took " + elapsed + "ms", elapsed < 2000);
+    assertFalse(exporter.isFileOpen());
+    
+    File[] files = directory.listFiles();
+    
+    assertEquals(1, files.length);
+    
+    List<Span> spans = new ArrayList<>();
+    
+    SpanFileReader.read(files[0], (span) -> spans.add(span));
+    
+    assertEquals(3, spans.size());
+    
+    // spans exported after stop are dropped rather than written
+    factory.createTransaction("Test", "4").finished();
+    
+    Thread.sleep(50);
+    
+    assertFalse(exporter.isFileOpen());
+    
+    files[0].delete();
+    directory.delete();
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.core.trace.span;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+
+@SuppressWarnings("javadoc")
+public class TestSpanCodec
+{
+  @Test
+  public void testRoundTrip() throws IOException
+  {
+    List<Span>              spans   = new ArrayList<>();
+    SpanTraceContextFactory factory = new SpanTraceContextFactory((span) -> spans.add(span));
+    Instant                 start   = Instant.parse("2018-06-01T12:00:00.000123Z");
+    
+    SpanTraceContext  root  = factory.createTransaction("SQS_Message", "msg-1", start);
+    
+    root.withAttribute("queue", "test-queue");
+    root.trace("RECEIVED", start.plusMillis(1));
+    
+    ITraceContext sub = root.createSubContext("Document", "doc-1", start.plusMillis(2));
+    
+    sub.trace("STORED", "Table", "documents");
+    sub.finished();
+    root.trace("ABOUT_TO_ACK", start.plusMillis(5));
+    root.trace(ITraceContext.FINISHED, start.plusMillis(6));
+    root.trace("IGNORED");
+    
+    assertEquals(2, spans.size());
+    
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    
+    SpanCodec.encode(spans, out);
+    SpanCodec.encode(spans, out);
+    
+    DataInputStream in      = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+    List<Span>      decoded = SpanCodec.decode(in);
+    
+    assertEquals(2, SpanCodec.decode(in).size());
+    assertNull(SpanCodec.decode(in));
+    
+    assertEquals(2, decoded.size());
+    
+    Span child  = decoded.get(0);
+    Span parent = decoded.get(1);
+    
+    assertEquals(spans.get(1).toString(), parent.toString());
+    assertEquals(spans.get(0).toString(), child.toString());
+    
+    assertTrue(parent.isRoot());
+    assertEquals(parent.getSpanId(), child.getParentSpanId());
+    assertEquals(parent.getTraceId(), child.getTraceId());
+    assertEquals("SQS_Message", parent.getName());
+    assertEquals("test-queue", parent.getAttributes().get("queue"));
+    assertEquals(6000, parent.getDurationMicros());
+    assertEquals(ITraceContext.FINISHED, parent.getStatus());
+    assertEquals(2, parent.getEvents().size());
+    assertEquals("ABOUT_TO_ACK", parent.getEvents().get(1).getName());
+    assertEquals(start.toEpochMilli() * 1000 + 123 + 5000, parent.getEvents().get(1).getTimeMicros());
+    assertEquals("documents", child.getEvents().get(0).getSubjectId());
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestHistogram
+{
+  @Test
+  public void testBuckets()
+  {
+    for(long value : new long[] { 0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789L, Long.MAX_VALUE })
+    {
+      int index = Histogram.indexOf(value);
+      
+      assertTrue(value + " below bucket", Histogram.lowestValueAt(index) <= value);
+      assertTrue(value + " above bucket", Histogram.highestValueAt(index) >= value);
+      assertTrue(value + " bucket too wide", Histogram.highestValueAt(index) - Histogram.lowestValueAt(index) <= value / 32);
+    }
+    
+    for(int index = 1 ; index < Histogram.indexOf(Long.MAX_VALUE) ; index++)
+      assertEquals(Histogram.highestValueAt(index - 1) + 1, Histogram.lowestValueAt(index));
+  }
+  
+  @Test
+  public void testPercentiles()
+  {
+    Histogram histogram = new Histogram();
+    
+    assertEquals(0, histogram.getValueAtPercentile(50.0));
+    
+    for(int i=1 ; i<=10000 ; i++)
+      histogram.record(i);
+    
+    assertEquals(10000, histogram.getCount());
+    assertEquals(10000, histogram.getMax());
+    assertEquals(5000.5, histogram.getMean(), 0.001);
+    
+    assertWithin(5000, histogram.getValueAtPercentile(50.0));
+    assertWithin(9900, histogram.getValueAtPercentile(99.0));
+    assertWithin(9990, histogram.getValueAtPercentile(99.9));
+    assertEquals(10000, histogram.getValueAtPercentile(100.0));
+  }
+
+  private void assertWithin(long expected, long actual)
+  {
+    assertTrue("Expected " + expected + " but got " + actual, actual >= expected && actual <= expected + expected / 32);
+  }
+}
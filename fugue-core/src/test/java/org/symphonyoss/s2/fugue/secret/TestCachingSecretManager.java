@@ -0,0 +1,293 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.secret;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.symphonyoss.s2.common.dom.json.IImmutableJsonDomNode;
+import org.symphonyoss.s2.common.exception.NoSuchObjectException;
+import org.symphonyoss.s2.fugue.naming.CredentialName;
+
+@SuppressWarnings("javadoc")
+public class TestCachingSecretManager
+{
+  private static final CredentialName ONE   = new CredentialName("dev", "env", "realm", "tenant", "one");
+  private static final CredentialName TWO   = new CredentialName("dev", "env", "realm", "tenant", "two");
+  private static final CredentialName THREE = new CredentialName("dev", "env", "realm", "tenant", "three");
+  
+  private static class TestSecretManager implements ISecretManager
+  {
+    private final AtomicInteger fetchCount_ = new AtomicInteger();
+    private final AtomicInteger version_    = new AtomicInteger();
+    private volatile long       delayMillis_;
+    private volatile boolean    fail_;
+
+    @Override
+    public IImmutableJsonDomNode getSecret(CredentialName secretName) throws NoSuchObjectException
+    {
+      fetchCount_.incrementAndGet();
+      
+      String value = secretName + "#" + version_.get();
+      
+      try
+      {
+        Thread.sleep(delayMillis_);
+      }
+      catch (InterruptedException e)
+      {
+        throw new IllegalStateException(e);
+      }
+      
+      if(fail_)
+        throw new IllegalStateException("Throttled");
+      
+      return (IImmutableJsonDomNode)Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] { IImmutableJsonDomNode.class }, (proxy, method, args) -> 
+          {
+            switch(method.getName())
+            {
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              
+              case "equals":
+                return proxy == args[0];
+                
+              default:
+                return value;
+            }
+          });
+    }
+
+    @Override
+    public void putSecret(CredentialName name, IImmutableJsonDomNode secret)
+    {
+      version_.incrementAndGet();
+    }
+
+    @Override
+    public void putSecret(CredentialName name, String secret)
+    {
+      version_.incrementAndGet();
+    }
+  }
+  
+  @Test
+  public void testHit() throws NoSuchObjectException
+  {
+    TestSecretManager     delegate  = new TestSecretManager();
+    CachingSecretManager  cache     = new CachingSecretManager(delegate);
+    
+    IImmutableJsonDomNode secret = cache.getSecret(ONE);
+    
+    assertSame(secret, cache.getSecret(ONE));
+    assertEquals(1, delegate.fetchCount_.get());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    
+    cache.putSecret(ONE, "{}");
+    
+    cache.getSecret(ONE);
+    assertEquals(2, delegate.fetchCount_.get());
+    
+    cache.stop();
+  }
+  
+  @Test
+  public void testSingleFlight() throws Exception
+  {
+    TestSecretManager     delegate  = new TestSecretManager();
+    CachingSecretManager  cache     = new CachingSecretManager(delegate);
+    ExecutorService       exec      = Executors.newFixedThreadPool(10);
+    CountDownLatch        start     = new CountDownLatch(1);
+    List<Future<IImmutableJsonDomNode>> futures = new ArrayList<>();
+    
+    delegate.delayMillis_ = 200;
+    
+    for(int i=0 ; i<10 ; i++)
+    {
+      futures.add(exec.submit(() ->
+      {
+        start.await();
+        return cache.getSecret(ONE);
+      }));
+    }
+    
+    start.countDown();
+    
+    for(Future<IImmutableJsonDomNode> future : futures)
+      assertSame(futures.get(0).get(), future.get());
+    
+    assertEquals(1, delegate.fetchCount_.get());
+    
+    exec.shutdown();
+    cache.stop();
+  }
+  
+  @Test
+  public void testStaleOnError() throws Exception
+  {
+    TestSecretManager     delegate  = new TestSecretManager();
+    CachingSecretManager  cache     = new CachingSecretManager(delegate)
+        .withTtlMillis(50)
+        .withRefreshAheadMillis(0);
+    
+    IImmutableJsonDomNode secret = cache.getSecret(ONE);
+    
+    delegate.fail_ = true;
+    Thread.sleep(100);
+    
+    assertSame(secret, cache.getSecret(ONE));
+    assertSame(secret, cache.getSecret(ONE));
+    assertEquals(2, cache.getStaleCount());
+    
+    cache.withMaxStaleMillis(0);
+    
+    try
+    {
+      cache.getSecret(ONE);
+      throw new AssertionError("Expected failure");
+    }
+    catch(IllegalStateException e)
+    {
+      assertEquals("Throttled", e.getMessage());
+    }
+    
+    cache.stop();
+  }
+  
+  @Test
+  public void testRefreshAhead() throws Exception
+  {
+    TestSecretManager     delegate  = new TestSecretManager();
+    CachingSecretManager  cache     = new CachingSecretManager(delegate)
+        .withTtlMillis(2000)
+        .withRefreshAheadMillis(1800);
+    
+    IImmutableJsonDomNode first = cache.getSecret(ONE);
+    
+    cache.getSecret(ONE);
+    
+    cache.getSecret(TWO);
+    
+    long deadline = System.currentTimeMillis() + 5000;
+    
+    while(delegate.fetchCount_.get() < 3 && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+    
+    Thread.sleep(50);
+    
+    // ONE was read after it was loaded so it was refreshed, TWO was not so it was dropped.
+    assertEquals(3, delegate.fetchCount_.get());
+    assertEquals(1, cache.size());
+    
+    long misses = cache.getMissCount();
+    
+    assertEquals(false, first == cache.getSecret(ONE));
+    assertEquals(misses, cache.getMissCount());
+    
+    cache.stop();
+  }
+  
+  @Test
+  public void testMaxSize() throws Exception
+  {
+    TestSecretManager     delegate  = new TestSecretManager();
+    CachingSecretManager  cache     = new CachingSecretManager(delegate)
+        .withMaxSize(2);
+    
+    cache.getSecret(ONE);
+    Thread.sleep(2);
+    cache.getSecret(TWO);
+    Thread.sleep(2);
+    cache.getSecret(ONE);
+    Thread.sleep(2);
+    cache.getSecret(THREE);
+    
+    assertEquals(2, cache.size());
+    
+    cache.getSecret(ONE);
+    cache.getSecret(THREE);
+    assertEquals(3, delegate.fetchCount_.get());
+    
+    cache.getSecret(TWO);
+    assertEquals(4, delegate.fetchCount_.get());
+    
+    cache.stop();
+  }
+  
+  @Test
+  public void testPutDuringLoad() throws Exception
+  {
+    TestSecretManager     delegate  = new TestSecretManager();
+    CachingSecretManager  cache     = new CachingSecretManager(delegate)
+        .withRefreshAheadMillis(0);
+    ExecutorService       exec      = Executors.newSingleThreadExecutor();
+    
+    delegate.delayMillis_ = 200;
+    
+    Future<IImmutableJsonDomNode> loaded = exec.submit(() -> cache.getSecret(ONE));
+    
+    Thread.sleep(50);
+    cache.putSecret(ONE, "{}");
+    
+    assertEquals(ONE + "#0", loaded.get().toString());
+    
+    delegate.delayMillis_ = 0;
+    
+    assertEquals(ONE + "#1", cache.getSecret(ONE).toString());
+    
+    // Race puts against loads, after both have finished the cache must not hold a value from before the put.
+    for(int i=0 ; i<500 ; i++)
+    {
+      CountDownLatch start = new CountDownLatch(1);
+      
+      cache.evictAll();
+      
+      loaded = exec.submit(() ->
+      {
+        start.await();
+        return cache.getSecret(ONE);
+      });
+      
+      start.countDown();
+      cache.putSecret(ONE, "{}");
+      loaded.get();
+      
+      assertEquals(ONE + "#" + delegate.version_.get(), cache.getSecret(ONE).toString());
+    }
+    
+    exec.shutdown();
+    cache.stop();
+  }
+}
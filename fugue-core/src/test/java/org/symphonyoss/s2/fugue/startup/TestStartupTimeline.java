@@ -0,0 +1,161 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.startup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SuppressWarnings("javadoc")
+public class TestStartupTimeline
+{
+  private final StartupTimeline timeline_ = new StartupTimeline();
+  private final long            base_     = System.nanoTime();
+  
+  private void record(String name, long startMillis, long endMillis)
+  {
+    timeline_.record(name, base_ + TimeUnit.MILLISECONDS.toNanos(startMillis), base_ + TimeUnit.MILLISECONDS.toNanos(endMillis));
+  }
+  
+  private void recordServer()
+  {
+    record("load config", 5, 100);
+    record("prefetch", 0, 50);
+    record("StsManager.getCallerIdentity", 100, 150);
+    record("FugueServer.start", 160, 400);
+    record("start A", 170, 200);
+    record("start B", 170, 350);
+    record("subscribe X", 180, 340);
+    record("start C", 355, 390);
+    record("HttpServer.start", 392, 398);
+  }
+  
+  private List<String> names(List<StartupStep> steps)
+  {
+    List<String> names = new ArrayList<>();
+    
+    for(StartupStep step : steps)
+      names.add(step.getName());
+    
+    return names;
+  }
+  
+  @Test
+  public void testCriticalPath()
+  {
+    recordServer();
+    
+    assertEquals(Arrays.asList("load config", "StsManager.getCallerIdentity", "FugueServer.start",
+        "start B", "subscribe X", "start C", "HttpServer.start"), names(timeline_.getCriticalPath()));
+    
+    List<Integer> depths = new ArrayList<>();
+    
+    for(StartupTimeline.Node node : timeline_.analyse())
+      depths.add(node.getDepth());
+    
+    assertEquals(Arrays.asList(0, 0, 0, 1, 2, 1, 1), depths);
+  }
+  
+  @Test
+  public void testSteps()
+  {
+    recordServer();
+    
+    List<StartupStep> steps = timeline_.getSteps();
+    
+    assertEquals(9, steps.size());
+    
+    for(int i=1 ; i<steps.size() ; i++)
+      assertTrue(steps.get(i - 1).getStartNanos() <= steps.get(i).getStartNanos());
+    
+    assertEquals(240, steps.get(3).getDurationMillis());
+  }
+  
+  @Test
+  public void testBeginAndFinish()
+  {
+    try(StartupStep outer = timeline_.begin("outer"))
+    {
+      try(StartupStep inner = timeline_.begin("inner"))
+      {
+        assertFalse(inner.isEnded());
+      }
+    }
+    
+    assertFalse(timeline_.isFinished());
+    
+    timeline_.finish();
+    
+    assertTrue(timeline_.isFinished());
+    
+    try(StartupStep late = timeline_.begin("late"))
+    {
+      assertFalse(late.isEnded());
+    }
+    record("late record", 0, 1);
+    
+    assertEquals(Arrays.asList("outer", "inner"), names(timeline_.getSteps()));
+    assertEquals(Arrays.asList("outer", "inner"), names(timeline_.getCriticalPath()));
+    
+    for(StartupStep step : timeline_.getSteps())
+      assertTrue(step.isEnded());
+  }
+  
+  @Test
+  public void testEmpty()
+  {
+    assertTrue(timeline_.getSteps().isEmpty());
+    assertTrue(timeline_.getCriticalPath().isEmpty());
+  }
+  
+  @Test
+  public void testJson() throws IOException
+  {
+    recordServer();
+    timeline_.finish();
+    
+    JsonNode json = new ObjectMapper().readTree(timeline_.toJson());
+    
+    assertTrue(json.get("finished").asBoolean());
+    assertEquals(9, json.get("steps").size());
+    
+    JsonNode criticalPath = json.get("criticalPath");
+    
+    assertEquals(7, criticalPath.size());
+    assertEquals("subscribe X", criticalPath.get(4).get("name").asText());
+    assertEquals(2, criticalPath.get(4).get("depth").asInt());
+    assertEquals(160, criticalPath.get(4).get("durationMillis").asLong());
+    assertEquals(Thread.currentThread().getName(), criticalPath.get(4).get("thread").asText());
+  }
+}
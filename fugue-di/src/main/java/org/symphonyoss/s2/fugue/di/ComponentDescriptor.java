@@ -41,6 +41,7 @@ public class ComponentDescriptor
   private Set<Class<?>>       providedInterfaces_ = new HashSet<>();
   private List<Runnable>      startHandlers_      = new ArrayList<>();
   private List<Runnable>      stopHandlers_       = new ArrayList<>();
+  private boolean             lazy_;
  
   /**
    * Add a simple (Cardinality.One) dependency.
@@ -95,6 +96,10 @@ public class ComponentDescriptor
   /**
    * Add a Runnable which will be called during process initialisation.
    * 
+   * Start handlers may be called on a thread of the context's start pool, concurrently with those of
+   * other components at the same level. The context is in the Starting state while they run, so a
+   * handler may call resolveAdditionalComponent() but may not call register() or start().
+   * 
    * @param handler A Runnable to be called at start time.
    * 
    * @return This (fluent method)
@@ -120,6 +125,31 @@ public class ComponentDescriptor
     return this;
   }
 
+  /**
+   * Defer the start of this component until it is first used.
+   * 
+   * Components which depend on a lazy component are given a proxy for the required interface, the start
+   * handlers of the lazy component are called, exactly once, on the first invocation of a method of the proxy
+   * rather than when the context is started. A lazy component which is never used is never started, or
+   * stopped.
+   * 
+   * Laziness requires that every dependency on the component is declared with an interface type, if any
+   * is not then the component is started with the context as usual.
+   * 
+   * @return This (fluent method)
+   */
+  public ComponentDescriptor  withLazyStart()
+  {
+    lazy_ = true;
+    
+    return this;
+  }
+
+  /* package */ boolean isLazy()
+  {
+    return lazy_;
+  }
+
   /* package */ List<Dependency<?>> getDependencies()
   {
     return dependencyList_;
@@ -24,7 +24,9 @@
 package org.symphonyoss.s2.fugue.di;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /* package */ class ComponentHolder
 {
@@ -32,6 +34,13 @@ import java.util.List;
   private List<ComponentHolder>  dependentComponents_ = new ArrayList<>();
   private List<DependencyHolder> dependencies_        = new ArrayList<>();
   private ComponentDescriptor    componentDescriptor_;
+  private int                    level_               = -1;
+  private volatile long          startNanos_          = -1;
+  private volatile long          stopNanos_           = -1;
+  private boolean                eagerRequired_;
+  private Map<Class<?>, Object>  proxies_             = new HashMap<>();
+  private volatile boolean       activated_;
+  private RuntimeException       activationFailure_;
 
   public ComponentHolder(IComponent component)
   {
@@ -64,6 +73,82 @@ import java.util.List;
   {
     return componentDescriptor_;
   }
+
+  public int getLevel()
+  {
+    return level_;
+  }
+
+  public void setLevel(int level)
+  {
+    level_ = level;
+  }
+
+  public long getStartNanos()
+  {
+    return startNanos_;
+  }
+
+  public void setStartNanos(long startNanos)
+  {
+    startNanos_ = startNanos;
+  }
+
+  /**
+   * @return true if the start of this component is deferred until it is first used through a proxy.
+   */
+  public boolean isLazy()
+  {
+    return componentDescriptor_.isLazy() && !eagerRequired_;
+  }
+
+  /**
+   * Note that a dependent has been bound directly to this component, so it cannot be started lazily.
+   */
+  public void setEagerRequired()
+  {
+    eagerRequired_ = true;
+  }
+
+  public Object getProxy(Class<?> requiredInterface)
+  {
+    return proxies_.get(requiredInterface);
+  }
+
+  public void putProxy(Class<?> requiredInterface, Object proxy)
+  {
+    proxies_.put(requiredInterface, proxy);
+  }
+
+  public boolean isActivated()
+  {
+    return activated_;
+  }
+
+  public void setActivated()
+  {
+    activated_ = true;
+  }
+
+  public RuntimeException getActivationFailure()
+  {
+    return activationFailure_;
+  }
+
+  public void setActivationFailure(RuntimeException activationFailure)
+  {
+    activationFailure_ = activationFailure;
+  }
+
+  public long getStopNanos()
+  {
+    return stopNanos_;
+  }
+
+  public void setStopNanos(long stopNanos)
+  {
+    stopNanos_ = stopNanos;
+  }
   
   @Override
   public String toString()
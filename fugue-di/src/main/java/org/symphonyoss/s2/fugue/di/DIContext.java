@@ -23,12 +23,29 @@
 
 package org.symphonyoss.s2.fugue.di;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.Stack;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.symphonyoss.s2.fugue.di.component.ILogComponent;
 import org.symphonyoss.s2.fugue.di.component.impl.DefaultLogComponent;
@@ -36,11 +53,28 @@ import org.symphonyoss.s2.fugue.di.component.impl.DefaultLogComponent;
 /**
  * A dependency injection context.
  * 
+ * On start, components are grouped into levels by their dependencies. Each level is started
+ * after the one below it has finished starting, and the components within a level are started
+ * concurrently. Components are stopped level by level in the reverse of the order in which they
+ * finished starting, the components within a level in parallel, each within a stop timeout and all
+ * within an overall stop deadline.
+ * 
+ * Components whose descriptor calls withLazyStart() are not started with the context, they are
+ * started when a method is first called on the proxy which is injected into the components which
+ * depend on them.
+ * 
  * @author Bruce Skingle
  *
  */
 public class DIContext implements IDIContext
 {
+  /** The default maximum number of components which are started concurrently. */
+  public static final int     DEFAULT_START_THREADS        = 8;
+  /** The default time allowed for each component to stop. */
+  public static final long    DEFAULT_STOP_TIMEOUT_MILLIS  = 30000L;
+  /** The default time allowed for all components to stop. */
+  public static final long    DEFAULT_STOP_DEADLINE_MILLIS = 60000L;
+  
   private static final String UNREACHABLE_CODE = "UNREACHABLE CODE - or did you change Cardinality?";
   
   private ILogComponent                        log_ = new DefaultLogComponent();
@@ -51,6 +85,90 @@ public class DIContext implements IDIContext
   private List<IComponent>                     unresolvableComponentList_ = new ArrayList<>();
   private boolean                              logProvided_;
   private Stack<ComponentHolder>               stopStack_                 = new Stack<>();
+  private int                                  startThreads_              = DEFAULT_START_THREADS;
+  private long                                 stopTimeoutMillis_         = DEFAULT_STOP_TIMEOUT_MILLIS;
+  private long                                 stopDeadlineMillis_        = DEFAULT_STOP_DEADLINE_MILLIS;
+  private IStartupListener                     startupListener_;
+  
+  /**
+   * Set the maximum number of components which may be started concurrently.
+   * 
+   * Components are started level by level, every component is started after all of the
+   * components which it depends on, and components in the same level are started concurrently
+   * on a pool of this many threads. A value of 1 starts all components serially on the calling thread.
+   * 
+   * @param startThreads The maximum number of components to start concurrently.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized DIContext withStartThreads(int startThreads)
+  {
+    if(getLifeCycle() != DIContextState.Initializing)
+      throw new IllegalStateException("The start pool cannot be changed once resolution has started");
+    
+    if(startThreads < 1)
+      throw new IllegalArgumentException("startThreads must be >= 1");
+    
+    startThreads_ = startThreads;
+    
+    return this;
+  }
+  
+  /**
+   * Set the time allowed for each component to stop.
+   * 
+   * A component which has not stopped in this time is abandoned and the context fails to stop cleanly.
+   * 
+   * @param stopTimeoutMillis The time allowed for each component to stop in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized DIContext withStopTimeoutMillis(long stopTimeoutMillis)
+  {
+    if(stopTimeoutMillis < 0)
+      throw new IllegalArgumentException("stopTimeoutMillis must be >= 0");
+    
+    stopTimeoutMillis_ = stopTimeoutMillis;
+    
+    return this;
+  }
+  
+  /**
+   * Set the time allowed for all components to stop.
+   * 
+   * Components which have not been stopped when this time has passed are not stopped and the context
+   * fails to stop cleanly.
+   * 
+   * @param stopDeadlineMillis The time allowed for all components to stop in milliseconds.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized DIContext withStopDeadlineMillis(long stopDeadlineMillis)
+  {
+    if(stopDeadlineMillis < 0)
+      throw new IllegalArgumentException("stopDeadlineMillis must be >= 0");
+    
+    stopDeadlineMillis_ = stopDeadlineMillis;
+    
+    return this;
+  }
+  
+  /**
+   * Set a listener to be told of the start of the context and of each component.
+   * 
+   * @param startupListener A listener for completed startup steps.
+   * 
+   * @return this (fluent method)
+   */
+  public synchronized DIContext withStartupListener(IStartupListener startupListener)
+  {
+    if(getLifeCycle() != DIContextState.Initializing)
+      throw new IllegalStateException("The startup listener cannot be changed once resolution has started");
+    
+    startupListener_ = startupListener;
+    
+    return this;
+  }
   
   @Override
   public synchronized DIContext register(IComponent component)
@@ -146,6 +264,8 @@ public class DIContext implements IDIContext
     
     if(resolve(holder))
     {
+      // Nothing can depend on an additional component, so there would be nothing to activate it if it were lazy.
+      holder.setLevel(Integer.MAX_VALUE);
       start(holder);
       return true;
     }
@@ -245,80 +365,396 @@ public class DIContext implements IDIContext
   @Override
   public synchronized void start()
   {
-//  TreeMap<Integer, List<ComponentHolder>>  startMap = new TreeMap<>();
-    
-  setLifeCycle(DIContextState.Starting);
-//  for(ComponentHolder holder : componentList_)
-//  {
-//    System.err.println("DI get level for " + holder);
-//    int level = holder.getLevel();
-//    List<ComponentHolder> list = startMap.get(level);
-//    
-//    if(list == null)
-//    {
-//      list = new ArrayList<>();
-//      startMap.put(level, list);
-//    }
-//    
-//    list.add(holder);
-//  }
-//  
-//  String  tab = "";
-//  
-//  for(Entry<Integer, List<ComponentHolder>> e : startMap.entrySet())
-//  {
-//    tab = tab + ">";
-//    
-//    for(ComponentHolder holder : e.getValue())
-//    {
-//      log_.debug("Order " + tab + e.getKey() + " " + 
-//          holder.getName());
-//      
-//      for(DependencyHolder d : holder.getDependencies())
-//      {
-//        log_.debug("Order " + tab + e.getKey() + " +---->" + 
-//            d.providerHolder_.getName() + 
-//            "[" + d.dependency_.getRequiredInterface().getSimpleName() + "]");
-//      }
-//    }
-//  }
-//  
-//  for(Entry<Integer, List<ComponentHolder>> e : startMap.entrySet())
-//  {
-//    stopStack_.push(e.getValue());
-//    
-//    for(ComponentHolder holder : e.getValue())
-  for(ComponentHolder holder : componentList_)
+    if(getLifeCycle() == DIContextState.Starting)
+      throw new IllegalStateException("The context is already starting");
+    
+    setLifeCycle(DIContextState.Starting);
+    
+    long                                    startTime = System.nanoTime();
+    TreeMap<Integer, List<ComponentHolder>> startMap  = getStartMap();
+    
+    logStartOrder(startMap);
+    
+    ExecutorService executor = startThreads_ > 1 ? Executors.newFixedThreadPool(startThreads_, new PoolThreadFactory("DIContext-start-")) : null;
+    
+    try
+    {
+      for(Entry<Integer, List<ComponentHolder>> e : startMap.entrySet())
+      {
+        List<ComponentHolder> level = new ArrayList<>();
+        
+        for(ComponentHolder holder : e.getValue())
+        {
+          if(holder.isLazy())
+            log_.debug("Deferring start of lazy component " + holder.getName());
+          else if(!holder.isActivated())
+            level.add(holder);
+        }
+        
+        if(level.isEmpty())
+          continue;
+        
+        ComponentHolder failed = startLevel(executor, level);
+        
+        if(failed != null)
+        {
+          setLifeCycle(DIContextState.Failed);
+          
+          doStop();
+          
+          log_.error("Faild to start cleanly : CALLING System.exit()");
+          System.exit(1);
+        }
+      }
+    }
+    finally
+    {
+      if(executor != null)
+        executor.shutdown();
+    }
+    
+    long endTime = System.nanoTime();
+    
+    logStartTimes(startMap, endTime - startTime);
+    
+    if(startupListener_ != null)
+      startupListener_.stepCompleted("DIContext.start", startTime, endTime);
+    
+    setLifeCycle(DIContextState.Running);
+  }
+  
+  /**
+   * Start all of the components in one level, concurrently if there is more than one.
+   * 
+   * Components which start successfully are pushed onto the stop stack as they complete, every
+   * component in the level is allowed to finish starting even if one of them fails.
+   * 
+   * The monitor of this context is released while a concurrent level starts, so that start handlers
+   * running on the pool may call synchronized methods of the context without deadlocking.
+   * 
+   * @return The first component which failed to start, or null.
+   */
+  private ComponentHolder startLevel(ExecutorService executor, List<ComponentHolder> level)
   {
+    if(executor == null || level.size() == 1)
+    {
+      for(ComponentHolder holder : level)
+      {
+        if(!startAndLog(holder))
+          return holder;
+      }
+      
+      return null;
+    }
+    
+    List<Future<Boolean>> futures   = new ArrayList<>(level.size());
+    AtomicInteger         remaining = new AtomicInteger(level.size());
+    
+    for(ComponentHolder holder : level)
+    {
+      futures.add(executor.submit(() ->
+      {
+        try
+        {
+          return startAndLog(holder);
+        }
+        finally
+        {
+          synchronized(this)
+          {
+            remaining.decrementAndGet();
+            notifyAll();
+          }
+        }
+      }));
+    }
+    
+    ComponentHolder failed      = null;
+    boolean         interrupted = false;
+    
     try
     {
-      start(holder);
+      while(remaining.get() > 0)
+        wait();
+    }
+    catch(InterruptedException ex)
+    {
+      interrupted = true;
+    }
+    
+    for(int i=0 ; i<futures.size() ; i++)
+    {
+      boolean ok;
       
+      try
+      {
+        if(interrupted && !futures.get(i).isDone())
+        {
+          log_.error("Interrupted waiting for component " + level.get(i).getName() + " to start");
+          ok = false;
+        }
+        else
+        {
+          ok = futures.get(i).get();
+        }
+      }
+      catch(InterruptedException ex)
+      {
+        log_.error("Interrupted waiting for component " + level.get(i).getName() + " to start", ex);
+        interrupted = true;
+        ok = false;
+      }
+      catch(ExecutionException ex)
+      {
+        log_.error("Unable to start component " + level.get(i).getName(), ex.getCause());
+        ok = false;
+      }
+      
+      if(!ok && failed == null)
+        failed = level.get(i);
+    }
+    
+    if(interrupted)
+      Thread.currentThread().interrupt();
+    
+    return failed;
+  }
+  
+  private boolean startAndLog(ComponentHolder holder)
+  {
+    try
+    {
+      start(holder);
+      return true;
     }
     catch(RuntimeException ex)
     {
       log_.error("Unable to start component " + 
           holder.getName(), ex);
       
-      setLifeCycle(DIContextState.Failed);
+      return false;
+    }
+  }
+
+  /**
+   * Start a lazy component, if it has not already been started.
+   * 
+   * @param holder The component to start.
+   */
+  private void activate(ComponentHolder holder)
+  {
+    synchronized(holder)
+    {
+      if(holder.getActivationFailure() != null)
+        throw new IllegalStateException("Lazy component " + holder.getName() + " failed to start", holder.getActivationFailure());
       
-      doStop();
+      if(holder.isActivated())
+        return;
       
-      log_.error("Faild to start cleanly : CALLING System.exit()");
-      System.exit(1);
+      DIContextState lifeCycle = getLifeCycle();
+      
+      if(lifeCycle != DIContextState.Starting && lifeCycle != DIContextState.Running)
+        throw new IllegalStateException("Lazy component " + holder.getName() + " cannot be started when the context is " + lifeCycle);
+      
+      log_.info("Activating lazy component " + holder.getName());
+      
+      try
+      {
+        start(holder);
+      }
+      catch(RuntimeException ex)
+      {
+        log_.error("Unable to start lazy component " + holder.getName(), ex);
+        holder.setActivationFailure(ex);
+        throw ex;
+      }
     }
   }
-//  }
-  setLifeCycle(DIContextState.Running);
+  
+  /**
+   * Return the lazy components which have not been started.
+   * 
+   * @return The lazy components which have not been activated, in the order in which they were registered.
+   */
+  public List<IComponent> getUnactivatedComponents()
+  {
+    List<IComponent> result = new ArrayList<>();
+    
+    for(ComponentHolder holder : componentList_)
+    {
+      if(holder.isLazy() && !holder.isActivated())
+        result.add(holder.getComponent());
+    }
+    
+    return result;
   }
 
   private void start(ComponentHolder holder)
   {
     log_.debug("Start " + holder.getName());
+    
+    long startTime = System.nanoTime();
+    
     for(Runnable handler : holder.getComponentDescriptor().getStartHandlers())
       handler.run();
+    
+    long endTime = System.nanoTime();
+    
+    holder.setStartNanos(endTime - startTime);
+    holder.setActivated();
+    
+    if(startupListener_ != null)
+      startupListener_.stepCompleted("start " + holder.getName(), startTime, endTime);
+    
     stopStack_.push(holder);
   }
+  
+  /**
+   * Group components by level, where the level of a component is one more than the highest
+   * level of any of its providers, so that every provider is in a lower level than the components
+   * which depend on it.
+   * 
+   * @return A map of level to the components in that level, in registration order.
+   */
+  private TreeMap<Integer, List<ComponentHolder>> getStartMap()
+  {
+    TreeMap<Integer, List<ComponentHolder>>  startMap = new TreeMap<>();
+    Set<ComponentHolder>                     visiting = new HashSet<>();
+    
+    for(ComponentHolder holder : componentList_)
+    {
+      int level = getLevel(holder, visiting);
+      List<ComponentHolder> list = startMap.get(level);
+      
+      if(list == null)
+      {
+        list = new ArrayList<>();
+        startMap.put(level, list);
+      }
+      
+      list.add(holder);
+    }
+    
+    return startMap;
+  }
+  
+  private int getLevel(ComponentHolder holder, Set<ComponentHolder> visiting)
+  {
+    if(holder.getLevel() >= 0)
+      return holder.getLevel();
+    
+    visiting.add(holder);
+    
+    int level = 0;
+    
+    for(DependencyHolder d : holder.getDependencies())
+    {
+      if(d.providerHolder_ == holder)
+        continue;
+      
+      if(visiting.contains(d.providerHolder_))
+      {
+        // A dependency cycle, the provider will be started after this component as it would have been before.
+        log_.warn("Dependency cycle between " + holder.getName() + " and " + d.providerHolder_.getName() + 
+            "[" + d.dependency_.getRequiredInterface().getSimpleName() + "]");
+        continue;
+      }
+      
+      level = Math.max(level, getLevel(d.providerHolder_, visiting) + 1);
+    }
+    
+    visiting.remove(holder);
+    holder.setLevel(level);
+    
+    return level;
+  }
+  
+  private void logStartOrder(TreeMap<Integer, List<ComponentHolder>> startMap)
+  {
+    String  tab = "";
+    
+    for(Entry<Integer, List<ComponentHolder>> e : startMap.entrySet())
+    {
+      tab = tab + ">";
+      
+      for(ComponentHolder holder : e.getValue())
+      {
+        log_.debug("Order " + tab + e.getKey() + " " + 
+            holder.getName());
+        
+        for(DependencyHolder d : holder.getDependencies())
+        {
+          log_.debug("Order " + tab + e.getKey() + " +---->" + 
+              d.providerHolder_.getName() + 
+              "[" + d.dependency_.getRequiredInterface().getSimpleName() + "]");
+        }
+      }
+    }
+  }
+  
+  private void logStartTimes(TreeMap<Integer, List<ComponentHolder>> startMap, long elapsedNanos)
+  {
+    int started = 0;
+    
+    for(Entry<Integer, List<ComponentHolder>> e : startMap.entrySet())
+    {
+      for(ComponentHolder holder : e.getValue())
+      {
+        if(holder.getStartNanos() >= 0)
+        {
+          log_.info("Started " + holder.getName() + " at level " + e.getKey() + " in " +
+              TimeUnit.NANOSECONDS.toMillis(holder.getStartNanos()) + "ms");
+          started++;
+        }
+      }
+    }
+    
+    log_.info("Started " + started + " components in " + startMap.size() + " levels in " +
+        TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms");
+    
+    if(started < componentList_.size())
+      log_.info("Deferred the start of " + (componentList_.size() - started) + " lazy components");
+  }
+  
+  /**
+   * Return the time taken by the start handlers of each component.
+   * 
+   * @return A map of component to the time taken to start it in milliseconds, in the order in which
+   * the components were registered. Components which have not been started are omitted.
+   */
+  public synchronized Map<IComponent, Long> getStartMillis()
+  {
+    Map<IComponent, Long> result = new LinkedHashMap<>();
+    
+    for(ComponentHolder holder : componentList_)
+    {
+      if(holder.getStartNanos() >= 0)
+        result.put(holder.getComponent(), TimeUnit.NANOSECONDS.toMillis(holder.getStartNanos()));
+    }
+    
+    return result;
+  }
+  
+  private static class PoolThreadFactory implements ThreadFactory
+  {
+    private final String        prefix_;
+    private final AtomicInteger threadId_ = new AtomicInteger();
+    
+    private PoolThreadFactory(String prefix)
+    {
+      prefix_ = prefix;
+    }
+    
+    @Override
+    public Thread newThread(Runnable r)
+    {
+      Thread thread = new Thread(r, prefix_ + threadId_.incrementAndGet());
+      
+      thread.setDaemon(true);
+      
+      return thread;
+    }
+  }
 
   private void doBind(ComponentHolder providerHolder, 
       Dependency<?> dependency, ComponentHolder componentHolder)
@@ -328,16 +764,109 @@ public class DIContext implements IDIContext
         " from " + providerHolder.getName() + 
         " for " + componentHolder.getName());
     
-    dependency.bind(providerHolder.getComponent());
+    if(providerHolder.getComponentDescriptor().isLazy() && dependency.getRequiredInterface().isInterface())
+    {
+      dependency.bind(getProxy(providerHolder, dependency.getRequiredInterface()));
+    }
+    else
+    {
+      if(providerHolder.getComponentDescriptor().isLazy())
+        log_.warn("Lazy component " + providerHolder.getName() + " will be started eagerly because " +
+            componentHolder.getName() + " depends on the class " + dependency.getRequiredInterface().getName());
+      
+      providerHolder.setEagerRequired();
+      
+      DIContextState lifeCycle = getLifeCycle();
+      
+      // Once the context has started nothing else will start a provider which was lazy until now.
+      if(lifeCycle == DIContextState.Starting || lifeCycle == DIContextState.Running)
+        activate(providerHolder);
+      
+      dependency.bind(providerHolder.getComponent());
+    }
     
     componentHolder.addDependency(providerHolder, dependency);
   }
   
+  private Object getProxy(ComponentHolder holder, Class<?> requiredInterface)
+  {
+    Object proxy = holder.getProxy(requiredInterface);
+    
+    if(proxy == null)
+    {
+      proxy = Proxy.newProxyInstance(requiredInterface.getClassLoader(), new Class<?>[] { requiredInterface },
+          new LazyInvocationHandler(holder));
+      
+      holder.putProxy(requiredInterface, proxy);
+    }
+    
+    return proxy;
+  }
+  
+  /**
+   * Activates a lazy component on the first call of any of its methods other than those of Object.
+   */
+  private class LazyInvocationHandler implements InvocationHandler
+  {
+    private final ComponentHolder holder_;
+    
+    private LazyInvocationHandler(ComponentHolder holder)
+    {
+      holder_ = holder;
+    }
+    
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+      if(method.getDeclaringClass() == Object.class)
+      {
+        switch(method.getName())
+        {
+          case "equals":
+            return proxy == args[0];
+            
+          case "hashCode":
+            return System.identityHashCode(proxy);
+            
+          case "toString":
+            return "Lazy(" + holder_.getComponent() + ")";
+            
+          default:
+            break;
+        }
+      }
+      
+      if(!holder_.isActivated())
+        activate(holder_);
+      
+      try
+      {
+        return method.invoke(holder_.getComponent(), args);
+      }
+      catch(InvocationTargetException e)
+      {
+        throw e.getCause();
+      }
+    }
+  }
+  
   @Override
   public void stop()
   {
     setLifeCycle(DIContextState.Stopping);
     
+    List<IComponent> unactivated = getUnactivatedComponents();
+    
+    if(!unactivated.isEmpty())
+    {
+      List<String> names = new ArrayList<>();
+      
+      for(IComponent component : unactivated)
+        names.add(component.getClass().getSimpleName());
+      
+      log_.info("Lazy components which were never activated: " + names);
+    }
+    
     if(doStop())
     {
       log_.error("Faild to stop cleanly : CALLING System.exit()");
@@ -346,31 +875,135 @@ public class DIContext implements IDIContext
     setLifeCycle(DIContextState.Stopped);
   }
   
+  /**
+   * Stop all started components, level by level in the reverse of the order in which they were started.
+   * 
+   * The components in a level are stopped in parallel, each on its own thread, so that a component which
+   * does not stop within the stop timeout does not block the others. Once the stop deadline has passed no
+   * further components are stopped.
+   * 
+   * @return true if any component failed to stop, timed out or was not stopped.
+   */
   private boolean doStop()
   {
-    boolean terminate = false;
+    boolean         terminate = false;
+    long            deadline  = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(stopDeadlineMillis_);
+    ExecutorService executor  = Executors.newCachedThreadPool(new PoolThreadFactory("DIContext-stop-"));
+    
+    List<ComponentHolder> stopList = new ArrayList<>();
     
     while(!stopStack_.isEmpty())
+      stopList.add(stopStack_.pop());
+    
+    // Lazy components are pushed when they are activated, which may be after higher levels have started.
+    stopList.sort((a, b) -> Integer.compare(b.getLevel(), a.getLevel()));
+    
+    try
     {
-      ComponentHolder holder = stopStack_.pop();
-      try
+      for(int i=0 ; i<stopList.size() ; )
+      {
+        List<ComponentHolder> level = new ArrayList<>();
+        
+        level.add(stopList.get(i++));
+        
+        while(i<stopList.size() && stopList.get(i).getLevel() == level.get(0).getLevel())
+          level.add(stopList.get(i++));
+        
+        if(System.nanoTime() - deadline >= 0)
+        {
+          level.addAll(stopList.subList(i, stopList.size()));
+          
+          log_.error("Stop deadline of " + stopDeadlineMillis_ + "ms passed, not stopping " + level);
+          
+          terminate = true;
+          break;
+        }
+        
+        terminate |= stopLevel(executor, level, deadline);
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+    
+    if(terminate)
+      setLifeCycle(DIContextState.Failed);
+    
+    return terminate;
+  }
+  
+  private boolean stopLevel(ExecutorService executor, List<ComponentHolder> level, long deadline)
+  {
+    boolean               failed  = false;
+    long                  start   = System.nanoTime();
+    long                  timeout = Math.min(start + TimeUnit.MILLISECONDS.toNanos(stopTimeoutMillis_), deadline);
+    List<Future<?>>       futures = new ArrayList<>(level.size());
+    
+    for(ComponentHolder holder : level)
+    {
+      futures.add(executor.submit(() ->
       {
         log_.debug("Stop " + holder.getName());
         for(Runnable handler : holder.getComponentDescriptor().getStopHandlers())
           handler.run();
+        
+        holder.setStopNanos(System.nanoTime() - start);
+      }));
+    }
+    
+    for(int i=0 ; i<futures.size() ; i++)
+    {
+      ComponentHolder holder = level.get(i);
+      
+      try
+      {
+        futures.get(i).get(Math.max(0L, timeout - System.nanoTime()), TimeUnit.NANOSECONDS);
       }
-      catch(RuntimeException ex)
+      catch(TimeoutException ex)
+      {
+        log_.error("Component " + holder.getName() + " did not stop within " + stopTimeoutMillis_ + "ms");
+        futures.get(i).cancel(true);
+        holder.setStopNanos(System.nanoTime() - start);
+        failed = true;
+      }
+      catch(ExecutionException ex)
       {
         log_.error("Unable to stop component " + 
-            holder.getName(), ex);
+            holder.getName(), ex.getCause());
         // Don't re-throw because we want other components to have a chance to stop
         
-        terminate = true;
-        setLifeCycle(DIContextState.Failed);
+        holder.setStopNanos(System.nanoTime() - start);
+        failed = true;
+      }
+      catch(InterruptedException ex)
+      {
+        log_.error("Interrupted while stopping component " + holder.getName(), ex);
+        Thread.currentThread().interrupt();
+        failed = true;
       }
     }
     
-    return terminate;
+    return failed;
+  }
+  
+  /**
+   * Return the time taken by the stop handlers of each component.
+   * 
+   * @return A map of component to the time taken to stop it in milliseconds, in the order in which
+   * the components were registered. Components which have not been stopped are omitted.
+   */
+  public Map<IComponent, Long> getStopMillis()
+  {
+    Map<IComponent, Long> result = new LinkedHashMap<>();
+    
+    for(ComponentHolder holder : componentList_)
+    {
+      if(holder.getStopNanos() >= 0)
+        result.put(holder.getComponent(), TimeUnit.NANOSECONDS.toMillis(holder.getStopNanos()));
+    }
+    
+    return result;
   }
   
   @Override
@@ -50,7 +50,7 @@ package org.symphonyoss.s2.fugue.di;
    * We are relying on the check performed in the context which is part of our package.
    */
   @SuppressWarnings("unchecked")
-  /* package */ void bind(IComponent value)
+  /* package */ void bind(Object value)
   {
     binder_.bind((T)value);
   }
@@ -0,0 +1,47 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.di;
+
+/**
+ * A listener which is told of each completed step in the start of a DIContext.
+ * 
+ * This allows the startup of a context to be recorded in a timeline, for example
+ * <pre>
+ * context.withStartupListener(StartupTimeline.getDefault()::record);
+ * </pre>
+ * 
+ * @author Bruce Skingle
+ *
+ */
+@FunctionalInterface
+public interface IStartupListener
+{
+  /**
+   * Called when a step has completed.
+   * 
+   * @param name        The name of the step.
+   * @param startNanos  The value of System.nanoTime() when the step began.
+   * @param endNanos    The value of System.nanoTime() when the step ended.
+   */
+  void stepCompleted(String name, long startNanos, long endNanos);
+}
@@ -0,0 +1,88 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.di.test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.symphonyoss.s2.fugue.di.ComponentDescriptor;
+
+/**
+ * An integer provider which is started lazily and counts how many times it is started and stopped.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class LazyIntegerProvider implements IIntegerProvider
+{
+  private final int           value_;
+  private final AtomicInteger startCount_ = new AtomicInteger();
+  private final AtomicInteger stopCount_  = new AtomicInteger();
+
+  public LazyIntegerProvider(int value)
+  {
+    value_ = value;
+  }
+
+  @Override
+  public ComponentDescriptor getComponentDescriptor()
+  {
+    return new ComponentDescriptor()
+        .addProvidedInterface(IIntegerProvider.class)
+        .addProvidedInterface(LazyIntegerProvider.class)
+        .withLazyStart()
+        .addStart(() -> 
+        {
+          try
+          {
+            Thread.sleep(50);
+          }
+          catch (InterruptedException e)
+          {
+            throw new IllegalStateException(e);
+          }
+          
+          startCount_.incrementAndGet();
+        })
+        .addStop(() -> stopCount_.incrementAndGet());
+  }
+
+  @Override
+  public int getIntValue()
+  {
+    if(startCount_.get() == 0)
+      throw new IllegalStateException("Not started");
+    
+    return value_;
+  }
+
+  public int getStartCount()
+  {
+    return startCount_.get();
+  }
+
+  public int getStopCount()
+  {
+    return stopCount_.get();
+  }
+}
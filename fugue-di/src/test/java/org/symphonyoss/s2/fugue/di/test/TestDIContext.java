@@ -23,10 +23,23 @@
 
 package org.symphonyoss.s2.fugue.di.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Test;
 import org.symphonyoss.s2.fugue.di.Cardinality;
+import org.symphonyoss.s2.fugue.di.ComponentDescriptor;
 import org.symphonyoss.s2.fugue.di.ConfigurationFault;
 import org.symphonyoss.s2.fugue.di.DIContext;
+import org.symphonyoss.s2.fugue.di.IComponent;
 
 public class TestDIContext
 {
@@ -158,5 +171,331 @@ public class TestDIContext
     context.resolveAndStart();
     consumer.check(3);
   }
-
+  
+  @Test
+  public void testParallelStart()
+  {
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    DIContext context = new DIContext().withStartThreads(4);
+    
+    for(int i=0 ; i<4 ; i++)
+      context.register(new TimedComponent("T" + i, 300, events, null));
+    
+    long start = System.currentTimeMillis();
+    context.resolveAndStart();
+    long elapsed = System.currentTimeMillis() - start;
+    
+    assertEquals("Running", String.valueOf(context.getLifeCycle()));
+    assertTrue("Took " + elapsed + "ms", elapsed < 900);
+    
+    for(int i=0 ; i<4 ; i++)
+      assertTrue(events.contains("start T" + i));
+    
+    context.stop();
+  }
+  
+  @Test
+  public void testLevelOrder()
+  {
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    
+    DIContext context = new DIContext()
+        .register(new TimedComponent("F", 10, events, null, IComponentB.class))
+        .register(new TimedComponent("E", 100, events, IComponentB.class, IComponentA.class))
+        .register(new TimedComponent("D", 10, events, null, IComponentA.class))
+        .register(new TimedComponent("C", 200, events, IComponentA.class));
+    
+    context.resolveAndStart();
+    
+    assertBefore(events, "start C", "begin D");
+    assertBefore(events, "start C", "begin E");
+    assertBefore(events, "start E", "begin F");
+    
+    context.stop();
+    
+    assertEquals("Stopped", String.valueOf(context.getLifeCycle()));
+    assertBefore(events, "stop F", "stop E");
+    assertBefore(events, "stop E", "stop C");
+    assertBefore(events, "stop D", "stop C");
+  }
+  
+  @Test
+  public void testParallelStop()
+  {
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    TimedComponent base = new TimedComponent("Base", 0, events, IComponentA.class).withStopMillis(100);
+    
+    DIContext context = new DIContext()
+        .register(base)
+        .register(new TimedComponent("X", 0, events, null, IComponentA.class).withStopMillis(300))
+        .register(new TimedComponent("Y", 0, events, null, IComponentA.class).withStopMillis(300))
+        .register(new TimedComponent("Z", 0, events, null, IComponentA.class).withStopMillis(300));
+    
+    context.resolveAndStart();
+    
+    long start = System.currentTimeMillis();
+    context.stop();
+    long elapsed = System.currentTimeMillis() - start;
+    
+    assertTrue("Took " + elapsed + "ms", elapsed < 900);
+    assertEquals("stop Base", events.get(events.size() - 1));
+    
+    Map<IComponent, Long> stopMillis = context.getStopMillis();
+    
+    assertTrue(stopMillis.get(base) >= 100);
+  }
+  
+  @Test
+  public void testSerialStart()
+  {
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    TimedComponent a = new TimedComponent("A", 100, events, null);
+    TimedComponent b = new TimedComponent("B", 100, events, null);
+    
+    DIContext context = new DIContext()
+        .withStartThreads(1)
+        .register(a)
+        .register(b);
+    
+    context.resolveAndStart();
+    
+    assertBefore(events, "start A", "begin B");
+    
+    Map<IComponent, Long> startMillis = context.getStartMillis();
+    
+    assertTrue(startMillis.get(a) >= 100);
+    assertTrue(startMillis.get(b) >= 100);
+    
+    context.stop();
+  }
+  
+  @Test
+  public void testStartupListener()
+  {
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    List<String> steps  = Collections.synchronizedList(new ArrayList<>());
+    List<long[]> times  = Collections.synchronizedList(new ArrayList<>());
+    
+    DIContext context = new DIContext()
+        .withStartupListener((name, startNanos, endNanos) ->
+        {
+          synchronized(steps)
+          {
+            steps.add(name);
+            times.add(new long[] {startNanos, endNanos});
+          }
+        })
+        .register(new TimedComponent("A", 100, events, null))
+        .register(new TimedComponent("B", 100, events, null));
+    
+    context.resolveAndStart();
+    
+    // the context also starts its default log component
+    assertEquals(4, steps.size());
+    assertEquals("DIContext.start", steps.get(3));
+    assertEquals(2, Collections.frequency(steps, "start TimedComponent"));
+    
+    long[] contextTimes = times.get(3);
+    
+    for(int i=0 ; i<3 ; i++)
+    {
+      if(steps.get(i).equals("start TimedComponent"))
+        assertTrue(times.get(i)[1] - times.get(i)[0] >= 100000000L);
+      
+      assertTrue(contextTimes[0] <= times.get(i)[0]);
+      assertTrue(times.get(i)[1] <= contextTimes[1]);
+    }
+    
+    context.stop();
+  }
+  
+  @Test
+  public void testCycle()
+  {
+    DIContext context = new DIContext()
+        .register(new ComponentAB())
+        .register(new ComponentBA());
+    
+    context.resolveAndStart();
+    
+    assertEquals("Running", String.valueOf(context.getLifeCycle()));
+    
+    context.stop();
+  }
+  
+  @Test
+  public void testLazy()
+  {
+    IntegerConsumer     consumer = new IntegerConsumer(Cardinality.one);
+    LazyIntegerProvider provider = new LazyIntegerProvider(1);
+    
+    DIContext context = new DIContext()
+        .register(consumer)
+        .register(provider);
+    
+    context.resolveAndStart();
+    
+    assertEquals(0, provider.getStartCount());
+    assertEquals(1, context.getUnactivatedComponents().size());
+    
+    consumer.check(1);
+    consumer.check(1);
+    
+    assertEquals(1, provider.getStartCount());
+    assertTrue(context.getUnactivatedComponents().isEmpty());
+    
+    context.stop();
+    
+    assertEquals(1, provider.getStopCount());
+  }
+  
+  @Test
+  public void testLazyConcurrent() throws Exception
+  {
+    IntegerConsumer     consumer = new IntegerConsumer(Cardinality.one);
+    LazyIntegerProvider provider = new LazyIntegerProvider(1);
+    
+    DIContext context = new DIContext()
+        .register(consumer)
+        .register(provider);
+    
+    context.resolveAndStart();
+    
+    ExecutorService   executor = Executors.newFixedThreadPool(8);
+    List<Future<?>>   futures  = new ArrayList<>();
+    
+    for(int i=0 ; i<8 ; i++)
+      futures.add(executor.submit(() -> consumer.check(1)));
+    
+    for(Future<?> future : futures)
+      future.get();
+    
+    executor.shutdown();
+    
+    assertEquals(1, provider.getStartCount());
+    
+    context.stop();
+  }
+  
+  @Test
+  public void testLazyNeverUsed()
+  {
+    LazyIntegerProvider provider = new LazyIntegerProvider(1);
+    
+    DIContext context = new DIContext()
+        .register(new IntegerConsumer(Cardinality.one))
+        .register(provider);
+    
+    context.resolveAndStart();
+    context.stop();
+    
+    assertEquals(0, provider.getStartCount());
+    assertEquals(0, provider.getStopCount());
+    assertEquals(provider, context.getUnactivatedComponents().get(0));
+  }
+  
+  @Test
+  public void testLazyAdditional()
+  {
+    LazyIntegerProvider provider = new LazyIntegerProvider(1);
+    
+    DIContext context = new DIContext()
+        .register(provider);
+    
+    context.resolveAndStart();
+    
+    IntegerConsumer consumer = new IntegerConsumer(Cardinality.one);
+    
+    assertTrue(context.resolveAdditionalComponent(consumer));
+    assertEquals(0, provider.getStartCount());
+    
+    consumer.check(1);
+    
+    assertEquals(1, provider.getStartCount());
+    
+    context.stop();
+  }
+  
+  @Test
+  public void testLazyAdditionalByClass()
+  {
+    LazyIntegerProvider       provider  = new LazyIntegerProvider(1);
+    List<LazyIntegerProvider> providers = new ArrayList<>();
+    
+    DIContext context = new DIContext()
+        .register(provider);
+    
+    context.resolveAndStart();
+    
+    assertEquals(0, provider.getStartCount());
+    
+    assertTrue(context.resolveAdditionalComponent(new IComponent()
+    {
+      @Override
+      public ComponentDescriptor getComponentDescriptor()
+      {
+        return new ComponentDescriptor()
+            .addDependency(LazyIntegerProvider.class, (v) -> providers.add(v));
+      }
+    }));
+    
+    assertEquals(1, provider.getStartCount());
+    assertEquals(1, providers.get(0).getIntValue());
+    
+    context.stop();
+    
+    assertEquals(1, provider.getStopCount());
+  }
+  
+  @Test(timeout=10000)
+  public void testStartHandlerCallsContext()
+  {
+    List<String> events  = Collections.synchronizedList(new ArrayList<>());
+    DIContext    context = new DIContext().withStartThreads(4);
+    
+    for(int i=0 ; i<2 ; i++)
+    {
+      String name = "C" + i;
+      
+      context.register(new IComponent()
+      {
+        @Override
+        public ComponentDescriptor getComponentDescriptor()
+        {
+          return new ComponentDescriptor()
+              .addStart(() ->
+              {
+                context.getStartMillis();
+                
+                try
+                {
+                  context.register(new IntegerProvider(1));
+                }
+                catch(IllegalStateException e)
+                {
+                  events.add("start " + name);
+                }
+              });
+        }
+      });
+    }
+    
+    context.resolveAndStart();
+    
+    assertEquals("Running", String.valueOf(context.getLifeCycle()));
+    assertTrue(events.contains("start C0"));
+    assertTrue(events.contains("start C1"));
+    
+    context.stop();
+  }
+  
+  private void assertBefore(List<String> events, String first, String second)
+  {
+    int i = events.indexOf(first);
+    int j = events.indexOf(second);
+    
+    assertTrue(first + " missing from " + events, i >= 0);
+    assertTrue(second + " missing from " + events, j >= 0);
+    assertTrue(first + " not before " + second + " in " + events, i < j);
+  }
 }
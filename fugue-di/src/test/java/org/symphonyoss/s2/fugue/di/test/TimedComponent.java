@@ -0,0 +1,100 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.di.test;
+
+import java.util.List;
+
+import org.symphonyoss.s2.fugue.di.ComponentDescriptor;
+import org.symphonyoss.s2.fugue.di.IComponent;
+
+/**
+ * A component which takes a given time to start and stop and records its start and stop in a list of events.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class TimedComponent implements IComponentA, IComponentB, IComponentC
+{
+  private final String                       name_;
+  private final long                         startMillis_;
+  private final List<String>                 events_;
+  private final Class<? extends IComponent>  provides_;
+  private final Class<? extends IComponent>[] dependsOn_;
+  private long                               stopMillis_;
+
+  @SafeVarargs
+  public TimedComponent(String name, long startMillis, List<String> events,
+      Class<? extends IComponent> provides, Class<? extends IComponent> ...dependsOn)
+  {
+    name_ = name;
+    startMillis_ = startMillis;
+    events_ = events;
+    provides_ = provides;
+    dependsOn_ = dependsOn;
+  }
+
+  public TimedComponent withStopMillis(long stopMillis)
+  {
+    stopMillis_ = stopMillis;
+    
+    return this;
+  }
+
+  @Override
+  public ComponentDescriptor getComponentDescriptor()
+  {
+    ComponentDescriptor desc = new ComponentDescriptor()
+        .addStart(() -> 
+        {
+          events_.add("begin " + name_);
+          sleep(startMillis_);
+          events_.add("start " + name_);
+        })
+        .addStop(() -> 
+        {
+          sleep(stopMillis_);
+          events_.add("stop " + name_);
+        });
+    
+    if(provides_ != null)
+      desc.addProvidedInterface(provides_);
+    
+    for(Class<? extends IComponent> dependency : dependsOn_)
+      desc.addDependency(dependency, (v) -> {});
+    
+    return desc;
+  }
+
+  private static void sleep(long millis)
+  {
+    try
+    {
+      Thread.sleep(millis);
+    }
+    catch (InterruptedException e)
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -31,10 +31,13 @@ import org.slf4j.LoggerFactory;
 import org.symphonyoss.s2.fugue.FugueLifecycleState;
 import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
 import org.symphonyoss.s2.fugue.core.trace.ITraceContextFactory;
+import org.symphonyoss.s2.fugue.core.trace.TraceContextHolder;
 import org.symphonyoss.s2.fugue.pipeline.FatalConsumerException;
 import org.symphonyoss.s2.fugue.pipeline.IThreadSafeErrorConsumer;
 import org.symphonyoss.s2.fugue.pipeline.IThreadSafeRetryableConsumer;
 import org.symphonyoss.s2.fugue.pipeline.RetryableConsumerException;
+import org.symphonyoss.s2.fugue.startup.StartupStep;
+import org.symphonyoss.s2.fugue.startup.StartupTimeline;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -111,7 +114,10 @@ public abstract class AbstractSubscriberManager<P, T extends ISubscriberManager<
     
     for(Subscription<P> s : getSubscribers())
     {
-      startSubscription(s);
+      try(StartupStep step = StartupTimeline.getDefault().begin("subscribe " + s.getSubscriptionName()))
+      {
+        startSubscription(s);
+      }
     }
     
     setLifeCycleState(FugueLifecycleState.Running);
@@ -130,6 +136,8 @@ public abstract class AbstractSubscriberManager<P, T extends ISubscriberManager<
   /**
    * Handle the given message.
    * 
+   * The given trace context is set as the trace context of the current thread while the message is processed.
+   * 
    * @param consumer  The consumer for the message.
    * @param payload   A received message.
    * @param trace     A trace context.
@@ -140,6 +148,8 @@ public abstract class AbstractSubscriberManager<P, T extends ISubscriberManager<
    */
   public long handleMessage(IThreadSafeRetryableConsumer<P> consumer, P payload, ITraceContext trace, String messageId)
   {
+    ITraceContext previous = TraceContextHolder.set(trace);
+    
     try
     {
       consumer.consume(payload, trace);
@@ -168,6 +178,10 @@ public abstract class AbstractSubscriberManager<P, T extends ISubscriberManager<
       
       return abortMessage(payload, trace, e);
     }
+    finally
+    {
+      TraceContextHolder.set(previous);
+    }
     
     return MESSAGE_PROCESSED_OK;
   }
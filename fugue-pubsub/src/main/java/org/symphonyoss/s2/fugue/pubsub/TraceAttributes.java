@@ -0,0 +1,71 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.pubsub;
+
+import java.time.Instant;
+
+import javax.annotation.Nullable;
+
+/**
+ * Names of the message attributes used to carry trace context from publishers to subscribers.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class TraceAttributes
+{
+  /** The attribute containing ITraceContext.getTraceId() of the publishing context. */
+  public static final String TRACE_ID   = "traceId";
+  
+  /** The attribute containing the time at which the message was published, in milliseconds since the epoch. */
+  public static final String TRACE_TIME = "traceTime";
+  
+  private TraceAttributes()
+  {}
+  
+  /**
+   * Parse the value of a TRACE_TIME attribute.
+   * 
+   * @param value         The attribute value, may be null.
+   * @param defaultValue  The value to return if the attribute is missing or invalid.
+   * 
+   * @return The publish time.
+   */
+  public static Instant parseTraceTime(@Nullable String value, Instant defaultValue)
+  {
+    if(value != null)
+    {
+      try
+      {
+        return Instant.ofEpochMilli(Long.parseLong(value));
+      }
+      catch(NumberFormatException e)
+      {
+        // fall through
+      }
+    }
+    
+    return defaultValue;
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.pubsub.trace;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.symphonyoss.s2.common.hash.Hash;
+import org.symphonyoss.s2.common.hash.HashProvider;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+
+/**
+ * An ITraceContext which passes its events to a PublishingTraceContextFactory.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+/* package */ class PublishingTraceContext implements ITraceContext
+{
+  private static final String                 STARTED = "STARTED";
+
+  private final PublishingTraceContextFactory factory_;
+  private final Hash                          id_     = HashProvider.getCompositeHashOf(UUID.randomUUID());
+  private final PublishingTraceContext        parent_;
+  private final String                        remoteParentId_;
+  private final String                        subjectType_;
+  private final String                        subjectId_;
+  private final Instant                       timestamp_;
+  private final Hash                          hash_;
+
+  private String                              idString_;
+
+  /* package */ PublishingTraceContext(PublishingTraceContextFactory factory, PublishingTraceContext parent,
+      String remoteParentId, String subjectType, String subjectId, Instant timestamp)
+  {
+    factory_ = factory;
+    parent_ = parent;
+    remoteParentId_ = remoteParentId;
+    subjectType_ = subjectType;
+    subjectId_ = subjectId;
+    timestamp_ = timestamp;
+    hash_ = HashProvider.getCompositeHashOf(id_, subjectType_, subjectId_);
+    
+    trace(STARTED, timestamp_);
+  }
+
+  /* package */ synchronized String getId()
+  {
+    if(idString_ == null)
+      idString_ = id_.toString();
+    
+    return idString_;
+  }
+
+  /* package */ String getParentId()
+  {
+    return parent_ == null ? remoteParentId_ : parent_.getId();
+  }
+
+  @Override
+  public String getTraceId()
+  {
+    return getId();
+  }
+
+  /* package */ String getSubjectType()
+  {
+    return subjectType_;
+  }
+
+  /* package */ String getSubjectId()
+  {
+    return subjectId_;
+  }
+
+  @Override
+  public Hash getHash()
+  {
+    return hash_;
+  }
+
+  @Override
+  public Instant getTimestamp()
+  {
+    return timestamp_;
+  }
+
+  @Override
+  public void trace(String operationId)
+  {
+    factory_.record(new TraceEvent(this, operationId, null, null, System.currentTimeMillis()));
+  }
+
+  @Override
+  public void trace(String operationId, Instant time)
+  {
+    factory_.record(new TraceEvent(this, operationId, null, null, time.toEpochMilli()));
+  }
+
+  @Override
+  public void trace(String operationId, String subjectType, String subjectId)
+  {
+    factory_.record(new TraceEvent(this, operationId, subjectType, subjectId, System.currentTimeMillis()));
+  }
+
+  @Override
+  public ITraceContext createSubContext(String subjectType, String subjectId)
+  {
+    return new PublishingTraceContext(factory_, this, null, subjectType, subjectId, Instant.now());
+  }
+
+  @Override
+  public ITraceContext createSubContext(String subjectType, String subjectId, Instant time)
+  {
+    return new PublishingTraceContext(factory_, this, null, subjectType, subjectId, time);
+  }
+}
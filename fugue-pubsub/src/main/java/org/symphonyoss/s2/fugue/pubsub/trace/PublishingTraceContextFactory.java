@@ -0,0 +1,402 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.pubsub.trace;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.s2.fugue.FugueComponentState;
+import org.symphonyoss.s2.fugue.FugueLifecycleComponent;
+import org.symphonyoss.s2.fugue.FugueLifecycleState;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContextFactory;
+import org.symphonyoss.s2.fugue.core.trace.NoOpTraceContext;
+import org.symphonyoss.s2.fugue.pubsub.IPublisher;
+import org.symphonyoss.s2.fugue.pubsub.IPublisherManager;
+
+/**
+ * An ITraceContextFactory which publishes trace events to the trace topic of the given publisher manager.
+ * 
+ * Events are buffered per thread and handed off in batches to a bounded queue which is drained by a single
+ * publisher thread, so the calling thread never blocks on I/O. If the queue is full the batch is dropped and
+ * counted, trace events are never allowed to apply back pressure to business processing.
+ * 
+ * Events are serialized as compact pipe separated lines, many events to a message.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class PublishingTraceContextFactory extends FugueLifecycleComponent<PublishingTraceContextFactory>
+  implements ITraceContextFactory
+{
+  private static final Logger                     log_             = LoggerFactory.getLogger(PublishingTraceContextFactory.class);
+
+  private static final int                        MAX_LINE_BYTES   = 4096;
+
+  private final IPublisherManager<String>         publisherManager_;
+  private final ThreadLocal<TraceEventBuffer>     threadBuffer_    = ThreadLocal.withInitial(() -> createBuffer());
+  private final CopyOnWriteArrayList<TraceEventBuffer> buffers_    = new CopyOnWriteArrayList<>();
+  private final AtomicLong                        publishedEvents_ = new AtomicLong();
+  private final AtomicLong                        publishedMessages_ = new AtomicLong();
+  private final AtomicLong                        droppedEvents_   = new AtomicLong();
+  private final AtomicLong                        failedEvents_    = new AtomicLong();
+
+  private int                                     batchSize_       = 100;
+  private long                                    maxDelayMillis_  = 1000;
+  private int                                     queueCapacity_   = 1000;
+
+  private BlockingQueue<List<TraceEvent>>         queue_;
+  private IPublisher<String>                      publisher_;
+  private Thread                                  publisherThread_;
+  private volatile boolean                        running_;
+
+  /**
+   * Constructor.
+   * 
+   * @param publisherManager  The publisher manager whose trace publisher will receive trace events.
+   */
+  public PublishingTraceContextFactory(IPublisherManager<String> publisherManager)
+  {
+    super(PublishingTraceContextFactory.class);
+    
+    publisherManager_ = publisherManager;
+  }
+
+  /**
+   * Set the number of events buffered by each thread before they are handed off for publication.
+   * 
+   * @param batchSize The number of events in a batch.
+   * 
+   * @return this (fluent method)
+   */
+  public PublishingTraceContextFactory withBatchSize(int batchSize)
+  {
+    assertConfigurable();
+    
+    if(batchSize < 1)
+      throw new IllegalArgumentException("batchSize must be positive");
+    
+    batchSize_ = batchSize;
+    
+    return self();
+  }
+
+  /**
+   * Set the maximum time for which an event may be buffered before it is handed off for publication.
+   * 
+   * @param maxDelay  The maximum delay.
+   * @param unit      The unit of maxDelay.
+   * 
+   * @return this (fluent method)
+   */
+  public PublishingTraceContextFactory withMaxDelay(long maxDelay, TimeUnit unit)
+  {
+    assertConfigurable();
+    
+    maxDelayMillis_ = Math.max(1, unit.toMillis(maxDelay));
+    
+    return self();
+  }
+
+  /**
+   * Set the maximum number of batches waiting for publication, beyond which batches are dropped.
+   * 
+   * @param queueCapacity The maximum number of batches queued.
+   * 
+   * @return this (fluent method)
+   */
+  public PublishingTraceContextFactory withQueueCapacity(int queueCapacity)
+  {
+    assertConfigurable();
+    
+    if(queueCapacity < 1)
+      throw new IllegalArgumentException("queueCapacity must be positive");
+    
+    queueCapacity_ = queueCapacity;
+    
+    return self();
+  }
+
+  @Override
+  public synchronized void start()
+  {
+    setLifeCycleState(FugueLifecycleState.Starting);
+    
+    publisher_ = publisherManager_.getTracePublisher();
+    queue_ = new ArrayBlockingQueue<>(queueCapacity_);
+    running_ = true;
+    
+    publisherThread_ = new Thread(() -> runPublisher(), "TracePublisher");
+    publisherThread_.setDaemon(true);
+    publisherThread_.start();
+    
+    setLifeCycleState(FugueLifecycleState.Running);
+  }
+
+  @Override
+  public synchronized void stop()
+  {
+    setLifeCycleState(FugueLifecycleState.Stopping);
+    
+    running_ = false;
+    
+    if(publisherThread_ != null)
+    {
+      publisherThread_.interrupt();
+      
+      try
+      {
+        publisherThread_.join(TimeUnit.SECONDS.toMillis(10));
+      }
+      catch (InterruptedException e)
+      {
+        log_.warn("Interrupted waiting for trace publisher to terminate", e);
+        Thread.currentThread().interrupt();
+      }
+      publisherThread_ = null;
+    }
+    
+    if(queue_ != null)
+    {
+      List<TraceEvent> batch;
+      
+      while((batch = queue_.poll()) != null)
+        publish(batch);
+      
+      sweep(Long.MAX_VALUE);
+    }
+    
+    log_.info("Trace publisher stopped, " + getComponentStatusMessage());
+    
+    setLifeCycleState(FugueLifecycleState.Stopped);
+  }
+
+  @Override
+  public FugueComponentState getComponentState()
+  {
+    if(failedEvents_.get() > 0)
+      return FugueComponentState.Error;
+    
+    if(droppedEvents_.get() > 0)
+      return FugueComponentState.Warn;
+    
+    return FugueComponentState.OK;
+  }
+
+  @Override
+  public String getComponentStatusMessage()
+  {
+    return String.format("%d events published in %d messages, %d dropped, %d failed, %d batches queued",
+        publishedEvents_.get(), publishedMessages_.get(), droppedEvents_.get(), failedEvents_.get(),
+        queue_ == null ? 0 : queue_.size());
+  }
+
+  /**
+   * @return The number of trace events which have been published.
+   */
+  public long getPublishedEventCount()
+  {
+    return publishedEvents_.get();
+  }
+
+  /**
+   * @return The number of trace events which were dropped because the publication queue was full.
+   */
+  public long getDroppedEventCount()
+  {
+    return droppedEvents_.get();
+  }
+
+  /**
+   * @return The number of trace events which were lost due to publication failures.
+   */
+  public long getFailedEventCount()
+  {
+    return failedEvents_.get();
+  }
+
+  @Override
+  public ITraceContext createTransaction(@Nullable String subjectType, @Nullable String subjectId)
+  {
+    return new PublishingTraceContext(this, null, null, subjectType, subjectId, Instant.now());
+  }
+
+  @Override
+  public ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime)
+  {
+    return new PublishingTraceContext(this, null, null, subjectType, subjectId, startTime);
+  }
+
+  @Override
+  public ITraceContext createTransaction(String subjectType, String subjectId, Instant startTime, @Nullable String parentTraceId)
+  {
+    return new PublishingTraceContext(this, null, parentTraceId, subjectType, subjectId, startTime);
+  }
+
+  /* package */ void record(TraceEvent event)
+  {
+    if(!running_)
+    {
+      droppedEvents_.incrementAndGet();
+      return;
+    }
+    
+    List<TraceEvent> batch = threadBuffer_.get().add(event);
+    
+    if(batch != null)
+      enqueue(batch);
+  }
+
+  private TraceEventBuffer createBuffer()
+  {
+    TraceEventBuffer buffer = new TraceEventBuffer(Thread.currentThread(), batchSize_);
+    
+    buffers_.add(buffer);
+    
+    return buffer;
+  }
+
+  private void enqueue(List<TraceEvent> batch)
+  {
+    if(!queue_.offer(batch))
+      droppedEvents_.addAndGet(batch.size());
+  }
+
+  private void runPublisher()
+  {
+    long nextSweep = System.currentTimeMillis() + maxDelayMillis_;
+    
+    while(running_)
+    {
+      try
+      {
+        List<TraceEvent> batch = queue_.poll(Math.max(1, nextSweep - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        
+        if(batch != null)
+          publish(batch);
+        
+        long now = System.currentTimeMillis();
+        
+        if(now >= nextSweep)
+        {
+          sweep(now - maxDelayMillis_);
+          nextSweep = now + maxDelayMillis_;
+        }
+      }
+      catch (InterruptedException e)
+      {
+        // Expected on stop()
+      }
+      catch (RuntimeException e)
+      {
+        log_.error("Unexpected error in trace publisher", e);
+      }
+    }
+  }
+
+  /*
+   * Publish the contents of any buffers whose oldest event is older than the given time, and discard
+   * buffers belonging to threads which have terminated.
+   */
+  private void sweep(long cutOff)
+  {
+    for(TraceEventBuffer buffer : buffers_)
+    {
+      boolean orphaned = buffer.isOrphaned();
+      
+      List<TraceEvent> batch = buffer.takeIfOlderThan(orphaned ? Long.MAX_VALUE : cutOff);
+      
+      if(batch != null)
+        publish(batch);
+      
+      if(orphaned)
+        buffers_.remove(buffer);
+    }
+  }
+
+  private void publish(List<TraceEvent> batch)
+  {
+    int           maxBytes      = publisher_.getMaximumMessageSize();
+    int           maxLineBytes  = Math.min(MAX_LINE_BYTES, maxBytes);
+    StringBuilder message       = new StringBuilder();
+    StringBuilder line          = new StringBuilder();
+    int           bytes         = 0;
+    int           count         = 0;
+    
+    for(TraceEvent event : batch)
+    {
+      line.setLength(0);
+      event.appendTo(line);
+      
+      int lineBytes = line.toString().getBytes(StandardCharsets.UTF_8).length;
+      
+      if(lineBytes > maxLineBytes)
+      {
+        log_.warn("Discarding oversized trace event " + event);
+        failedEvents_.incrementAndGet();
+        continue;
+      }
+      
+      if(bytes + lineBytes > maxBytes)
+      {
+        send(message.toString(), count);
+        message.setLength(0);
+        bytes = 0;
+        count = 0;
+      }
+      
+      message.append(line);
+      bytes += lineBytes;
+      count++;
+    }
+    
+    if(count > 0)
+      send(message.toString(), count);
+  }
+
+  private void send(String message, int count)
+  {
+    try
+    {
+      publisher_.consume(message, NoOpTraceContext.INSTANCE);
+      publishedEvents_.addAndGet(count);
+      publishedMessages_.incrementAndGet();
+    }
+    catch(RuntimeException e)
+    {
+      failedEvents_.addAndGet(count);
+      log_.warn("Failed to publish " + count + " trace events", e);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.pubsub.trace;
+
+import java.time.Instant;
+
+/**
+ * A single trace event, as buffered before publication.
+ * 
+ * Events hold a reference to their context rather than a formatted string so that the cost of formatting
+ * falls on the publisher thread and not on the business thread which generated the event.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+/* package */ class TraceEvent
+{
+  private static final char   SEPARATOR = '|';
+  
+  /* package */ final PublishingTraceContext context_;
+  /* package */ final String                 operationId_;
+  /* package */ final String                 subjectType_;
+  /* package */ final String                 subjectId_;
+  /* package */ final long                   time_;
+
+  /* package */ TraceEvent(PublishingTraceContext context, String operationId, String subjectType, String subjectId, long time)
+  {
+    context_ = context;
+    operationId_ = operationId;
+    subjectType_ = subjectType;
+    subjectId_ = subjectId;
+    time_ = time;
+  }
+  
+  /**
+   * Append the compact form of this event to the given buffer.
+   * 
+   * The format is a single line of the form
+   * 
+   * <code>contextId|parentId|subjectType|subjectId|operationId|operationSubjectType|operationSubjectId|epochMillis</code>
+   * 
+   * with empty fields for absent values.
+   * 
+   * @param out A buffer to which the event is appended.
+   * 
+   * @return The given buffer.
+   */
+  /* package */ StringBuilder appendTo(StringBuilder out)
+  {
+    append(out, context_.getId());
+    out.append(SEPARATOR);
+    append(out, context_.getParentId());
+    out.append(SEPARATOR);
+    append(out, context_.getSubjectType());
+    out.append(SEPARATOR);
+    append(out, context_.getSubjectId());
+    out.append(SEPARATOR);
+    append(out, operationId_);
+    out.append(SEPARATOR);
+    append(out, subjectType_);
+    out.append(SEPARATOR);
+    append(out, subjectId_);
+    out.append(SEPARATOR);
+    out.append(time_);
+    
+    return out.append('\n');
+  }
+
+  private static void append(StringBuilder out, String value)
+  {
+    if(value == null)
+      return;
+    
+    for(int i=0 ; i<value.length() ; i++)
+    {
+      char c = value.charAt(i);
+      
+      switch(c)
+      {
+        case SEPARATOR:
+        case '\\':
+          out.append('\\').append(c);
+          break;
+          
+        case '\n':
+          out.append("\\n");
+          break;
+          
+        default:
+          out.append(c);
+      }
+    }
+  }
+  
+  @Override
+  public String toString()
+  {
+    return appendTo(new StringBuilder()).toString().trim() + " (" + Instant.ofEpochMilli(time_) + ")";
+  }
+}
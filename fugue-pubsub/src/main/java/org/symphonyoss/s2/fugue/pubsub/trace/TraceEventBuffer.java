@@ -0,0 +1,108 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.s2.fugue.pubsub.trace;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A per thread buffer of trace events.
+ * 
+ * The buffer is only ever written by its owning thread, but is swept by the publisher thread which takes
+ * any partial batch which has been waiting for longer than the maximum delay, so access is synchronized. Since
+ * the lock is almost never contended this is cheap.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+/* package */ class TraceEventBuffer
+{
+  private final WeakReference<Thread> owner_;
+  private final int                   batchSize_;
+  
+  private List<TraceEvent>            events_;
+  private long                        firstEventTime_;
+
+  /* package */ TraceEventBuffer(Thread owner, int batchSize)
+  {
+    owner_ = new WeakReference<>(owner);
+    batchSize_ = batchSize;
+    events_ = new ArrayList<>(batchSize_);
+  }
+
+  /**
+   * Add the given event to the buffer.
+   * 
+   * @param event An event.
+   * 
+   * @return A full batch of events if the buffer is now full, otherwise null.
+   */
+  /* package */ synchronized List<TraceEvent> add(TraceEvent event)
+  {
+    if(events_.isEmpty())
+      firstEventTime_ = System.currentTimeMillis();
+    
+    events_.add(event);
+    
+    if(events_.size() >= batchSize_)
+      return take();
+    
+    return null;
+  }
+  
+  /**
+   * Take any buffered events whose oldest member was added before the given time.
+   * 
+   * @param cutOff  A time in milliseconds since the epoch, or Long.MAX_VALUE to take all events unconditionally.
+   * 
+   * @return The buffered events, or null if there are none or they are not old enough.
+   */
+  /* package */ synchronized List<TraceEvent> takeIfOlderThan(long cutOff)
+  {
+    if(events_.isEmpty() || firstEventTime_ > cutOff)
+      return null;
+    
+    return take();
+  }
+  
+  private List<TraceEvent> take()
+  {
+    List<TraceEvent> batch = events_;
+    
+    events_ = new ArrayList<>(batchSize_);
+    
+    return batch;
+  }
+
+  /**
+   * @return true if the thread which owns this buffer has terminated.
+   */
+  /* package */ boolean isOrphaned()
+  {
+    Thread owner = owner_.get();
+    
+    return owner == null || !owner.isAlive();
+  }
+}
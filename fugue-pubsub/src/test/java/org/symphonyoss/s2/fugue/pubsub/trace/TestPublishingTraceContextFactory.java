@@ -0,0 +1,301 @@
+/*
+ *
+ *
+ * Copyright 2018 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.s2.fugue.pubsub.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
+import org.symphonyoss.s2.fugue.pubsub.IPublisher;
+import org.symphonyoss.s2.fugue.pubsub.IPublisherManager;
+
+@SuppressWarnings("javadoc")
+public class TestPublishingTraceContextFactory
+{
+  private static class StubPublisher implements IPublisher<String>, IPublisherManager<String>
+  {
+    private final List<String>   messages_ = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release_;
+    private final int            maxSize_;
+    
+    private StubPublisher(CountDownLatch release)
+    {
+      this(release, 4096);
+    }
+    
+    private StubPublisher(CountDownLatch release, int maxSize)
+    {
+      release_ = release;
+      maxSize_ = maxSize;
+    }
+
+    @Override
+    public void consume(String item, ITraceContext trace)
+    {
+      try
+      {
+        release_.await();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      
+      messages_.add(item);
+    }
+
+    @Override
+    public void close()
+    {
+    }
+
+    @Override
+    public int getMaximumMessageSize()
+    {
+      return maxSize_;
+    }
+
+    @Override
+    public IPublisher<String> getPublisherByName(String topicName)
+    {
+      return this;
+    }
+
+    @Override
+    public IPublisher<String> getTracePublisher()
+    {
+      return this;
+    }
+    
+    private List<String> getLines()
+    {
+      List<String> lines = new ArrayList<>();
+      
+      synchronized(messages_)
+      {
+        for(String message : messages_)
+          for(String line : message.split("\n"))
+            lines.add(line);
+      }
+      
+      return lines;
+    }
+  }
+  
+  private static void waitFor(PublishingTraceContextFactory factory, long count) throws InterruptedException
+  {
+    long deadline = System.currentTimeMillis() + 5000;
+    
+    while(factory.getPublishedEventCount() < count && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+  }
+  
+  @Test
+  public void testBatching() throws InterruptedException
+  {
+    StubPublisher publisher = new StubPublisher(new CountDownLatch(0));
+    PublishingTraceContextFactory factory = new PublishingTraceContextFactory(publisher)
+        .withBatchSize(3)
+        .withMaxDelay(1, TimeUnit.HOURS);
+    
+    factory.start();
+    
+    ITraceContext trace = factory.createTransaction("Type", "Id");
+    
+    trace.trace("ONE");
+    
+    Thread.sleep(100);
+    assertEquals(0, factory.getPublishedEventCount());
+    
+    trace.trace("TWO");
+    
+    waitFor(factory, 3);
+    
+    assertEquals(3, factory.getPublishedEventCount());
+    assertEquals(1, publisher.messages_.size());
+    
+    List<String> lines = publisher.getLines();
+    
+    assertEquals(3, lines.size());
+    assertTrue(lines.get(0).contains("|Type|Id|STARTED|"));
+    assertTrue(lines.get(1).contains("|Type|Id|ONE|"));
+    assertTrue(lines.get(2).contains("|Type|Id|TWO|"));
+    
+    factory.stop();
+  }
+  
+  @Test
+  public void testSweep() throws InterruptedException
+  {
+    StubPublisher publisher = new StubPublisher(new CountDownLatch(0));
+    PublishingTraceContextFactory factory = new PublishingTraceContextFactory(publisher)
+        .withBatchSize(100)
+        .withMaxDelay(50, TimeUnit.MILLISECONDS);
+    
+    factory.start();
+    
+    factory.createTransaction("Type", "Id").trace("ONE");
+    
+    waitFor(factory, 2);
+    
+    assertEquals(2, factory.getPublishedEventCount());
+    assertEquals(1, publisher.messages_.size());
+    
+    factory.stop();
+  }
+  
+  @Test
+  public void testStopFlushes()
+  {
+    StubPublisher publisher = new StubPublisher(new CountDownLatch(0));
+    PublishingTraceContextFactory factory = new PublishingTraceContextFactory(publisher)
+        .withBatchSize(100)
+        .withMaxDelay(1, TimeUnit.HOURS);
+    
+    factory.start();
+    
+    ITraceContext trace = factory.createTransaction("Type", "Id");
+    
+    trace.createSubContext("SubType", "SubId").trace("SUB");
+    
+    factory.stop();
+    
+    assertEquals(3, factory.getPublishedEventCount());
+    
+    List<String> lines = publisher.getLines();
+    String       id    = trace.getTraceId();
+    
+    assertTrue(lines.get(1).contains("|" + id + "|SubType|SubId|STARTED|"));
+    assertTrue(lines.get(2).contains("|" + id + "|SubType|SubId|SUB|"));
+  }
+  
+  @Test
+  public void testDropOnFull() throws InterruptedException
+  {
+    CountDownLatch release = new CountDownLatch(1);
+    StubPublisher publisher = new StubPublisher(release);
+    PublishingTraceContextFactory factory = new PublishingTraceContextFactory(publisher)
+        .withBatchSize(1)
+        .withQueueCapacity(1)
+        .withMaxDelay(1, TimeUnit.HOURS);
+    
+    factory.start();
+    
+    ITraceContext trace = factory.createTransaction("Type", "Id");
+    
+    // the publisher thread takes the first batch and blocks, the second fills the queue
+    Thread.sleep(100);
+    
+    for(int i=0 ; i<10 ; i++)
+      trace.trace("OP" + i);
+    
+    assertTrue(factory.getDroppedEventCount() >= 9);
+    
+    release.countDown();
+    factory.stop();
+    
+    assertEquals(11, factory.getPublishedEventCount() + factory.getDroppedEventCount());
+    assertEquals(0, factory.getFailedEventCount());
+  }
+  
+  @Test
+  public void testPacking()
+  {
+    StubPublisher publisher = new StubPublisher(new CountDownLatch(0));
+    PublishingTraceContextFactory factory = new PublishingTraceContextFactory(publisher)
+        .withBatchSize(1000)
+        .withMaxDelay(1, TimeUnit.HOURS);
+    
+    factory.start();
+    
+    ITraceContext trace   = factory.createTransaction("Type", "Id");
+    StringBuilder subject = new StringBuilder();
+    
+    for(int i=0 ; i<200 ; i++)
+      subject.append(i % 10);
+    
+    for(int i=0 ; i<99 ; i++)
+      trace.trace("OP" + i, "Op|Type", subject.toString());
+    
+    StringBuilder huge = new StringBuilder();
+    
+    while(huge.length() < 5000)
+      huge.append(subject);
+    
+    trace.trace("HUGE", "Op|Type", huge.toString());
+    
+    factory.stop();
+    
+    assertEquals(100, factory.getPublishedEventCount());
+    assertEquals(1, factory.getFailedEventCount());
+    assertTrue(publisher.messages_.size() > 1);
+    
+    for(String message : publisher.messages_)
+      assertTrue(message.getBytes(StandardCharsets.UTF_8).length <= 4096);
+    
+    List<String> lines = publisher.getLines();
+    
+    assertEquals(100, lines.size());
+    assertTrue(lines.get(1).contains("|OP0|Op\\|Type|" + subject + "|"));
+  }
+  
+  @Test
+  public void testPublisherMaximum()
+  {
+    StubPublisher publisher = new StubPublisher(new CountDownLatch(0), 600);
+    PublishingTraceContextFactory factory = new PublishingTraceContextFactory(publisher)
+        .withBatchSize(1000)
+        .withMaxDelay(1, TimeUnit.HOURS);
+    
+    factory.start();
+    
+    ITraceContext trace   = factory.createTransaction("Type", "Id");
+    StringBuilder subject = new StringBuilder();
+    
+    for(int i=0 ; i<200 ; i++)
+      subject.append(i % 10);
+    
+    for(int i=0 ; i<9 ; i++)
+      trace.trace("OP" + i, "Op|Type", subject.toString());
+    
+    // fits in MAX_LINE_BYTES but not in a message
+    trace.trace("LARGE", "Op|Type", subject.toString() + subject + subject);
+    
+    factory.stop();
+    
+    assertEquals(10, factory.getPublishedEventCount());
+    assertEquals(1, factory.getFailedEventCount());
+    assertTrue(publisher.messages_.size() > 1);
+    
+    for(String message : publisher.messages_)
+      assertTrue(message.getBytes(StandardCharsets.UTF_8).length <= 600);
+  }
+}
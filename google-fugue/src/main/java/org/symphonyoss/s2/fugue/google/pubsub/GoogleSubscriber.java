@@ -38,6 +38,7 @@ import org.symphonyoss.s2.fugue.core.trace.ITraceContext;
 import org.symphonyoss.s2.fugue.core.trace.ITraceContextFactory;
 import org.symphonyoss.s2.fugue.naming.SubscriptionName;
 import org.symphonyoss.s2.fugue.pipeline.IThreadSafeRetryableConsumer;
+import org.symphonyoss.s2.fugue.pubsub.TraceAttributes;
 
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.cloud.pubsub.v1.MessageReceiver;
@@ -84,7 +85,9 @@ public class GoogleSubscriber implements MessageReceiver
       Timestamp ts = message.getPublishTime();
       
       ITraceContext trace = traceFactory_.createTransaction(PubsubMessage.class.getSimpleName(), message.getMessageId(),
-          Instant.ofEpochSecond(ts.getSeconds(), ts.getNanos()));
+          TraceAttributes.parseTraceTime(message.getAttributesOrDefault(TraceAttributes.TRACE_TIME, null),
+              Instant.ofEpochSecond(ts.getSeconds(), ts.getNanos())),
+          message.getAttributesOrDefault(TraceAttributes.TRACE_ID, null));
       
       trace.trace("RECEIVED");
       ImmutableByteArray byteArray = ImmutableByteArray.newInstance(message.getData());